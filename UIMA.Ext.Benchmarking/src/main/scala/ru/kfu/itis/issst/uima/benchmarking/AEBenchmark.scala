@@ -5,121 +5,124 @@ package ru.kfu.itis.issst.uima.benchmarking
 
 import AEBenchmark._
 import org.apache.uima.analysis_engine.AnalysisEngineDescription
+import org.apache.uima.analysis_engine.metadata.FixedFlow
+import org.apache.uima.analysis_engine.metadata.impl.FlowControllerDeclaration_impl
 import org.apache.uima.collection.CollectionReaderDescription
 import scopt.OptionParser
 import java.io.File
-import org.apache.uima.fit.factory.ResourceCreationSpecifierFactory
-import com.typesafe.config.ConfigFactory
-import ru.kfu.itis.cll.uima.cpe.StatusCallbackListenerAdapter
+import org.apache.uima.fit.factory.{ FlowControllerFactory, ResourceCreationSpecifierFactory }
+import org.apache.uima.UIMAFramework
 import org.apache.uima.cas.CAS
-import org.apache.uima.collection.EntityProcessStatus
+import org.apache.uima.resource.ResourceManager
+import org.apache.uima.util.CasCreationUtils
 import com.typesafe.scalalogging.StrictLogging
-import org.apache.uima.util.ProcessTrace
 import scala.collection.JavaConversions._
-import org.apache.uima.util.ProcessTraceEvent
+import scala.collection.mutable
 import ru.kfu.itis.cll.uima.util.DocumentUtils
 import com.github.tototoshi.csv.CSVWriter
-import ru.kfu.itis.cll.uima.cpe.CpeBuilder
 import org.apache.uima.resource.metadata.impl.Import_impl
 import ru.kfu.itis.cll.uima.util.PipelineDescriptorUtils
-import org.apache.uima.collection.CollectionProcessingEngine
-import scala.concurrent.{ promise, Await }
-import scala.concurrent.duration.Duration
 
 /**
+ * Runs an analysis engine over a collection in a single thread and measures
+ * each delegate of the engine (or the engine as a whole if it is primitive or
+ * has a custom flow). Durations are measured in nanoseconds and aggregated
+ * into histograms. The tool writes a CSV row per document and analyzer,
+ * prints a percentile summary and optionally writes it as JSON to compare
+ * runs of different builds.
+ *
  * @author Rinat Gareev (Kazan Federal University)
  *
  */
 class AEBenchmark(args: ArgConfig) extends StrictLogging {
-  private val cpeRunPromise = promise[Boolean]
-  private val outLock = new AnyRef()
   private val csvWriter = CSVWriter.open(args.outputFile)
   writeHeader()
 
-  def run() {
-    val cpeBuilder = new CpeBuilder()
-    cpeBuilder.setMaxProcessingUnitThreatCount(1)
-    cpeBuilder.setReader(args.dataDesc)
-    cpeBuilder.addAnalysisEngine(args.aeDesc)
-    val cpe = cpeBuilder.createCpe()
-    // listeners
-    cpe.addStatusCallbackListener(recordingStatusCallbackListener)
-    // run
-    cpe.process()
-    //
-    Await.ready(cpeRunPromise.future, Duration.Inf)
-  }
-
-  private val recordingStatusCallbackListener = new StatusCallbackListenerAdapter {
-    override def entityProcessComplete(cas: CAS, epStatus: EntityProcessStatus) {
-      if (epStatus.isException())
-        logger.error("AE processing exception(s) is detected:\n{}", epStatus.getExceptions())
-      else if (epStatus.isEntitySkipped())
-        logger.warn("AE skipped a document!")
-      else {
-        entityProcessComplete(cas, epStatus.getProcessTrace())
+  def run(): BenchmarkReport = {
+    val resMgr = UIMAFramework.newDefaultResourceManager()
+    val (aeDesc, analyzerNames) = instrument(args.aeDesc, resMgr)
+    val reader = UIMAFramework.produceCollectionReader(args.dataDesc, resMgr, null)
+    val ae = UIMAFramework.produceAnalysisEngine(aeDesc, resMgr, null)
+    val analyzers = analyzerNames.map { case (key, name) => key -> new AnalyzerStats(name) }.toMap
+    val pipeline = new AnalyzerStats(RootAEName)
+    // steps of the current document, they are recorded when its token count is known
+    val docSteps = mutable.ArrayBuffer.empty[(String, Long, Long, Long)]
+    TimingFlowController.recorder = new StepRecorder {
+      override def stepFinished(key: String, durationNs: Long, casGrowth: Long, gcMillis: Long) {
+        docSteps += ((key, durationNs, casGrowth, gcMillis))
       }
     }
-
-    override def collectionProcessComplete() {
-      csvWriter.close()
-      logger.info("Finished.")
-      cpeRunPromise.success(true)
-    }
-
-    override def aborted() {
-      logger.info("Aborted.")
-      cpeRunPromise.success(false)
-    }
-
-    private def entityProcessComplete(cas: CAS, trace: ProcessTrace) {
-      def processEvent(ev: ProcessTraceEvent) {
-        logger.debug("ProcessTraceEvent with type {}", ev.getType())
-        ev.getSubEvents().foreach(processEvent)
-        import ProcessTraceEvent._
-        ev.getType() match {
-          case "Analysis" => writeEvent(cas, ev)
-          case ANALYSIS => writeEvent(cas, ev)
-          case SERVICE => ??? // TODO
-          case _ =>
+    val wallStart = System.currentTimeMillis()
+    try {
+      val cas = CasCreationUtils.createCas(
+        List(reader.getProcessingResourceMetaData(), ae.getProcessingResourceMetaData()),
+        null, resMgr)
+      reader.typeSystemInit(cas.getTypeSystem())
+      val tokenType = cas.getTypeSystem().getType(TokenTypeName)
+      while (reader.hasNext()) {
+        reader.getNext(cas)
+        docSteps.clear()
+        val casSizeBefore = TimingFlowController.casHeapCells(cas)
+        val gcBefore = TimingFlowController.gcMillis()
+        val start = System.nanoTime()
+        ae.process(cas)
+        val durationNs = System.nanoTime() - start
+        val docURI = DocumentUtils.getDocumentUri(cas)
+        val docSize = cas.getDocumentText().length()
+        val docTokens = if (tokenType == null) 0 else cas.getAnnotationIndex(tokenType).size()
+        for ((key, stepNs, casGrowth, gcMillis) <- docSteps) {
+          analyzers(key).record(stepNs, docSize, docTokens, casGrowth, gcMillis)
+          write(AnalysisRecord(docURI, docSize, analyzers(key).name, stepNs, casGrowth, gcMillis))
         }
+        val casGrowth = TimingFlowController.casHeapCells(cas) - casSizeBefore
+        val gcMillis = TimingFlowController.gcMillis() - gcBefore
+        pipeline.record(durationNs, docSize, docTokens, casGrowth, gcMillis)
+        write(AnalysisRecord(docURI, docSize, RootAEName, durationNs, casGrowth, gcMillis))
+        cas.reset()
       }
-      trace.getEvents().foreach(processEvent)
+      ae.collectionProcessComplete()
+    } finally {
+      TimingFlowController.recorder = null
+      csvWriter.close()
+      ae.destroy()
+      reader.close()
     }
-
-    private def writeEvent(cas: CAS, pte: ProcessTraceEvent) {
-      write(AnalysisRecord(
-        docURI = DocumentUtils.getDocumentUri(cas),
-        docSize = cas.getDocumentText().length(),
-        analyzerName = pte.getComponentName(),
-        durationMS = pte.getDuration(),
-        casSizeKb = cas.size()))
+    val report = new BenchmarkReport(analyzerNames.map(p => analyzers(p._1)), pipeline,
+      System.currentTimeMillis() - wallStart)
+    logger.info("Finished:\n{}", report.summary)
+    if (args.jsonFile != null) {
+      report.writeJson(args.jsonFile)
+      logger.info("JSON report is written to {}", args.jsonFile)
     }
+    report
   }
 
-  private def write(rec: AnalysisRecord) = outLock.synchronized {
+  private def write(rec: AnalysisRecord) {
     import rec._
-    csvWriter.writeRow(List(docURI, docSize, analyzerName, durationMS, casSizeKb))
+    csvWriter.writeRow(List(docURI, docSize, analyzerName, durationNs, casGrowth, gcMillis))
   }
 
-  private def writeHeader() = outLock.synchronized {
-    csvWriter.writeRow(List("DocURI", "DocSize", "Analyzer", "DurationMs", "CasSizeKb"))
+  private def writeHeader() {
+    csvWriter.writeRow(List("DocURI", "DocSize", "Analyzer", "DurationNs", "CasGrowthCells", "GcMs"))
   }
 }
 
 private[benchmarking] case class AnalysisRecord(
   docURI: String, docSize: Int,
-  analyzerName: String, durationMS: Int, casSizeKb: Int)
+  analyzerName: String, durationNs: Long, casGrowth: Long, gcMillis: Long)
 
 object AEBenchmark {
 
   case class ArgConfig(aeDesc: AnalysisEngineDescription = null,
     dataDesc: CollectionReaderDescription = null,
-    outputFile: File = null)
+    outputFile: File = null,
+    jsonFile: File = null)
 
   private val RootAEName = "RootAE";
+  private val RootDelegateKey = "rootAE"
+  private val TokenTypeName = "ru.kfu.cll.uima.tokenizer.fstype.Token"
 
-  private val cmdParser = new OptionParser[ArgConfig]("Analysis Engine Benchmark") {
+  private[benchmarking] val cmdParser = new OptionParser[ArgConfig]("Analysis Engine Benchmark") {
     opt[File]("ae-path") valueName ("<analysis-engine-desc-xml>") validate (validateFileExistence) action {
       (descFile, cfg) => cfg.copy(aeDesc = createAEDesc(Right(descFile)))
     }
@@ -132,6 +135,9 @@ object AEBenchmark {
     opt[File]('o', "out") required () valueName ("<output-file>") action {
       (outFile, cfg) => cfg.copy(outputFile = outFile)
     }
+    opt[File]("json") valueName ("<json-report-file>") action {
+      (jsonFile, cfg) => cfg.copy(jsonFile = jsonFile)
+    }
   }
 
   def main(args: Array[String]) {
@@ -147,11 +153,50 @@ object AEBenchmark {
       case Left(name) => `import`.setName(name)
       case Right(path) => `import`.setLocation(path.getPath());
     }
-    val aeDesc = PipelineDescriptorUtils.createAggregateDescription(Map("rootAE" -> `import`))
+    val aeDesc = PipelineDescriptorUtils.createAggregateDescription(Map(RootDelegateKey -> `import`))
     aeDesc.getMetaData().setName(RootAEName)
     aeDesc
   }
 
+  /**
+   * Replaces the flow controller of the benchmarked aggregate by
+   * [[TimingFlowController]]. The delegates of the imported engine are
+   * measured if it is an aggregate with a fixed flow, otherwise the imported
+   * engine is measured as a whole.
+   *
+   * @return the description to instantiate and pairs of delegate keys and
+   *         analyzer names in the flow order
+   */
+  private[benchmarking] def instrument(rootDesc: AnalysisEngineDescription,
+    resMgr: ResourceManager): (AnalysisEngineDescription, Seq[(String, String)]) = {
+    val innerSpec = rootDesc.getDelegateAnalysisEngineSpecifiers(resMgr).get(RootDelegateKey)
+    val innerFlow = innerSpec match {
+      case d: AnalysisEngineDescription if !d.isPrimitive() && d.getFlowControllerDeclaration() == null =>
+        d.getAnalysisEngineMetaData().getFlowConstraints() match {
+          case null => Some(d -> d.getDelegateAnalysisEngineSpecifiersWithImports().keySet().toList)
+          case ff: FixedFlow => Some(d -> ff.getFixedFlow().toList)
+          case _ => None
+        }
+      case _ => None
+    }
+    val (target, analyzerNames) = innerFlow match {
+      case Some((d, keys)) => (d, keys.map(k => k -> k))
+      case None =>
+        val innerName = innerSpec match {
+          case d: AnalysisEngineDescription if d.getMetaData().getName() != null => d.getMetaData().getName()
+          case _ => RootDelegateKey
+        }
+        (rootDesc, List(RootDelegateKey -> innerName))
+    }
+    val fcDecl = new FlowControllerDeclaration_impl()
+    fcDecl.setKey("TimingFlowController")
+    fcDecl.setSpecifier(FlowControllerFactory.createFlowControllerDescription(
+      classOf[TimingFlowController],
+      TimingFlowController.ParamDelegateKeys, analyzerNames.map(_._1).toArray))
+    target.setFlowControllerDeclaration(fcDecl)
+    (target, analyzerNames)
+  }
+
   private[benchmarking] def parseColReaderDesc(f: File) =
     ResourceCreationSpecifierFactory.createResourceCreationSpecifier(f.getPath(), null).
       asInstanceOf[CollectionReaderDescription]
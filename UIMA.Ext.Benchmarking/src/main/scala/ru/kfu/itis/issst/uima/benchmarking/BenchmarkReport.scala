@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarking
+
+import java.io.File
+
+import org.apache.commons.io.FileUtils
+
+/**
+ * Aggregated measurements of an analyzer over a collection.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class AnalyzerStats(val name: String) {
+  val latency = new LatencyHistogram()
+  var chars = 0L
+  var tokens = 0L
+  // main CAS heap cells
+  var casGrowth = 0L
+  var gcMillis = 0L
+
+  def record(durationNs: Long, docChars: Int, docTokens: Int, casGrowth: Long, gcMillis: Long) {
+    latency.record(durationNs)
+    chars += docChars
+    tokens += docTokens
+    this.casGrowth += casGrowth
+    this.gcMillis += gcMillis
+  }
+
+  def charsPerSec: Double = perSec(chars)
+
+  def tokensPerSec: Double = perSec(tokens)
+
+  private def perSec(amount: Long) =
+    if (latency.sum == 0) 0 else amount * 1e9 / latency.sum
+}
+
+/**
+ * Percentile summary and JSON report of a benchmark run.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class BenchmarkReport(val analyzers: Seq[AnalyzerStats], val pipeline: AnalyzerStats,
+  val wallTimeMs: Long) {
+
+  def summary: String = {
+    val sb = new StringBuilder
+    sb ++= "%-40s %7s %10s %10s %10s %10s %10s %10s %12s %12s %8s %12s%n".format(
+      "Analyzer", "Docs", "Total,ms", "Mean,us", "p50,us", "p95,us", "p99,us", "Max,us",
+      "Chars/s", "Tokens/s", "GC,ms", "CasCells+")
+    for (s <- analyzers :+ pipeline) {
+      val h = s.latency
+      sb ++= "%-40s %7d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %12.0f %12.0f %8d %12d%n".format(
+        abbreviate(s.name, 40), h.count, h.sum / 1e6, h.mean / 1e3,
+        h.valueAt(50) / 1e3, h.valueAt(95) / 1e3, h.valueAt(99) / 1e3, h.max / 1e3,
+        s.charsPerSec, s.tokensPerSec, s.gcMillis, s.casGrowth)
+    }
+    sb ++= s"Wall time: $wallTimeMs ms"
+    sb.toString
+  }
+
+  def toJson: String = {
+    val sb = new StringBuilder
+    sb ++= "{\n"
+    sb ++= s"""  "documents": ${pipeline.latency.count},\n"""
+    sb ++= s"""  "chars": ${pipeline.chars},\n"""
+    sb ++= s"""  "tokens": ${pipeline.tokens},\n"""
+    sb ++= s"""  "wallTimeMs": $wallTimeMs,\n"""
+    sb ++= "  \"pipeline\": "
+    appendJson(sb, pipeline, "  ")
+    sb ++= ",\n  \"analyzers\": ["
+    for ((s, i) <- analyzers.zipWithIndex) {
+      if (i > 0) sb += ','
+      sb ++= "\n    "
+      appendJson(sb, s, "    ")
+    }
+    sb ++= "\n  ]\n}\n"
+    sb.toString
+  }
+
+  def writeJson(file: File): Unit = FileUtils.write(file, toJson, "utf-8")
+
+  private def appendJson(sb: StringBuilder, s: AnalyzerStats, indent: String) {
+    val h = s.latency
+    val fields = Seq(
+      "name" -> quote(s.name),
+      "count" -> h.count,
+      "totalNs" -> h.sum,
+      "meanNs" -> math.round(h.mean),
+      "minNs" -> h.min,
+      "p50Ns" -> h.valueAt(50),
+      "p95Ns" -> h.valueAt(95),
+      "p99Ns" -> h.valueAt(99),
+      "maxNs" -> h.max,
+      "charsPerSec" -> math.round(s.charsPerSec),
+      "tokensPerSec" -> math.round(s.tokensPerSec),
+      "gcMs" -> s.gcMillis,
+      "casGrowthCells" -> s.casGrowth)
+    sb ++= fields.map { case (k, v) => s"""$indent  "$k": $v""" }.mkString("{\n", ",\n", s"\n$indent}")
+  }
+
+  private def quote(str: String): String = {
+    val sb = new StringBuilder("\"")
+    str.foreach {
+      case '"' => sb ++= "\\\""
+      case '\\' => sb ++= "\\\\"
+      case ch if ch < ' ' => sb ++= "\\u%04x".format(ch.toInt)
+      case ch => sb += ch
+    }
+    sb += '"'
+    sb.toString
+  }
+
+  private def abbreviate(str: String, maxLength: Int) =
+    if (str.length <= maxLength) str else "..." + str.substring(str.length - maxLength + 3)
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarking
+
+import java.lang.Long.numberOfLeadingZeros
+
+/**
+ * Histogram of non-negative values (e.g., nanosecond durations) with a
+ * bounded relative error in the manner of HdrHistogram. Values below
+ * 2^precisionBits^ are counted exactly. Larger values fall into buckets whose
+ * width is a 2^(1-precisionBits)^ fraction of their lower bound, so the default
+ * precision gives less than 1.6% error for any magnitude in a fixed memory.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class LatencyHistogram(precisionBits: Int = 7) {
+  require(precisionBits >= 2 && precisionBits <= 16, s"Illegal precision bits: $precisionBits")
+
+  private val linearCount = 1 << precisionBits
+  private val halfCount = linearCount >> 1
+  // max shift is for values with the highest bit 62
+  private val counts = new Array[Long](linearCount + (63 - precisionBits) * halfCount)
+  private var _count = 0L
+  private var _sum = 0L
+  private var _min = Long.MaxValue
+  private var _max = 0L
+
+  def record(value: Long) {
+    require(value >= 0, s"Negative value: $value")
+    counts(indexOf(value)) += 1
+    _count += 1
+    _sum += value
+    if (value < _min) _min = value
+    if (value > _max) _max = value
+  }
+
+  def count: Long = _count
+
+  def sum: Long = _sum
+
+  def min: Long = if (_count == 0) 0 else _min
+
+  def max: Long = _max
+
+  def mean: Double = if (_count == 0) 0 else _sum.toDouble / _count
+
+  /**
+   * @param percentile in (0, 100]
+   * @return the highest value that is equivalent (within the histogram
+   *         precision) to the value at the given percentile
+   */
+  def valueAt(percentile: Double): Long = {
+    require(percentile > 0 && percentile <= 100, s"Illegal percentile: $percentile")
+    if (_count == 0) return 0
+    val target = math.max(1L, math.ceil(percentile / 100 * _count).toLong)
+    var cumulative = 0L
+    var i = 0
+    while (i < counts.length) {
+      cumulative += counts(i)
+      if (cumulative >= target) return math.min(highestEquivalentValue(i), _max)
+      i += 1
+    }
+    _max
+  }
+
+  private def indexOf(value: Long): Int =
+    if (value < linearCount) value.toInt
+    else {
+      val highestBit = 63 - numberOfLeadingZeros(value)
+      val shift = highestBit - precisionBits + 1
+      // (value >> shift) is in [halfCount, linearCount)
+      linearCount + (shift - 1) * halfCount + ((value >> shift).toInt - halfCount)
+    }
+
+  private def highestEquivalentValue(index: Int): Long =
+    if (index < linearCount) index
+    else {
+      val k = index - linearCount
+      val shift = k / halfCount + 1
+      val mantissa = (k % halfCount + halfCount).toLong
+      ((mantissa + 1) << shift) - 1
+    }
+}
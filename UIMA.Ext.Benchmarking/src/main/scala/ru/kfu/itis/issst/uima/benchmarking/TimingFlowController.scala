@@ -0,0 +1,89 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarking
+
+import java.lang.management.ManagementFactory
+
+import scala.collection.JavaConversions._
+
+import org.apache.uima.cas.CAS
+import org.apache.uima.cas.impl.CASImpl
+import org.apache.uima.fit.component.CasFlowController_ImplBase
+import org.apache.uima.fit.descriptor.ConfigurationParameter
+import org.apache.uima.flow.{ CasFlow_ImplBase, FinalStep, Flow, SimpleStep, Step }
+
+/**
+ * Fixed flow controller that measures each step of an aggregate. A step
+ * duration is the time between two subsequent requests of the next step, so
+ * it includes a negligible dispatching overhead of the aggregate. GC time and
+ * CAS heap growth (in heap cells) are sampled outside of the measured
+ * intervals.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class TimingFlowController extends CasFlowController_ImplBase {
+
+  @ConfigurationParameter(name = "delegateKeys", mandatory = true)
+  private var delegateKeys: Array[String] = null
+
+  override def computeFlow(cas: CAS): Flow = {
+    val recorder = TimingFlowController.recorder
+    if (recorder == null)
+      throw new IllegalStateException("No step recorder is set")
+    new TimingFlow(cas, delegateKeys, recorder)
+  }
+}
+
+object TimingFlowController {
+  val ParamDelegateKeys = "delegateKeys"
+
+  /**
+   * Receives measurements of all instances. It must be set before an
+   * instrumented aggregate processes a CAS.
+   */
+  @volatile var recorder: StepRecorder = null
+
+  private val gcBeans = ManagementFactory.getGarbageCollectorMXBeans().toList
+
+  /**
+   * @return accumulated collection time of all collectors, in milliseconds
+   */
+  def gcMillis(): Long = gcBeans.map(_.getCollectionTime()).filter(_ > 0).sum
+
+  /**
+   * @return number of used cells of the main CAS heap. Unlike CAS#size it does
+   *         not depend on the heap capacity.
+   */
+  def casHeapCells(cas: CAS): Long = cas.asInstanceOf[CASImpl].getBaseCAS().getHeap().getNextId()
+}
+
+trait StepRecorder {
+  def stepFinished(key: String, durationNs: Long, casGrowth: Long, gcMillis: Long)
+}
+
+private class TimingFlow(cas: CAS, keys: Array[String], recorder: StepRecorder)
+  extends CasFlow_ImplBase {
+  private var current = -1
+  private var stepStart = 0L
+  private var casSizeBefore = 0L
+  private var gcBefore = 0L
+
+  override def next(): Step = {
+    val stepEnd = System.nanoTime()
+    if (current >= 0) {
+      recorder.stepFinished(keys(current), stepEnd - stepStart,
+        TimingFlowController.casHeapCells(cas) - casSizeBefore,
+        TimingFlowController.gcMillis() - gcBefore)
+    }
+    current += 1
+    if (current < keys.length) {
+      casSizeBefore = TimingFlowController.casHeapCells(cas)
+      gcBefore = TimingFlowController.gcMillis()
+      val step = new SimpleStep(keys(current))
+      stepStart = System.nanoTime()
+      step
+    } else new FinalStep()
+  }
+}
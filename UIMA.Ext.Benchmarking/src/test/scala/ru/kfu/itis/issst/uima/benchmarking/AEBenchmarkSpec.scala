@@ -20,4 +20,31 @@ class AEBenchmarkSpec extends FlatSpecLike {
       "-o", "target/ae-benchmark-test-output.csv"))
   }
 
-}
\ No newline at end of file
+  it should "write a json report" in {
+    val jsonFile = new File("target/ae-benchmark-test-report.json")
+    jsonFile.delete()
+    AEBenchmark.main(Array(
+      "--ae-name", "ru.kfu.itis.issst.uima.tokenizer.tokenizer-ae",
+      "--data", "test-data/col-reader-desc.xml",
+      "-o", "target/ae-benchmark-test-output.csv",
+      "--json", jsonFile.getPath()))
+    assert(jsonFile.isFile())
+  }
+
+  it should "measure each delegate of an aggregate" in {
+    val argCfg = cmdParser.parse(Array(
+      "--ae-path", "test-data/tokenizer-aggregate.xml",
+      "--data", "test-data/col-reader-desc.xml",
+      "-o", "target/ae-benchmark-test-output.csv"), ArgConfig()).get
+    val report = new AEBenchmark(argCfg).run()
+    assert(report.analyzers.map(_.name) === List("initialTokenizer", "postTokenizer"))
+    assert(report.pipeline.latency.count === 2)
+    for (s <- report.analyzers) {
+      assert(s.latency.count === 2)
+      assert(s.latency.sum > 0)
+      assert(s.latency.sum <= report.pipeline.latency.sum)
+    }
+    assert(report.pipeline.tokens > 0)
+  }
+
+}
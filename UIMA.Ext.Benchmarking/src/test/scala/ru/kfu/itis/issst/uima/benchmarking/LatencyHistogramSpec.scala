@@ -0,0 +1,39 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarking
+
+import org.scalatest.FlatSpecLike
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class LatencyHistogramSpec extends FlatSpecLike {
+
+  "LatencyHistogram" should "count small values exactly" in {
+    val h = new LatencyHistogram()
+    (1 to 100).foreach(h.record(_))
+    assert(h.count === 100)
+    assert(h.min === 1)
+    assert(h.max === 100)
+    assert(h.valueAt(50) === 50)
+    assert(h.valueAt(99) === 99)
+    assert(h.valueAt(100) === 100)
+  }
+
+  it should "bound the relative error of large values" in {
+    val h = new LatencyHistogram()
+    val rnd = new scala.util.Random(42)
+    val values = Array.fill(10000)(math.abs(rnd.nextLong()) >> rnd.nextInt(60))
+    values.foreach(h.record(_))
+    val sorted = values.sorted
+    for (p <- List(1.0, 50.0, 95.0, 99.0, 99.9)) {
+      val exact = sorted(math.ceil(p / 100 * sorted.length).toInt - 1)
+      val actual = h.valueAt(p)
+      assert(actual >= exact)
+      assert(actual - exact <= exact / 64, s"p$p: $actual vs $exact")
+    }
+    assert(h.valueAt(100) === sorted.last)
+  }
+}
@@ -0,0 +1,183 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.xml.sax.SAXException;
+
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.DummyWordformPredictor;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.XmlDictionaryParser;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+
+/**
+ * Offline inputs of the benchmarks. They are made of two checked-in resources:
+ * <ul>
+ * <li>'corpus.txt' - a synthetic Russian text (~300 KB) with punctuation,
+ * numbers, abbreviations and paragraph breaks. Its vocabulary includes all
+ * wordforms of the seed dictionary;</li>
+ * <li>'dict-seed.xml' - a small OpenCorpora dictionary (the same as the test
+ * dictionary of the OpenCorpora module). A synthetic dictionary of the
+ * required size is made by cloning its paradigms with random stems.</li>
+ * </ul>
+ * Both are deterministic, so results of different runs are comparable.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class BenchmarkData {
+
+	/**
+	 * the UTF-8 file with a text to use instead of the synthetic corpus
+	 */
+	public static final String SYSPROP_TEXT_FILE = "benchmark.text";
+
+	private static final String CORPUS_RESOURCE = "corpus.txt";
+	private static final String SEED_DICTIONARY_RESOURCE = "dict-seed.xml";
+	// the seed dictionary has one lemma per line
+	private static final Pattern LEMMA_PATTERN = Pattern.compile(
+			"^\\s*<lemma id=\"\\d+\" rev=\"\\d+\">(.*)</lemma>\\s*$", Pattern.MULTILINE);
+	private static final Pattern WORDFORM_TEXT_PATTERN = Pattern.compile(" t=\"([^\"]*)\"");
+	private static final String CONSONANTS = "бвгджзклмнпрстфхцчшщ";
+	private static final String VOWELS = "аеиоуыэюя";
+	// ids of cloned lemmas start after the ids of the seed
+	private static final int CLONE_ID_BASE = 1000000;
+	private static final int MIN_STEM_LENGTH = 2;
+
+	/**
+	 * @return the text from the file given by {@link #SYSPROP_TEXT_FILE}
+	 *         property if it is set, otherwise the synthetic corpus repeated
+	 *         up to the given size
+	 */
+	public static String getText(int defaultSizeMb) throws IOException {
+		String textPath = System.getProperty(SYSPROP_TEXT_FILE);
+		String text;
+		if (textPath != null) {
+			text = FileUtils.readFileToString(new File(textPath), "utf-8");
+		} else {
+			text = makeText(defaultSizeMb * 1024 * 1024);
+		}
+		return text;
+	}
+
+	/**
+	 * @return the synthetic corpus repeated until the result is at least of
+	 *         the given length
+	 */
+	public static String makeText(int length) throws IOException {
+		String corpus = getCorpus();
+		StringBuilder sb = new StringBuilder(length + corpus.length());
+		while (sb.length() < length) {
+			sb.append(corpus);
+		}
+		return sb.toString();
+	}
+
+	public static String getCorpus() throws IOException {
+		return Resources.toString(
+				Resources.getResource(BenchmarkData.class, CORPUS_RESOURCE), Charsets.UTF_8);
+	}
+
+	/**
+	 * @param lemmaCount
+	 *            desired number of lemmas. The result contains all seed
+	 *            lemmas, so it is never smaller than the seed.
+	 * @param seed
+	 *            seed of the stem generator
+	 * @return the dictionary with {@link DummyWordformPredictor}
+	 */
+	public static MorphDictionaryImpl makeDictionary(int lemmaCount, long seed)
+			throws IOException, SAXException {
+		String seedXml = Resources.toString(
+				Resources.getResource(BenchmarkData.class, SEED_DICTIONARY_RESOURCE),
+				Charsets.UTF_8);
+		Matcher lemmaMatcher = LEMMA_PATTERN.matcher(seedXml);
+		List<String> paradigms = Lists.newArrayList();
+		List<String> stems = Lists.newArrayList();
+		int lemmataEnd = -1;
+		while (lemmaMatcher.find()) {
+			lemmataEnd = lemmaMatcher.end();
+			String body = lemmaMatcher.group(1);
+			String stem = commonPrefix(body);
+			if (stem.length() >= MIN_STEM_LENGTH) {
+				paradigms.add(body);
+				stems.add(stem);
+			}
+		}
+		if (paradigms.isEmpty()) {
+			throw new IllegalStateException("No paradigms to clone in the seed dictionary");
+		}
+		StringBuilder xml = new StringBuilder(seedXml.length() * 2);
+		xml.append(seedXml, 0, lemmataEnd);
+		Random rnd = new Random(seed);
+		int seedLemmaCount = countLemmas(seedXml);
+		for (int i = 0; i < lemmaCount - seedLemmaCount; i++) {
+			int p = rnd.nextInt(paradigms.size());
+			String stem = stems.get(p);
+			String newStem = randomStem(rnd, stem.length());
+			String body = paradigms.get(p).replace(" t=\"" + stem, " t=\"" + newStem);
+			int id = CLONE_ID_BASE + i;
+			xml.append(String.format("%n    <lemma id=\"%s\" rev=\"%s\">", id, id))
+					.append(body).append("</lemma>");
+		}
+		xml.append(seedXml, lemmataEnd, seedXml.length());
+		MorphDictionaryImpl dict = XmlDictionaryParser.parse(
+				new ByteArrayInputStream(xml.toString().getBytes(Charsets.UTF_8)));
+		dict.setWfPredictor(new DummyWordformPredictor(dict));
+		return dict;
+	}
+
+	private static int countLemmas(String xml) {
+		Matcher m = LEMMA_PATTERN.matcher(xml);
+		int result = 0;
+		while (m.find()) {
+			result++;
+		}
+		return result;
+	}
+
+	private static String commonPrefix(String lemmaBody) {
+		Matcher m = WORDFORM_TEXT_PATTERN.matcher(lemmaBody);
+		String result = null;
+		while (m.find()) {
+			String wf = m.group(1);
+			if (result == null) {
+				result = wf;
+			} else {
+				int i = 0;
+				while (i < result.length() && i < wf.length() && result.charAt(i) == wf.charAt(i)) {
+					i++;
+				}
+				result = result.substring(0, i);
+			}
+		}
+		return result == null ? "" : result;
+	}
+
+	// alternate consonants and vowels to get word-like strings
+	private static String randomStem(Random rnd, int length) {
+		StringBuilder sb = new StringBuilder(length);
+		boolean vowel = rnd.nextBoolean();
+		for (int i = 0; i < length; i++) {
+			String alphabet = vowel ? VOWELS : CONSONANTS;
+			sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+			vowel = !vowel;
+		}
+		return sb.toString();
+	}
+
+	private BenchmarkData() {
+	}
+}
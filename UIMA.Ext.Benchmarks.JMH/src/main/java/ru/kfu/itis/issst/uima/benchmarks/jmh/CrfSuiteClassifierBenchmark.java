@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.cleartk.ml.Feature;
+import org.cleartk.ml.encoder.outcome.StringToStringOutcomeEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.kfu.itis.issst.cleartk.NameNumberSequenceWriter;
+import ru.kfu.itis.issst.cleartk.StringEncoder;
+import ru.kfu.itis.issst.cleartk.crfsuite.CRFSuiteStringOutcomeClassifier;
+import ru.kfu.itis.issst.cleartk.crfsuite.CrfSuiteAttributeTable;
+import ru.kfu.itis.issst.cleartk.crfsuite.NameNumberFeaturesEncoder2;
+import ru.kfu.itis.issst.cleartk.crfsuite2.SerializedNNBasedCrfSuiteTraining;
+import ru.kfu.itis.issst.uima.ml.FeatureSet;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+/**
+ * Measures {@link CRFSuiteStringOutcomeClassifier#classify(List)} of a
+ * sentence, i.e., features encoding and CRFsuite tagging. The model of the
+ * first tier (POS) is trained in the setup on the features and labels of
+ * {@link TieredTaggerBenchmarkData} by a few iterations of the averaged
+ * perceptron, so it is small but has the attributes of a real tagger model.
+ * The classifier is measured with and without the attribute table.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class CrfSuiteClassifierBenchmark {
+
+	private static final int TEXT_LENGTH = 64 * 1024;
+	private static final int TIER = 0;
+
+	@Param({ "20000" })
+	public int lemmaCount;
+
+	@Param({ "true", "false" })
+	public boolean useAttributeTable;
+
+	private File modelDir;
+	private CRFSuiteStringOutcomeClassifier classifier;
+	// sentence -> token -> features
+	private List<List<List<Feature>>> sentenceFeatures;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		TieredTaggerBenchmarkData data = new TieredTaggerBenchmarkData(lemmaCount, TEXT_LENGTH);
+		sentenceFeatures = Lists.newArrayListWithCapacity(data.sentences.size());
+		for (int s = 0; s < data.sentences.size(); s++) {
+			List<FeatureSet> featSets = data.featureExtractor.extractCommonFeatures(
+					data.jcas, data.sentences.get(s), data.sentenceTokens.get(s));
+			data.featureExtractor.onBeforeTier(featSets, data.sentenceLabels.get(s), TIER,
+					data.jcas, data.sentences.get(s), data.sentenceTokens.get(s));
+			List<List<Feature>> tokenFeatures = Lists.newArrayListWithCapacity(featSets.size());
+			for (FeatureSet fs : featSets) {
+				tokenFeatures.add(fs.toList());
+			}
+			sentenceFeatures.add(tokenFeatures);
+		}
+		//
+		modelDir = Files.createTempDir();
+		NameNumberFeaturesEncoder2 featuresEncoder = makeFeaturesEncoder();
+		File trainingDataFile = new File(modelDir, "training.bin");
+		NameNumberSequenceWriter writer = new NameNumberSequenceWriter(new BufferedOutputStream(
+				FileUtils.openOutputStream(trainingDataFile)));
+		try {
+			for (int s = 0; s < sentenceFeatures.size(); s++) {
+				List<List<Feature>> tokenFeatures = sentenceFeatures.get(s);
+				for (int t = 0; t < tokenFeatures.size(); t++) {
+					writer.writeItem(featuresEncoder.encodeAll(tokenFeatures.get(t)),
+							data.sentenceLabels.get(s).get(t).get(TIER));
+				}
+				writer.writeSequenceEnd();
+			}
+			writer.finish();
+		} finally {
+			writer.close();
+		}
+		File modelFile = new File(modelDir, "model.crfsuite");
+		File attrTableFile = new File(modelDir, "model.attributes");
+		SerializedNNBasedCrfSuiteTraining training = new SerializedNNBasedCrfSuiteTraining();
+		training.setModelFile(modelFile);
+		training.setTrainingAlgorithm("ap");
+		training.setParameters(ImmutableMap.of("max_iterations", "5"));
+		training.setAttributeTableFile(attrTableFile);
+		InputStream in = new BufferedInputStream(FileUtils.openInputStream(trainingDataFile));
+		try {
+			training.setIn(in);
+			training.run();
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		CrfSuiteAttributeTable attrTable = null;
+		if (useAttributeTable) {
+			InputStream attrIn = FileUtils.openInputStream(attrTableFile);
+			try {
+				attrTable = CrfSuiteAttributeTable.read(attrIn);
+			} finally {
+				IOUtils.closeQuietly(attrIn);
+			}
+		}
+		classifier = new CRFSuiteStringOutcomeClassifier(modelFile, attrTable,
+				makeFeaturesEncoder(), new StringToStringOutcomeEncoder());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		classifier.dispose();
+		FileUtils.deleteQuietly(modelDir);
+	}
+
+	@Benchmark
+	public List<String> classify() throws Exception {
+		cursor++;
+		if (cursor == sentenceFeatures.size()) {
+			cursor = 0;
+		}
+		return classifier.classify(sentenceFeatures.get(cursor));
+	}
+
+	// the same as the encoder of the serialized training data writer
+	private static NameNumberFeaturesEncoder2 makeFeaturesEncoder() {
+		NameNumberFeaturesEncoder2 result = new NameNumberFeaturesEncoder2(null);
+		result.addEncoder(new StringEncoder());
+		return result;
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.kfu.itis.issst.uima.tokenizer.InitialTokenizer;
+import ru.kfu.itis.issst.uima.tokenizer.PostTokenizer;
+import ru.kfu.itis.issst.uima.tokenizer.SimpleTokenizer;
+
+/**
+ * Measures {@link InitialTokenizer}, the two-pass tokenizer with
+ * {@link PostTokenizer} and the single-pass {@link SimpleTokenizer} on a
+ * multi-megabyte Russian text. The text is read from the UTF-8 file given by
+ * the 'benchmark.text' system property. If the property is not set, a text of
+ * the given size is made of the synthetic corpus (see {@link BenchmarkData}):
+ *
+ * <pre>
+ * java -Dbenchmark.text=/path/to/text.txt -jar target/benchmarks.jar InitialTokenizerBenchmark
+ * </pre>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class InitialTokenizerBenchmark {
+
+	/**
+	 * text size in megabytes, it is used if no text file is given
+	 */
+	@Param({ "4" })
+	public int textSizeMb;
+
+	@Param({ "initial", "initial+post", "simple" })
+	public String tokenizerName;
+
+	private AnalysisEngine tokenizer;
+	private JCas jcas;
+	private String text;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		text = BenchmarkData.getText(textSizeMb);
+		if ("initial".equals(tokenizerName)) {
+			tokenizer = createEngine(InitialTokenizer.createDescription());
+		} else if ("initial+post".equals(tokenizerName)) {
+			tokenizer = createEngine(createEngineDescription(
+					InitialTokenizer.createDescription(), PostTokenizer.createDescription()));
+		} else if ("simple".equals(tokenizerName)) {
+			tokenizer = createEngine(SimpleTokenizer.createDescription());
+		} else {
+			throw new IllegalArgumentException(tokenizerName);
+		}
+		jcas = tokenizer.newJCas();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		tokenizer.destroy();
+	}
+
+	@Benchmark
+	public int tokenize() throws Exception {
+		jcas.reset();
+		jcas.setDocumentText(text);
+		tokenizer.process(jcas);
+		return jcas.getAnnotationIndex(Annotation.type).size();
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_BATCH_SIZE;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_DATABASE_URL;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_DOCUMENT_URL_COLUMN;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_DRIVER_CLASS;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_KEY_COLUMN;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_KEY_PARAM_INDEX;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_LIMIT_PARAM_INDEX;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_OFFSET_PARAM_INDEX;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_PASSWORD;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_PREFETCH_BATCHES;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_QUERY;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_TEXT_COLUMN;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_USERNAME;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader;
+
+/**
+ * Measures the time of reading a whole table of {@link #rowCount} documents
+ * from an HSQLDB file database by {@link JdbcCollectionReader} paginated
+ * by offset, by key and by key with prefetching. Each document is 'processed'
+ * by burning {@link #docWork} CPU tokens to let prefetching overlap with the
+ * pipeline.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class JdbcCollectionReaderBenchmark {
+
+	private static final String DB_DRIVER = "org.hsqldb.jdbc.JDBCDriver";
+	private static final int TEXT_LENGTH = 200;
+
+	@Param({ "1000000" })
+	public int rowCount;
+
+	@Param({ "1000" })
+	public int batchSize;
+
+	@Param({ "0" })
+	public int docWork;
+
+	@Param({ "offset", "key", "key+prefetch" })
+	public String mode;
+
+	private File dbDir;
+	private String dbUrl;
+	private TypeSystemDescription tsd;
+	private CAS cas;
+	private Connection keepAliveCon;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Class.forName(DB_DRIVER);
+		// a file database as in-memory CLOBs of a million rows do not fit the heap
+		dbDir = Files.createTempDirectory("jdbc-reader-benchmark").toFile();
+		dbUrl = "jdbc:hsqldb:file:" + new File(dbDir, "db").getPath();
+		keepAliveCon = DriverManager.getConnection(dbUrl, "SA", "");
+		Statement st = keepAliveCon.createStatement();
+		st.execute("CREATE CACHED TABLE doc (" +
+				"id INT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) PRIMARY KEY, " +
+				"url VARCHAR(256) NOT NULL, txt CLOB)");
+		st.close();
+		String text = BenchmarkData.makeText(TEXT_LENGTH * 16);
+		keepAliveCon.setAutoCommit(false);
+		PreparedStatement insert = keepAliveCon.prepareStatement(
+				"INSERT INTO doc(url, txt) VALUES (?,?)");
+		for (int i = 0; i < rowCount; i++) {
+			insert.setString(1, "doc" + i);
+			int textStart = (i % 16) * TEXT_LENGTH;
+			insert.setString(2, text.substring(textStart, textStart + TEXT_LENGTH));
+			// HSQLDB invalidates LOBs of large batches, so rows are inserted one by one
+			insert.executeUpdate();
+			if (i % 10000 == 9999) {
+				keepAliveCon.commit();
+			}
+		}
+		insert.close();
+		keepAliveCon.commit();
+		tsd = createTypeSystemDescription("ru.kfu.itis.cll.uima.commons.Commons-TypeSystem");
+		cas = CasCreationUtils.createCas(tsd, null, null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		Statement st = keepAliveCon.createStatement();
+		st.execute("SHUTDOWN");
+		st.close();
+		keepAliveCon.close();
+		FileUtils.deleteDirectory(dbDir);
+	}
+
+	@Benchmark
+	public int readAll() throws Exception {
+		CollectionReader reader = makeReader();
+		int docs = 0;
+		try {
+			while (reader.hasNext()) {
+				cas.reset();
+				reader.getNext(cas);
+				Blackhole.consumeCPU(docWork);
+				docs++;
+			}
+		} finally {
+			reader.close();
+			reader.destroy();
+		}
+		if (docs != rowCount) {
+			throw new IllegalStateException(String.format(
+					"%s documents are read instead of %s", docs, rowCount));
+		}
+		return docs;
+	}
+
+	private CollectionReader makeReader() throws Exception {
+		if ("offset".equals(mode)) {
+			return createReader(JdbcCollectionReader.class, tsd,
+					PARAM_DATABASE_URL, dbUrl, PARAM_USERNAME, "SA", PARAM_PASSWORD, "",
+					PARAM_DRIVER_CLASS, DB_DRIVER,
+					PARAM_QUERY, "SELECT url, txt FROM doc ORDER BY id OFFSET ? LIMIT ?",
+					PARAM_OFFSET_PARAM_INDEX, 1,
+					PARAM_LIMIT_PARAM_INDEX, 2,
+					PARAM_DOCUMENT_URL_COLUMN, "url",
+					PARAM_TEXT_COLUMN, "txt",
+					PARAM_BATCH_SIZE, batchSize);
+		}
+		int prefetchBatches;
+		if ("key".equals(mode)) {
+			prefetchBatches = 0;
+		} else if ("key+prefetch".equals(mode)) {
+			prefetchBatches = 2;
+		} else {
+			throw new IllegalStateException("Unknown mode: " + mode);
+		}
+		return createReader(JdbcCollectionReader.class, tsd,
+				PARAM_DATABASE_URL, dbUrl, PARAM_USERNAME, "SA", PARAM_PASSWORD, "",
+				PARAM_DRIVER_CLASS, DB_DRIVER,
+				PARAM_QUERY, "SELECT id, url, txt FROM doc WHERE id > ? ORDER BY id LIMIT ?",
+				PARAM_KEY_COLUMN, "id",
+				PARAM_KEY_PARAM_INDEX, 1,
+				PARAM_LIMIT_PARAM_INDEX, 2,
+				PARAM_DOCUMENT_URL_COLUMN, "url",
+				PARAM_TEXT_COLUMN, "txt",
+				PARAM_BATCH_SIZE, batchSize,
+				PARAM_PREFETCH_BATCHES, prefetchBatches);
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformVisitor;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformIndex;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformTST;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Measures {@link MorphDictionaryImpl#getEntries(String)} and
+ * {@link MorphDictionaryImpl#lookup(CharSequence, int, int, WordformVisitor)}
+ * for dictionary and out-of-dictionary words, and filling a
+ * {@link WordformTST} with all entries of the dictionary. The synthetic
+ * dictionary of {@link BenchmarkData} is used.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class MorphDictionaryBenchmark {
+
+	private static final int QUERIES_NUM = 4096;
+
+	@Param({ "20000" })
+	public int lemmaCount;
+
+	private MorphDictionaryImpl dict;
+	private String[] knownWords;
+	private String[] unknownWords;
+	// all entries in a random order, as an index is filled in the order of lemmas
+	private String[] entryKeys;
+	private Wordform[] entryWordforms;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		dict = BenchmarkData.makeDictionary(lemmaCount, 42);
+		final List<String> keys = Lists.newArrayList();
+		final List<Wordform> wordforms = Lists.newArrayList();
+		dict.getWordformIndex().visitEntries(new WordformIndex.EntryVisitor() {
+			@Override
+			public void visit(String key, Iterable<Wordform> wfs) {
+				for (Wordform wf : wfs) {
+					keys.add(key);
+					wordforms.add(wf);
+				}
+			}
+		});
+		List<Integer> order = Lists.newArrayListWithCapacity(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, new Random(42));
+		entryKeys = new String[order.size()];
+		entryWordforms = new Wordform[order.size()];
+		for (int i = 0; i < order.size(); i++) {
+			entryKeys[i] = keys.get(order.get(i));
+			entryWordforms[i] = wordforms.get(order.get(i));
+		}
+		List<String> queries = Lists.newArrayList(keys);
+		Collections.shuffle(queries, new Random(42));
+		knownWords = queries.subList(0, QUERIES_NUM).toArray(new String[QUERIES_NUM]);
+		// words that are not in the dictionary but share suffixes with dictionary words
+		unknownWords = new String[QUERIES_NUM];
+		for (int i = 0; i < QUERIES_NUM; i++) {
+			unknownWords[i] = "щщ" + knownWords[i];
+		}
+	}
+
+	@Benchmark
+	public List<Wordform> getEntriesKnown() {
+		return dict.getEntries(nextQuery(knownWords));
+	}
+
+	@Benchmark
+	public List<Wordform> getEntriesUnknown() {
+		return dict.getEntries(nextQuery(unknownWords));
+	}
+
+	@Benchmark
+	public int lookupKnown(final Blackhole bh) {
+		String word = nextQuery(knownWords);
+		return dict.lookup(word, 0, word.length(), new WordformVisitor() {
+			@Override
+			public void visit(int lemmaId, int lemmaGramSetId, int wordformGramSetId) {
+				bh.consume(wordformGramSetId);
+			}
+		});
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public WordformTST tstInsert() {
+		WordformTST tst = new WordformTST();
+		for (int i = 0; i < entryKeys.length; i++) {
+			tst.put(entryKeys[i], entryWordforms[i]);
+		}
+		tst.complete();
+		return tst;
+	}
+
+	private String nextQuery(String[] queries) {
+		cursor = (cursor + 1) & (QUERIES_NUM - 1);
+		return queries[cursor];
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+import ru.kfu.itis.issst.uima.postagger.opennlp.DictionaryBasedContextGenerator;
+import ru.kfu.itis.issst.uima.tokenizer.SimpleTokenizer;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformIndex;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the dictionary features of the PoS-tagger:
+ * {@link DictionaryBasedContextGenerator#extract(Token, String)} invoked for
+ * each token of a text. The text is a part of the synthetic corpus followed by
+ * sentences of random dictionary words, so it contains punctuation,
+ * non-Russian, unknown and dictionary words. The synthetic dictionary of
+ * {@link BenchmarkData} is used.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class PosTaggerFeatureBenchmark {
+
+	private static final int CORPUS_PART_LENGTH = 64 * 1024;
+	private static final int DICTIONARY_WORDS_NUM = 8192;
+	// tags of previous tokens, null is for a sentence start
+	private static final String[] PREV_TAGS = { null, "ADJF&femn&sing&accs",
+			"NOUN&masc&plur&nomn", "PREP", "," };
+
+	@Param({ "20000" })
+	public int lemmaCount;
+
+	private AnalysisEngine tokenizer;
+	private JCas jcas;
+	private DictionaryBasedContextGenerator contextGenerator;
+	private Token[] tokens;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		MorphDictionaryImpl dict = BenchmarkData.makeDictionary(lemmaCount, 42);
+		contextGenerator = new DictionaryBasedContextGenerator(
+				Arrays.asList("POST", "NMbr", "GNdr", "CAse"), dict);
+		tokenizer = createEngine(SimpleTokenizer.createDescription());
+		jcas = tokenizer.newJCas();
+		jcas.setDocumentText(makeText(dict));
+		tokenizer.process(jcas);
+		Collection<Token> tokenCol = JCasUtil.select(jcas, Token.class);
+		tokens = tokenCol.toArray(new Token[tokenCol.size()]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		tokenizer.destroy();
+	}
+
+	@Benchmark
+	public List<String> extract() {
+		cursor++;
+		if (cursor == tokens.length) {
+			cursor = 0;
+		}
+		return contextGenerator.extract(tokens[cursor], PREV_TAGS[cursor % PREV_TAGS.length]);
+	}
+
+	private static String makeText(MorphDictionaryImpl dict) throws Exception {
+		StringBuilder sb = new StringBuilder(BenchmarkData.makeText(CORPUS_PART_LENGTH));
+		sb.setLength(CORPUS_PART_LENGTH);
+		sb.append("\n");
+		final List<String> words = Lists.newArrayList();
+		dict.getWordformIndex().visitEntries(new WordformIndex.EntryVisitor() {
+			@Override
+			public void visit(String key, Iterable<Wordform> wordforms) {
+				words.add(key);
+			}
+		});
+		Random rnd = new Random(42);
+		Collections.shuffle(words, rnd);
+		for (int i = 0; i < DICTIONARY_WORDS_NUM && i < words.size(); i++) {
+			sb.append(words.get(i));
+			sb.append(rnd.nextInt(8) == 0 ? ". " : " ");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.kfu.itis.issst.uima.segmentation.ParagraphSplitter;
+import ru.kfu.itis.issst.uima.segmentation.SegmentingTokenizer;
+import ru.kfu.itis.issst.uima.segmentation.SentenceSplitter;
+import ru.kfu.itis.issst.uima.tokenizer.InitialTokenizer;
+import ru.kfu.itis.issst.uima.tokenizer.PostTokenizer;
+import ru.kfu.itis.issst.uima.tokenizer.SimpleTokenizer;
+
+/**
+ * Measures tokenization with sentence and paragraph splitting done by the
+ * chain of separate annotators and by the fused {@link SegmentingTokenizer}.
+ * The text is given the same way as for {@link InitialTokenizerBenchmark}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class SegmentationBenchmark {
+
+	/**
+	 * text size in megabytes, it is used if no text file is given
+	 */
+	@Param({ "4" })
+	public int textSizeMb;
+
+	@Param({ "initial+post+splitters", "simple+splitters", "segmenting" })
+	public String pipelineName;
+
+	private AnalysisEngine pipeline;
+	private JCas jcas;
+	private String text;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		text = BenchmarkData.getText(textSizeMb);
+		if ("initial+post+splitters".equals(pipelineName)) {
+			pipeline = createEngine(createEngineDescription(
+					InitialTokenizer.createDescription(),
+					PostTokenizer.createDescription(),
+					SentenceSplitter.createDescription(),
+					createEngineDescription(ParagraphSplitter.class)));
+		} else if ("simple+splitters".equals(pipelineName)) {
+			pipeline = createEngine(createEngineDescription(
+					SimpleTokenizer.createDescription(),
+					SentenceSplitter.createDescription(),
+					createEngineDescription(ParagraphSplitter.class)));
+		} else if ("segmenting".equals(pipelineName)) {
+			pipeline = createEngine(SegmentingTokenizer.createDescription());
+		} else {
+			throw new IllegalArgumentException(pipelineName);
+		}
+		jcas = pipeline.newJCas();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pipeline.destroy();
+	}
+
+	@Benchmark
+	public int segment() throws Exception {
+		jcas.reset();
+		jcas.setDocumentText(text);
+		pipeline.process(jcas);
+		return jcas.getAnnotationIndex(Annotation.type).size();
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.kfu.cll.uima.segmentation.fstype.Sentence;
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.cll.uima.tokenizer.fstype.W;
+import ru.kfu.itis.issst.uima.morph.commons.GramModelBasedTagMapper;
+import ru.kfu.itis.issst.uima.morph.dictionary.WordUtils;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+import ru.kfu.itis.issst.uima.postagger.opennlp.DictionaryGrammemeLevelTokenSequenceValidator;
+import ru.kfu.itis.issst.uima.segmentation.SentenceSplitter;
+import ru.kfu.itis.issst.uima.tokenizer.SimpleTokenizer;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Multisets;
+
+/**
+ * Measures validations per second of
+ * {@link DictionaryGrammemeLevelTokenSequenceValidator} in the order of a beam
+ * search: for each sentence, each token position and each of
+ * {@value #BEAM_SIZE} hypotheses the most frequent dictionary tags are
+ * validated. The corpus consists of {@link #sentenceCount} sentences of the
+ * synthetic text, the synthetic dictionary of {@link BenchmarkData} is used.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class SequenceValidatorBenchmark {
+
+	private static final int BEAM_SIZE = 3;
+	private static final int OUTCOMES_NUM = 30;
+	private static final List<String> TARGET_CATEGORIES = Lists.newArrayList(
+			"POST", "NMbr", "GNdr", "CAse");
+
+	@Param({ "10000" })
+	public int sentenceCount;
+
+	@Param({ "20000" })
+	public int lemmaCount;
+
+	private AnalysisEngine pipeline;
+	private JCas jcas;
+	private DictionaryGrammemeLevelTokenSequenceValidator validator;
+	private List<Token[]> sentences;
+	private String[] outcomes;
+	private String[] priorDecisions;
+	// cursor
+	private int sentIdx;
+	private int tokenIdx;
+	private int hypIdx;
+	private int outcomeIdx;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		MorphDictionaryImpl dict = BenchmarkData.makeDictionary(lemmaCount, 42);
+		validator = new DictionaryGrammemeLevelTokenSequenceValidator(dict);
+		pipeline = createEngine(createEngineDescription(
+				SimpleTokenizer.createDescription(),
+				SentenceSplitter.createDescription()));
+		jcas = pipeline.newJCas();
+		// a part of the corpus is about 100 chars per sentence
+		jcas.setDocumentText(BenchmarkData.makeText(sentenceCount * 200));
+		pipeline.process(jcas);
+		sentences = Lists.newArrayListWithCapacity(sentenceCount);
+		int maxLength = 0;
+		for (Sentence sent : JCasUtil.select(jcas, Sentence.class)) {
+			if (sentences.size() == sentenceCount) {
+				break;
+			}
+			Collection<Token> tokens = JCasUtil.selectCovered(jcas, Token.class, sent);
+			if (tokens.isEmpty()) {
+				continue;
+			}
+			sentences.add(tokens.toArray(new Token[tokens.size()]));
+			maxLength = Math.max(maxLength, tokens.size());
+		}
+		outcomes = frequentTags(dict);
+		priorDecisions = new String[maxLength];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pipeline.destroy();
+	}
+
+	@Benchmark
+	public boolean validate() {
+		Token[] sent = sentences.get(sentIdx);
+		boolean result = validator.validSequence(tokenIdx, sent, priorDecisions,
+				outcomes[outcomeIdx]);
+		if (++outcomeIdx == outcomes.length) {
+			outcomeIdx = 0;
+			if (++hypIdx == BEAM_SIZE) {
+				hypIdx = 0;
+				if (++tokenIdx == sent.length) {
+					tokenIdx = 0;
+					if (++sentIdx == sentences.size()) {
+						sentIdx = 0;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private String[] frequentTags(MorphDictionaryImpl dict) {
+		GramModel gm = dict.getGramModel();
+		GramModelBasedTagMapper tagMapper = new GramModelBasedTagMapper(gm);
+		BitSet mask = new BitSet();
+		for (String cat : TARGET_CATEGORIES) {
+			mask.or(gm.getGrammemWithChildrenBits(cat, true));
+		}
+		Multiset<String> tags = HashMultiset.create();
+		for (Token[] sent : sentences) {
+			for (Token token : sent) {
+				if (!(token instanceof W)) {
+					continue;
+				}
+				String form = WordUtils.normalizeToDictionaryForm(token.getCoveredText());
+				for (Wordform wf : dict.getEntries(form)) {
+					BitSet bits = Wordform.allGramBitsFunction(dict).apply(wf);
+					bits.and(mask);
+					tags.add(tagMapper.toTag(bits));
+				}
+			}
+		}
+		List<String> result = Lists.newArrayList("null");
+		for (String tag : Multisets.copyHighestCountFirst(tags).elementSet()) {
+			if (result.size() == OUTCOMES_NUM) {
+				break;
+			}
+			result.add(tag);
+		}
+		return result.toArray(new String[result.size()]);
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.cleartk.ml.Feature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.itis.issst.uima.ml.DictionaryPossibleTagFeatureExtractor;
+import ru.kfu.itis.issst.uima.ml.FeatureSet;
+import ru.kfu.itis.issst.uima.ml.WordAnnotator;
+import ru.ksu.niimm.cll.uima.morph.ml.GramTiers;
+import ru.ksu.niimm.cll.uima.morph.ml.SimpleTieredFeatureExtractor;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Measures feature extraction of the TCRF PoS-tagger:
+ * <ul>
+ * <li>{@link #dictFeatures(Blackhole)} - {@link DictionaryPossibleTagFeatureExtractor}s
+ * of all tiers invoked for a word, each with grammemes of the previous
+ * tiers;</li>
+ * <li>{@link #sentenceFeatures()} - all the features of a sentence extracted
+ * by {@link SimpleTieredFeatureExtractor} through all tiers.</li>
+ * </ul>
+ * Inputs are made by {@link TieredTaggerBenchmarkData}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class TieredFeatureExtractionBenchmark {
+
+	private static final int TEXT_LENGTH = 64 * 1024;
+
+	@Param({ "20000" })
+	public int lemmaCount;
+
+	private TieredTaggerBenchmarkData data;
+	// tier -> extractor
+	private DictionaryPossibleTagFeatureExtractor[] dictFeatureExtractors;
+	private String[] wordForms;
+	// word -> tier -> grammemes of the previous tiers
+	private List<List<Set<String>>> wordGramsBefore;
+	private int wordCursor;
+	private int sentCursor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		data = new TieredTaggerBenchmarkData(lemmaCount, TEXT_LENGTH);
+		GramTiers gramTiers = data.featureExtractor.getGramTiers();
+		dictFeatureExtractors = new DictionaryPossibleTagFeatureExtractor[data.tierCount];
+		for (int tier = 0; tier < data.tierCount; tier++) {
+			dictFeatureExtractors[tier] = new DictionaryPossibleTagFeatureExtractor(
+					gramTiers.getTierCategories(tier), null, data.dict);
+		}
+		List<String> forms = Lists.newArrayList();
+		wordGramsBefore = Lists.newArrayList();
+		for (int s = 0; s < data.sentences.size(); s++) {
+			List<Token> tokens = data.sentenceTokens.get(s);
+			for (int t = 0; t < tokens.size(); t++) {
+				Token tok = tokens.get(t);
+				if (!WordAnnotator.canCarryWord(tok)) {
+					continue;
+				}
+				forms.add(tok.getCoveredText());
+				List<String> labels = data.sentenceLabels.get(s).get(t);
+				List<Set<String>> gramsBefore = Lists.newArrayListWithCapacity(data.tierCount);
+				ImmutableSet.Builder<String> grams = ImmutableSet.builder();
+				for (int tier = 0; tier < data.tierCount; tier++) {
+					gramsBefore.add(grams.build());
+					if (labels.get(tier) != null) {
+						grams.add(labels.get(tier).split("&"));
+					}
+				}
+				wordGramsBefore.add(gramsBefore);
+			}
+		}
+		wordForms = forms.toArray(new String[forms.size()]);
+	}
+
+	@Benchmark
+	public void dictFeatures(Blackhole bh) throws Exception {
+		wordCursor++;
+		if (wordCursor == wordForms.length) {
+			wordCursor = 0;
+		}
+		List<Set<String>> gramsBefore = wordGramsBefore.get(wordCursor);
+		for (int tier = 0; tier < dictFeatureExtractors.length; tier++) {
+			List<Feature> features = dictFeatureExtractors[tier].extract(
+					wordForms[wordCursor], gramsBefore.get(tier));
+			bh.consume(features);
+		}
+	}
+
+	@Benchmark
+	public List<FeatureSet> sentenceFeatures() throws Exception {
+		sentCursor++;
+		if (sentCursor == data.sentences.size()) {
+			sentCursor = 0;
+		}
+		return data.extractFeatures(sentCursor);
+	}
+}
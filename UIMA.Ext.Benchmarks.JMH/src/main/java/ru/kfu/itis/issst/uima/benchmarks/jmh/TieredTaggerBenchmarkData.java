@@ -0,0 +1,149 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.util.JCasUtil.select;
+import static org.apache.uima.fit.util.JCasUtil.selectCovered;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.jcas.JCas;
+import org.cleartk.ml.feature.extractor.CleartkExtractorException;
+
+import ru.kfu.cll.uima.segmentation.fstype.Sentence;
+import ru.kfu.cll.uima.tokenizer.fstype.NUM;
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.cll.uima.tokenizer.fstype.W;
+import ru.kfu.itis.issst.uima.ml.FeatureSet;
+import ru.kfu.itis.issst.uima.ml.TieredFeatureExtractors;
+import ru.kfu.itis.issst.uima.morph.commons.PunctuationUtils;
+import ru.kfu.itis.issst.uima.morph.dictionary.WordUtils;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+import ru.kfu.itis.issst.uima.segmentation.SentenceSplitter;
+import ru.kfu.itis.issst.uima.tokenizer.SimpleTokenizer;
+import ru.ksu.niimm.cll.uima.morph.ml.GramTiers;
+import ru.ksu.niimm.cll.uima.morph.ml.SimpleTieredFeatureExtractor;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * Inputs of the TCRF PoS-tagger benchmarks: sentences of the synthetic corpus
+ * tokenized and split in a CAS, {@link SimpleTieredFeatureExtractor} over the
+ * synthetic dictionary of {@link BenchmarkData} and tier labels of each token.
+ * A label is made from the first dictionary entry of a word the same way as
+ * the training data extractor of the tagger does it, so there are no gold
+ * annotations to read.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class TieredTaggerBenchmarkData {
+
+	static final String TIERS = "POST|NMbr|CAse";
+	static final int LEFT_CONTEXT_SIZE = 2;
+	static final int RIGHT_CONTEXT_SIZE = 1;
+
+	private static final Joiner tierLabelJoiner = Joiner.on('&');
+
+	final MorphDictionaryImpl dict;
+	final SimpleTieredFeatureExtractor featureExtractor;
+	final JCas jcas;
+	final List<Sentence> sentences = Lists.newArrayList();
+	final List<List<Token>> sentenceTokens = Lists.newArrayList();
+	// sentence -> token -> labels of all tiers
+	final List<List<List<String>>> sentenceLabels = Lists.newArrayList();
+	final int tierCount;
+
+	TieredTaggerBenchmarkData(int lemmaCount, int textLength) throws Exception {
+		dict = BenchmarkData.makeDictionary(lemmaCount, 42);
+		Properties feCfg = new Properties();
+		feCfg.setProperty(TieredFeatureExtractors.CFG_TIERS, TIERS);
+		feCfg.setProperty(SimpleTieredFeatureExtractor.CFG_LEFT_CONTEXT_SIZE,
+				String.valueOf(LEFT_CONTEXT_SIZE));
+		feCfg.setProperty(SimpleTieredFeatureExtractor.CFG_RIGHT_CONTEXT_SIZE,
+				String.valueOf(RIGHT_CONTEXT_SIZE));
+		featureExtractor = new SimpleTieredFeatureExtractor();
+		featureExtractor.initialize(feCfg, dict);
+		GramTiers gramTiers = featureExtractor.getGramTiers();
+		tierCount = gramTiers.getCount();
+		//
+		AnalysisEngine segmenter = createEngine(createEngineDescription(
+				SimpleTokenizer.createDescription(),
+				SentenceSplitter.createDescription()));
+		try {
+			jcas = segmenter.newJCas();
+			String text = BenchmarkData.makeText(textLength);
+			jcas.setDocumentText(text.substring(0, textLength));
+			segmenter.process(jcas);
+		} finally {
+			segmenter.destroy();
+		}
+		for (Sentence sent : select(jcas, Sentence.class)) {
+			List<Token> tokens = selectCovered(jcas, Token.class, sent);
+			if (tokens.isEmpty()) {
+				continue;
+			}
+			List<List<String>> labels = Lists.newArrayListWithCapacity(tokens.size());
+			for (Token tok : tokens) {
+				labels.add(makeLabels(tok, gramTiers));
+			}
+			sentences.add(sent);
+			sentenceTokens.add(tokens);
+			sentenceLabels.add(labels);
+		}
+	}
+
+	/**
+	 * Extracts features of the given sentence like the tagger does, but the
+	 * output of each tier is given by the prepared labels.
+	 *
+	 * @return feature sets of the sentence tokens after the last tier
+	 */
+	List<FeatureSet> extractFeatures(int sentIndex) throws CleartkExtractorException {
+		Sentence sent = sentences.get(sentIndex);
+		List<Token> tokens = sentenceTokens.get(sentIndex);
+		List<List<String>> labels = sentenceLabels.get(sentIndex);
+		List<FeatureSet> featSets = featureExtractor.extractCommonFeatures(jcas, sent, tokens);
+		for (int tier = 0; tier < tierCount; tier++) {
+			featureExtractor.onBeforeTier(featSets, labels, tier, jcas, sent, tokens);
+			featureExtractor.onAfterTier(featSets, labels, tier, jcas, sent, tokens);
+		}
+		return featSets;
+	}
+
+	private List<String> makeLabels(Token tok, GramTiers gramTiers) {
+		List<String> result = Lists.newArrayListWithCapacity(tierCount);
+		if (!(tok instanceof W || tok instanceof NUM)) {
+			for (int tier = 0; tier < tierCount; tier++) {
+				result.add(PunctuationUtils.OTHER_PUNCTUATION_TAG);
+			}
+			return result;
+		}
+		List<Wordform> entries = dict.getEntries(
+				WordUtils.normalizeToDictionaryForm(tok.getCoveredText()));
+		BitSet wfBits = null;
+		if (entries != null && !entries.isEmpty()) {
+			wfBits = (BitSet) Wordform.getAllGramBits(entries.get(0), dict).clone();
+		}
+		for (int tier = 0; tier < tierCount; tier++) {
+			String label = null;
+			if (wfBits != null) {
+				BitSet tierBits = (BitSet) wfBits.clone();
+				tierBits.and(gramTiers.getTierMask(tier));
+				if (!tierBits.isEmpty()) {
+					label = tierLabelJoiner.join(dict.getGramModel().toGramSet(tierBits));
+				}
+			}
+			result.add(label);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.benchmarks.jmh;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.DictionaryDeserializer;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformDAWG;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformIndex;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformTSTSearchResult;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Compares {@link ru.ksu.niimm.cll.uima.morph.opencorpora.resource.WordformTST}
+ * and {@link WordformDAWG}. The serialized OpenCorpora dictionary is read from
+ * the directory given by the 'opencorpora.home' system property, e.g.:
+ *
+ * <pre>
+ * java -Dopencorpora.home=/path/to/dict -jar target/benchmarks.jar WordformIndexBenchmark
+ * </pre>
+ *
+ * If the property is not set, the synthetic dictionary of
+ * {@link BenchmarkData} is used.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g" })
+public class WordformIndexBenchmark {
+
+	public static final String SYSPROP_DICTIONARY_HOME = "opencorpora.home";
+	public static final String FILENAME_SERIALIZED_DICTIONARY = "dict.opcorpora.ser";
+	private static final int QUERIES_NUM = 4096;
+	private static final int SYNTHETIC_LEMMA_COUNT = 20000;
+
+	@Param({ "tst", "dawg" })
+	public String index;
+
+	private WordformIndex wfIndex;
+	private String[] knownWords;
+	private String[] unknownWords;
+	private int cursor;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String dictHome = System.getProperty(SYSPROP_DICTIONARY_HOME);
+		MorphDictionaryImpl dict;
+		if (dictHome != null) {
+			dict = DictionaryDeserializer.from(new File(dictHome, FILENAME_SERIALIZED_DICTIONARY));
+		} else {
+			dict = BenchmarkData.makeDictionary(SYNTHETIC_LEMMA_COUNT, 42);
+		}
+		WordformIndex tst = dict.getWordformIndex();
+		if ("tst".equals(index)) {
+			wfIndex = tst;
+		} else if ("dawg".equals(index)) {
+			wfIndex = WordformDAWG.copyOf(tst);
+		} else {
+			throw new IllegalArgumentException(index);
+		}
+		final List<String> keys = Lists.newArrayList();
+		tst.visitEntries(new WordformIndex.EntryVisitor() {
+			@Override
+			public void visit(String key, Iterable<Wordform> wordforms) {
+				keys.add(key);
+			}
+		});
+		Collections.shuffle(keys, new Random(42));
+		knownWords = keys.subList(0, QUERIES_NUM).toArray(new String[QUERIES_NUM]);
+		// words that are not in the dictionary but share suffixes with dictionary words
+		unknownWords = new String[QUERIES_NUM];
+		for (int i = 0; i < QUERIES_NUM; i++) {
+			unknownWords[i] = "щщ" + knownWords[i];
+		}
+	}
+
+	@Benchmark
+	public void exactLookup(Blackhole bh) {
+		consume(wfIndex.getLongestPrefixMatch(nextQuery(knownWords)), bh);
+	}
+
+	@Benchmark
+	public void longestSuffixMatch(Blackhole bh) {
+		consume(wfIndex.getLongestPrefixMatch(nextQuery(unknownWords)), bh);
+	}
+
+	private String nextQuery(String[] queries) {
+		cursor = (cursor + 1) & (QUERIES_NUM - 1);
+		return queries[cursor];
+	}
+
+	private static void consume(WordformTSTSearchResult sr, Blackhole bh) {
+		bh.consume(sr.isMatchExact());
+		for (Wordform wf : sr) {
+			bh.consume(wf);
+		}
+	}
+}
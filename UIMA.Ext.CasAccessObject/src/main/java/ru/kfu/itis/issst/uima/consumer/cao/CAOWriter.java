@@ -162,29 +162,42 @@ public class CAOWriter extends CasAnnotator_ImplBase {
 			}
 		}
 		info("Persisting annotations from %s", docURI);
-		long docId = dao.persistDocument(launchId, docURI, size, processingTime);
+		boolean finished = false;
+		try {
+			long docId = dao.persistDocument(launchId, docURI, size, processingTime);
 
-		AnnotationIndex<Annotation> spanIndex = cas.getAnnotationIndex(spanType);
-		if (spanIndex.size() == 0) {
-			warn("Span annotations index is EMPTY. Skipping entire document...");
-			return;
-		}
-		spanIterator = spanIndex.iterator();
-		persistenceContext = new PersistenceContext();
-
-		for (Type type : persistingTypes) {
-			AnnotationIndex<Annotation> annoIndex = cas.getAnnotationIndex(type);
-			for (Annotation anno : annoIndex) {
-				if (persistenceContext.getId(anno) == null) {
-					AnnotationPersister persister = persisterFactory.getPersister(anno.getType());
-					if (persister == null) {
-						throw new IllegalStateException(
-								"Null persister for type: " + anno.getType());
+			AnnotationIndex<Annotation> spanIndex = cas.getAnnotationIndex(spanType);
+			if (spanIndex.size() == 0) {
+				warn("Span annotations index is EMPTY. Skipping entire document...");
+				finished = true;
+				dao.documentFinished();
+				return;
+			}
+			spanIterator = spanIndex.iterator();
+			persistenceContext = new PersistenceContext();
+
+			for (Type type : persistingTypes) {
+				AnnotationIndex<Annotation> annoIndex = cas.getAnnotationIndex(type);
+				for (Annotation anno : annoIndex) {
+					if (persistenceContext.getId(anno) == null) {
+						AnnotationPersister persister = persisterFactory.getPersister(anno
+								.getType());
+						if (persister == null) {
+							throw new IllegalStateException(
+									"Null persister for type: " + anno.getType());
+						}
+						long spanId = getPersistedEnclosingSpan(docId, anno);
+						persister.execute(spanId, anno);
 					}
-					long spanId = getPersistedEnclosingSpan(docId, anno);
-					persister.execute(spanId, anno);
 				}
 			}
+			finished = true;
+			dao.documentFinished();
+		} finally {
+			if (!finished) {
+				// do not let buffered rows of this document be written with the next one
+				dao.documentFailed();
+			}
 		}
 
 		// timing
@@ -195,6 +208,13 @@ public class CAOWriter extends CasAnnotator_ImplBase {
 				docURI, timeElapsed, timeTaken / casSuccessfullyProcessed);
 	}
 
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		dao.flush();
+		dao.close();
+		super.collectionProcessComplete();
+	}
+
 	private Annotation getDocumentMeta(JCas cas) {
 		AnnotationIndex<Annotation> metaIndex = cas
 				.getAnnotationIndex(docMetaType);
@@ -30,6 +30,43 @@ public interface CasAccessObject extends SharedResourceObject {
 
 	long persistSpan(long docId, String coveredText);
 
+	/**
+	 * Marks the end of rows of the current document. An implementation may
+	 * buffer rows until this call and write them synchronously or
+	 * asynchronously.
+	 */
+	void documentFinished();
+
+	/**
+	 * Discards rows of the current document that have not been written yet,
+	 * e.g., when the document can not be persisted completely.
+	 */
+	void documentFailed();
+
+	/**
+	 * Blocks until all rows passed to this object are written.
+	 */
+	void flush();
+
+	/**
+	 * Releases threads started by this object. Call {@link #flush()} before to
+	 * make sure that all rows are written.
+	 */
+	void close();
+
 	List<AnnotationDTO> getTopAnnotationsByLaunch(Set<Integer> launchIds,
 			Set<String> topAnnoTypes);
+
+	/**
+	 * Passes top annotations of the given launches to the handler one by one
+	 * without loading them into memory. Annotations of documents with the same
+	 * URI have the same {@link AnnotationDTO#getDocGroupId()} and are passed
+	 * one after another, ordered by type, start offset and id.
+	 */
+	void scanTopAnnotationsByLaunch(Set<Integer> launchIds, Set<String> topAnnoTypes,
+			AnnotationHandler handler);
+
+	interface AnnotationHandler {
+		void handle(AnnotationDTO anno);
+	}
 }
\ No newline at end of file
@@ -5,24 +5,37 @@ package ru.kfu.itis.issst.uima.consumer.cao;
 
 import static java.lang.Math.min;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EventListener;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.event.EventListenerSupport;
 
+import ru.kfu.itis.issst.uima.consumer.cao.CasAccessObject.AnnotationHandler;
 import ru.kfu.itis.issst.uima.consumer.cao.impl.AnnotationDTO;
 
 /**
+ * Compares top annotations of new launches with the ones of past launches.
+ * Annotations are scanned grouped by document URI and deltas are computed
+ * document by document, so memory is bounded by a few documents.
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
@@ -37,13 +50,11 @@ public class DeltaCalc {
 	private Set<Integer> pastLaunchIds;
 	private Set<Integer> newLaunchIds;
 	private Set<String> topAnnoTypes;
+	private int threads = 1;
 
 	// state fields
 	private EventListenerSupport<DeltaListener> deltaListenerSupport = EventListenerSupport
 			.create(DeltaListener.class);
-	private AnnoIndex pastIndex;
-
-	// private AnnoIndex newIndex;
 
 	public DeltaCalc(CasAccessObject cao) {
 		this.cao = cao;
@@ -65,19 +76,115 @@ public class DeltaCalc {
 		deltaListenerSupport.addListener(listener);
 	}
 
+	/**
+	 * @param threads
+	 *            the number of threads that compute deltas of documents. The
+	 *            listeners are always notified in the calling thread.
+	 */
+	public void setThreads(int threads) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		this.threads = threads;
+	}
+
 	public void run() {
-		List<AnnotationDTO> pastAnnotations = cao.getTopAnnotationsByLaunch(pastLaunchIds,
-				topAnnoTypes);
-		List<AnnotationDTO> newAnnotations = cao.getTopAnnotationsByLaunch(newLaunchIds,
-				topAnnoTypes);
-		pastIndex = new AnnoIndex(pastAnnotations);
-		// newIndex = new AnnoIndex(newAnnotations);
+		if (!Collections.disjoint(pastLaunchIds, newLaunchIds)) {
+			throw new IllegalStateException(String.format(
+					"Past launches %s and new launches %s intersect",
+					pastLaunchIds, newLaunchIds));
+		}
+		Set<Integer> launchIds = new HashSet<Integer>(pastLaunchIds);
+		launchIds.addAll(newLaunchIds);
+		ExecutorService exec = null;
+		if (threads > 1) {
+			exec = Executors.newFixedThreadPool(threads);
+		}
+		try {
+			DocumentGrouper grouper = new DocumentGrouper(exec);
+			cao.scanTopAnnotationsByLaunch(launchIds, topAnnoTypes, grouper);
+			grouper.finish();
+		} finally {
+			if (exec != null) {
+				exec.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Collects annotations of a document from the scan that is grouped by
+	 * {@link AnnotationDTO#getDocGroupId()}, so only annotations of the current document and of
+	 * documents whose deltas are computed in the executor are kept in memory.
+	 */
+	private class DocumentGrouper implements AnnotationHandler {
+		private final ExecutorService exec;
+		// state
+		private long docGroupId = -1;
+		private List<AnnotationDTO> pastAnnotations = new ArrayList<AnnotationDTO>();
+		private List<AnnotationDTO> newAnnotations = new ArrayList<AnnotationDTO>();
+		// deltas of documents in the scan order
+		private LinkedList<Future<List<DeltaEvent>>> pending =
+				new LinkedList<Future<List<DeltaEvent>>>();
+
+		DocumentGrouper(ExecutorService exec) {
+			this.exec = exec;
+		}
+
+		@Override
+		public void handle(AnnotationDTO anno) {
+			if (docGroupId != -1 && docGroupId != anno.getDocGroupId()) {
+				documentFinished();
+			}
+			docGroupId = anno.getDocGroupId();
+			if (pastLaunchIds.contains((int) anno.getLaunchId())) {
+				pastAnnotations.add(anno);
+			} else {
+				newAnnotations.add(anno);
+			}
+		}
+
+		void finish() {
+			if (docGroupId != -1) {
+				documentFinished();
+			}
+			while (!pending.isEmpty()) {
+				fire(await(pending.removeFirst()));
+			}
+		}
+
+		private void documentFinished() {
+			final List<AnnotationDTO> docPastAnnotations = pastAnnotations;
+			final List<AnnotationDTO> docNewAnnotations = newAnnotations;
+			docGroupId = -1;
+			pastAnnotations = new ArrayList<AnnotationDTO>();
+			newAnnotations = new ArrayList<AnnotationDTO>();
+			if (exec == null) {
+				fire(computeDelta(docPastAnnotations, docNewAnnotations));
+				return;
+			}
+			pending.add(exec.submit(new Callable<List<DeltaEvent>>() {
+				@Override
+				public List<DeltaEvent> call() {
+					return computeDelta(docPastAnnotations, docNewAnnotations);
+				}
+			}));
+			// bound the number of documents in memory
+			if (pending.size() > 2 * threads) {
+				fire(await(pending.removeFirst()));
+			}
+		}
+	}
+
+	private List<DeltaEvent> computeDelta(List<AnnotationDTO> pastAnnotations,
+			List<AnnotationDTO> newAnnotations) {
+		List<DeltaEvent> result = new ArrayList<DeltaEvent>();
+		AnnoIndex pastIndex = new AnnoIndex(pastAnnotations);
 
 		Set<Long> handledPastAnnotations = new HashSet<Long>();
 		for (AnnotationDTO newAnno : newAnnotations) {
 			AnnotationDTO pastAnno = pastIndex.getClosestOverlappingOfSameType(newAnno);
 			if (pastAnno == null) {
-				fireNewAnnotation(newAnno);
+				result.add(new DeltaEvent(null, newAnno));
 				continue;
 			}
 			// sanityCheck
@@ -87,21 +194,58 @@ public class DeltaCalc {
 				throw new IllegalStateException("Assertion failed. Index is incorrect");
 			}
 			handledPastAnnotations.add(pastAnno.getId());
-			if (newAnno.getStartOffset() == pastAnno.getStartOffset()
-					&& newAnno.getEndOffset() == pastAnno.getEndOffset()) {
-				// TODO it's place to check features
-				fireSavedAnnotation(pastAnno, newAnno);
-			} else {
-				fireChangedAnnotation(pastAnno, newAnno);
-			}
+			result.add(new DeltaEvent(pastAnno, newAnno));
 		}
 
 		// catch all lost annotations
 		for (AnnotationDTO oldAnno : pastAnnotations) {
 			if (!handledPastAnnotations.contains(oldAnno.getId())) {
-				fireLostAnnotation(oldAnno);
+				result.add(new DeltaEvent(oldAnno, null));
 			}
 		}
+		return result;
+	}
+
+	private void fire(List<DeltaEvent> events) {
+		for (DeltaEvent e : events) {
+			if (e.oldAnno == null) {
+				fireNewAnnotation(e.newAnno);
+			} else if (e.newAnno == null) {
+				fireLostAnnotation(e.oldAnno);
+			} else if (e.newAnno.getStartOffset() == e.oldAnno.getStartOffset()
+					&& e.newAnno.getEndOffset() == e.oldAnno.getEndOffset()) {
+				// TODO it's place to check features
+				fireSavedAnnotation(e.oldAnno, e.newAnno);
+			} else {
+				fireChangedAnnotation(e.oldAnno, e.newAnno);
+			}
+		}
+	}
+
+	private static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static class DeltaEvent {
+		// null for a new annotation
+		private final AnnotationDTO oldAnno;
+		// null for a lost annotation
+		private final AnnotationDTO newAnno;
+
+		DeltaEvent(AnnotationDTO oldAnno, AnnotationDTO newAnno) {
+			this.oldAnno = oldAnno;
+			this.newAnno = newAnno;
+		}
 	}
 
 	private void fireNewAnnotation(AnnotationDTO anno) {
@@ -32,9 +32,10 @@ import ru.kfu.itis.issst.uima.consumer.cao.impl.MysqlJdbcCasAccessObject;
 public class DeltaCalcLauncher {
 
 	public static void main(String[] args) throws IOException {
-		if (args.length != 5) {
+		if (args.length != 5 && args.length != 6) {
 			System.err.println("Usage:\n <cao-ds.properties> <annoType,annoType...> " +
-					"<oldLaunchId,oldLaunchId,...> <newLaunchId,newLaunchId,...> <outputDir>");
+					"<oldLaunchId,oldLaunchId,...> <newLaunchId,newLaunchId,...> <outputDir> " +
+					"[<threads>]");
 			return;
 		}
 		File caoDsConfigFile = new File(args[0]);
@@ -74,6 +75,16 @@ public class DeltaCalcLauncher {
 			return;
 		}
 
+		int threads = 1;
+		if (args.length == 6) {
+			try {
+				threads = Integer.parseInt(args[5]);
+			} catch (NumberFormatException e) {
+				System.err.println("threads argument is incorrect: " + args[5]);
+				return;
+			}
+		}
+
 		File outputDir = new File(args[4]);
 		if (outputDir.exists()) {
 			if (outputDir.isFile()) {
@@ -99,6 +110,7 @@ public class DeltaCalcLauncher {
 		calc.setTopAnnoTypes(types);
 		calc.setPastLaunchIds(oldLaunchIds);
 		calc.setNewLaunchIds(newLaunchIds);
+		calc.setThreads(threads);
 
 		FileWritingDeltaListener listener = null;
 		try {
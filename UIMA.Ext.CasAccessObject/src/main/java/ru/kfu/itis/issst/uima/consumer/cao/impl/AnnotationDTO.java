@@ -17,6 +17,8 @@ public class AnnotationDTO {
 
 	// doc-related
 	private String docUri;
+	private long launchId = -1;
+	private long docGroupId = -1;
 	private int startOffset;
 	private int endOffset;
 
@@ -52,6 +54,26 @@ public class AnnotationDTO {
 		this.docUri = docUri;
 	}
 
+	public long getLaunchId() {
+		return launchId;
+	}
+
+	void setLaunchId(long launchId) {
+		this.launchId = launchId;
+	}
+
+	/**
+	 * @return the id that is shared by documents of the scanned launches with
+	 *         the same URI, or -1 if the annotation has not been scanned
+	 */
+	public long getDocGroupId() {
+		return docGroupId;
+	}
+
+	void setDocGroupId(long docGroupId) {
+		this.docGroupId = docGroupId;
+	}
+
 	public int getStartOffset() {
 		return startOffset;
 	}
@@ -75,6 +97,8 @@ public class AnnotationDTO {
 				.append("type", type)
 				.append("txt", txt)
 				.append("docUri", docUri)
+				.append("launchId", launchId)
+				.append("docGroupId", docGroupId)
 				.append("startOffset", startOffset)
 				.append("endOffset", endOffset).toString();
 	}
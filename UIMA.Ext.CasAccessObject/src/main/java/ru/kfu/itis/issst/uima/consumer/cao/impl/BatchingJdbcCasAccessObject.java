@@ -0,0 +1,265 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.consumer.cao.impl;
+
+import java.sql.Types;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link MysqlJdbcCasAccessObject} that assigns ids of documents, spans and
+ * annotations on the client side (see {@link IdBlockAllocator}, the ID_BLOCK
+ * table is required) and buffers rows until {@link #documentFinished()}. Rows
+ * of a document are written by JDBC batches within a transaction. It makes
+ * the write of a document atomic only if the tables use a transactional
+ * engine. The tables of the bundled MySQL schema are MyISAM, so a failed write
+ * may leave a part of the document rows in the database. Set
+ * 'rewriteBatchedStatements=true' in the connection properties to make MySQL
+ * Connector/J send them as multi-row INSERTs.
+ * <p>
+ * Besides the DBCP properties the configuration can contain:
+ * <ul>
+ * <li>{@value #PROP_ID_BLOCK_SIZE} - how many ids are reserved at once,
+ * {@value #DEFAULT_ID_BLOCK_SIZE} by default;</li>
+ * <li>{@value #PROP_ASYNC_QUEUE_SIZE} - if positive, documents are written by
+ * a background thread and at most this number of documents is waiting to be
+ * written, otherwise documents are written in the caller thread.</li>
+ * </ul>
+ * The background thread is a daemon one, so call {@link #flush()} and
+ * {@link #close()} at the end of a collection.
+ * Do not write into the same database by {@link MysqlJdbcCasAccessObject}
+ * concurrently as it does not reserve ids in ID_BLOCK.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class BatchingJdbcCasAccessObject extends MysqlJdbcCasAccessObject {
+
+	public static final String PROP_ID_BLOCK_SIZE = "cao.idBlockSize";
+	public static final String PROP_ASYNC_QUEUE_SIZE = "cao.asyncQueueSize";
+	public static final int DEFAULT_ID_BLOCK_SIZE = 1000;
+
+	private static final String INSERT_DOCUMENT =
+			"INSERT INTO DOCUMENT (id, uri, launch_id, size, processing_time) " +
+					"VALUES (?, ?, ?, ?, ?)";
+	private static final int[] DOCUMENT_TYPES = {
+			Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.INTEGER, Types.BIGINT };
+	private static final String INSERT_SPAN = "INSERT INTO SPAN (id, doc_id, txt) VALUES (?, ?, ?)";
+	private static final int[] SPAN_TYPES = { Types.INTEGER, Types.INTEGER, Types.VARCHAR };
+	private static final String INSERT_ANNOTATION =
+			"INSERT INTO ANNOTATION (id, anno_type, span_id, txt, start_offset, end_offset) " +
+					"VALUES (?, ?, ?, ?, ?, ?)";
+	private static final int[] ANNOTATION_TYPES = {
+			Types.INTEGER, Types.VARCHAR, Types.INTEGER, Types.VARCHAR,
+			Types.INTEGER, Types.INTEGER };
+	private static final String INSERT_FEATURE =
+			"INSERT INTO FEATURE (owner_anno_id, value_anno_id, feature_name) " +
+					"VALUES (?, ?, ?)";
+	private static final int[] FEATURE_TYPES = { Types.INTEGER, Types.INTEGER, Types.VARCHAR };
+
+	// config
+	private int idBlockSize = DEFAULT_ID_BLOCK_SIZE;
+	private int asyncQueueSize;
+	// derived
+	private IdBlockAllocator documentIds;
+	private IdBlockAllocator spanIds;
+	private IdBlockAllocator annotationIds;
+	private TransactionTemplate txTemplate;
+	// guarded by pendingBatches
+	private ExecutorService writerExec;
+	// state
+	// a CasAccessObject may be shared by several analysis engine instances
+	private final ThreadLocal<RowBatch> currentBatch = new ThreadLocal<RowBatch>() {
+		@Override
+		protected RowBatch initialValue() {
+			return new RowBatch();
+		}
+	};
+	// written or waiting batches in the order of submission
+	private final LinkedList<Future<?>> pendingBatches = Lists.newLinkedList();
+
+	@Override
+	public void load(Properties configProps) {
+		super.load(configProps);
+		String idBlockSizeStr = configProps.getProperty(PROP_ID_BLOCK_SIZE);
+		if (idBlockSizeStr != null) {
+			idBlockSize = Integer.parseInt(idBlockSizeStr);
+		}
+		String asyncQueueSizeStr = configProps.getProperty(PROP_ASYNC_QUEUE_SIZE);
+		if (asyncQueueSizeStr != null) {
+			asyncQueueSize = Integer.parseInt(asyncQueueSizeStr);
+		}
+		JdbcTemplate jdbcTemplate = getJdbcTemplate();
+		documentIds = new IdBlockAllocator(jdbcTemplate, "DOCUMENT", idBlockSize);
+		spanIds = new IdBlockAllocator(jdbcTemplate, "SPAN", idBlockSize);
+		annotationIds = new IdBlockAllocator(jdbcTemplate, "ANNOTATION", idBlockSize);
+		txTemplate = new TransactionTemplate(new DataSourceTransactionManager(getDataSource()));
+		if (asyncQueueSize > 0) {
+			writerExec = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("cao-writer-%d").setDaemon(true).build());
+		}
+	}
+
+	@Override
+	public long persistDocument(long launchId, String docURI, Long size, Long processingTime) {
+		long id = documentIds.nextId();
+		currentBatch.get().documents.add(new Object[] {
+				id, docURI, launchId, size, processingTime });
+		return id;
+	}
+
+	@Override
+	public long persistSpan(long docId, String coveredText) {
+		long id = spanIds.nextId();
+		currentBatch.get().spans.add(new Object[] {
+				id, docId, truncateString(coveredText, 512) });
+		return id;
+	}
+
+	@Override
+	public long persistAnnotation(String type, long spanId, String coveredText, int startOffset,
+			int endOffset) {
+		long id = annotationIds.nextId();
+		currentBatch.get().annotations.add(new Object[] {
+				id, type, spanId, truncateString(coveredText, 512), startOffset, endOffset });
+		return id;
+	}
+
+	@Override
+	public void persistFeature(long ownerAnnoId, String featureName, long valueAnnoId) {
+		currentBatch.get().features.add(new Object[] { ownerAnnoId, valueAnnoId, featureName });
+	}
+
+	@Override
+	public void documentFinished() {
+		final RowBatch batch = currentBatch.get();
+		if (batch.isEmpty()) {
+			return;
+		}
+		currentBatch.remove();
+		boolean submitted = false;
+		Future<?> oldest = null;
+		synchronized (pendingBatches) {
+			// the executor is null in the synchronous mode and after close()
+			if (writerExec != null) {
+				pendingBatches.add(writerExec.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						write(batch);
+						return null;
+					}
+				}));
+				if (pendingBatches.size() > asyncQueueSize) {
+					oldest = pendingBatches.removeFirst();
+				}
+				submitted = true;
+			}
+		}
+		if (!submitted) {
+			write(batch);
+		} else if (oldest != null) {
+			// block the caller until the queue has a free slot
+			await(oldest);
+		}
+	}
+
+	@Override
+	public void documentFailed() {
+		currentBatch.remove();
+	}
+
+	@Override
+	public void flush() {
+		documentFinished();
+		while (true) {
+			Future<?> oldest;
+			synchronized (pendingBatches) {
+				if (pendingBatches.isEmpty()) {
+					return;
+				}
+				oldest = pendingBatches.removeFirst();
+			}
+			await(oldest);
+		}
+	}
+
+	@Override
+	public void close() {
+		ExecutorService exec;
+		synchronized (pendingBatches) {
+			exec = writerExec;
+			writerExec = null;
+		}
+		if (exec == null) {
+			return;
+		}
+		exec.shutdown();
+		try {
+			if (!exec.awaitTermination(1, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("The writer thread has not terminated in time");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void write(final RowBatch batch) {
+		txTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(TransactionStatus status) {
+				// the order respects foreign keys
+				batchInsert(INSERT_DOCUMENT, batch.documents, DOCUMENT_TYPES);
+				batchInsert(INSERT_SPAN, batch.spans, SPAN_TYPES);
+				batchInsert(INSERT_ANNOTATION, batch.annotations, ANNOTATION_TYPES);
+				batchInsert(INSERT_FEATURE, batch.features, FEATURE_TYPES);
+			}
+		});
+	}
+
+	private void batchInsert(String sql, List<Object[]> rows, int[] argTypes) {
+		if (!rows.isEmpty()) {
+			getJdbcTemplate().batchUpdate(sql, rows, argTypes);
+		}
+	}
+
+	private static void await(Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Writing of a document rows has failed", e.getCause());
+		}
+	}
+
+	private static class RowBatch {
+		private final List<Object[]> documents = Lists.newArrayList();
+		private final List<Object[]> spans = Lists.newArrayList();
+		private final List<Object[]> annotations = Lists.newArrayList();
+		private final List<Object[]> features = Lists.newArrayList();
+
+		boolean isEmpty() {
+			return documents.isEmpty() && spans.isEmpty()
+					&& annotations.isEmpty() && features.isEmpty();
+		}
+	}
+}
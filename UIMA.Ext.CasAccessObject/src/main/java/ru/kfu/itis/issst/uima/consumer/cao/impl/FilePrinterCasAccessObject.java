@@ -124,12 +124,35 @@ public class FilePrinterCasAccessObject implements CasAccessObject {
 		return idCounter;
 	}
 
+	@Override
+	public void documentFinished() {
+	}
+
+	@Override
+	public void documentFailed() {
+	}
+
+	@Override
+	public void flush() {
+		printer.flush();
+	}
+
+	@Override
+	public void close() {
+	}
+
 	@Override
 	public List<AnnotationDTO> getTopAnnotationsByLaunch(Set<Integer> pastLaunchIds,
 			Set<String> topAnnoTypes) {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void scanTopAnnotationsByLaunch(Set<Integer> launchIds, Set<String> topAnnoTypes,
+			AnnotationHandler handler) {
+		throw new UnsupportedOperationException();
+	}
+
 	private void print(String str, Object... args) {
 		printer.println(String.format(str, args));
 	}
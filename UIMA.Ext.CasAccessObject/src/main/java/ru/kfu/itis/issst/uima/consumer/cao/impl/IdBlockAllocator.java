@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.consumer.cao.impl;
+
+import java.util.List;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Assigns ids of a table on the client side. Ids are reserved in blocks by
+ * an optimistic update of the table row in ID_BLOCK, so several writers
+ * (processes or allocators) never get the same id. The row is initialized by
+ * the max id of the table.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class IdBlockAllocator {
+
+	private static final String SELECT_NEXT_ID =
+			"SELECT next_id FROM ID_BLOCK WHERE table_name = ?";
+	private static final String UPDATE_NEXT_ID =
+			"UPDATE ID_BLOCK SET next_id = ? WHERE table_name = ? AND next_id = ?";
+	private static final String INIT_NEXT_ID =
+			"INSERT INTO ID_BLOCK (table_name, next_id) " +
+					"SELECT ?, COALESCE(MAX(id), 0) + 1 FROM %s";
+	private static final int MAX_ATTEMPTS = 100;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final String tableName;
+	private final int blockSize;
+	// state
+	private long nextId;
+	private long blockEnd;
+
+	IdBlockAllocator(JdbcTemplate jdbcTemplate, String tableName, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+		}
+		this.jdbcTemplate = jdbcTemplate;
+		this.tableName = tableName;
+		this.blockSize = blockSize;
+	}
+
+	synchronized long nextId() {
+		if (nextId == blockEnd) {
+			nextId = reserveBlock();
+			blockEnd = nextId + blockSize;
+		}
+		return nextId++;
+	}
+
+	private long reserveBlock() {
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			List<Long> rows = jdbcTemplate.queryForList(SELECT_NEXT_ID, Long.class, tableName);
+			if (rows.isEmpty()) {
+				try {
+					jdbcTemplate.update(String.format(INIT_NEXT_ID, tableName), tableName);
+				} catch (DuplicateKeyException e) {
+					// initialized by another writer
+				}
+				continue;
+			}
+			long blockStart = rows.get(0);
+			if (jdbcTemplate.update(UPDATE_NEXT_ID,
+					blockStart + blockSize, tableName, blockStart) == 1) {
+				return blockStart;
+			}
+			// the block is reserved by another writer, retry
+		}
+		throw new IllegalStateException(String.format(
+				"Can't reserve an id block for %s in %s attempts", tableName, MAX_ATTEMPTS));
+	}
+}
@@ -17,9 +17,12 @@ import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.dbcp.BasicDataSourceFactory;
 import org.apache.uima.resource.DataResource;
 import org.apache.uima.resource.ResourceInitializationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcDaoSupport;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 
@@ -46,15 +49,40 @@ public class MysqlJdbcCasAccessObject extends NamedParameterJdbcDaoSupport
 			"INSERT INTO LAUNCH (started) VALUES (:started)";
 
 	// SELECTS
+	private static final String SELECT_TOP_ANNOS_BY_LAUNCH_AND_TYPE =
+			"SELECT an.id AS annoId, an.anno_type AS annoType, " +
+					"an.txt AS annoTxt, an.start_offset AS annoStartOffset, " +
+					"an.end_offset AS annoEndOffset, doc.uri AS docURI, " +
+					"doc.launch_id AS launchId " +
+					"FROM annotation an JOIN span sp ON an.span_id=sp.id " +
+					"JOIN document doc ON sp.doc_id=doc.id " +
+					"WHERE anno_type IN (:types) " +
+					"AND doc.launch_id IN (:launchIds) ";
 	private static final String GET_TOP_ANNOS_BY_LAUNCH_AND_TYPE =
+			SELECT_TOP_ANNOS_BY_LAUNCH_AND_TYPE + "ORDER BY an.id";
+	// documents of different launches with the same URI get the same group id,
+	// rows are ordered by it as the order of URIs depends on the column collation
+	private static final String SCAN_TOP_ANNOS_BY_LAUNCH_AND_TYPE =
 			"SELECT an.id AS annoId, an.anno_type AS annoType, " +
 					"an.txt AS annoTxt, an.start_offset AS annoStartOffset, " +
-					"an.end_offset AS annoEndOffset, doc.uri AS docURI " +
+					"an.end_offset AS annoEndOffset, doc.uri AS docURI, " +
+					"doc.launch_id AS launchId, dg.group_id AS docGroupId " +
 					"FROM annotation an JOIN span sp ON an.span_id=sp.id " +
 					"JOIN document doc ON sp.doc_id=doc.id " +
+					"JOIN (SELECT uri, MIN(id) AS group_id FROM document " +
+					"WHERE launch_id IN (:launchIds) GROUP BY uri) AS dg ON dg.uri=doc.uri " +
 					"WHERE anno_type IN (:types) " +
-					"AND doc.launch_id IN (:launchIds)" +
-					"ORDER BY an.id";
+					"AND doc.launch_id IN (:launchIds) " +
+					"ORDER BY dg.group_id, an.anno_type, an.start_offset, an.id";
+
+	/**
+	 * JDBC fetch size of scanning queries. For MySQL Connector/J set it to
+	 * {@link Integer#MIN_VALUE} to stream rows or set 'useCursorFetch=true' in
+	 * the connection properties to fetch rows in chunks of the given size.
+	 */
+	public static final String PROP_FETCH_SIZE = "cao.fetchSize";
+
+	private NamedParameterJdbcTemplate scanTemplate;
 
 	@Override
 	public void load(DataResource data) throws ResourceInitializationException {
@@ -81,6 +109,12 @@ public class MysqlJdbcCasAccessObject extends NamedParameterJdbcDaoSupport
 		} catch (Exception e) {
 			throw new IllegalStateException(e);
 		}
+		JdbcTemplate scanJdbcTemplate = new JdbcTemplate(ds);
+		String fetchSizeStr = configProps.getProperty(PROP_FETCH_SIZE);
+		if (fetchSizeStr != null) {
+			scanJdbcTemplate.setFetchSize(Integer.parseInt(fetchSizeStr));
+		}
+		scanTemplate = new NamedParameterJdbcTemplate(scanJdbcTemplate);
 		// add shutdown hook
 		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
 			@Override
@@ -161,6 +195,34 @@ public class MysqlJdbcCasAccessObject extends NamedParameterJdbcDaoSupport
 		return genIdHolder.getKey().longValue();
 	}
 
+	/**
+	 * Does nothing as each row is written immediately.
+	 */
+	@Override
+	public void documentFinished() {
+	}
+
+	/**
+	 * Does nothing as each row is written immediately.
+	 */
+	@Override
+	public void documentFailed() {
+	}
+
+	/**
+	 * Does nothing as each row is written immediately.
+	 */
+	@Override
+	public void flush() {
+	}
+
+	/**
+	 * Does nothing. The data source is closed by the shutdown hook.
+	 */
+	@Override
+	public void close() {
+	}
+
 	@Override
 	public List<AnnotationDTO> getTopAnnotationsByLaunch(Set<Integer> launchIds,
 			Set<String> topAnnoTypes) {
@@ -171,11 +233,28 @@ public class MysqlJdbcCasAccessObject extends NamedParameterJdbcDaoSupport
 				params, new AnnotationDTORowMapper());
 	}
 
+	@Override
+	public void scanTopAnnotationsByLaunch(Set<Integer> launchIds, Set<String> topAnnoTypes,
+			final AnnotationHandler handler) {
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("types", topAnnoTypes);
+		params.put("launchIds", launchIds);
+		final AnnotationDTORowMapper rowMapper = new AnnotationDTORowMapper();
+		scanTemplate.query(SCAN_TOP_ANNOS_BY_LAUNCH_AND_TYPE, params, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				AnnotationDTO anno = rowMapper.mapRow(rs, rs.getRow());
+				anno.setDocGroupId(rs.getLong("docGroupId"));
+				handler.handle(anno);
+			}
+		});
+	}
+
 	private MapSqlParameterSource mapSource(Map<String, Object> paramsMap) {
 		return new MapSqlParameterSource(paramsMap);
 	}
 
-	private String truncateString(String src, int maxLength) {
+	protected String truncateString(String src, int maxLength) {
 		if (src.length() > maxLength) {
 			src = src.substring(0, maxLength - TRUNCATED_STRING_PREFIX.length());
 			src = TRUNCATED_STRING_PREFIX + src;
@@ -199,6 +278,7 @@ public class MysqlJdbcCasAccessObject extends NamedParameterJdbcDaoSupport
 			result.setStartOffset(rs.getInt("annoStartOffset"));
 			result.setEndOffset(rs.getInt("annoEndOffset"));
 			result.setDocUri(rs.getString("docURI"));
+			result.setLaunchId(rs.getLong("launchId"));
 			return result;
 		}
 	}
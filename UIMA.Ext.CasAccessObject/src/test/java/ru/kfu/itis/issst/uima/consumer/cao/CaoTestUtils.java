@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.consumer.cao;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class CaoTestUtils {
+
+	private static final String SCHEMA_RESOURCE = "cas-access-db-hsqldb.sql";
+
+	/**
+	 * Creates the CAS access schema in a new in-memory HSQLDB database.
+	 *
+	 * @return the data source properties of the database
+	 */
+	public static Properties initDB(String name) throws Exception {
+		Class.forName("org.hsqldb.jdbc.JDBCDriver");
+		String dbUrl = "jdbc:hsqldb:mem:" + name;
+		String schema;
+		InputStream is = CaoTestUtils.class.getResourceAsStream(SCHEMA_RESOURCE);
+		try {
+			schema = IOUtils.toString(is, "utf-8");
+		} finally {
+			is.close();
+		}
+		Connection con = DriverManager.getConnection(dbUrl, "SA", "");
+		try {
+			Statement st = con.createStatement();
+			for (String stmt : schema.split(";")) {
+				// skip comments and empty lines
+				stmt = stmt.replaceAll("--.*", "").trim();
+				if (!stmt.isEmpty()) {
+					st.execute(stmt);
+				}
+			}
+			st.close();
+		} finally {
+			con.close();
+		}
+		Properties props = new Properties();
+		props.setProperty("driverClassName", "org.hsqldb.jdbc.JDBCDriver");
+		props.setProperty("url", dbUrl);
+		props.setProperty("username", "SA");
+		props.setProperty("password", "");
+		return props;
+	}
+
+	private CaoTestUtils() {
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.consumer.cao;
+
+import static org.junit.Assert.assertEquals;
+import static ru.kfu.itis.issst.uima.consumer.cao.CaoTestUtils.initDB;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ru.kfu.itis.issst.uima.consumer.cao.DeltaCalc.DeltaListener;
+import ru.kfu.itis.issst.uima.consumer.cao.impl.AnnotationDTO;
+import ru.kfu.itis.issst.uima.consumer.cao.impl.MysqlJdbcCasAccessObject;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class DeltaCalcTest {
+
+	@Test
+	public void testEvents() throws Exception {
+		MysqlJdbcCasAccessObject cao = new MysqlJdbcCasAccessObject();
+		cao.load(initDB("delta-calc-events"));
+		long pastLaunch = cao.persistLaunch(new Date());
+		long newLaunch = cao.persistLaunch(new Date());
+		persistDocument(cao, pastLaunch, "a", "Sent", 0, 10, 11, 20, 30, 40);
+		persistDocument(cao, pastLaunch, "b", "NE", 0, 5);
+		persistDocument(cao, pastLaunch, "b", "Sent", 0, 10);
+		persistDocument(cao, newLaunch, "a", "Sent", 0, 10, 11, 22, 50, 60);
+		persistDocument(cao, newLaunch, "b", "Sent", 0, 10);
+		persistDocument(cao, newLaunch, "c", "NE", 1, 3);
+
+		List<String> events = calcDelta(cao, pastLaunch, newLaunch, 1);
+		assertEquals(Arrays.asList(
+				"saved a Sent 0 0", "changed a Sent 11 11", "new a Sent 50",
+				"lost a Sent 30",
+				"saved b Sent 0 0", "lost b NE 0",
+				"new c NE 1"),
+				events);
+	}
+
+	@Test
+	public void testUrisDifferingInCase() throws Exception {
+		MysqlJdbcCasAccessObject cao = new MysqlJdbcCasAccessObject();
+		cao.load(initDB("delta-calc-uri-case"));
+		long pastLaunch = cao.persistLaunch(new Date());
+		long newLaunch = cao.persistLaunch(new Date());
+		persistDocument(cao, pastLaunch, "b", "Sent", 0, 10);
+		persistDocument(cao, pastLaunch, "B", "Sent", 0, 5);
+		persistDocument(cao, pastLaunch, "a", "Sent", 0, 10);
+		persistDocument(cao, newLaunch, "a", "Sent", 0, 10);
+		persistDocument(cao, newLaunch, "B", "Sent", 0, 7);
+		persistDocument(cao, newLaunch, "b", "Sent", 0, 10);
+
+		List<String> events = calcDelta(cao, pastLaunch, newLaunch, 1);
+		// documents are passed in the order of their first appearance
+		assertEquals(Arrays.asList(
+				"saved b Sent 0 0",
+				"changed B Sent 0 0",
+				"saved a Sent 0 0"),
+				events);
+		assertEquals(events, calcDelta(cao, pastLaunch, newLaunch, 2));
+	}
+
+	@Test
+	public void testParallel() throws Exception {
+		MysqlJdbcCasAccessObject cao = new MysqlJdbcCasAccessObject();
+		cao.load(initDB("delta-calc-parallel"));
+		long pastLaunch = cao.persistLaunch(new Date());
+		long newLaunch = cao.persistLaunch(new Date());
+		Random rnd = new Random(7);
+		for (int doc = 0; doc < 30; doc++) {
+			for (long launch : new long[] { pastLaunch, newLaunch }) {
+				int[] offsets = new int[2 * rnd.nextInt(6)];
+				int offset = 0;
+				for (int i = 0; i < offsets.length; i++) {
+					offset += 1 + rnd.nextInt(5);
+					offsets[i] = offset;
+				}
+				persistDocument(cao, launch, String.format("doc%02d", doc), "Sent", offsets);
+			}
+		}
+		List<String> sequentialEvents = calcDelta(cao, pastLaunch, newLaunch, 1);
+		assertEquals(sequentialEvents, calcDelta(cao, pastLaunch, newLaunch, 3));
+	}
+
+	private static List<String> calcDelta(CasAccessObject cao, long pastLaunch, long newLaunch,
+			int threads) {
+		DeltaCalc calc = new DeltaCalc(cao);
+		calc.setPastLaunchIds(ImmutableSet.of((int) pastLaunch));
+		calc.setNewLaunchIds(ImmutableSet.of((int) newLaunch));
+		Set<String> types = ImmutableSet.of("Sent", "NE");
+		calc.setTopAnnoTypes(types);
+		calc.setThreads(threads);
+		final List<String> events = Lists.newArrayList();
+		calc.addListener(new DeltaListener() {
+			@Override
+			public void onNewAnnotation(AnnotationDTO anno) {
+				events.add("new " + describe(anno));
+			}
+
+			@Override
+			public void onChangedAnnotation(AnnotationDTO oldAnno, AnnotationDTO newAnno) {
+				events.add("changed " + describe(newAnno) + " " + oldAnno.getStartOffset());
+			}
+
+			@Override
+			public void onLostAnnotation(AnnotationDTO anno) {
+				events.add("lost " + describe(anno));
+			}
+
+			@Override
+			public void onSavedAnnotation(AnnotationDTO oldAnno, AnnotationDTO newAnno) {
+				events.add("saved " + describe(newAnno) + " " + oldAnno.getStartOffset());
+			}
+		});
+		calc.run();
+		return events;
+	}
+
+	private static String describe(AnnotationDTO anno) {
+		return anno.getDocUri() + " " + anno.getType() + " " + anno.getStartOffset();
+	}
+
+	/**
+	 * @param offsets
+	 *            begin and end of each annotation
+	 */
+	private static void persistDocument(CasAccessObject cao, long launchId, String uri,
+			String type, int... offsets) {
+		long docId = cao.persistDocument(launchId, uri, null, null);
+		long spanId = cao.persistSpan(docId, "text");
+		for (int i = 0; i < offsets.length; i += 2) {
+			cao.persistAnnotation(type, spanId, "text", offsets[i], offsets[i + 1]);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.consumer.cao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static ru.kfu.itis.issst.uima.consumer.cao.CaoTestUtils.initDB;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class BatchingJdbcCasAccessObjectTest {
+
+	@Test
+	public void testSynchronous() throws Exception {
+		Properties dbProps = initDB("cao-sync");
+		BatchingJdbcCasAccessObject cao = makeCao(dbProps, 2, 0);
+		JdbcTemplate jt = cao.getJdbcTemplate();
+		long launchId = cao.persistLaunch(new Date());
+		persistDocument(cao, launchId, "doc1");
+		// rows are buffered until the end of document
+		assertEquals(0, count(jt, "DOCUMENT"));
+		assertEquals(0, count(jt, "ANNOTATION"));
+		cao.documentFinished();
+		assertEquals(1, count(jt, "DOCUMENT"));
+		assertEquals(1, count(jt, "SPAN"));
+		assertEquals(3, count(jt, "ANNOTATION"));
+		assertEquals(1, count(jt, "FEATURE"));
+		persistDocument(cao, launchId, "doc2");
+		cao.flush();
+		assertEquals(2, count(jt, "DOCUMENT"));
+		assertEquals(6, count(jt, "ANNOTATION"));
+		assertEquals(2, count(jt, "FEATURE"));
+		// features refer to annotations of the same document
+		assertEquals(2, jt.queryForObject("SELECT count(*) FROM FEATURE f " +
+				"JOIN ANNOTATION o ON f.owner_anno_id = o.id " +
+				"JOIN ANNOTATION v ON f.value_anno_id = v.id " +
+				"WHERE o.span_id = v.span_id AND o.anno_type = 'Sent' AND v.anno_type = 'W'",
+				Integer.class).intValue());
+
+		List<AnnotationDTO> sents = cao.getTopAnnotationsByLaunch(
+				ImmutableSet.of((int) launchId), ImmutableSet.of("Sent"));
+		assertEquals(2, sents.size());
+		assertEquals("doc1", sents.get(0).getDocUri());
+		assertEquals("Mama myla ramu", sents.get(0).getTxt());
+		assertEquals("doc2", sents.get(1).getDocUri());
+	}
+
+	@Test
+	public void testAsynchronousWriters() throws Exception {
+		Properties dbProps = initDB("cao-async");
+		JdbcTemplate jt = makeCao(dbProps, 1, 0).getJdbcTemplate();
+		jt.update("INSERT INTO LAUNCH (id, started) VALUES (1, CURRENT_TIMESTAMP)");
+		jt.update("INSERT INTO DOCUMENT (id, uri, launch_id) VALUES (100, 'old', 1)");
+		// two writers reserve blocks of the same tables
+		BatchingJdbcCasAccessObject cao1 = makeCao(dbProps, 3, 2);
+		BatchingJdbcCasAccessObject cao2 = makeCao(dbProps, 3, 2);
+		for (int i = 0; i < 20; i++) {
+			persistDocument(cao1, 1, "first" + i);
+			cao1.documentFinished();
+			persistDocument(cao2, 1, "second" + i);
+			cao2.documentFinished();
+		}
+		cao1.flush();
+		cao2.flush();
+		assertEquals(41, count(jt, "DOCUMENT"));
+		assertEquals(40, count(jt, "SPAN"));
+		assertEquals(120, count(jt, "ANNOTATION"));
+		assertEquals(40, count(jt, "FEATURE"));
+		// ids are assigned after the existing ones
+		assertEquals(101, jt.queryForObject(
+				"SELECT min(id) FROM DOCUMENT WHERE uri <> 'old'", Integer.class).intValue());
+	}
+
+	@Test
+	public void testAsynchronousFailure() throws Exception {
+		Properties dbProps = initDB("cao-async-failure");
+		BatchingJdbcCasAccessObject cao = makeCao(dbProps, 10, 4);
+		long launchId = cao.persistLaunch(new Date());
+		long docId = cao.persistDocument(launchId, "doc", null, null);
+		long spanId = cao.persistSpan(docId, "Mama");
+		long annoId = cao.persistAnnotation("W", spanId, "Mama", 0, 4);
+		// too long for the column
+		cao.persistFeature(annoId, "aVeryVeryVeryVeryVeryLongFeatureName", annoId);
+		cao.documentFinished();
+		try {
+			cao.flush();
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("has failed"));
+		}
+		// the document transaction is rolled back
+		assertEquals(0, count(cao.getJdbcTemplate(), "DOCUMENT"));
+	}
+
+	@Test
+	public void testDocumentFailed() throws Exception {
+		Properties dbProps = initDB("cao-doc-failed");
+		BatchingJdbcCasAccessObject cao = makeCao(dbProps, 10, 0);
+		JdbcTemplate jt = cao.getJdbcTemplate();
+		long launchId = cao.persistLaunch(new Date());
+		persistDocument(cao, launchId, "failed");
+		cao.documentFailed();
+		persistDocument(cao, launchId, "doc");
+		cao.documentFinished();
+		cao.flush();
+		// rows of the failed document are not written with the next one
+		assertEquals(1, count(jt, "DOCUMENT"));
+		assertEquals(1, count(jt, "SPAN"));
+		assertEquals(3, count(jt, "ANNOTATION"));
+		assertEquals(1, count(jt, "FEATURE"));
+		assertEquals("doc", jt.queryForObject("SELECT uri FROM DOCUMENT", String.class));
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		Properties dbProps = initDB("cao-close");
+		BatchingJdbcCasAccessObject cao = makeCao(dbProps, 10, 2);
+		JdbcTemplate jt = cao.getJdbcTemplate();
+		long launchId = cao.persistLaunch(new Date());
+		for (int i = 0; i < 5; i++) {
+			persistDocument(cao, launchId, "doc" + i);
+			cao.documentFinished();
+		}
+		cao.flush();
+		cao.close();
+		assertEquals(5, count(jt, "DOCUMENT"));
+		// a closed object writes in the caller thread
+		persistDocument(cao, launchId, "late");
+		cao.documentFinished();
+		assertEquals(6, count(jt, "DOCUMENT"));
+		// repeated close is harmless
+		cao.close();
+	}
+
+	private static void persistDocument(BatchingJdbcCasAccessObject cao, long launchId,
+			String uri) {
+		long docId = cao.persistDocument(launchId, uri, 14L, null);
+		long spanId = cao.persistSpan(docId, "Mama myla ramu");
+		long sentId = cao.persistAnnotation("Sent", spanId, "Mama myla ramu", 0, 14);
+		long wordId = cao.persistAnnotation("W", spanId, "Mama", 0, 4);
+		cao.persistAnnotation("W", spanId, "myla", 5, 9);
+		cao.persistFeature(sentId, "head", wordId);
+	}
+
+	private static int count(JdbcTemplate jt, String table) {
+		return jt.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+	}
+
+	private static BatchingJdbcCasAccessObject makeCao(Properties dbProps, int idBlockSize,
+			int asyncQueueSize) {
+		Properties props = new Properties();
+		props.putAll(dbProps);
+		props.setProperty(BatchingJdbcCasAccessObject.PROP_ID_BLOCK_SIZE,
+				String.valueOf(idBlockSize));
+		props.setProperty(BatchingJdbcCasAccessObject.PROP_ASYNC_QUEUE_SIZE,
+				String.valueOf(asyncQueueSize));
+		BatchingJdbcCasAccessObject cao = new BatchingJdbcCasAccessObject();
+		cao.load(props);
+		return cao;
+	}
+}
@@ -267,8 +267,11 @@ public class AnnotationUtils {
 				cf.embedConstraint(newArrayList("end"), endConstraint));
 	}
 
+	/**
+	 * @return an interval tree index that is built in O(n log n)
+	 */
 	public static <A extends AnnotationFS> OverlapIndex<A> createOverlapIndex(Iterator<A> srcIter) {
-		return TreeMapOverlapIndex.from(srcIter);
+		return IntervalTreeOverlapIndex.from(srcIter);
 	}
 
     /**
@@ -0,0 +1,108 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.cas;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.uima.cas.text.AnnotationFS;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+
+/**
+ * Interval tree over a sorted array. Annotations are sorted in the order of
+ * {@link AnnotationOffsetComparator} (source iterator order for equal
+ * offsets), a tree node is the middle of an array range and stores the max end
+ * offset of the range. Offsets are kept in primitive arrays, a query visits
+ * only subtrees that can contain overlapping annotations and yields them in
+ * the sorted order.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+final class IntervalTreeOverlapIndex<A extends AnnotationFS> implements OverlapIndex<A> {
+	// factory methods
+	static <A extends AnnotationFS> IntervalTreeOverlapIndex<A> from(Iterator<A> srcIter) {
+		return new IntervalTreeOverlapIndex<A>(srcIter);
+	}
+
+	// IMPL START
+	private final AnnotationFS[] annos;
+	private final int[] begins;
+	private final int[] ends;
+	// max end of the range whose middle is the index
+	private final int[] maxEnds;
+
+	private IntervalTreeOverlapIndex(Iterator<A> srcIter) {
+		// preserve source iterator ordering and skip duplicates
+		Set<A> srcSet = Sets.newLinkedHashSet();
+		Iterators.addAll(srcSet, srcIter);
+		annos = srcSet.toArray(new AnnotationFS[srcSet.size()]);
+		// the sort is stable
+		Arrays.sort(annos, AnnotationOffsetComparator.instance(AnnotationFS.class));
+		begins = new int[annos.length];
+		ends = new int[annos.length];
+		for (int i = 0; i < annos.length; i++) {
+			AnnotationFS anno = annos[i];
+			begins[i] = anno.getBegin();
+			ends[i] = anno.getEnd();
+		}
+		maxEnds = new int[annos.length];
+		initMaxEnds(0, annos.length);
+	}
+
+	private int initMaxEnds(int lo, int hi) {
+		if (lo >= hi) {
+			return Integer.MIN_VALUE;
+		}
+		int mid = (lo + hi) >>> 1;
+		int result = Math.max(ends[mid],
+				Math.max(initMaxEnds(lo, mid), initMaxEnds(mid + 1, hi)));
+		maxEnds[mid] = result;
+		return result;
+	}
+
+	@Override
+	public Set<A> getOverlapping(int begin, int end) {
+		Set<A> result = Sets.newLinkedHashSet();
+		collect(0, annos.length, begin, end, result);
+		return result;
+	}
+
+	@Override
+	public void collectOverlapping(int begin, int end, Collection<? super A> target) {
+		collect(0, annos.length, begin, end, target);
+	}
+
+	private void collect(int lo, int hi, int begin, int end, Collection<? super A> target) {
+		// the right subtree is handled by the loop
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (maxEnds[mid] < begin) {
+				return;
+			}
+			collect(lo, mid, begin, end, target);
+			if (begins[mid] > end) {
+				// the right subtree begins after the span
+				return;
+			}
+			if (overlaps(begins[mid], ends[mid], begin, end)) {
+				@SuppressWarnings("unchecked")
+				A anno = (A) annos[mid];
+				target.add(anno);
+			}
+			lo = mid + 1;
+		}
+	}
+
+	static boolean overlaps(int annoBegin, int annoEnd, int begin, int end) {
+		return (annoBegin < end && annoEnd > begin)
+				// an empty annotation overlaps with a non-empty span that includes its offset
+				|| (annoBegin == annoEnd && begin < end
+				&& begin <= annoBegin && annoBegin <= end);
+	}
+}
@@ -3,6 +3,7 @@
  */
 package ru.kfu.itis.cll.uima.cas;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.apache.uima.cas.text.AnnotationFS;
@@ -23,10 +24,18 @@ public interface OverlapIndex<A extends AnnotationFS> {
 	 * @param begin
 	 * @param end
 	 * @return set of annotations that overlap with annotation whose offsets are
-	 *         given by parameters. Result ordering is defined by offsets
+	 *         given by parameters, including annotations that enclose it. An
+	 *         empty annotation overlaps with a non-empty span if its offset is
+	 *         within [begin, end]. Result ordering is defined by offsets
 	 *         (according to {@link AnnotationIndex}. If offsets are equals then
 	 *         source iterator ordering is used.
 	 */
 	Set<A> getOverlapping(int begin, int end);
 
+	/**
+	 * The same as {@link #getOverlapping(int, int)} but the result is added to
+	 * the given collection, so a caller can reuse it between queries.
+	 */
+	void collectOverlapping(int begin, int end, Collection<? super A> target);
+
 }
\ No newline at end of file
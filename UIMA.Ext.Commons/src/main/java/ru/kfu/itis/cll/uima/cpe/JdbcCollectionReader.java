@@ -3,24 +3,29 @@
  */
 package ru.kfu.itis.cll.uima.cpe;
 
-import static com.google.common.collect.Lists.newLinkedList;
 import static ru.kfu.itis.cll.uima.util.AnnotatorUtils.requireParam;
 import static ru.kfu.itis.cll.uima.util.AnnotatorUtils.requireParams;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.uima.UimaContext;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
@@ -34,9 +39,25 @@ import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import ru.kfu.itis.cll.uima.commons.DocumentMetadata;
 
 import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
+ * Reads documents from a database by batches. The query is paginated in one
+ * of two modes:
+ * <ul>
+ * <li>by offset: the query has offset and limit parameters, e.g.,
+ * <code>SELECT url, txt FROM doc ORDER BY id OFFSET ? LIMIT ?</code>;</li>
+ * <li>by key: the query has the parameter of the last seen key and the limit
+ * parameter, e.g.,
+ * <code>SELECT id, url, txt FROM doc WHERE id > ? ORDER BY id LIMIT ?</code>.
+ * The key column must be numeric, {@link #PARAM_START_KEY} is passed for the
+ * first batch. Unlike offset pagination a database can seek to the batch
+ * start by an index.</li>
+ * </ul>
+ * If {@link #PARAM_PREFETCH_BATCHES} is positive, batches are fetched by a
+ * background thread while the pipeline processes the current one.
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
@@ -50,10 +71,14 @@ public class JdbcCollectionReader extends CasCollectionReader_ImplBase {
 	public static final String PARAM_QUERY = "query";
 	public static final String PARAM_OFFSET_PARAM_INDEX = "offsetParamIndex";
 	public static final String PARAM_LIMIT_PARAM_INDEX = "limitParamIndex";
+	public static final String PARAM_KEY_COLUMN = "keyColumn";
+	public static final String PARAM_KEY_PARAM_INDEX = "keyParamIndex";
+	public static final String PARAM_START_KEY = "startKey";
 	public static final String PARAM_TEXT_COLUMN = "textColumn";
 	public static final String PARAM_DOCUMENT_URL_COLUMN = "documentUrlColumn";
 	
 	public static final String PARAM_BATCH_SIZE = "batchSize";
+	public static final String PARAM_PREFETCH_BATCHES = "prefetchBatches";
 	
 	public static final String PARAM_COUNT_QUERY = "countQuery";
 	
@@ -71,18 +96,34 @@ public class JdbcCollectionReader extends CasCollectionReader_ImplBase {
 	private String countQuery;
 	@ConfigurationParameter(name = PARAM_LIMIT_PARAM_INDEX, mandatory = true)
 	private Integer limitParamIndex;
-	@ConfigurationParameter(name = PARAM_OFFSET_PARAM_INDEX, mandatory = true)
+	@ConfigurationParameter(name = PARAM_OFFSET_PARAM_INDEX, mandatory = false)
 	private Integer offsetParamIndex;
+	@ConfigurationParameter(name = PARAM_KEY_COLUMN, mandatory = false)
+	private String keyColumn;
+	@ConfigurationParameter(name = PARAM_KEY_PARAM_INDEX, mandatory = false)
+	private Integer keyParamIndex;
+	// documents with greater keys are read
+	@ConfigurationParameter(name = PARAM_START_KEY, defaultValue = "0", mandatory = false)
+	private long startKey;
 	@ConfigurationParameter(name = PARAM_DOCUMENT_URL_COLUMN, mandatory = false)
 	private String documentUrlColumn;
 	@ConfigurationParameter(name = PARAM_TEXT_COLUMN, mandatory = true)
 	private String textColumn;
 	@ConfigurationParameter(name = PARAM_BATCH_SIZE, defaultValue = "20", mandatory = false)
 	private Integer batchSize;
+	@ConfigurationParameter(name = PARAM_PREFETCH_BATCHES, defaultValue = "0", mandatory = false)
+	private int prefetchBatches;
 
 	// state fields
 	private Connection dbConnection;
 	private PreparedStatement queryStatement;
+	// the statement is used only by the fetcher thread if it exists
+	private ExecutorService fetcherExec;
+	private LinkedList<Future<List<DbTuple>>> prefetched = new LinkedList<Future<List<DbTuple>>>();
+	// fetching state
+	private int curOffset;
+	private long lastKey;
+	private boolean lastBatchFetched;
 
 	private Integer expectedTotalCount;
 	private int consumedCount = 0;
@@ -92,11 +133,22 @@ public class JdbcCollectionReader extends CasCollectionReader_ImplBase {
 		super.initialize(ctx);
 		// check parameters
 		requireParam(batchSize > 0, PARAM_BATCH_SIZE, batchSize);
-		requireParams(limitParamIndex != offsetParamIndex
+		requireParam(prefetchBatches >= 0, PARAM_PREFETCH_BATCHES, prefetchBatches);
+		String pageParamName;
+		Integer pageParamIndex;
+		if (keyColumn == null) {
+			pageParamName = PARAM_OFFSET_PARAM_INDEX;
+			pageParamIndex = offsetParamIndex;
+		} else {
+			pageParamName = PARAM_KEY_PARAM_INDEX;
+			pageParamIndex = keyParamIndex;
+		}
+		requireParams(pageParamIndex != null
+				&& !limitParamIndex.equals(pageParamIndex)
 				&& limitParamIndex > 0 && limitParamIndex < 3
-				&& offsetParamIndex > 0 && offsetParamIndex < 3,
-				new String[] { PARAM_LIMIT_PARAM_INDEX, PARAM_OFFSET_PARAM_INDEX },
-				new Object[] { limitParamIndex, offsetParamIndex });
+				&& pageParamIndex > 0 && pageParamIndex < 3,
+				new String[] { PARAM_LIMIT_PARAM_INDEX, pageParamName },
+				new Object[] { limitParamIndex, pageParamIndex });
 
 		// initialize db connection && prepare statement
 		try {
@@ -108,10 +160,25 @@ public class JdbcCollectionReader extends CasCollectionReader_ImplBase {
 			closeQuietly(dbConnection);
 			throw new ResourceInitializationException(e);
 		}
+		lastKey = startKey;
+		if (prefetchBatches > 0) {
+			// a daemon thread does not keep the JVM alive if the reader is not closed
+			fetcherExec = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+					.setNameFormat("jdbc-reader-fetcher-%d").setDaemon(true).build());
+		}
 	}
 
 	@Override
 	public void close() throws IOException {
+		if (fetcherExec != null) {
+			fetcherExec.shutdownNow();
+			try {
+				// the statement must not be closed while the fetcher uses it
+				fetcherExec.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
 		try {
 			queryStatement.close();
 		} catch (SQLException e) {
@@ -122,69 +189,95 @@ public class JdbcCollectionReader extends CasCollectionReader_ImplBase {
 	}
 
 	private Iterator<DbTuple> dbIterator = new AbstractIterator<DbTuple>() {
-		private int curOffset;
-		private boolean lastBatchFetched = false;
-		private Iterator<DbTuple> batchIterator;
+		private Iterator<DbTuple> batchIterator = Iterators.emptyIterator();
 
 		@Override
 		protected DbTuple computeNext() {
-			if (batchIterator == null) {
-				makeNextBatchIterator();
-			}
-			if (batchIterator.hasNext()) {
-				return batchIterator.next();
-			} else if (lastBatchFetched) {
-				return endOfData();
-			} else {
-				makeNextBatchIterator();
-				return computeNext();
+			while (!batchIterator.hasNext()) {
+				List<DbTuple> batch = nextBatch();
+				if (batch.isEmpty()) {
+					return endOfData();
+				}
+				batchIterator = batch.iterator();
 			}
+			return batchIterator.next();
 		}
+	};
 
-		private void makeNextBatchIterator() {
+	private List<DbTuple> nextBatch() {
+		if (fetcherExec == null) {
 			try {
-				List<DbTuple> batchList = queryBatch(curOffset, batchSize);
-				curOffset += batchSize;
-				if (batchList.isEmpty()) {
-					lastBatchFetched = true;
-				}
-				batchIterator = batchList.iterator();
+				return fetchBatch();
 			} catch (Exception e) {
 				throw new IllegalStateException(e);
 			}
-			// assertions
-			if (batchIterator == null) {
-				throw new IllegalStateException();
-			}
 		}
-	};
+		while (prefetched.size() <= prefetchBatches) {
+			prefetched.add(fetcherExec.submit(new Callable<List<DbTuple>>() {
+				@Override
+				public List<DbTuple> call() throws Exception {
+					return fetchBatch();
+				}
+			}));
+		}
+		try {
+			return prefetched.removeFirst().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
 
-	private List<DbTuple> queryBatch(int offset, int limit) throws SQLException, IOException {
-		queryStatement.setInt(offsetParamIndex, offset);
-		queryStatement.setInt(limitParamIndex, limit);
+	/**
+	 * Called only by one thread at a time: either by the pipeline thread or by
+	 * the fetcher thread.
+	 */
+	private List<DbTuple> fetchBatch() throws SQLException {
+		if (lastBatchFetched) {
+			return Collections.emptyList();
+		}
+		if (keyColumn == null) {
+			queryStatement.setInt(offsetParamIndex, curOffset);
+			curOffset += batchSize;
+		} else {
+			queryStatement.setLong(keyParamIndex, lastKey);
+		}
+		queryStatement.setInt(limitParamIndex, batchSize);
 		ResultSet rs = queryStatement.executeQuery();
+		List<DbTuple> result = new ArrayList<DbTuple>(batchSize);
 		try {
-			LinkedList<DbTuple> result = newLinkedList();
 			while (rs.next()) {
+				if (keyColumn != null) {
+					long key = rs.getLong(keyColumn);
+					if (key <= lastKey) {
+						throw new IllegalStateException(String.format(
+								"Query result is not ordered by %s: %s after %s",
+								keyColumn, key, lastKey));
+					}
+					lastKey = key;
+				}
 				result.add(toTuple(rs));
 			}
-			return ImmutableList.copyOf(result);
 		} finally {
 			rs.close();
 		}
+		if (result.size() < batchSize) {
+			lastBatchFetched = true;
+		}
+		return result;
 	}
 
-	private DbTuple toTuple(ResultSet rs) throws SQLException, IOException {
+	private DbTuple toTuple(ResultSet rs) throws SQLException {
 		String url = rs.getString(documentUrlColumn);
 		String text = null;
 		Clob textClob = rs.getClob(textColumn);
 		if (textClob != null) {
-			Reader textReader = null;
 			try {
-				textReader = textClob.getCharacterStream();
-				text = IOUtils.toString(textReader);
+				// a CAS accepts only String text, so get it in one copy
+				text = textClob.getSubString(1, (int) textClob.length());
 			} finally {
-				IOUtils.closeQuietly(textReader);
 				textClob.free();
 			}
 		}
@@ -234,11 +327,16 @@ public class JdbcCollectionReader extends CasCollectionReader_ImplBase {
 			return;
 		}
 		PreparedStatement countStmt = dbConnection.prepareStatement(countQuery);
-		ResultSet rs = countStmt.executeQuery();
-		if (rs.next()) {
-			expectedTotalCount = rs.getInt(1);
-		} else {
-			getLogger().warn("Count query returned empty result set");
+		try {
+			ResultSet rs = countStmt.executeQuery();
+			if (rs.next()) {
+				expectedTotalCount = rs.getInt(1);
+			} else {
+				getLogger().warn("Count query returned empty result set");
+			}
+			rs.close();
+		} finally {
+			countStmt.close();
 		}
 	}
 
@@ -0,0 +1,379 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.cpe;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceManager;
+import org.apache.uima.resource.metadata.ProcessingResourceMetaData;
+import org.apache.uima.util.CasPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Runs a collection reader and analysis engines in several threads without a
+ * CPE descriptor.
+ * <p>
+ * Each processing thread owns a replica of the engine aggregate. All replicas
+ * are instantiated with the same {@link ResourceManager}, so shared resources
+ * bound by name (e.g., a morphological dictionary holder) are loaded once and
+ * used by all replicas. CASes are taken from a bounded pool, so the reader
+ * waits when all CASes are being processed. Consumers are invoked in the
+ * thread that calls {@link #run()}, one CAS at a time, either in the reader
+ * order or in the order of processing completion.
+ * </p>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class ParallelPipelineRunner {
+
+	private static final long CAS_WAIT_TIMEOUT = 100;
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+	// config
+	private CollectionReaderDescription readerDesc;
+	private final List<AnalysisEngineDescription> aeDescs = Lists.newArrayList();
+	private final List<AnalysisEngineDescription> consumerDescs = Lists.newArrayList();
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private int casPoolSize = -1;
+	private boolean ordered = true;
+	// state
+	private volatile boolean cancelled;
+	private final BlockingQueue<Job> readQueue = new LinkedBlockingQueue<Job>();
+	private final BlockingQueue<Job> processedQueue = new LinkedBlockingQueue<Job>();
+
+	public void setReader(CollectionReaderDescription readerDesc) {
+		this.readerDesc = readerDesc;
+	}
+
+	/**
+	 * Adds an engine that is replicated in each processing thread.
+	 */
+	public void addAnalysisEngine(AnalysisEngineDescription aeDesc) {
+		aeDescs.add(aeDesc);
+	}
+
+	/**
+	 * Adds an engine that is instantiated once and sees processed CASes one by
+	 * one. Its output follows the reader order if {@link #setOrdered(boolean)}
+	 * is true.
+	 */
+	public void addConsumer(AnalysisEngineDescription consumerDesc) {
+		consumerDescs.add(consumerDesc);
+	}
+
+	/**
+	 * @param threadCount
+	 *            number of processing threads, defaults to the number of
+	 *            available processors
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("threadCount must be positive");
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * @param casPoolSize
+	 *            number of CASes that can be read but not yet consumed,
+	 *            defaults to twice the thread count
+	 */
+	public void setCasPoolSize(int casPoolSize) {
+		if (casPoolSize < 1) {
+			throw new IllegalArgumentException("casPoolSize must be positive");
+		}
+		this.casPoolSize = casPoolSize;
+	}
+
+	/**
+	 * @param ordered
+	 *            if true (the default) consumers receive CASes in the reader
+	 *            order, otherwise - as soon as they are processed
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Processes the whole collection and returns when all CASes are consumed.
+	 * The first failure of the reader, any engine or consumer stops the
+	 * processing and is re-thrown.
+	 */
+	public void run() throws UIMAException, IOException {
+		if (readerDesc == null) {
+			throw new IllegalStateException("Reader is not set");
+		}
+		if (aeDescs.isEmpty() && consumerDescs.isEmpty()) {
+			throw new IllegalStateException("No analysis engines are added");
+		}
+		cancelled = false;
+		readQueue.clear();
+		processedQueue.clear();
+		ResourceManager resMgr = UIMAFramework.newDefaultResourceManager();
+		CollectionReader reader = UIMAFramework.produceCollectionReader(readerDesc, resMgr, null);
+		List<AnalysisEngine> replicas = Lists.newArrayListWithCapacity(threadCount);
+		AnalysisEngine consumer = null;
+		List<Thread> threads = Lists.newArrayList();
+		try {
+			List<ProcessingResourceMetaData> metaData = Lists.newArrayList();
+			metaData.add(reader.getProcessingResourceMetaData());
+			if (!aeDescs.isEmpty()) {
+				AnalysisEngineDescription aggregateDesc = createAggregateDescription(aeDescs);
+				for (int i = 0; i < threadCount; i++) {
+					replicas.add(UIMAFramework.produceAnalysisEngine(aggregateDesc, resMgr, null));
+				}
+				metaData.add(replicas.get(0).getProcessingResourceMetaData());
+			}
+			if (!consumerDescs.isEmpty()) {
+				consumer = UIMAFramework.produceAnalysisEngine(
+						createAggregateDescription(consumerDescs), resMgr, null);
+				metaData.add(consumer.getProcessingResourceMetaData());
+			}
+			int poolSize = casPoolSize > 0 ? casPoolSize : threadCount * 2;
+			CasPool casPool = new CasPool(poolSize, metaData, null, resMgr);
+			// all CASes of the pool share the same type system
+			CAS firstCas = casPool.getCas();
+			try {
+				reader.typeSystemInit(firstCas.getTypeSystem());
+			} finally {
+				casPool.releaseCas(firstCas);
+			}
+			log.info("Starting {} processing threads with the CAS pool of size {}",
+					replicas.size(), poolSize);
+			threads.add(new Thread(new ReaderTask(reader, casPool, replicas.size()),
+					"pipeline-reader"));
+			for (int i = 0; i < replicas.size(); i++) {
+				threads.add(new Thread(new ProcessingTask(replicas.get(i)), "pipeline-" + i));
+			}
+			for (Thread t : threads) {
+				t.start();
+			}
+			consume(consumer, casPool, replicas.isEmpty());
+			for (AnalysisEngine ae : replicas) {
+				ae.collectionProcessComplete();
+			}
+			if (consumer != null) {
+				consumer.collectionProcessComplete();
+			}
+		} finally {
+			cancelled = true;
+			for (Thread t : threads) {
+				t.interrupt();
+			}
+			for (Thread t : threads) {
+				joinQuietly(t);
+			}
+			reader.close();
+			for (AnalysisEngine ae : replicas) {
+				ae.destroy();
+			}
+			if (consumer != null) {
+				consumer.destroy();
+			}
+		}
+	}
+
+	private void consume(AnalysisEngine consumer, CasPool casPool, boolean noProcessing)
+			throws UIMAException, IOException {
+		BlockingQueue<Job> sourceQueue = noProcessing ? readQueue : processedQueue;
+		// CASes processed ahead of the next one in the reader order
+		Map<Long, Job> pending = new HashMap<Long, Job>();
+		long nextSeq = 0;
+		long consumedCount = 0;
+		long totalCount = -1;
+		while (totalCount < 0 || consumedCount < totalCount) {
+			Job job = take(sourceQueue);
+			if (job.error != null) {
+				rethrow(job.error);
+			}
+			if (job.cas == null) {
+				if (job.seq >= 0) {
+					// the reader is finished
+					totalCount = job.seq;
+				}
+				// otherwise it is an end marker for processing threads
+				continue;
+			}
+			if (!ordered) {
+				consumeCas(consumer, casPool, job.cas);
+				consumedCount++;
+				continue;
+			}
+			pending.put(job.seq, job);
+			Job next;
+			while ((next = pending.remove(nextSeq)) != null) {
+				consumeCas(consumer, casPool, next.cas);
+				consumedCount++;
+				nextSeq++;
+			}
+		}
+	}
+
+	private void consumeCas(AnalysisEngine consumer, CasPool casPool, CAS cas)
+			throws AnalysisEngineProcessException {
+		try {
+			if (consumer != null) {
+				consumer.process(cas);
+			}
+		} finally {
+			casPool.releaseCas(cas);
+		}
+	}
+
+	private class ReaderTask implements Runnable {
+		private final CollectionReader reader;
+		private final CasPool casPool;
+		private final int processingThreads;
+
+		ReaderTask(CollectionReader reader, CasPool casPool, int processingThreads) {
+			this.reader = reader;
+			this.casPool = casPool;
+			this.processingThreads = processingThreads;
+		}
+
+		@Override
+		public void run() {
+			long seq = 0;
+			try {
+				while (!cancelled && reader.hasNext()) {
+					CAS cas = null;
+					while (cas == null && !cancelled) {
+						cas = casPool.getCas(CAS_WAIT_TIMEOUT);
+					}
+					if (cas == null) {
+						return;
+					}
+					try {
+						reader.getNext(cas);
+					} catch (Exception e) {
+						casPool.releaseCas(cas);
+						throw e;
+					}
+					readQueue.put(new Job(seq++, cas, null));
+				}
+				for (int i = 0; i < processingThreads; i++) {
+					readQueue.put(new Job(-1, null, null));
+				}
+				// send the total count through the queue that the consumer reads
+				if (processingThreads == 0) {
+					readQueue.put(new Job(seq, null, null));
+				} else {
+					processedQueue.put(new Job(seq, null, null));
+				}
+			} catch (InterruptedException e) {
+				// cancelled
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}
+	}
+
+	private class ProcessingTask implements Runnable {
+		private final AnalysisEngine ae;
+
+		ProcessingTask(AnalysisEngine ae) {
+			this.ae = ae;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Job job = readQueue.take();
+					if (job.cas == null) {
+						return;
+					}
+					ae.process(job.cas);
+					processedQueue.put(job);
+				}
+			} catch (InterruptedException e) {
+				// cancelled
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}
+	}
+
+	private void fail(Throwable e) {
+		if (!cancelled) {
+			log.error("Pipeline failure", e);
+		}
+		// both queues are unbounded, so offer always succeeds
+		Job errJob = new Job(-1, null, e);
+		processedQueue.offer(errJob);
+		readQueue.offer(errJob);
+	}
+
+	private static Job take(BlockingQueue<Job> queue) throws AnalysisEngineProcessException {
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+
+	private static void rethrow(Throwable e) throws UIMAException, IOException {
+		if (e instanceof UIMAException) {
+			throw (UIMAException) e;
+		}
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		throw new AnalysisEngineProcessException(e);
+	}
+
+	private static void joinQuietly(Thread t) {
+		try {
+			t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static AnalysisEngineDescription createAggregateDescription(
+			List<AnalysisEngineDescription> descs) throws ResourceInitializationException {
+		if (descs.size() == 1) {
+			return descs.get(0);
+		}
+		return createEngineDescription(descs.toArray(new AnalysisEngineDescription[descs.size()]));
+	}
+
+	private static class Job {
+		final long seq;
+		final CAS cas;
+		final Throwable error;
+
+		Job(long seq, CAS cas, Throwable error) {
+			this.seq = seq;
+			this.cas = cas;
+			this.error = error;
+		}
+	}
+}
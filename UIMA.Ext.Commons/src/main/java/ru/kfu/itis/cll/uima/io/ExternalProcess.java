@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A started external process with its stdout and stderr consumed by
+ * {@link ProcessStreams} readers. The last lines of stderr are always kept in
+ * a {@link LineTail} to be reported if the process fails.
+ *
+ * <pre>
+ * ExternalProcess proc = ExternalProcess.start(pb, Charsets.UTF_8,
+ * 		ProcessStreams.toSystemOut(), ProcessStreams.toSystemOut());
+ * ProcessIOUtils.feedProcessInput(proc.getProcess(), inputFile, true);
+ * proc.waitForSuccess();
+ * </pre>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class ExternalProcess {
+
+	/**
+	 * @param stdoutHandler
+	 *            receives stdout lines
+	 * @param stderrHandler
+	 *            receives stderr lines, can be null. Note that stderr is empty
+	 *            if the builder redirects it to stdout.
+	 */
+	public static ExternalProcess start(ProcessBuilder pb, Charset cs,
+			LineHandler stdoutHandler, LineHandler stderrHandler) throws IOException {
+		Process proc = pb.start();
+		return new ExternalProcess(proc, Joiner.on(' ').join(pb.command()), cs,
+				stdoutHandler, stderrHandler);
+	}
+
+	private final Process process;
+	private final String command;
+	private final LineTail stderrTail = new LineTail();
+	private final ListenableFuture<Void> stdoutCompletion;
+	private final ListenableFuture<Void> stderrCompletion;
+
+	private ExternalProcess(Process process, String command, Charset cs,
+			LineHandler stdoutHandler, LineHandler stderrHandler) {
+		this.process = process;
+		this.command = command;
+		stdoutCompletion = ProcessStreams.readLines(process.getInputStream(), cs, stdoutHandler);
+		stderrCompletion = ProcessStreams.readLines(process.getErrorStream(), cs,
+				stderrHandler == null ? stderrTail
+						: ProcessStreams.compose(stderrTail, stderrHandler));
+	}
+
+	public Process getProcess() {
+		return process;
+	}
+
+	/**
+	 * @return the future that is done when the process closes its stdout
+	 */
+	public ListenableFuture<Void> getStdoutCompletion() {
+		return stdoutCompletion;
+	}
+
+	/**
+	 * @return the future that is done when the process closes its stderr
+	 */
+	public ListenableFuture<Void> getStderrCompletion() {
+		return stderrCompletion;
+	}
+
+	public List<String> getStderrTail() {
+		return stderrTail.getLines();
+	}
+
+	/**
+	 * Waits until the process exits and both its output streams are read.
+	 *
+	 * @return the exit code
+	 * @throws IOException
+	 *             if reading of an output stream has failed
+	 */
+	public int waitFor() throws IOException, InterruptedException {
+		int exitCode = process.waitFor();
+		await(stdoutCompletion);
+		await(stderrCompletion);
+		return exitCode;
+	}
+
+	/**
+	 * The same as {@link #waitFor()} but a non-zero exit code is reported by
+	 * an exception with the stderr tail.
+	 */
+	public void waitForSuccess() throws IOException, InterruptedException {
+		int exitCode = waitFor();
+		if (exitCode != 0) {
+			throw new IOException(String.format(
+					"%s returned exit code %s. The end of stderr:\n%s",
+					command, exitCode, stderrTail));
+		}
+	}
+
+	public void destroy() {
+		process.destroy();
+	}
+
+	private static void await(ListenableFuture<Void> future)
+			throws IOException, InterruptedException {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof IOException ? (IOException) cause
+					: new IOException("Process output reading failure", cause);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.io;
+
+/**
+ * Receives lines of a stream read by
+ * {@link ProcessStreams#readLines(java.io.InputStream, java.nio.charset.Charset, LineHandler)}
+ * . It is invoked from a reader thread.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public interface LineHandler {
+
+	/**
+	 * @param line
+	 *            a line without a line terminator
+	 */
+	void line(String line);
+}
@@ -0,0 +1,56 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.io;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Keeps the last lines of a stream in a bounded ring buffer, e.g., to report
+ * the error output of a failed process without holding all of it.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class LineTail implements LineHandler {
+
+	public static final int DEFAULT_CAPACITY = 50;
+
+	private final int capacity;
+	// guarded by this
+	private final Deque<String> lines;
+
+	public LineTail() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public LineTail(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.lines = new ArrayDeque<String>(capacity);
+	}
+
+	@Override
+	public synchronized void line(String line) {
+		if (lines.size() == capacity) {
+			lines.removeFirst();
+		}
+		lines.addLast(line);
+	}
+
+	public synchronized List<String> getLines() {
+		return ImmutableList.copyOf(lines);
+	}
+
+	@Override
+	public String toString() {
+		return Joiner.on('\n').join(getLines());
+	}
+}
@@ -0,0 +1,96 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.io;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Reads output streams of external processes with blocking reads. Readers run
+ * on a shared pool of daemon threads, a thread is occupied only while its
+ * stream is open and is reused after that, so the number of threads does not
+ * grow with the number of processes started over time.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class ProcessStreams {
+
+	private static final ListeningExecutorService readerPool = MoreExecutors
+			.listeningDecorator(Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+					.setDaemon(true)
+					.setNameFormat("process-stream-reader-%d")
+					.build()));
+
+	/**
+	 * Passes lines of the stream to the handler until the end of the stream.
+	 * The stream is closed at the end.
+	 *
+	 * @return the future that is done when the stream is exhausted, it fails
+	 *         with an exception of reading or of the handler
+	 */
+	public static ListenableFuture<Void> readLines(
+			final InputStream in, Charset cs, final LineHandler handler) {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, cs));
+		return readerPool.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						handler.line(line);
+					}
+					return null;
+				} finally {
+					closeQuietly(reader);
+				}
+			}
+		});
+	}
+
+	public static LineHandler toSystemOut() {
+		return new LineHandler() {
+			@Override
+			public void line(String line) {
+				System.out.println(line);
+			}
+		};
+	}
+
+	public static LineHandler toLog(final Logger log, final String prefix) {
+		return new LineHandler() {
+			@Override
+			public void line(String line) {
+				log.info("{}: {}", prefix, line);
+			}
+		};
+	}
+
+	public static LineHandler compose(final LineHandler... handlers) {
+		return new LineHandler() {
+			@Override
+			public void line(String line) {
+				for (LineHandler h : handlers) {
+					h.line(line);
+				}
+			}
+		};
+	}
+
+	private ProcessStreams() {
+	}
+}
@@ -4,13 +4,21 @@
 package ru.kfu.itis.cll.uima.io;
 
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 
 /**
  * Borrowed from {@link TreeTaggerWrapper}
+ * <p>
+ * The stream is read with blocking reads until its end, so the
+ * {@link #done()} call is not necessary anymore.
+ * </p>
  * 
  * @author Rinat Gareev (Kazan Federal University)
- * 
+ * @deprecated use {@link ProcessStreams} or {@link ExternalProcess}
  */
+@Deprecated
 public abstract class StreamGobblerBase implements Runnable {
 
 	public static StreamGobblerBase toSystemOut(InputStream in) {
@@ -28,29 +36,35 @@ public abstract class StreamGobblerBase implements Runnable {
 	}
 
 	private final InputStream in;
-	private boolean done = false;
-	private Throwable exception;
+	private final Charset charset;
+	private volatile Throwable exception;
 
 	public StreamGobblerBase(InputStream in) {
+		this(in, Charset.defaultCharset());
+	}
+
+	public StreamGobblerBase(InputStream in, Charset charset) {
 		this.in = in;
+		this.charset = charset;
 	}
 
+	/**
+	 * Does nothing, the gobbler stops at the end of the stream.
+	 */
 	public void done() {
-		done = true;
 	}
 
 	@Override
 	public void run() {
-		byte[] buffer = new byte[1024];
+		char[] buffer = new char[1024];
+		// the decoder keeps incomplete multi-byte sequences between reads
+		Reader reader = new InputStreamReader(in, charset);
 		try {
-			while (!done) {
-				while (in.available() > 0) {
-					int br = in.read(buffer, 0, Math.min(buffer.length, in.available()));
-					if (br > 0) {
-						write(new String(buffer, 0, br));
-					}
+			int br;
+			while ((br = reader.read(buffer)) >= 0) {
+				if (br > 0) {
+					write(new String(buffer, 0, br));
 				}
-				Thread.sleep(100);
 			}
 			onDone();
 		} catch (final Throwable e) {
@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.util;
+
+import java.util.BitSet;
+
+/**
+ * Read-only copy of a {@link BitSet}. Every mutating method throws
+ * {@link UnsupportedOperationException}, so instances can be shared between
+ * threads and holders without defensive copying. {@link #clone()} returns an
+ * ordinary (mutable) BitSet.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public final class UnmodifiableBitSet extends BitSet {
+
+	private static final long serialVersionUID = 3604285749245627406L;
+
+	/**
+	 * @param src
+	 * @return the given instance if it is read-only already; otherwise - a
+	 *         read-only copy of it
+	 */
+	public static UnmodifiableBitSet of(BitSet src) {
+		if (src instanceof UnmodifiableBitSet) {
+			return (UnmodifiableBitSet) src;
+		}
+		return new UnmodifiableBitSet(src);
+	}
+
+	private UnmodifiableBitSet(BitSet src) {
+		super(src.length());
+		super.or(src);
+	}
+
+	@Override
+	public Object clone() {
+		BitSet result = new BitSet(length());
+		result.or(this);
+		return result;
+	}
+
+	@Override
+	public void flip(int bitIndex) {
+		throw unsupported();
+	}
+
+	@Override
+	public void flip(int fromIndex, int toIndex) {
+		throw unsupported();
+	}
+
+	@Override
+	public void set(int bitIndex) {
+		throw unsupported();
+	}
+
+	@Override
+	public void set(int bitIndex, boolean value) {
+		throw unsupported();
+	}
+
+	@Override
+	public void set(int fromIndex, int toIndex) {
+		throw unsupported();
+	}
+
+	@Override
+	public void set(int fromIndex, int toIndex, boolean value) {
+		throw unsupported();
+	}
+
+	@Override
+	public void clear(int bitIndex) {
+		throw unsupported();
+	}
+
+	@Override
+	public void clear(int fromIndex, int toIndex) {
+		throw unsupported();
+	}
+
+	@Override
+	public void clear() {
+		throw unsupported();
+	}
+
+	@Override
+	public void and(BitSet set) {
+		throw unsupported();
+	}
+
+	@Override
+	public void or(BitSet set) {
+		throw unsupported();
+	}
+
+	@Override
+	public void xor(BitSet set) {
+		throw unsupported();
+	}
+
+	@Override
+	public void andNot(BitSet set) {
+		throw unsupported();
+	}
+
+	private static UnsupportedOperationException unsupported() {
+		return new UnsupportedOperationException("The bit set is read-only");
+	}
+}
@@ -0,0 +1,377 @@
+/**
+ * 
+ */
+package ru.kfu.itis.cll.uima.wfstore;
+
+import static org.apache.commons.io.FileUtils.openOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SerializationUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Read-only {@link WordformStore} over a binary file that is mapped into
+ * memory, so opening a store does not depend on its size and keys do not
+ * occupy the heap. The file contains:
+ * <ul>
+ * <li>the header and Java-serialized metadata properties;</li>
+ * <li>the table of distinct tags, either strings or bit sets;</li>
+ * <li>sorted keys with tag ids split into blocks of {@value #BLOCK_SIZE}
+ * entries. The first key of a block is written in full, each next key is
+ * written as the length of the prefix shared with the previous key and the
+ * rest chars (front coding);</li>
+ * <li>offsets of the blocks.</li>
+ * </ul>
+ * A lookup does the binary search over the first keys of blocks and scans one
+ * block. Numbers and chars are written as variable-length ints, so a Cyrillic
+ * char takes 2 bytes.
+ * <p>
+ * Use {@link #write(File, Map, Map)} or {@link WordformStoreConverter} to make
+ * a file.
+ * 
+ * @author Rinat Gareev (Kazan Federal University)
+ * 
+ */
+public class MmapWordformStore<TagType> implements WordformStore<TagType> {
+
+	private static final int MAGIC = 0x57465331; // "WFS1"
+	private static final byte TAG_STRING = 1;
+	private static final byte TAG_BITSET = 2;
+	static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Opens the store by mapping the given file into memory.
+	 */
+	public static <TagType> MmapWordformStore<TagType> open(File file) throws IOException {
+		MmapWordformStore<TagType> result = new MmapWordformStore<TagType>();
+		result.init(map(file));
+		return result;
+	}
+
+	/**
+	 * Writes the given store in the format of this class.
+	 */
+	public static void write(File outFile, DefaultWordformStore<?> store) throws IOException {
+		Map<String, Object> metadata = store.metadataMap;
+		if (metadata == null) {
+			metadata = Collections.emptyMap();
+		}
+		write(outFile, store.strKeyMap, metadata);
+	}
+
+	/**
+	 * Writes the given wordform-tag map and metadata properties in the format
+	 * of this class.
+	 *
+	 * @param wfMap
+	 *            tags must be either strings or bit sets
+	 * @param metadata
+	 *            values must be serializable
+	 */
+	public static void write(File outFile, Map<String, ?> wfMap, Map<String, Object> metadata)
+			throws IOException {
+		List<String> keys = Lists.newArrayList(wfMap.keySet());
+		Collections.sort(keys);
+		// intern tags
+		Map<Object, Integer> tagIds = Maps.newLinkedHashMap();
+		byte tagKind = 0;
+		for (Object tag : wfMap.values()) {
+			byte curTagKind;
+			if (tag instanceof String) {
+				curTagKind = TAG_STRING;
+			} else if (tag instanceof BitSet) {
+				curTagKind = TAG_BITSET;
+			} else {
+				throw new IllegalArgumentException("Unsupported tag: " + tag);
+			}
+			if (tagKind == 0) {
+				tagKind = curTagKind;
+			} else if (tagKind != curTagKind) {
+				throw new IllegalArgumentException("Tags of different classes");
+			}
+			if (!tagIds.containsKey(tag)) {
+				tagIds.put(tag, tagIds.size());
+			}
+		}
+		if (tagKind == 0) {
+			tagKind = TAG_STRING;
+		}
+		// keys
+		ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+		int blockCount = (keys.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int[] blockOffsets = new int[blockCount];
+		String prevKey = "";
+		for (int i = 0; i < keys.size(); i++) {
+			String key = keys.get(i);
+			int prefixLength = 0;
+			if (i % BLOCK_SIZE == 0) {
+				blockOffsets[i / BLOCK_SIZE] = keyBytes.size();
+			} else {
+				int maxPrefixLength = Math.min(prevKey.length(), key.length());
+				while (prefixLength < maxPrefixLength
+						&& prevKey.charAt(prefixLength) == key.charAt(prefixLength)) {
+					prefixLength++;
+				}
+			}
+			writeVInt(keyBytes, prefixLength);
+			writeVInt(keyBytes, key.length() - prefixLength);
+			for (int c = prefixLength; c < key.length(); c++) {
+				writeVInt(keyBytes, key.charAt(c));
+			}
+			writeVInt(keyBytes, tagIds.get(wfMap.get(key)));
+			prevKey = key;
+		}
+		// write
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				openOutputStream(outFile)));
+		try {
+			out.writeInt(MAGIC);
+			byte[] metadataBytes = SerializationUtils.serialize(Maps.newHashMap(metadata));
+			out.writeInt(metadataBytes.length);
+			out.write(metadataBytes);
+			out.writeByte(tagKind);
+			out.writeInt(tagIds.size());
+			for (Object tag : tagIds.keySet()) {
+				if (tagKind == TAG_STRING) {
+					byte[] tagBytes = ((String) tag).getBytes(Charsets.UTF_8);
+					out.writeInt(tagBytes.length);
+					out.write(tagBytes);
+				} else {
+					long[] words = ((BitSet) tag).toLongArray();
+					out.writeInt(words.length);
+					for (long w : words) {
+						out.writeLong(w);
+					}
+				}
+			}
+			out.writeInt(keys.size());
+			out.writeInt(keyBytes.size());
+			keyBytes.writeTo(out);
+			for (int blockOffset : blockOffsets) {
+				out.writeInt(blockOffset);
+			}
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	// state
+	private ByteBuffer buf;
+	private Map<String, Object> metadataMap;
+	private Object[] tags;
+	private int keyCount;
+	private int keysStart;
+	private int blockOffsetsStart;
+	private int blockCount;
+
+	protected MmapWordformStore() {
+	}
+
+	@SuppressWarnings("unchecked")
+	protected void init(ByteBuffer buf) {
+		if (buf.getInt() != MAGIC) {
+			throw new IllegalStateException("Not a wordform store file");
+		}
+		byte[] metadataBytes = new byte[buf.getInt()];
+		buf.get(metadataBytes);
+		metadataMap = (Map<String, Object>) SerializationUtils.deserialize(metadataBytes);
+		byte tagKind = buf.get();
+		tags = new Object[buf.getInt()];
+		for (int i = 0; i < tags.length; i++) {
+			if (tagKind == TAG_STRING) {
+				byte[] tagBytes = new byte[buf.getInt()];
+				buf.get(tagBytes);
+				tags[i] = new String(tagBytes, Charsets.UTF_8);
+			} else if (tagKind == TAG_BITSET) {
+				long[] words = new long[buf.getInt()];
+				for (int w = 0; w < words.length; w++) {
+					words[w] = buf.getLong();
+				}
+				tags[i] = BitSet.valueOf(words);
+			} else {
+				throw new IllegalStateException("Unknown tag kind: " + tagKind);
+			}
+		}
+		keyCount = buf.getInt();
+		int keyBytesLength = buf.getInt();
+		keysStart = buf.position();
+		blockOffsetsStart = keysStart + keyBytesLength;
+		blockCount = (keyCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		// only absolute reads are used below, so lookups are thread-safe
+		this.buf = buf;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public TagType getTag(String wf) {
+		// find the last block whose first key is not greater than wf
+		int lo = 0;
+		int hi = blockCount - 1;
+		int block = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compareFirstKey(mid, wf);
+			if (cmp == 0) {
+				return (TagType) tags[readTagIdOfFirstKey(mid)];
+			} else if (cmp < 0) {
+				block = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		if (block < 0) {
+			return null;
+		}
+		return (TagType) scanBlock(block, wf);
+	}
+
+	public int size() {
+		return keyCount;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T getProperty(String key, Class<T> valueClass) {
+		return (T) metadataMap.get(key);
+	}
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             as the store is read-only
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		throw new UnsupportedOperationException("The store is read-only");
+	}
+
+	/**
+	 * Writes the mapped content to the given file.
+	 */
+	@Override
+	public void persist(File outFile) throws Exception {
+		ByteBuffer content = buf.duplicate();
+		content.clear();
+		FileChannel out = new RandomAccessFile(outFile, "rw").getChannel();
+		try {
+			out.truncate(0);
+			while (content.hasRemaining()) {
+				out.write(content);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private int compareFirstKey(int block, String wf) {
+		int[] pos = { keysStart + buf.getInt(blockOffsetsStart + block * 4) };
+		// the prefix length of a first key is 0
+		readVInt(pos);
+		int length = readVInt(pos);
+		int minLength = Math.min(length, wf.length());
+		for (int i = 0; i < minLength; i++) {
+			int c = readVInt(pos);
+			if (c != wf.charAt(i)) {
+				return c - wf.charAt(i);
+			}
+		}
+		return length - wf.length();
+	}
+
+	private int readTagIdOfFirstKey(int block) {
+		int[] pos = { keysStart + buf.getInt(blockOffsetsStart + block * 4) };
+		readVInt(pos);
+		int length = readVInt(pos);
+		for (int i = 0; i < length; i++) {
+			readVInt(pos);
+		}
+		return readVInt(pos);
+	}
+
+	private Object scanBlock(int block, String wf) {
+		int[] pos = { keysStart + buf.getInt(blockOffsetsStart + block * 4) };
+		int blockEnd = Math.min(keyCount - block * BLOCK_SIZE, BLOCK_SIZE);
+		// the number of leading chars of the current key that are equal to wf
+		int matched = 0;
+		for (int i = 0; i < blockEnd; i++) {
+			int prefixLength = readVInt(pos);
+			int suffixLength = readVInt(pos);
+			if (prefixLength < matched) {
+				// the key differs from wf before the current key and
+				// keys are sorted, so the key is greater than wf
+				return null;
+			}
+			boolean candidate = prefixLength == matched;
+			int length = prefixLength + suffixLength;
+			for (int c = prefixLength; c < length; c++) {
+				int ch = readVInt(pos);
+				if (candidate) {
+					if (c < wf.length() && ch == wf.charAt(c)) {
+						matched++;
+					} else {
+						if (c >= wf.length() || ch > wf.charAt(c)) {
+							return null;
+						}
+						candidate = false;
+					}
+				}
+			}
+			int tagId = readVInt(pos);
+			if (candidate && length == wf.length()) {
+				return tags[tagId];
+			}
+		}
+		return null;
+	}
+
+	private int readVInt(int[] pos) {
+		int p = pos[0];
+		byte b = buf.get(p++);
+		int result = b & 0x7F;
+		for (int shift = 7; b < 0; shift += 7) {
+			b = buf.get(p++);
+			result |= (b & 0x7F) << shift;
+		}
+		pos[0] = p;
+		return result;
+	}
+
+	private static void writeVInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	static ByteBuffer map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			// the mapping remains valid after the channel is closed
+			return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		} finally {
+			raf.close();
+		}
+	}
+
+	static ByteBuffer read(InputStream in) throws IOException {
+		return ByteBuffer.wrap(IOUtils.toByteArray(in));
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * 
+ */
+package ru.kfu.itis.cll.uima.wfstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+
+/**
+ * Shared resource counterpart of {@link MmapWordformStore}. A resource file
+ * is mapped into memory, a resource from other locations (e.g., a jar) is
+ * read into the heap.
+ * 
+ * @author Rinat Gareev (Kazan Federal University)
+ * 
+ */
+public class SharedMmapWordformStore<TagType> extends MmapWordformStore<TagType> implements
+		SharedResourceObject {
+
+	@Override
+	public void load(DataResource dr) throws ResourceInitializationException {
+		ByteBuffer buf;
+		try {
+			URL url = dr.getUrl();
+			File file = url == null ? null : FileUtils.toFile(url);
+			if (file != null) {
+				buf = map(file);
+			} else {
+				InputStream is = dr.getInputStream();
+				try {
+					buf = read(is);
+				} finally {
+					IOUtils.closeQuietly(is);
+				}
+			}
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+		init(buf);
+	}
+
+}
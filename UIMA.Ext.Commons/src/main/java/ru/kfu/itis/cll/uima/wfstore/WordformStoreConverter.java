@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package ru.kfu.itis.cll.uima.wfstore;
+
+import static org.apache.commons.io.FileUtils.openInputStream;
+import static org.apache.commons.io.IOUtils.toBufferedInputStream;
+import static org.apache.commons.lang3.SerializationUtils.deserialize;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
+
+/**
+ * Converts a serialized {@link DefaultWordformStore} into the format of
+ * {@link MmapWordformStore}.
+ * 
+ * @author Rinat Gareev (Kazan Federal University)
+ * 
+ */
+@Parameters(separators = " =")
+public class WordformStoreConverter {
+
+	private static final Logger log = LoggerFactory.getLogger(WordformStoreConverter.class);
+
+	public static void main(String[] args) throws Exception {
+		WordformStoreConverter converter = new WordformStoreConverter();
+		new JCommander(converter).parse(args);
+		converter.run();
+	}
+
+	@Parameter(names = "-f", required = true)
+	private File serFile;
+	@Parameter(names = "-t", required = true)
+	private File outFile;
+
+	private void run() throws Exception {
+		DefaultWordformStore<?> ws = (DefaultWordformStore<?>) deserialize(toBufferedInputStream(
+				openInputStream(serFile)));
+		MmapWordformStore.write(outFile, ws);
+		log.info("{} wordforms are written to {}, size = {} bytes",
+				ws.strKeyMap.size(), outFile, outFile.length());
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.cas;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class IntervalTreeOverlapIndexTest {
+
+	private CAS cas;
+
+	@Before
+	public void setUp() throws Exception {
+		cas = CasCreationUtils.createCas((TypeSystemDescription) null, null, null);
+		cas.setDocumentText("0123456789012345678901234567890123456789");
+	}
+
+	@Test
+	public void testEnclosingAndOrder() {
+		AnnotationFS a05 = anno(0, 5);
+		AnnotationFS a310 = anno(3, 10);
+		AnnotationFS a420 = anno(4, 20);
+		AnnotationFS a68 = anno(6, 8);
+		AnnotationFS a68dup = anno(6, 8);
+		AnnotationFS a1012 = anno(10, 12);
+		AnnotationFS a77 = anno(7, 7);
+		OverlapIndex<AnnotationFS> idx = AnnotationUtils.createOverlapIndex(Arrays.asList(
+				a1012, a68, a05, a77, a420, a68dup, a310).iterator());
+		assertEquals(Arrays.asList(a05, a310, a420), list(idx.getOverlapping(4, 5)));
+		// the enclosing annotations are included, equal offsets are in the source order
+		assertEquals(Arrays.asList(a310, a420, a68, a68dup, a77),
+				list(idx.getOverlapping(6, 8)));
+		assertEquals(Arrays.asList(a420, a1012), list(idx.getOverlapping(10, 11)));
+		// an empty span
+		assertEquals(Arrays.asList(a420), list(idx.getOverlapping(12, 12)));
+		assertEquals(Collections.emptyList(), list(idx.getOverlapping(20, 30)));
+		List<AnnotationFS> target = Lists.newArrayList();
+		idx.collectOverlapping(0, 1, target);
+		assertEquals(Arrays.asList(a05), target);
+	}
+
+	@Test
+	public void testRandom() {
+		Random rnd = new Random(17);
+		for (int round = 0; round < 50; round++) {
+			List<AnnotationFS> annos = Lists.newArrayList();
+			int annosNum = rnd.nextInt(60);
+			for (int i = 0; i < annosNum; i++) {
+				int begin = rnd.nextInt(40);
+				annos.add(anno(begin, begin + rnd.nextInt(Math.min(8, 41 - begin))));
+			}
+			OverlapIndex<AnnotationFS> idx = AnnotationUtils.createOverlapIndex(annos.iterator());
+			List<AnnotationFS> sorted = Lists.newArrayList(annos);
+			// stable
+			Collections.sort(sorted, AnnotationOffsetComparator.instance(AnnotationFS.class));
+			for (int begin = 0; begin <= 40; begin++) {
+				for (int end = begin; end <= 40; end++) {
+					List<AnnotationFS> expected = Lists.newArrayList();
+					for (AnnotationFS a : sorted) {
+						if (overlapsByDefinition(a, begin, end)) {
+							expected.add(a);
+						}
+					}
+					assertEquals(String.format("[%s,%s)", begin, end),
+							expected, list(idx.getOverlapping(begin, end)));
+				}
+			}
+		}
+	}
+
+	private static boolean overlapsByDefinition(AnnotationFS a, int begin, int end) {
+		// begins within the span, ends within the span or encloses it
+		return (begin <= a.getBegin() && a.getBegin() < end)
+				|| (begin < a.getEnd() && a.getEnd() <= end)
+				|| (a.getBegin() < begin && a.getEnd() > end);
+	}
+
+	private AnnotationFS anno(int begin, int end) {
+		return cas.createAnnotation(cas.getAnnotationType(), begin, end);
+	}
+
+	private static List<AnnotationFS> list(Iterable<AnnotationFS> src) {
+		return Lists.newArrayList(src);
+	}
+}
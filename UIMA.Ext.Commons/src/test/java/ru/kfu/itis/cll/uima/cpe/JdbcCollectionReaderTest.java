@@ -7,15 +7,20 @@ import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDesc
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
 import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.junit.Assert.assertEquals;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_BATCH_SIZE;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_COUNT_QUERY;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_DATABASE_URL;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_DOCUMENT_URL_COLUMN;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_DRIVER_CLASS;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_KEY_COLUMN;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_KEY_PARAM_INDEX;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_LIMIT_PARAM_INDEX;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_OFFSET_PARAM_INDEX;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_PASSWORD;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_PREFETCH_BATCHES;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_QUERY;
+import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_START_KEY;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_TEXT_COLUMN;
 import static ru.kfu.itis.cll.uima.cpe.JdbcCollectionReader.PARAM_USERNAME;
 
@@ -32,14 +37,19 @@ import java.util.Random;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.pipeline.JCasIterable;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.apache.uima.fit.pipeline.SimplePipeline;
 
 import ru.kfu.itis.cll.uima.annotator.AnnotationLogger;
+import ru.kfu.itis.cll.uima.commons.DocumentMetadata;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 /**
  * @author Rinat Gareev (Kazan Federal University)
@@ -103,6 +113,39 @@ public class JdbcCollectionReaderTest {
 		SimplePipeline.runPipeline(readerDesc, aeDesc);
 	}
 
+	@Test
+	public void testKeyPagination() throws UIMAException {
+		TypeSystemDescription tsDesc = createTypeSystemDescription("ru.kfu.itis.cll.uima.commons.Commons-TypeSystem");
+		for (int batchSize = 1; batchSize <= 4; batchSize++) {
+			for (int prefetchBatches = 0; prefetchBatches <= 2; prefetchBatches++) {
+				CollectionReaderDescription readerDesc =
+						createReaderDescription(JdbcCollectionReader.class, tsDesc,
+								PARAM_DATABASE_URL,
+								"jdbc:hsqldb:mem:jdbc-collection-reader-test;ifexists=true",
+								PARAM_USERNAME, "SA",
+								PARAM_PASSWORD, "",
+								PARAM_DRIVER_CLASS, "org.hsqldb.jdbc.JDBCDriver",
+								PARAM_QUERY, "SELECT id, url, txt FROM doc WHERE id > ? ORDER BY id LIMIT ?",
+								PARAM_KEY_COLUMN, "id",
+								PARAM_KEY_PARAM_INDEX, 1,
+								// HSQLDB identity starts from 0
+								PARAM_START_KEY, -1L,
+								PARAM_LIMIT_PARAM_INDEX, 2,
+								PARAM_DOCUMENT_URL_COLUMN, "url",
+								PARAM_TEXT_COLUMN, "txt",
+								PARAM_BATCH_SIZE, batchSize,
+								PARAM_PREFETCH_BATCHES, prefetchBatches);
+				List<String> urls = Lists.newArrayList();
+				for (JCas jCas : new JCasIterable(readerDesc)) {
+					assertEquals(200, jCas.getDocumentText().length());
+					urls.add(JCasUtil.selectSingle(jCas, DocumentMetadata.class).getSourceUri());
+				}
+				assertEquals(ImmutableList.of("http://example.com/01", "file://test/test.txt",
+						"ftp://test.com/02434523"), urls);
+			}
+		}
+	}
+
 	// TODO move to TestUtils or smth like that
 	private static final List<Character> ALPHABET;
 	static {
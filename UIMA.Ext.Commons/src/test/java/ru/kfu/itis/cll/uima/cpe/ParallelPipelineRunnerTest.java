@@ -0,0 +1,180 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.cpe;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
+import static org.apache.uima.fit.factory.ExternalResourceFactory.createExternalResourceDescription;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.component.JCasCollectionReader_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+import org.apache.uima.util.Progress;
+import org.apache.uima.util.ProgressImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class ParallelPipelineRunnerTest {
+
+	private static final int DOC_COUNT = 200;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File resourceFile;
+
+	@Before
+	public void setUp() throws IOException {
+		resourceFile = tempFolder.newFile("resource.txt");
+		FileUtils.write(resourceFile, "data");
+		CountingResource.loadCount.set(0);
+		CollectingConsumer.texts.clear();
+	}
+
+	@Test
+	public void testOrdered() throws Exception {
+		ParallelPipelineRunner runner = createRunner(4, null);
+		runner.setOrdered(true);
+		runner.run();
+		List<String> expected = Lists.newArrayList();
+		for (int i = 0; i < DOC_COUNT; i++) {
+			expected.add("doc" + i + "!");
+		}
+		assertEquals(expected, CollectingConsumer.texts);
+		assertEquals(1, CountingResource.loadCount.get());
+	}
+
+	@Test
+	public void testUnordered() throws Exception {
+		ParallelPipelineRunner runner = createRunner(4, null);
+		runner.setOrdered(false);
+		runner.setCasPoolSize(3);
+		runner.run();
+		List<String> actual = Lists.newArrayList(CollectingConsumer.texts);
+		assertEquals(DOC_COUNT, actual.size());
+		Collections.sort(actual);
+		List<String> expected = Lists.newArrayList();
+		for (int i = 0; i < DOC_COUNT; i++) {
+			expected.add("doc" + i + "!");
+		}
+		Collections.sort(expected);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		ParallelPipelineRunner runner = createRunner(3, "doc42");
+		try {
+			runner.run();
+			fail();
+		} catch (AnalysisEngineProcessException e) {
+			assertTrue(CollectingConsumer.texts.size() < DOC_COUNT);
+		}
+	}
+
+	private ParallelPipelineRunner createRunner(int threads, String failOn) throws UIMAException {
+		ParallelPipelineRunner runner = new ParallelPipelineRunner();
+		runner.setReader(createReaderDescription(NumberedDocReader.class,
+				NumberedDocReader.PARAM_COUNT, DOC_COUNT));
+		runner.addAnalysisEngine(createEngineDescription(ExclaimingAnnotator.class,
+				ExclaimingAnnotator.PARAM_FAIL_ON, failOn == null ? "" : failOn,
+				ExclaimingAnnotator.RESOURCE_KEY,
+				createExternalResourceDescription(CountingResource.class, resourceFile)));
+		runner.addConsumer(createEngineDescription(CollectingConsumer.class));
+		runner.setThreadCount(threads);
+		return runner;
+	}
+
+	public static class NumberedDocReader extends JCasCollectionReader_ImplBase {
+		public static final String PARAM_COUNT = "count";
+		@ConfigurationParameter(name = PARAM_COUNT)
+		private int count;
+		private int index;
+
+		@Override
+		public boolean hasNext() throws IOException, CollectionException {
+			return index < count;
+		}
+
+		@Override
+		public void getNext(JCas jCas) throws IOException, CollectionException {
+			jCas.setDocumentText("doc" + index++);
+		}
+
+		@Override
+		public Progress[] getProgress() {
+			return new Progress[] { new ProgressImpl(index, count, Progress.ENTITIES) };
+		}
+	}
+
+	public static class CountingResource implements SharedResourceObject {
+		static final AtomicInteger loadCount = new AtomicInteger();
+
+		@Override
+		public void load(DataResource aData) throws ResourceInitializationException {
+			loadCount.incrementAndGet();
+		}
+	}
+
+	public static class ExclaimingAnnotator extends JCasAnnotator_ImplBase {
+		public static final String PARAM_FAIL_ON = "failOn";
+		public static final String RESOURCE_KEY = "resource";
+		@ConfigurationParameter(name = PARAM_FAIL_ON, mandatory = false)
+		private String failOn;
+		@ExternalResource(key = RESOURCE_KEY)
+		private CountingResource resource;
+		private final Random rnd = new Random();
+
+		@Override
+		public void process(JCas jCas) throws AnalysisEngineProcessException {
+			String text = jCas.getDocumentText();
+			if (text.equals(failOn)) {
+				throw new AnalysisEngineProcessException(new IllegalStateException(text));
+			}
+			try {
+				Thread.sleep(rnd.nextInt(3));
+			} catch (InterruptedException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+			// the text can't be changed, so the result is stored as a document language
+			jCas.setDocumentLanguage(text + "!");
+		}
+	}
+
+	public static class CollectingConsumer extends JCasAnnotator_ImplBase {
+		static final List<String> texts = Collections.synchronizedList(Lists.<String> newArrayList());
+
+		@Override
+		public void process(JCas jCas) throws AnalysisEngineProcessException {
+			texts.add(jCas.getDocumentLanguage());
+		}
+	}
+}
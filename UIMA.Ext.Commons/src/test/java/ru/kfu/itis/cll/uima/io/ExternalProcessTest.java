@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class ExternalProcessTest {
+
+	@Test
+	public void testOutputLines() throws Exception {
+		LineTail stdout = new LineTail(1000);
+		ExternalProcess proc = ExternalProcess.start(
+				// UTF-8 bytes are given by octal escapes to be independent of the
+				// platform encoding of the command line
+				shell("for i in $(seq 1 500); do printf '\\320\\266 %s\\n' $i; done; "
+						+ "printf '\\320\\276\\n' >&2"),
+				Charsets.UTF_8, stdout, null);
+		assertEquals(0, proc.waitFor());
+		List<String> lines = stdout.getLines();
+		assertEquals(500, lines.size());
+		assertEquals("ж 1", lines.get(0));
+		assertEquals("ж 500", lines.get(499));
+		assertEquals(Arrays.asList("о"), proc.getStderrTail());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		LineTail stderr = new LineTail(1000);
+		ExternalProcess proc = ExternalProcess.start(
+				shell("for i in $(seq 1 200); do echo \"err $i\" >&2; done; exit 3"),
+				Charsets.UTF_8, new LineTail(), stderr);
+		try {
+			proc.waitForSuccess();
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("exit code 3"));
+			assertTrue(e.getMessage().endsWith("err 200"));
+		}
+		// the tail is bounded, the handler gets all lines
+		assertEquals(LineTail.DEFAULT_CAPACITY, proc.getStderrTail().size());
+		assertEquals("err 151", proc.getStderrTail().get(0));
+		assertEquals(200, stderr.getLines().size());
+	}
+
+	@Test
+	public void testLineTail() {
+		LineTail tail = new LineTail(3);
+		assertEquals(Collections.emptyList(), tail.getLines());
+		for (String l : Arrays.asList("a", "b", "c", "d", "e")) {
+			tail.line(l);
+		}
+		assertEquals(Lists.newArrayList("c", "d", "e"), tail.getLines());
+		assertEquals("c\nd\ne", tail.toString());
+	}
+
+	private static ProcessBuilder shell(String script) {
+		return new ProcessBuilder("sh", "-c", script);
+	}
+}
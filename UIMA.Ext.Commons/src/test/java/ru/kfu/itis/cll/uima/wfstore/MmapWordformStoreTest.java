@@ -0,0 +1,107 @@
+/**
+ * 
+ */
+package ru.kfu.itis.cll.uima.wfstore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ * 
+ */
+public class MmapWordformStoreTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	@Test
+	public void testStringTags() throws Exception {
+		Map<String, String> wfMap = Maps.newHashMap();
+		wfMap.put("мама", "NOUN");
+		wfMap.put("мам", "NOUN");
+		wfMap.put("мыла", "VERB");
+		wfMap.put("раму", "NOUN");
+		wfMap.put("", "X");
+		File file = tmpFolder.newFile("wfs.bin");
+		MmapWordformStore.write(file, wfMap, ImmutableMap.<String, Object> of("suffixLength", 3));
+		MmapWordformStore<String> ws = MmapWordformStore.open(file);
+		assertEquals(5, ws.size());
+		for (Map.Entry<String, String> e : wfMap.entrySet()) {
+			assertEquals(e.getValue(), ws.getTag(e.getKey()));
+		}
+		assertNull(ws.getTag("ма"));
+		assertNull(ws.getTag("мамы"));
+		assertNull(ws.getTag("а"));
+		assertNull(ws.getTag("я"));
+		assertEquals(Integer.valueOf(3), ws.getProperty("suffixLength", Integer.class));
+		assertNull(ws.getProperty("unknown", String.class));
+		// persisted copy is readable
+		File copy = new File(tmpFolder.getRoot(), "copy.bin");
+		ws.persist(copy);
+		assertEquals("VERB", MmapWordformStore.<String> open(copy).getTag("мыла"));
+	}
+
+	@Test
+	public void testRandom() throws Exception {
+		Random rnd = new Random(13);
+		Map<String, BitSet> wfMap = Maps.newHashMap();
+		for (int i = 0; i < 5000; i++) {
+			wfMap.put(randomWord(rnd), randomTag(rnd));
+		}
+		DefaultWordformStore<BitSet> srcStore = new DefaultWordformStore<BitSet>();
+		srcStore.strKeyMap = wfMap;
+		srcStore.setProperty("source", "random");
+		File file = tmpFolder.newFile("wfs.bin");
+		MmapWordformStore.write(file, srcStore);
+		MmapWordformStore<BitSet> ws = MmapWordformStore.open(file);
+		assertEquals(wfMap.size(), ws.size());
+		assertEquals("random", ws.getProperty("source", String.class));
+		for (Map.Entry<String, BitSet> e : wfMap.entrySet()) {
+			assertEquals(e.getValue(), ws.getTag(e.getKey()));
+		}
+		for (int i = 0; i < 5000; i++) {
+			String wf = randomWord(rnd);
+			assertEquals(wfMap.get(wf), ws.getTag(wf));
+		}
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		File file = tmpFolder.newFile("wfs.bin");
+		MmapWordformStore.write(file, Maps.<String, String> newHashMap(),
+				Maps.<String, Object> newHashMap());
+		MmapWordformStore<String> ws = MmapWordformStore.open(file);
+		assertEquals(0, ws.size());
+		assertNull(ws.getTag("мама"));
+	}
+
+	private static String randomWord(Random rnd) {
+		int length = 1 + rnd.nextInt(4);
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) ('а' + rnd.nextInt(5)));
+		}
+		return sb.toString();
+	}
+
+	private static BitSet randomTag(Random rnd) {
+		BitSet result = new BitSet();
+		for (int i = 0; i < 3; i++) {
+			result.set(rnd.nextInt(100));
+		}
+		return result;
+	}
+}
@@ -8,25 +8,38 @@ import static com.google.common.collect.Sets.newHashSet;
 import static com.google.common.collect.Sets.newLinkedHashSet;
 import static java.lang.System.currentTimeMillis;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Resource;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasCreationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import ru.kfu.itis.cll.uima.eval.anno.AnnotationExtractor;
-import ru.kfu.itis.cll.uima.eval.anno.DocumentMetaExtractor;
 import ru.kfu.itis.cll.uima.eval.anno.MatchingStrategy;
 import ru.kfu.itis.cll.uima.eval.cas.CasDirectory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 /**
  * TODO Complete annotation duplicates (by offsets & type) are ignored. Check
  * consistency.
@@ -45,41 +58,108 @@ public class GoldStandardBasedEvaluation {
 	@Autowired
 	private AnnotationExtractor annotationExtractor;
 	@Autowired
-	private DocumentMetaExtractor docMetaExtractor;
-	@Autowired
 	private MatchingStrategy matchingStrategy;
 	@Autowired
 	private EvaluationContext evalCtx;
+	@Autowired
+	private TypeSystem typeSystem;
+	/**
+	 * number of threads that deserialize gold and system CAS pairs ahead of
+	 * the evaluation. Matching and listener notification are done in the
+	 * thread that invokes {@link #run()} in the order of gold documents, so
+	 * listeners need not be thread-safe.
+	 */
+	@Value("${" + ConfigurationKeys.KEY_THREADS + ":1}")
+	private int threadsNum;
 
 	public void run() throws Exception {
-		Iterator<CAS> iter = goldStandardDir.iterator();
-		int processedCasCounter = 0;
-		final int casDirSize = goldStandardDir.size();
-		while (iter.hasNext()) {
-			CAS goldCas = iter.next();
-			final String docUri = docMetaExtractor.getDocumentUri(goldCas);
-			CAS sysCas = systemOutputDir.getCas(docUri);
-			if (sysCas == null) {
+		if (threadsNum < 1) {
+			throw new IllegalStateException(String.format(
+					"Illegal number of threads: %s", threadsNum));
+		}
+		List<String> docUris = goldStandardDir.getDocumentUris();
+		Set<String> sysDocUris = newHashSet(systemOutputDir.getDocumentUris());
+		for (String docUri : docUris) {
+			if (!sysDocUris.contains(docUri)) {
 				throw new IllegalStateException("No CAS from system output for doc uri: " + docUri);
 			}
-			matchingStrategy.changeCas(sysCas);
-			evalCtx.setCurrentDocUri(docUri);
-			final long timeBeforeCas = currentTimeMillis();
-			try {
-				evaluate(goldCas, sysCas);
-			} finally {
-				// reset uri
-				evalCtx.setCurrentDocUri(null);
-				matchingStrategy.changeCas(null);
-				processedCasCounter++;
-				log.info("[{}/{}] {} has been processed in {}ms", new Object[] {
-						processedCasCounter, casDirSize, docUri,
-						currentTimeMillis() - timeBeforeCas });
+		}
+		final int casDirSize = docUris.size();
+		// each pair is either free, or being loaded by a worker, or being evaluated
+		Deque<CasPair> freePairs = new ArrayDeque<CasPair>();
+		for (int i = 0; i < 2 * threadsNum; i++) {
+			freePairs.add(new CasPair(createCas(), createCas()));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threadsNum,
+				new ThreadFactoryBuilder().setNameFormat("cas-loader-%d").setDaemon(true).build());
+		// futures in the order of documents
+		Deque<Future<CasPair>> loading = new ArrayDeque<Future<CasPair>>();
+		int processedCasCounter = 0;
+		try {
+			Iterator<String> docUriIter = docUris.iterator();
+			while (docUriIter.hasNext() || !loading.isEmpty()) {
+				while (docUriIter.hasNext() && !freePairs.isEmpty()) {
+					loading.addLast(executor.submit(
+							new CasPairLoader(docUriIter.next(), freePairs.removeFirst())));
+				}
+				CasPair pair = getLoaded(loading.removeFirst());
+				final long timeBeforeCas = currentTimeMillis();
+				matchingStrategy.changeCas(pair.sysCas);
+				evalCtx.setCurrentDocUri(pair.docUri);
+				try {
+					evaluate(pair.goldCas, pair.sysCas);
+				} finally {
+					// reset uri
+					evalCtx.setCurrentDocUri(null);
+					matchingStrategy.changeCas(null);
+					processedCasCounter++;
+					log.info("[{}/{}] {} has been processed in {}ms", new Object[] {
+							processedCasCounter, casDirSize, pair.docUri,
+							currentTimeMillis() - timeBeforeCas });
+					pair.reset();
+					freePairs.addLast(pair);
+				}
 			}
+		} finally {
+			executor.shutdownNow();
 		}
 		evalCtx.reportEvaluationComplete();
 	}
 
+	private CAS createCas() throws ResourceInitializationException {
+		return CasCreationUtils.createCas(typeSystem, null, null, null);
+	}
+
+	private static CasPair getLoaded(Future<CasPair> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+	private class CasPairLoader implements Callable<CasPair> {
+		private final String docUri;
+		private final CasPair pair;
+
+		CasPairLoader(String docUri, CasPair pair) {
+			this.docUri = docUri;
+			this.pair = pair;
+		}
+
+		@Override
+		public CasPair call() throws Exception {
+			pair.docUri = docUri;
+			goldStandardDir.getCas(docUri, pair.goldCas);
+			systemOutputDir.getCas(docUri, pair.sysCas);
+			return pair;
+		}
+	}
+
 	private void evaluate(CAS goldCas, CAS sysCas) {
 		FSIterator<AnnotationFS> goldAnnoIter = annotationExtractor.extract(goldCas);
 		Set<AnnotationFS> goldProcessed = new HashSet<AnnotationFS>();
@@ -143,6 +223,23 @@ public class GoldStandardBasedEvaluation {
 	}
 }
 
+class CasPair {
+	final CAS goldCas;
+	final CAS sysCas;
+	String docUri;
+
+	CasPair(CAS goldCas, CAS sysCas) {
+		this.goldCas = goldCas;
+		this.sysCas = sysCas;
+	}
+
+	void reset() {
+		docUri = null;
+		goldCas.reset();
+		sysCas.reset();
+	}
+}
+
 class MatchInfo {
 	AnnotationFS exact;
 	Set<AnnotationFS> partialSet = newLinkedHashSet();
@@ -3,12 +3,20 @@
  */
 package ru.kfu.itis.cll.uima.eval.anno;
 
+import java.io.InputStream;
+
 import javax.annotation.PostConstruct;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
@@ -29,6 +37,8 @@ public class DocumentMetaExtractor {
 	// derived
 	private Type docMetaType;
 	private Feature docUriFeature;
+	private QName docMetaElementName;
+	private XMLInputFactory xmlInputFactory;
 
 	@SuppressWarnings("unused")
 	@PostConstruct
@@ -43,6 +53,47 @@ public class DocumentMetaExtractor {
 			throw new IllegalStateException(String.format("No feature %s in type %s",
 					docUriFeatureName, docMetaType));
 		}
+		docMetaElementName = getXmiElementName(docUriAnnotationType);
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	}
+
+	/**
+	 * @return the element name that {@link XmiCasSerializer} uses for FSs of
+	 *         the given type
+	 */
+	private static QName getXmiElementName(String typeName) {
+		int lastDot = typeName.lastIndexOf('.');
+		String namespaceUri;
+		if (lastDot < 0) {
+			namespaceUri = "http:///uima/noNamespace.ecore";
+		} else {
+			namespaceUri = "http:///" + typeName.substring(0, lastDot).replace('.', '/')
+					+ ".ecore";
+		}
+		return new QName(namespaceUri, typeName.substring(lastDot + 1));
+	}
+
+	/**
+	 * Reads the document URI from an XMI stream without deserializing a CAS.
+	 * The stream is read only until the document metadata element.
+	 * 
+	 * @return the URI or null if the metadata element or its URI attribute is
+	 *         not found, e.g., when the URI is serialized as a child element.
+	 */
+	public String readDocumentUri(InputStream xmiStream) throws XMLStreamException {
+		XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xmiStream);
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT
+						&& docMetaElementName.equals(reader.getName())) {
+					return reader.getAttributeValue(null, docUriFeatureName);
+				}
+			}
+			return null;
+		} finally {
+			reader.close();
+		}
 	}
 
 	public String getDocumentUri(CAS cas) {
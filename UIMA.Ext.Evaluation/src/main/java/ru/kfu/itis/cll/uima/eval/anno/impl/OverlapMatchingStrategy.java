@@ -3,7 +3,7 @@
  */
 package ru.kfu.itis.cll.uima.eval.anno.impl;
 
-import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.uima.cas.CAS;
@@ -15,6 +15,9 @@ import ru.kfu.itis.cll.uima.cas.OverlapIndex;
 import ru.kfu.itis.cll.uima.eval.anno.AnnotationExtractor;
 import ru.kfu.itis.cll.uima.eval.anno.MatchingStrategy;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 /**
  * 
  * @author Rinat Gareev
@@ -31,6 +34,7 @@ public abstract class OverlapMatchingStrategy implements MatchingStrategy {
 	// state fields
 	private CAS sysCas;
 	private OverlapIndex<AnnotationFS> sysOverlapIdx;
+	private final List<AnnotationFS> overlappingBuf = Lists.newArrayList();
 
 	@Override
 	public void changeCas(CAS newSysCas) {
@@ -44,13 +48,12 @@ public abstract class OverlapMatchingStrategy implements MatchingStrategy {
 
 	@Override
 	public Set<AnnotationFS> searchCandidates(AnnotationFS goldAnno) {
-		Set<AnnotationFS> result = sysOverlapIdx.getOverlapping(
-				goldAnno.getBegin(),
-				goldAnno.getEnd());
-		Iterator<AnnotationFS> resultIter = result.iterator();
-		while (resultIter.hasNext()) {
-			if (!isCandidate(goldAnno, resultIter.next())) {
-				resultIter.remove();
+		overlappingBuf.clear();
+		sysOverlapIdx.collectOverlapping(goldAnno.getBegin(), goldAnno.getEnd(), overlappingBuf);
+		Set<AnnotationFS> result = Sets.newLinkedHashSet();
+		for (AnnotationFS sysAnno : overlappingBuf) {
+			if (isCandidate(goldAnno, sysAnno)) {
+				result.add(sysAnno);
 			}
 		}
 		return result;
@@ -4,6 +4,7 @@
 package ru.kfu.itis.cll.uima.eval.cas;
 
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.TypeSystem;
@@ -15,6 +16,20 @@ import org.apache.uima.cas.TypeSystem;
 public interface CasDirectory {
 	CAS getCas(String docUri) throws Exception;
 
+	/**
+	 * Fills the given CAS with the document. Implementations must support
+	 * concurrent invocations with different target CASes.
+	 * 
+	 * @param targetCas
+	 *            an empty CAS with the type system of this directory
+	 */
+	void getCas(String docUri, CAS targetCas) throws Exception;
+
+	/**
+	 * @return URIs of the documents in the order of {@link #iterator()}
+	 */
+	List<String> getDocumentUris() throws Exception;
+
 	Iterator<CAS> iterator();
 
 	/**
@@ -13,9 +13,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.PostConstruct;
+import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -37,6 +39,7 @@ import ru.kfu.itis.cll.uima.eval.anno.DocumentMetaExtractor;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -87,6 +90,16 @@ public class FSCasDirectory implements CasDirectory, BeanNameAware {
 	 */
 	@Override
 	public CAS getCas(String docUriStr) throws Exception {
+		CAS cas = createCas();
+		getCas(docUriStr, cas);
+		return cas;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void getCas(String docUriStr, CAS targetCas) throws Exception {
 		File xmiFile = getUriToXmiFileMap().get(docUriStr);
 		if (xmiFile == null) {
 			throw new IllegalArgumentException(String.format(
@@ -96,7 +109,19 @@ public class FSCasDirectory implements CasDirectory, BeanNameAware {
 		if (!xmiFile.isFile()) {
 			throw new IllegalStateException("Not a file: " + xmiFile);
 		}
-		return deserialize(xmiFile);
+		deserialize(xmiFile, targetCas);
+		postProcessCAS(targetCas);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> getDocumentUris() throws Exception {
+		Map<String, File> uriToXmiFileMap = getUriToXmiFileMap();
+		List<String> result = Lists.newArrayListWithCapacity(uriToXmiFileMap.size());
+		result.addAll(uriToXmiFileMap.keySet());
+		return result;
 	}
 
 	/**
@@ -137,7 +162,7 @@ public class FSCasDirectory implements CasDirectory, BeanNameAware {
 
 	private Collection<File> xmiFiles;
 
-	private Collection<File> getXmiFiles() {
+	private synchronized Collection<File> getXmiFiles() {
 		if (xmiFiles == null) {
 			IOFileFilter sourceFileFilter = getSourceFileFilter();
 			xmiFiles = FileUtils.listFiles(dir, sourceFileFilter, trueFileFilter());
@@ -145,26 +170,42 @@ public class FSCasDirectory implements CasDirectory, BeanNameAware {
 		return xmiFiles;
 	}
 
+	// keeps the order of xmiFiles
 	private Map<String, File> uriToXmiFileMap;
 
-	private Map<String, File> getUriToXmiFileMap()
-			throws ResourceInitializationException, IOException, SAXException {
+	private synchronized Map<String, File> getUriToXmiFileMap()
+			throws ResourceInitializationException, IOException, SAXException,
+			XMLStreamException {
 		if (uriToXmiFileMap == null) {
 			log.info("Scanning {} XMIs for document URIs...", dir);
-			uriToXmiFileMap = Maps.newHashMap();
-			CAS wrkCas = createCas();
+			Map<String, File> result = Maps.newLinkedHashMap();
+			// created if a URI can not be read from an XMI stream
+			CAS wrkCas = null;
 			for (final File xmiFile : getXmiFiles()) {
-				deserialize(xmiFile, wrkCas);
-				String docURI = docMetaExtractor.getDocumentUri(wrkCas);
+				String docURI;
+				InputStream is = openStream(xmiFile);
+				try {
+					docURI = docMetaExtractor.readDocumentUri(is);
+				} finally {
+					IOUtils.closeQuietly(is);
+				}
+				if (docURI == null) {
+					if (wrkCas == null) {
+						wrkCas = createCas();
+					}
+					deserialize(xmiFile, wrkCas);
+					docURI = docMetaExtractor.getDocumentUri(wrkCas);
+					wrkCas.reset();
+				}
 				final File prevFile;
-				if ((prevFile = uriToXmiFileMap.put(docURI, xmiFile)) != null) {
+				if ((prevFile = result.put(docURI, xmiFile)) != null) {
 					throw new IllegalStateException(
 							String.format(
 									"There are at least 2 files which metadata has the same URI '%s':\n%s\n%s",
 									docURI, prevFile, xmiFile));
 				}
-				wrkCas.reset();
 			}
+			uriToXmiFileMap = result;
 			log.info("Scanning {} XMIs for document URIs is finished", dir);
 		}
 		return uriToXmiFileMap;
@@ -0,0 +1,98 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.eval.anno;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.AbstractJUnit4SpringContextTests;
+
+import ru.kfu.itis.cll.uima.eval.TypeSystemInitializer;
+
+/**
+ * @author Rinat Gareev
+ *
+ */
+@ContextConfiguration(classes = DocumentMetaExtractorTest.AppContext.class)
+public class DocumentMetaExtractorTest extends AbstractJUnit4SpringContextTests {
+
+	@Configuration
+	@PropertySource("classpath:GSBasedEvalTest.properties")
+	public static class AppContext {
+		@Bean
+		public PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+			return new PropertySourcesPlaceholderConfigurer();
+		}
+
+		@Bean
+		public TypeSystemInitializer typeSystemInitializer() {
+			return new TypeSystemInitializer();
+		}
+
+		@Bean
+		public DocumentMetaExtractor documentMetaExtractor() {
+			return new DocumentMetaExtractor();
+		}
+	}
+
+	private static final String XMI_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<xmi:XMI xmlns:cas=\"http:///uima/cas.ecore\" xmlns:xmi=\"http://www.omg.org/XMI\""
+			+ " xmlns:tcas=\"http:///uima/tcas.ecore\""
+			+ " xmlns:commons=\"http:///ru/kfu/itis/cll/uima/commons.ecore\" xmi:version=\"2.0\">\n"
+			+ "<cas:NULL xmi:id=\"0\"/>\n"
+			+ "<cas:Sofa xmi:id=\"1\" sofaNum=\"1\" sofaID=\"_InitialView\" mimeType=\"text\""
+			+ " sofaString=\"Some text\"/>\n";
+
+	@Autowired
+	private DocumentMetaExtractor docMetaExtractor;
+
+	@Test
+	public void testXmiWithMeta() throws Exception {
+		InputStream is = new FileInputStream("data/test-gold/test1.txt.xmi");
+		try {
+			assertEquals("file:/D:/projects/uima-ext/UIMA.Ext.Evaluation/data/test-src/test1.txt",
+					docMetaExtractor.readDocumentUri(is));
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	@Test
+	public void testXmiWithoutMeta() throws Exception {
+		String xmi = XMI_HEADER
+				+ "<cas:View sofa=\"1\" members=\"\"/>\n"
+				+ "</xmi:XMI>";
+		assertNull(docMetaExtractor.readDocumentUri(toStream(xmi)));
+	}
+
+	@Test
+	public void testUriAsChildElement() throws Exception {
+		// the serializer writes a string feature as a child element if it has
+		// chars that are not allowed in XML 1.0, the caller must fall back to
+		// the deserialization then
+		String xmi = XMI_HEADER
+				+ "<commons:DocumentMetadata xmi:id=\"13\" sofa=\"1\" begin=\"0\" end=\"0\">\n"
+				+ "<sourceUri>file:/test1.txt</sourceUri>\n"
+				+ "</commons:DocumentMetadata>\n"
+				+ "<cas:View sofa=\"1\" members=\"13\"/>\n"
+				+ "</xmi:XMI>";
+		assertNull(docMetaExtractor.readDocumentUri(toStream(xmi)));
+	}
+
+	private static InputStream toStream(String xmi) throws Exception {
+		return new ByteArrayInputStream(xmi.getBytes("UTF-8"));
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ *
+ */
+package ru.kfu.itis.cll.uima.eval.integration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import ru.kfu.itis.cll.uima.eval.ConfigurationKeys;
+import ru.kfu.itis.cll.uima.eval.GoldStandardBasedEvaluation;
+import ru.kfu.itis.cll.uima.eval.event.SoftPrecisionRecallListener;
+import ru.kfu.itis.cll.uima.eval.event.StrictPrecisionRecallListener;
+import ru.kfu.itis.cll.uima.eval.measure.RecognitionMeasures;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Checks that the evaluation with several CAS loading threads gives the same
+ * measures as the single-threaded one.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class GSBasedEvalMultiThreadedTest {
+
+	private static final List<String> LISTENER_NAMES = ImmutableList.of(
+			"softEvalListener", "strictEvalListener1", "strictEvalListener2",
+			"strictEvalListenerOverall");
+
+	@Test
+	public void test() throws Exception {
+		Map<String, RecognitionMeasures> expected = evaluate(1);
+		for (int threadsNum : new int[] { 2, 4 }) {
+			Map<String, RecognitionMeasures> actual = evaluate(threadsNum);
+			for (String listenerName : LISTENER_NAMES) {
+				RecognitionMeasures exp = expected.get(listenerName);
+				RecognitionMeasures act = actual.get(listenerName);
+				String msg = String.format("%s with %s threads", listenerName, threadsNum);
+				assertEquals(msg, exp.getMatchedScore(), act.getMatchedScore(), 0f);
+				assertEquals(msg, exp.getSpuriousScore(), act.getSpuriousScore(), 0f);
+				assertEquals(msg, exp.getMissedScore(), act.getMissedScore(), 0f);
+			}
+		}
+	}
+
+	private static Map<String, RecognitionMeasures> evaluate(int threadsNum) throws Exception {
+		AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+		try {
+			ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource(
+					"threads", ImmutableMap.<String, Object> of(
+							ConfigurationKeys.KEY_THREADS, String.valueOf(threadsNum))));
+			ctx.register(GSBasedEvalTest.AppContext.class);
+			ctx.refresh();
+			ctx.getBean(GoldStandardBasedEvaluation.class).run();
+			Map<String, RecognitionMeasures> result = Maps.newHashMap();
+			for (String listenerName : LISTENER_NAMES) {
+				Object listener = ctx.getBean(listenerName);
+				if (listener instanceof SoftPrecisionRecallListener) {
+					result.put(listenerName, ((SoftPrecisionRecallListener) listener).getMeasures());
+				} else {
+					result.put(listenerName,
+							((StrictPrecisionRecallListener) listener).getMeasures());
+				}
+			}
+			return result;
+		} finally {
+			ctx.close();
+		}
+	}
+}
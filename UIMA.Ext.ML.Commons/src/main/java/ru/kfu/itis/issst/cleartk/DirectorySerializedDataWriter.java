@@ -14,20 +14,19 @@ import java.io.*;
  * @author Rinat Gareev
  */
 public abstract class DirectorySerializedDataWriter<CLASSIFIER_BUILDER_TYPE extends EncodingJarClassifierBuilder<? extends CLASSIFIER_TYPE, ENCODED_FEATURES_TYPE, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE>,
-        CLASSIFIER_TYPE, ENCODED_FEATURES_TYPE extends Serializable, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE extends Serializable>
+        CLASSIFIER_TYPE, ENCODED_FEATURES_TYPE, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE extends Serializable>
         extends DirectoryDataWriter<CLASSIFIER_BUILDER_TYPE, CLASSIFIER_TYPE> {
 
     public DirectorySerializedDataWriter(File outputDirectory) throws IOException {
         super(outputDirectory);
         this.trainingDataFile = this.classifierBuilder.getTrainingDataFile(this.outputDirectory);
-        OutputStream out = new BufferedOutputStream(
+        this.trainingDataStream = new BufferedOutputStream(
                 FileUtils.openOutputStream(trainingDataFile));
-        this.trainingDataWriter = new ObjectOutputStream(out);
     }
 
     protected File trainingDataFile;
 
-    protected ObjectOutputStream trainingDataWriter;
+    protected OutputStream trainingDataStream;
 
     public void setFeaturesEncoder(FeaturesEncoder<ENCODED_FEATURES_TYPE> featuresEncoder) {
         this.classifierBuilder.setFeaturesEncoder(featuresEncoder);
@@ -39,7 +38,7 @@ public abstract class DirectorySerializedDataWriter<CLASSIFIER_BUILDER_TYPE exte
 
     @Override
     public void finish() throws CleartkProcessingException {
-        IOUtils.closeQuietly(trainingDataWriter);
+        IOUtils.closeQuietly(trainingDataStream);
         super.finish();
     }
 
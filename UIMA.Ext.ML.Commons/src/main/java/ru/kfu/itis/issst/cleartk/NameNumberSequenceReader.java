@@ -0,0 +1,156 @@
+package ru.kfu.itis.issst.cleartk;
+
+import com.google.common.base.Charsets;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static ru.kfu.itis.issst.cleartk.NameNumberSequenceWriter.*;
+
+/**
+ * Reads a stream written by {@link NameNumberSequenceWriter}.
+ * {@link #next()} moves to the next item or sequence end,
+ * the current item is available through getters until the next call.
+ * An attribute name is a single String instance for all items.
+ *
+ * @author Rinat Gareev
+ */
+public class NameNumberSequenceReader implements Closeable {
+
+    public static final int ITEM = 1;
+    public static final int SEQUENCE_END = 2;
+    public static final int DATA_END = 3;
+
+    private final DataInputStream in;
+    private final List<String> attrNames = new ArrayList<String>();
+    private final List<String> labels = new ArrayList<String>();
+    // current item
+    private String itemLabel;
+    private int itemSize;
+    private int[] itemAttrIds = new int[64];
+    private float[] itemValues = new float[64];
+
+    public NameNumberSequenceReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != MAGIC) {
+            throw new IOException("Not a name-number sequence stream");
+        }
+    }
+
+    /**
+     * @return {@link #ITEM}, {@link #SEQUENCE_END} or {@link #DATA_END}
+     */
+    public int next() throws IOException {
+        while (true) {
+            int recType;
+            try {
+                recType = in.readByte();
+            } catch (EOFException e) {
+                throw new IOException("Unexpected end of stream, the writer has not been finished");
+            }
+            switch (recType) {
+                case REC_ATTRIBUTE:
+                    attrNames.add(readString());
+                    break;
+                case REC_LABEL:
+                    labels.add(readString());
+                    break;
+                case REC_ITEM:
+                    readItem();
+                    return ITEM;
+                case REC_SEQUENCE_END:
+                    return SEQUENCE_END;
+                case REC_DATA_END:
+                    return DATA_END;
+                default:
+                    throw new IOException("Unknown record type: " + recType);
+            }
+        }
+    }
+
+    public String getLabel() {
+        return itemLabel;
+    }
+
+    public int getItemSize() {
+        return itemSize;
+    }
+
+    public String getAttributeName(int i) {
+        return attrNames.get(getAttributeId(i));
+    }
+
+    public int getAttributeId(int i) {
+        checkIndex(i);
+        return itemAttrIds[i];
+    }
+
+    public float getValue(int i) {
+        checkIndex(i);
+        return itemValues[i];
+    }
+
+    /**
+     * @return the number of distinct attribute names read so far
+     */
+    public int getAttributeCount() {
+        return attrNames.size();
+    }
+
+    /**
+     * @return attribute names read so far in the order of their ids
+     */
+    public List<String> getAttributeNames() {
+        return Collections.unmodifiableList(attrNames);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readItem() throws IOException {
+        int labelId = readVInt();
+        itemLabel = labelId == 0 ? null : labels.get(labelId - 1);
+        itemSize = readVInt();
+        if (itemSize > itemAttrIds.length) {
+            int newLength = Math.max(itemSize, itemAttrIds.length * 2);
+            itemAttrIds = Arrays.copyOf(itemAttrIds, newLength);
+            itemValues = Arrays.copyOf(itemValues, newLength);
+        }
+        for (int i = 0; i < itemSize; i++) {
+            itemAttrIds[i] = readVInt();
+            itemValues[i] = in.readFloat();
+        }
+    }
+
+    private void checkIndex(int i) {
+        if (i >= itemSize) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "Index %s, item size %s", i, itemSize));
+        }
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[readVInt()];
+        in.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    private int readVInt() throws IOException {
+        byte b = in.readByte();
+        int result = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = in.readByte();
+            result |= (b & 0x7F) << shift;
+        }
+        return result;
+    }
+}
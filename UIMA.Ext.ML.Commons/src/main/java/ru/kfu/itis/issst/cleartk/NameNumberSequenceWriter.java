@@ -0,0 +1,115 @@
+package ru.kfu.itis.issst.cleartk;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes sequences of items, i.e., lists of {@link SerializableNameNumber} with a label,
+ * into a compact binary stream that is read by {@link NameNumberSequenceReader}.
+ * <p>
+ * Attribute names and labels are dictionary-encoded: a name is written once,
+ * when it is met first time, and then it is referred by its int id.
+ * The stream consists of records that start with a type byte:
+ * <ul>
+ * <li>{@link #REC_ATTRIBUTE} - a new attribute name, its id is the number of previous attribute records;</li>
+ * <li>{@link #REC_LABEL} - a new label, its id is the number of previous label records plus one;</li>
+ * <li>{@link #REC_ITEM} - a label id (0 for null), a number of attributes
+ * and the pairs of an attribute id and a float value;</li>
+ * <li>{@link #REC_SEQUENCE_END};</li>
+ * <li>{@link #REC_DATA_END}.</li>
+ * </ul>
+ * Ids and lengths are written as variable-length ints, names as UTF-8.
+ *
+ * @author Rinat Gareev
+ */
+public class NameNumberSequenceWriter implements Closeable {
+
+    static final int MAGIC = 0x4E4E5331; // "NNS1"
+    static final byte REC_DATA_END = 0;
+    static final byte REC_ATTRIBUTE = 1;
+    static final byte REC_LABEL = 2;
+    static final byte REC_ITEM = 3;
+    static final byte REC_SEQUENCE_END = 4;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> attrIds = Maps.newHashMap();
+    private final Map<String, Integer> labelIds = Maps.newHashMap();
+
+    public NameNumberSequenceWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.writeInt(MAGIC);
+    }
+
+    public void writeItem(List<SerializableNameNumber> attributes, String label) throws IOException {
+        int labelId = 0;
+        if (label != null) {
+            labelId = getId(labelIds, label, REC_LABEL) + 1;
+        }
+        // definitions of new names must precede the item record
+        int[] ids = new int[attributes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getId(attrIds, attributes.get(i).name, REC_ATTRIBUTE);
+        }
+        out.writeByte(REC_ITEM);
+        writeVInt(labelId);
+        writeVInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            writeVInt(ids[i]);
+            out.writeFloat(attributes.get(i).number.floatValue());
+        }
+    }
+
+    public void writeSequenceEnd() throws IOException {
+        out.writeByte(REC_SEQUENCE_END);
+    }
+
+    /**
+     * Writes the end of data and flushes the underlying stream.
+     */
+    public void finish() throws IOException {
+        out.writeByte(REC_DATA_END);
+        out.flush();
+    }
+
+    /**
+     * @return the number of distinct attribute names written so far
+     */
+    public int getAttributeCount() {
+        return attrIds.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private int getId(Map<String, Integer> dict, String name, byte defRecordType) throws IOException {
+        Integer id = dict.get(name);
+        if (id == null) {
+            id = dict.size();
+            // a dictionary entry should not refer to its big origin text
+            //noinspection RedundantStringConstructorCall
+            dict.put(new String(name), id);
+            byte[] bytes = name.getBytes(Charsets.UTF_8);
+            out.writeByte(defRecordType);
+            writeVInt(bytes.length);
+            out.write(bytes);
+        }
+        return id;
+    }
+
+    private void writeVInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
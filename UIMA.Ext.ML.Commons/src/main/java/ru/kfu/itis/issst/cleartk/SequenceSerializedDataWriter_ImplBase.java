@@ -12,16 +12,21 @@ import java.io.Serializable;
 import java.util.List;
 
 /**
+ * Writes training sequences by {@link NameNumberSequenceWriter}.
+ *
  * @author Rinat Gareev
  */
-public abstract class SequenceSerializedDataWriter_ImplBase<CLASSIFIER_BUILDER_TYPE extends EncodingJarClassifierBuilder<? extends SequenceClassifier<OUTCOME_TYPE>, ENCODED_FEATURES_TYPE, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE>, ENCODED_FEATURES_TYPE extends Serializable, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE extends Serializable>
+public abstract class SequenceSerializedDataWriter_ImplBase<CLASSIFIER_BUILDER_TYPE extends EncodingJarClassifierBuilder<? extends SequenceClassifier<OUTCOME_TYPE>, ENCODED_FEATURES_TYPE, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE>, ENCODED_FEATURES_TYPE extends List<SerializableNameNumber>, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE extends Serializable>
         extends DirectorySerializedDataWriter<CLASSIFIER_BUILDER_TYPE, SequenceClassifier<OUTCOME_TYPE>, ENCODED_FEATURES_TYPE, OUTCOME_TYPE, ENCODED_OUTCOME_TYPE>
         implements SequenceDataWriter<OUTCOME_TYPE> {
 
     public SequenceSerializedDataWriter_ImplBase(File outputDirectory) throws IOException {
         super(outputDirectory);
+        this.trainingDataWriter = new NameNumberSequenceWriter(trainingDataStream);
     }
 
+    protected NameNumberSequenceWriter trainingDataWriter;
+
     @Override
     public void write(List<Instance<OUTCOME_TYPE>> instances) throws CleartkProcessingException {
         try {
@@ -38,43 +43,20 @@ public abstract class SequenceSerializedDataWriter_ImplBase<CLASSIFIER_BUILDER_T
 
     protected void writeEncoded(ENCODED_FEATURES_TYPE features, ENCODED_OUTCOME_TYPE outcome)
             throws CleartkProcessingException, IOException {
-        trainingDataWriter.writeObject(features);
-        trainingDataWriter.writeObject(outcome);
+        trainingDataWriter.writeItem(features, outcome == null ? null : outcome.toString());
     }
 
     protected void writeSequenceEnd() throws IOException {
-        trainingDataWriter.writeObject(SENTENCE_END);
+        trainingDataWriter.writeSequenceEnd();
     }
 
     @Override
     public void finish() throws CleartkProcessingException {
         try {
-            trainingDataWriter.writeObject(DATA_END);
+            trainingDataWriter.finish();
         } catch (IOException e) {
             throw new CleartkProcessingException(e);
         }
         super.finish();
     }
-
-    private static final SentenceEnd SENTENCE_END = new SentenceEnd();
-
-    private static class SentenceEnd implements Serializable {
-        private SentenceEnd() {
-        }
-    }
-
-    private static final DataEnd DATA_END = new DataEnd();
-
-    private static class DataEnd implements Serializable {
-        private DataEnd() {
-        }
-    }
-
-    public static boolean isSequenceEnd(Object o) {
-        return o instanceof SentenceEnd;
-    }
-
-    public static boolean isDataEnd(Object o) {
-        return o instanceof DataEnd;
-    }
 }
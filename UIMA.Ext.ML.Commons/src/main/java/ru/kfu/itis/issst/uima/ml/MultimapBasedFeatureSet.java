@@ -23,7 +23,7 @@ class MultimapBasedFeatureSet implements FeatureSet {
             new Supplier<List<Feature>>() {
                 @Override
                 public List<Feature> get() {
-                    return Lists.newLinkedList();
+                    return Lists.newArrayList();
                 }
             }
     );
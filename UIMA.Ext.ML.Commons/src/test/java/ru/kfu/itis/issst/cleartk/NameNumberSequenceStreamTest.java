@@ -0,0 +1,100 @@
+package ru.kfu.itis.issst.cleartk;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static ru.kfu.itis.issst.cleartk.NameNumberSequenceReader.*;
+
+/**
+ * @author Rinat Gareev
+ */
+public class NameNumberSequenceStreamTest {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NameNumberSequenceWriter writer = new NameNumberSequenceWriter(bytes);
+        writer.writeItem(nnList("w=мама", "suffix=ма"), "NOUN");
+        writer.writeItem(nnList("w=мыла", "suffix=ла"), "VERB");
+        writer.writeSequenceEnd();
+        writer.writeItem(Arrays.asList(
+                new SerializableNameNumber("suffix=ма", 1.0),
+                new SerializableNameNumber("len", 0.5)), null);
+        writer.writeSequenceEnd();
+        writer.finish();
+        assertEquals(5, writer.getAttributeCount());
+
+        NameNumberSequenceReader reader = new NameNumberSequenceReader(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(ITEM, reader.next());
+        assertEquals("NOUN", reader.getLabel());
+        assertEquals(2, reader.getItemSize());
+        assertEquals("w=мама", reader.getAttributeName(0));
+        assertEquals("suffix=ма", reader.getAttributeName(1));
+        assertEquals(1.0f, reader.getValue(1), 0);
+        assertEquals(ITEM, reader.next());
+        assertEquals("VERB", reader.getLabel());
+        assertEquals(2, reader.getAttributeId(0));
+        assertEquals(SEQUENCE_END, reader.next());
+        assertEquals(ITEM, reader.next());
+        assertNull(reader.getLabel());
+        // the same name has the same id
+        assertEquals(1, reader.getAttributeId(0));
+        assertEquals("len", reader.getAttributeName(1));
+        assertEquals(0.5f, reader.getValue(1), 0);
+        assertEquals(SEQUENCE_END, reader.next());
+        assertEquals(DATA_END, reader.next());
+        assertEquals(5, reader.getAttributeCount());
+        assertEquals(Arrays.asList("w=мама", "suffix=ма", "w=мыла", "suffix=ла", "len"),
+                reader.getAttributeNames());
+    }
+
+    @Test
+    public void testLargeItem() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NameNumberSequenceWriter writer = new NameNumberSequenceWriter(bytes);
+        String[] names = new String[300];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "f" + i;
+        }
+        writer.writeItem(nnList(names), "X");
+        writer.writeItem(nnList("f299"), "X");
+        writer.finish();
+
+        NameNumberSequenceReader reader = new NameNumberSequenceReader(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(ITEM, reader.next());
+        assertEquals(300, reader.getItemSize());
+        assertEquals("f299", reader.getAttributeName(299));
+        assertEquals(ITEM, reader.next());
+        assertEquals(1, reader.getItemSize());
+        assertEquals(299, reader.getAttributeId(0));
+        assertEquals(DATA_END, reader.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnfinished() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NameNumberSequenceWriter writer = new NameNumberSequenceWriter(bytes);
+        writer.writeItem(nnList("a"), "X");
+        writer.close();
+        NameNumberSequenceReader reader = new NameNumberSequenceReader(
+                new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(ITEM, reader.next());
+        reader.next();
+    }
+
+    private static List<SerializableNameNumber> nnList(String... names) {
+        SerializableNameNumber[] result = new SerializableNameNumber[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = new SerializableNameNumber(names[i], 1.0);
+        }
+        return Arrays.asList(result);
+    }
+}
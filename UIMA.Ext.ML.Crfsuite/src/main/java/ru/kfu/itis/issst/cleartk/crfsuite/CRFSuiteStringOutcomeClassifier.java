@@ -21,6 +21,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
+ * If a {@link CrfSuiteAttributeTable} is given, feature names are mapped to
+ * attribute ids of the table, attribute instances are shared between calls
+ * and unknown attributes are dropped before they reach CRFsuite.
+ *
  * @author Rinat Gareev (Kazan Federal University)
  */
 public class CRFSuiteStringOutcomeClassifier extends
@@ -30,24 +34,40 @@ public class CRFSuiteStringOutcomeClassifier extends
     // config fields
     @SuppressWarnings("unused")
     private File modelFile;
+    // may be null
+    private CrfSuiteAttributeTable attributeTable;
     // derived
     private CrfSuiteTagger tagger;
 
     public CRFSuiteStringOutcomeClassifier(File modelFile,
                                            FeaturesEncoder<ArrayList<SerializableNameNumber>> featuresEncoder,
                                            OutcomeEncoder<String, String> outcomeEncoder) {
+        this(modelFile, null, featuresEncoder, outcomeEncoder);
+    }
+
+    public CRFSuiteStringOutcomeClassifier(File modelFile,
+                                           CrfSuiteAttributeTable attributeTable,
+                                           FeaturesEncoder<ArrayList<SerializableNameNumber>> featuresEncoder,
+                                           OutcomeEncoder<String, String> outcomeEncoder) {
         super(featuresEncoder, outcomeEncoder);
         this.modelFile = modelFile;
+        this.attributeTable = attributeTable;
         tagger = new CrfSuiteTagger(modelFile);
     }
 
     @Override
     public List<String> classify(List<List<Feature>> srcItemSeq) throws CleartkProcessingException {
-        List<List<Attribute>> itemSeq = Lists.newLinkedList();
-        for (List<Feature> srcItem : srcItemSeq) {
-            List<SerializableNameNumber> encodedSrcItem = featuresEncoder.encodeAll(srcItem);
-            List<Attribute> item = Lists.transform(encodedSrcItem, nameNumber2attributeFunc);
-            itemSeq.add(item);
+        List<List<Attribute>> itemSeq = Lists.newArrayListWithCapacity(srcItemSeq.size());
+        if (attributeTable == null) {
+            for (List<Feature> srcItem : srcItemSeq) {
+                List<SerializableNameNumber> encodedSrcItem = featuresEncoder.encodeAll(srcItem);
+                List<Attribute> item = Lists.transform(encodedSrcItem, nameNumber2attributeFunc);
+                itemSeq.add(item);
+            }
+        } else {
+            for (List<Feature> srcItem : srcItemSeq) {
+                itemSeq.add(toKnownAttributes(attributeTable, featuresEncoder.encodeAll(srcItem)));
+            }
         }
         if (itemSeq.size() != srcItemSeq.size()) {
             throw new IllegalStateException();
@@ -66,6 +86,22 @@ public class CRFSuiteStringOutcomeClassifier extends
         return labels;
     }
 
+    /**
+     * @return attributes of the table for the given features, features with
+     * names that are not in the table are dropped
+     */
+    static List<Attribute> toKnownAttributes(CrfSuiteAttributeTable attributeTable,
+                                             List<SerializableNameNumber> encodedSrcItem) {
+        List<Attribute> result = Lists.newArrayListWithCapacity(encodedSrcItem.size());
+        for (SerializableNameNumber nn : encodedSrcItem) {
+            int id = attributeTable.getId(nn.name);
+            if (id >= 0) {
+                result.add(attributeTable.getAttribute(id));
+            }
+        }
+        return result;
+    }
+
     @Override
     protected void finalize() throws Throwable {
         if (tagger != null) {
@@ -16,6 +16,7 @@ import ru.kfu.itis.issst.crfsuite4j.CrfSuiteTraining;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 
@@ -50,6 +51,12 @@ public class CRFSuiteStringOutcomeClassifierBuilder
 	@Override
 	protected void packageClassifier(File dir, JarOutputStream modelStream) throws IOException {
 		super.packageClassifier(dir, modelStream);
+		// the optional attribute table precedes the model
+		String attrTableFileName = getAttributeTableFileName(trainingDataKey);
+		File attrTableFile = new File(dir, attrTableFileName);
+		if (attrTableFile.isFile()) {
+			JarStreams.putNextJarEntry(modelStream, attrTableFileName, attrTableFile);
+		}
 		String modelFileName = getModelFileName(trainingDataKey);
 		JarStreams.putNextJarEntry(modelStream, modelFileName, new File(dir, modelFileName));
 	}
@@ -83,6 +90,8 @@ public class CRFSuiteStringOutcomeClassifierBuilder
 		// configure
 		File modelFile = new File(modelDir, getModelFileName(trainingDataKey));
 		File trainingDataFile = getTrainingDataFile(trainingDir);
+		// the text format training does not produce an attribute table
+		FileUtils.deleteQuietly(new File(modelDir, getAttributeTableFileName(trainingDataKey)));
 		CrfSuiteTraining training = new CrfSuiteTraining();
 		training.setModelFile(modelFile);
 		training.setTrainingAlgorithm(trainerCfg.getTrainingAlgorithm());
@@ -127,13 +136,9 @@ public class CRFSuiteStringOutcomeClassifierBuilder
         training.setModelFile(modelFile);
         training.setTrainingAlgorithm(trainerCfg.getTrainingAlgorithm());
         training.setParameters(trainerCfg.getParameters());
-        ObjectInputStream in;
-        {
-            FileInputStream is = FileUtils.openInputStream(trainingDataFile);
-            BufferedInputStream bis = new BufferedInputStream(is);
-            in = new ObjectInputStream(bis);
-            training.setIn(in);
-        }
+        training.setAttributeTableFile(new File(modelDir, getAttributeTableFileName(trainingDataKey)));
+        InputStream in = new BufferedInputStream(FileUtils.openInputStream(trainingDataFile));
+        training.setIn(in);
         try {
             // run
             training.run();
@@ -144,6 +149,7 @@ public class CRFSuiteStringOutcomeClassifierBuilder
     }
 
 	private File modelFile = null;
+	private CrfSuiteAttributeTable attributeTable = null;
 
 	/**
 	 * As the filename of the model is not known the only solution is to write
@@ -152,7 +158,17 @@ public class CRFSuiteStringOutcomeClassifierBuilder
 	@Override
 	protected void unpackageClassifier(JarInputStream modelStream) throws IOException {
 		super.unpackageClassifier(modelStream);
-		JarStreams.getNextJarEntry(modelStream, getModelFileName(trainingDataKey));
+		JarEntry entry = modelStream.getNextJarEntry();
+		if (entry != null && entry.getName().equals(getAttributeTableFileName(trainingDataKey))) {
+			this.attributeTable = CrfSuiteAttributeTable.read(modelStream);
+			logger.log(Level.INFO, "Read attribute table of size " + attributeTable.size());
+			entry = modelStream.getNextJarEntry();
+		}
+		String modelFileName = getModelFileName(trainingDataKey);
+		if (entry == null || !entry.getName().equals(modelFileName)) {
+			throw new IOException(String.format("Expected %s entry, found %s",
+					modelFileName, entry == null ? "end of stream" : entry.getName()));
+		}
 		this.modelFile = File.createTempFile("model", ".crfsuite");
 		this.modelFile.deleteOnExit();
 		logger.log(Level.INFO, "Start writing model to " + modelFile.getAbsolutePath());
@@ -174,12 +190,14 @@ public class CRFSuiteStringOutcomeClassifierBuilder
 	protected CRFSuiteStringOutcomeClassifier newClassifier() {
 		return new CRFSuiteStringOutcomeClassifier(
 				this.modelFile,
+				this.attributeTable,
 				this.featuresEncoder,
 				this.outcomeEncoder);
 	}
 
 	private static final String TRAINING_DATA_FILE_EXTENSION = ".training";
 	private static final String MODEL_FILE_EXTENSION = ".model";
+	private static final String ATTRIBUTE_TABLE_FILE_EXTENSION = ".attributes";
 
 	public static String getTrainingDataFileName(String dataKey) {
 		return dataKey + TRAINING_DATA_FILE_EXTENSION;
@@ -188,4 +206,8 @@ public class CRFSuiteStringOutcomeClassifierBuilder
 	public static String getModelFileName(String dataKey) {
 		return dataKey + MODEL_FILE_EXTENSION;
 	}
+
+	public static String getAttributeTableFileName(String dataKey) {
+		return dataKey + ATTRIBUTE_TABLE_FILE_EXTENSION;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.cleartk.crfsuite;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import ru.kfu.itis.issst.crfsuite4j.Attribute;
+
+import java.io.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps attribute names seen in training data to int ids and holds a single
+ * {@link Attribute} instance for each id. The table is written by the training
+ * and packaged with the model, so a classifier does not create attributes for
+ * known names and can drop unknown names before they reach CRFsuite.
+ * <p>
+ * The file format is an int number of names followed by names written by
+ * {@link DataOutputStream#writeUTF(String)} in the order of their ids.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ */
+public class CrfSuiteAttributeTable {
+
+    public static void write(File outFile, List<String> attrNames) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                FileUtils.openOutputStream(outFile)));
+        try {
+            out.writeInt(attrNames.size());
+            for (String name : attrNames) {
+                out.writeUTF(name);
+            }
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Reads a table from the given stream. The stream is not closed.
+     */
+    public static CrfSuiteAttributeTable read(InputStream in) throws IOException {
+        DataInputStream din = new DataInputStream(in);
+        int size = din.readInt();
+        Map<String, Integer> ids = Maps.newHashMapWithExpectedSize(size);
+        Attribute[] attributes = new Attribute[size];
+        for (int id = 0; id < size; id++) {
+            String name = din.readUTF();
+            ids.put(name, id);
+            attributes[id] = new Attribute(name);
+        }
+        return new CrfSuiteAttributeTable(ids, attributes);
+    }
+
+    private final Map<String, Integer> ids;
+    private final Attribute[] attributes;
+
+    private CrfSuiteAttributeTable(Map<String, Integer> ids, Attribute[] attributes) {
+        this.ids = ids;
+        this.attributes = attributes;
+    }
+
+    /**
+     * @return the id of the given attribute name or -1 if it is unknown
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public Attribute getAttribute(int id) {
+        return attributes[id];
+    }
+
+    public int size() {
+        return attributes.length;
+    }
+}
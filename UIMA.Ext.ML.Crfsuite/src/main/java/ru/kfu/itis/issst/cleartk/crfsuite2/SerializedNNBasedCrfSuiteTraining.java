@@ -1,67 +1,78 @@
 package ru.kfu.itis.issst.cleartk.crfsuite2;
 
-import ru.kfu.itis.issst.cleartk.SerializableNameNumber;
+import ru.kfu.itis.issst.cleartk.NameNumberSequenceReader;
+import ru.kfu.itis.issst.cleartk.crfsuite.CrfSuiteAttributeTable;
 import ru.kfu.itis.issst.crfsuite4j.AbstractCrfSuiteTraining;
 import ru.kfu.itis.issst.crfsuite4j.Attribute;
 import ru.kfu.itis.issst.crfsuite4j.CrfSuiteTrainer;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.io.InputStream;
 import java.util.List;
 
 import static com.google.common.collect.Lists.newArrayList;
-import static ru.kfu.itis.issst.cleartk.SequenceSerializedDataWriter_ImplBase.isDataEnd;
-import static ru.kfu.itis.issst.cleartk.SequenceSerializedDataWriter_ImplBase.isSequenceEnd;
+import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static ru.kfu.itis.issst.cleartk.NameNumberSequenceReader.DATA_END;
+import static ru.kfu.itis.issst.cleartk.NameNumberSequenceReader.ITEM;
 
 /**
+ * Appends sequences from a stream written by
+ * {@link ru.kfu.itis.issst.cleartk.NameNumberSequenceWriter} to the trainer
+ * as soon as they are read. If the attribute table file is set, the names of
+ * attributes read are written into it by {@link CrfSuiteAttributeTable}.
+ *
  * @author Rinat Gareev
  */
 public class SerializedNNBasedCrfSuiteTraining extends AbstractCrfSuiteTraining {
-    private ObjectInputStream in;
+    private InputStream in;
+    private File attributeTableFile;
 
-    public ObjectInputStream getIn() {
+    public InputStream getIn() {
         return in;
     }
 
-    public void setIn(ObjectInputStream in) {
+    public void setIn(InputStream in) {
         this.in = in;
     }
 
+    public File getAttributeTableFile() {
+        return attributeTableFile;
+    }
+
+    public void setAttributeTableFile(File attributeTableFile) {
+        this.attributeTableFile = attributeTableFile;
+    }
+
     @Override
     protected void validateConfig() {
         super.validateConfig();
         if (in == null) {
-            throw new IllegalStateException("Input ObjectStream is null");
+            throw new IllegalStateException("Input stream is null");
         }
     }
 
     @Override
     protected void appendTrainingData(CrfSuiteTrainer trainer) throws IOException {
         log.info("Parsing training data...");
+        NameNumberSequenceReader reader = new NameNumberSequenceReader(in);
         List<List<Attribute>> items = newArrayList();
         List<String> labels = newArrayList();
         int instancesCounter = 0;
         //
-        Object curObj;
-        while (!isDataEnd(curObj = readObject())) {
-            if (isSequenceEnd(curObj)) {
-                if (items.isEmpty()) {
-                    log.warn("Empty instance");
-                } else {
-                    trainer.append(items, labels, 0);
-                    instancesCounter++;
-                    items.clear();
-                    labels.clear();
-                }
-            } else {
-                // read List of NameNumber with one label
-                @SuppressWarnings("unchecked")
-                List<SerializableNameNumber> nnList = (List<SerializableNameNumber>) curObj;
-                String label = (String) readObject();
-                //
-                items.add(toAttributes(nnList));
+        int recType;
+        while ((recType = reader.next()) != DATA_END) {
+            if (recType == ITEM) {
+                items.add(toAttributes(reader));
                 // TODO should we wrap null ref into "null" string?
-                labels.add(String.valueOf(label));
+                labels.add(String.valueOf(reader.getLabel()));
+            } else if (items.isEmpty()) {
+                log.warn("Empty instance");
+            } else {
+                trainer.append(items, labels, 0);
+                instancesCounter++;
+                items.clear();
+                labels.clear();
             }
         }
         if (!items.isEmpty()) {
@@ -69,22 +80,18 @@ public class SerializedNNBasedCrfSuiteTraining extends AbstractCrfSuiteTraining
             instancesCounter++;
         }
         // report
-        log.info("{} instances have been read", instancesCounter);
-    }
-
-    private Object readObject() throws IOException {
-        try {
-            return in.readObject();
-        } catch (ClassNotFoundException e) {
-            throw new IOException(e);
+        log.info("{} instances with {} distinct attributes have been read",
+                instancesCounter, reader.getAttributeCount());
+        if (attributeTableFile != null) {
+            CrfSuiteAttributeTable.write(attributeTableFile, reader.getAttributeNames());
         }
     }
 
-    private static List<Attribute> toAttributes(List<SerializableNameNumber> nnList) {
-        List<Attribute> resultList = newArrayList();
-        for (SerializableNameNumber nn : nnList) {
-            Attribute attr = new Attribute(nn.name, nn.number.doubleValue());
-            resultList.add(attr);
+    private static List<Attribute> toAttributes(NameNumberSequenceReader reader) {
+        int itemSize = reader.getItemSize();
+        List<Attribute> resultList = newArrayListWithCapacity(itemSize);
+        for (int i = 0; i < itemSize; i++) {
+            resultList.add(new Attribute(reader.getAttributeName(i), reader.getValue(i)));
         }
         return resultList;
     }
@@ -0,0 +1,90 @@
+package ru.kfu.itis.issst.cleartk.crfsuite;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import ru.kfu.itis.issst.cleartk.SerializableNameNumber;
+import ru.kfu.itis.issst.crfsuite4j.Attribute;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Rinat Gareev
+ */
+public class CrfSuiteAttributeTableTest {
+
+    private static final List<String> ATTR_NAMES = ImmutableList.of(
+            "Gram_POST_NOUN", "Gram_at_-1_VERB", "Suffix_1_*а", "w[-1]=мама");
+
+    private File tempDir;
+
+    @Before
+    public void setUp() {
+        tempDir = Files.createTempDir();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(tempDir);
+    }
+
+    @Test
+    public void testWriteRead() throws Exception {
+        CrfSuiteAttributeTable table = writeRead(ATTR_NAMES);
+        assertEquals(ATTR_NAMES.size(), table.size());
+        for (int id = 0; id < ATTR_NAMES.size(); id++) {
+            assertEquals(id, table.getId(ATTR_NAMES.get(id)));
+            assertNotNull(table.getAttribute(id));
+        }
+        assertEquals(-1, table.getId("Gram_POST_ADJF"));
+        assertEquals(-1, table.getId(null));
+    }
+
+    @Test
+    public void testWriteReadEmpty() throws Exception {
+        CrfSuiteAttributeTable table = writeRead(ImmutableList.<String>of());
+        assertEquals(0, table.size());
+        assertEquals(-1, table.getId("Gram_POST_NOUN"));
+    }
+
+    @Test
+    public void testUnknownAttributesAreDropped() throws Exception {
+        CrfSuiteAttributeTable table = writeRead(ATTR_NAMES);
+        List<Attribute> attrs = CRFSuiteStringOutcomeClassifier.toKnownAttributes(table,
+                ImmutableList.of(
+                        nn("Suffix_1_*я"),
+                        nn("Gram_POST_NOUN"),
+                        nn("Gram_at_-1_ADJF"),
+                        nn("w[-1]=мама")));
+        assertEquals(2, attrs.size());
+        // the table instances are reused
+        assertSame(table.getAttribute(0), attrs.get(0));
+        assertSame(table.getAttribute(3), attrs.get(1));
+        // all features are unknown
+        assertTrue(CRFSuiteStringOutcomeClassifier.toKnownAttributes(table,
+                ImmutableList.of(nn("Suffix_1_*я"))).isEmpty());
+    }
+
+    private CrfSuiteAttributeTable writeRead(List<String> attrNames) throws Exception {
+        File tableFile = new File(tempDir, "model.attributes");
+        CrfSuiteAttributeTable.write(tableFile, attrNames);
+        InputStream in = FileUtils.openInputStream(tableFile);
+        try {
+            return CrfSuiteAttributeTable.read(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static SerializableNameNumber nn(String name) {
+        return new SerializableNameNumber(name, 1.0d);
+    }
+}
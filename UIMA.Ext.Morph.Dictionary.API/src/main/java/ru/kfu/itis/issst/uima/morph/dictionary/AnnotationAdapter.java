@@ -10,6 +10,7 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformBuffer;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
 /**
@@ -22,6 +23,19 @@ public interface AnnotationAdapter {
 
 	void apply(JCas jcas, Annotation token, Collection<Wordform> wordforms);
 
+	/**
+	 * Counterpart of {@link #apply(JCas, Annotation, Collection)} for entries
+	 * obtained by {@link MorphDictionary#lookup(CharSequence, int, int,
+	 * ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformVisitor)}.
+	 * 
+	 * @param jcas
+	 * @param token
+	 * @param entries
+	 *            non-empty buffer that is reused by a caller after this method
+	 *            returns
+	 */
+	void apply(JCas jcas, Annotation token, WordformBuffer entries);
+
 	/**
 	 * @param jcas
 	 * @param token
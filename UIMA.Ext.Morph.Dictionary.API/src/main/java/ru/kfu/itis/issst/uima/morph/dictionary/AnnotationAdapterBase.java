@@ -3,7 +3,13 @@
  */
 package ru.kfu.itis.issst.uima.morph.dictionary;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 
 /**
  * @author Rinat Gareev (Kazan Federal University)
@@ -12,10 +18,67 @@ import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
 public abstract class AnnotationAdapterBase implements AnnotationAdapter {
 
 	protected MorphDictionary dict;
+	// caches for dictionary entries passed by grammeme set ids
+	private String[] posByGramSetId = new String[64];
+	private final BitSet posCached = new BitSet();
+	// tag id -> string ids of the tag grammemes
+	private List<String>[] gramStringsByTagId = newListArray(256);
 
 	@Override
 	public void init(MorphDictionary dict) {
 		this.dict = dict;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @param lemmaGramSetId
+	 * @return PoS-label of the lexeme grammeme set with the given id
+	 */
+	protected String getPos(int lemmaGramSetId) {
+		if (!posCached.get(lemmaGramSetId)) {
+			if (lemmaGramSetId >= posByGramSetId.length) {
+				posByGramSetId = Arrays.copyOf(posByGramSetId,
+						Math.max(lemmaGramSetId + 1, posByGramSetId.length * 2));
+			}
+			posByGramSetId[lemmaGramSetId] = dict.getGramModel().getPos(
+					dict.getGramSet(lemmaGramSetId));
+			posCached.set(lemmaGramSetId);
+		}
+		return posByGramSetId[lemmaGramSetId];
+	}
+
+	/**
+	 * @param lemmaGramSetId
+	 * @param wordformGramSetId
+	 * @return the union of the given grammeme sets
+	 */
+	protected GramSet getTag(int lemmaGramSetId, int wordformGramSetId) {
+		return dict.getGramSet(lemmaGramSetId).or(dict.getGramSet(wordformGramSetId));
+	}
+
+	/**
+	 * @param lemmaGramSetId
+	 * @param wordformGramSetId
+	 * @return string ids of the union of the given grammeme sets. The result
+	 *         is shared and must not be modified.
+	 */
+	protected List<String> getGramStrings(int lemmaGramSetId, int wordformGramSetId) {
+		GramModel gm = dict.getGramModel();
+		GramSet tag = getTag(lemmaGramSetId, wordformGramSetId);
+		int tagId = gm.getTagId(tag);
+		if (tagId >= gramStringsByTagId.length) {
+			gramStringsByTagId = Arrays.copyOf(gramStringsByTagId,
+					Math.max(tagId + 1, gramStringsByTagId.length * 2));
+		}
+		List<String> result = gramStringsByTagId[tagId];
+		if (result == null) {
+			result = gm.toGramSet(tag);
+			gramStringsByTagId[tagId] = result;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String>[] newListArray(int length) {
+		return new List[length];
+	}
+}
@@ -26,6 +26,7 @@ import org.apache.uima.fit.descriptor.ExternalResource;
 
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryHolder;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformBuffer;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
 /**
@@ -73,6 +74,9 @@ public class MorphologyAnnotator extends CasAnnotator_ImplBase {
 	private Type tokenType;
 	private AnnotationAdapter annoAdapter;
 	private MorphDictionary dict;
+	// per-token buffers
+	private final StringBuilder normBuffer = new StringBuilder();
+	private final WordformBuffer wfBuffer = new WordformBuffer();
 
 	@Override
 	public void typeSystemInit(TypeSystem ts) throws AnalysisEngineProcessException {
@@ -115,24 +119,36 @@ public class MorphologyAnnotator extends CasAnnotator_ImplBase {
 	}
 
 	private void process(JCas cas) throws AnalysisEngineProcessException {
+		String text = cas.getDocumentText();
 		AnnotationIndex<Annotation> tokenIdx = cas.getAnnotationIndex(tokenType);
 		for (Annotation token : tokenIdx) {
-			String tokenStr = token.getCoveredText();
-			if (proceed(tokenStr)) {
+			int begin = token.getBegin();
+			int end = token.getEnd();
+			if (proceed(text, begin, end)) {
 				// TODO configuration point
 				// tokenizer should care about normalization 
-				tokenStr = WordUtils.normalizeToDictionaryForm(tokenStr);
-				List<Wordform> wfDictEntries = dict.getEntries(tokenStr);
-				if (wfDictEntries != null && !wfDictEntries.isEmpty()) {
+				normBuffer.setLength(0);
+				WordUtils.normalizeToDictionaryForm(text, begin, end, normBuffer);
+				if (normBuffer.length() == 0) {
+					continue;
+				}
+				wfBuffer.clear();
+				if (dict.lookup(normBuffer, 0, normBuffer.length(), wfBuffer) > 0) {
 					// invoke adapter
-					annoAdapter.apply(cas, token, wfDictEntries);
+					annoAdapter.apply(cas, token, wfBuffer);
+				} else {
+					// the dictionary may predict entries of an unknown word
+					List<Wordform> wfDictEntries = dict.getEntries(normBuffer.toString());
+					if (wfDictEntries != null && !wfDictEntries.isEmpty()) {
+						annoAdapter.apply(cas, token, wfDictEntries);
+					}
 				}
 			}
 		}
 	}
 
 	// TODO configuration point
-	private boolean proceed(String tokenStr) {
-		return WordUtils.isRussianWord(tokenStr);
+	private boolean proceed(String text, int begin, int end) {
+		return WordUtils.isRussianWord(text, begin, end);
 	}
 }
\ No newline at end of file
@@ -14,23 +14,22 @@ import java.util.regex.Pattern;
 public class WordUtils {
 
 	public static boolean isRussianWord(String token) {
-		if (token.isEmpty()) {
-			return false;
-		}
-		Character lastLetter = null;
+		return isRussianWord(token, 0, token.length());
+	}
+
+	/**
+	 * Checks the string {@code text[start, end)} without copying it.
+	 */
+	public static boolean isRussianWord(CharSequence text, int start, int end) {
 		// find last letter
-		for (int i = token.length() - 1; i >= 0; i--) {
-			char ch = token.charAt(i);
+		for (int i = end - 1; i >= start; i--) {
+			char ch = text.charAt(i);
 			if (Character.isLetter(ch)) {
-				lastLetter = ch;
-				break;
+				// check is it cyrillic
+				return UnicodeBlock.of(ch) == UnicodeBlock.CYRILLIC;
 			}
 		}
-		if (lastLetter == null) {
-			return false;
-		}
-		// check is it cyrillic
-		return UnicodeBlock.of(lastLetter).equals(UnicodeBlock.CYRILLIC);
+		return false;
 	}
 
 	public static String normalizeToDictionaryForm(String str) {
@@ -40,6 +39,43 @@ public class WordUtils {
 		return str;
 	}
 
+	/**
+	 * Allocation-free counterpart of {@link #normalizeToDictionaryForm(String)}
+	 * that appends the normalized form of the string {@code text[start, end)}
+	 * to the given buffer. Characters are lower-cased one by one.
+	 * 
+	 * @return the given buffer
+	 */
+	public static StringBuilder normalizeToDictionaryForm(CharSequence text, int start, int end,
+			StringBuilder dst) {
+		int dstStart = dst.length();
+		for (int i = start; i < end; i++) {
+			char ch = text.charAt(i);
+			if (isUnicodeMark(ch)) {
+				continue;
+			}
+			// skip leading whitespace like String#trim
+			if (ch <= ' ' && dst.length() == dstStart) {
+				continue;
+			}
+			dst.append(Character.toLowerCase(ch));
+		}
+		// trim trailing whitespace
+		int dstEnd = dst.length();
+		while (dstEnd > dstStart && dst.charAt(dstEnd - 1) <= ' ') {
+			dstEnd--;
+		}
+		dst.setLength(dstEnd);
+		return dst;
+	}
+
+	private static boolean isUnicodeMark(char ch) {
+		int type = Character.getType(ch);
+		return type == Character.COMBINING_SPACING_MARK
+				|| type == Character.ENCLOSING_MARK
+				|| type == Character.NON_SPACING_MARK;
+	}
+
 	private static Pattern unicodeMarksPattern = Pattern.compile("[\\p{Mc}\\p{Me}\\p{Mn}]");
 
 	private WordUtils() {
@@ -7,6 +7,7 @@ import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Grammeme;
 
 /**
@@ -37,6 +38,12 @@ public interface GramModel {
 	 */
 	BitSet getGrammemWithChildrenBits(String gramId, boolean includeTarget);
 
+	/**
+	 * {@link GramSet} counterpart of
+	 * {@link #getGrammemWithChildrenBits(String, boolean)}.
+	 */
+	GramSet getGrammemWithChildren(String gramId, boolean includeTarget);
+
 	/**
 	 * 
 	 * @return grammems whose parent id is null.
@@ -51,8 +58,16 @@ public interface GramModel {
 	 */
 	List<String> toGramSet(BitSet grammems);
 
+	/**
+	 * @param grammems
+	 * @return list of string ids ordered by grammeme numerical id (ascending)
+	 */
+	List<String> toGramSet(GramSet grammems);
+
 	BitSet getPosBits();
 
+	GramSet getPosGramSet();
+
 	/**
 	 * @return PoS-label from the given gram bits if there are any; otherwise -
 	 *         null.
@@ -60,4 +75,27 @@ public interface GramModel {
 	 *             if there are > 1 PoS-bits set in the given bitset.
 	 */
 	String getPos(BitSet gramBits);
+
+	/**
+	 * {@link GramSet} counterpart of {@link #getPos(BitSet)}. Unlike the
+	 * latter it does not modify its argument.
+	 */
+	String getPos(GramSet grammems);
+
+	/**
+	 * Interns the given tag. Ids are dense, start with 0 and are not
+	 * preserved across JVM runs.
+	 * 
+	 * @param tag
+	 * @return id of the given tag in the interning table of this model
+	 */
+	int getTagId(GramSet tag);
+
+	/**
+	 * @param tagId
+	 * @return tag that has been registered by {@link #getTagId(GramSet)}
+	 * @throws IllegalArgumentException
+	 *             if there is no tag with the given id
+	 */
+	GramSet getTag(int tagId);
 }
@@ -7,6 +7,7 @@ import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Lemma;
 import ru.kfu.itis.issst.uima.morph.model.LemmaLinkType;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
@@ -25,6 +26,32 @@ public interface MorphDictionary {
 
 	List<Wordform> getEntries(String str);
 
+	/**
+	 * Allocation-free counterpart of {@link #getEntries(String)}. Passes the
+	 * dictionary entries of the string {@code str[start, end)} to the given
+	 * visitor. Unlike {@link #getEntries(String)} it never invokes a wordform
+	 * predictor, so a client should fall back to the latter if nothing has
+	 * been visited and predictions are desired.
+	 * 
+	 * @param str
+	 * @param start
+	 *            index of the first char of the string
+	 * @param end
+	 *            index after the last char of the string
+	 * @param visitor
+	 * @return the number of visited entries
+	 */
+	int lookup(CharSequence str, int start, int end, WordformVisitor visitor);
+
+	/**
+	 * @param gramSetId
+	 *            grammeme set id passed to a {@link WordformVisitor}
+	 * @return grammeme set with the given id
+	 * @throws IllegalArgumentException
+	 *             if there is no grammeme set with the given id
+	 */
+	GramSet getGramSet(int gramSetId);
+
 	LemmaLinkType getLemmaLinkType(short id);
 
 	/**
@@ -49,4 +76,10 @@ public interface MorphDictionary {
 	 * @return true if this dictionary has the given tag
 	 */
 	boolean containsGramSet(BitSet tag);
+
+	/**
+	 * @param tag
+	 * @return true if this dictionary has the given tag
+	 */
+	boolean containsGramSet(GramSet tag);
 }
@@ -5,6 +5,8 @@ package ru.kfu.itis.issst.uima.morph.dictionary.resource;
 
 import java.util.BitSet;
 
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
+
 /**
  * Operations extending MorphDictionary interface
  * 
@@ -21,6 +23,14 @@ public class MorphDictionaryUtils {
 		return result;
 	}
 
+	public static GramSet toGramSet(GramModel gm, Iterable<String> grams) {
+		GramSet result = GramSet.EMPTY;
+		for (String gr : grams) {
+			result = result.with(gm.getGrammemNumId(gr));
+		}
+		return result;
+	}
+
 	private MorphDictionaryUtils() {
 	}
 
@@ -0,0 +1,72 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.dictionary.resource;
+
+import java.util.Arrays;
+
+/**
+ * Reusable {@link WordformVisitor} that accumulates visited entries into
+ * primitive arrays. A client is expected to keep one instance and to
+ * {@link #clear()} it before each lookup, so filling it does not allocate
+ * once its capacity fits the largest entry list. Instances are not
+ * thread-safe.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class WordformBuffer implements WordformVisitor {
+
+	private int size;
+	private int[] lemmaIds = new int[16];
+	private int[] lemmaGramSetIds = new int[16];
+	private int[] wordformGramSetIds = new int[16];
+
+	@Override
+	public void visit(int lemmaId, int lemmaGramSetId, int wordformGramSetId) {
+		if (size == lemmaIds.length) {
+			int newCapacity = size * 2;
+			lemmaIds = Arrays.copyOf(lemmaIds, newCapacity);
+			lemmaGramSetIds = Arrays.copyOf(lemmaGramSetIds, newCapacity);
+			wordformGramSetIds = Arrays.copyOf(wordformGramSetIds, newCapacity);
+		}
+		lemmaIds[size] = lemmaId;
+		lemmaGramSetIds[size] = lemmaGramSetId;
+		wordformGramSetIds[size] = wordformGramSetId;
+		size++;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getLemmaId(int i) {
+		checkIndex(i);
+		return lemmaIds[i];
+	}
+
+	public int getLemmaGramSetId(int i) {
+		checkIndex(i);
+		return lemmaGramSetIds[i];
+	}
+
+	public int getWordformGramSetId(int i) {
+		checkIndex(i);
+		return wordformGramSetIds[i];
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException(String.format(
+					"Index: %s, size: %s", i, size));
+		}
+	}
+}
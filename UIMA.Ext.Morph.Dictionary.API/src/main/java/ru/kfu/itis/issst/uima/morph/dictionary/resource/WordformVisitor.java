@@ -0,0 +1,25 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.dictionary.resource;
+
+/**
+ * Receives dictionary entries from
+ * {@link MorphDictionary#lookup(CharSequence, int, int, WordformVisitor)}.
+ * Grammeme sets are passed as ids that can be resolved by
+ * {@link MorphDictionary#getGramSet(int)}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public interface WordformVisitor {
+
+	/**
+	 * @param lemmaId
+	 * @param lemmaGramSetId
+	 *            id of the lexeme grammeme set
+	 * @param wordformGramSetId
+	 *            id of the grammeme set of the wordform itself
+	 */
+	void visit(int lemmaId, int lemmaGramSetId, int wordformGramSetId);
+}
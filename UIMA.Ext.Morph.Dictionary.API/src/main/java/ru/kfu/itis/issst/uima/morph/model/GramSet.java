@@ -0,0 +1,236 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.model;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+/**
+ * Immutable set of grammeme numerical ids. Unlike {@link BitSet} it has a
+ * fixed capacity of {@value #CAPACITY} grammemes that is kept in three long
+ * words, so set operations and hashing take a few ALU operations and never
+ * resize an array. The hash code is computed once on construction.
+ * <p>
+ * Instances can be interned by
+ * {@link ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel#getTagId(GramSet)}
+ * .
+ * </p>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public final class GramSet implements Serializable {
+
+	private static final long serialVersionUID = 8216533364683283562L;
+
+	public static final int CAPACITY = 192;
+
+	public static final GramSet EMPTY = new GramSet(0, 0, 0);
+
+	/**
+	 * @param bits
+	 * @return gram set with the same bits as the given bit set
+	 * @throws IllegalArgumentException
+	 *             if the bit set has a bit beyond {@value #CAPACITY}
+	 */
+	public static GramSet of(BitSet bits) {
+		if (bits.length() > CAPACITY) {
+			throw new IllegalArgumentException(String.format(
+					"Grammeme num id %s exceeds the capacity of GramSet",
+					bits.length() - 1));
+		}
+		long w0 = 0, w1 = 0, w2 = 0;
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+			switch (i >>> 6) {
+			case 0:
+				w0 |= 1L << i;
+				break;
+			case 1:
+				w1 |= 1L << i;
+				break;
+			default:
+				w2 |= 1L << i;
+			}
+		}
+		return new GramSet(w0, w1, w2);
+	}
+
+	/**
+	 * @param numIds
+	 *            grammeme numerical ids
+	 * @return gram set with the given grammemes
+	 */
+	public static GramSet of(int... numIds) {
+		long w0 = 0, w1 = 0, w2 = 0;
+		for (int i : numIds) {
+			checkIndex(i);
+			switch (i >>> 6) {
+			case 0:
+				w0 |= 1L << i;
+				break;
+			case 1:
+				w1 |= 1L << i;
+				break;
+			default:
+				w2 |= 1L << i;
+			}
+		}
+		return new GramSet(w0, w1, w2);
+	}
+
+	private final long w0;
+	private final long w1;
+	private final long w2;
+	private final int hash;
+
+	private GramSet(long w0, long w1, long w2) {
+		this.w0 = w0;
+		this.w1 = w1;
+		this.w2 = w2;
+		long h = w0 * 31 + w1;
+		h = h * 31 + w2;
+		this.hash = (int) (h ^ (h >>> 32));
+	}
+
+	public boolean get(int numId) {
+		if (numId < 0) {
+			throw new IndexOutOfBoundsException("numId < 0: " + numId);
+		}
+		switch (numId >>> 6) {
+		case 0:
+			return (w0 & (1L << numId)) != 0;
+		case 1:
+			return (w1 & (1L << numId)) != 0;
+		case 2:
+			return (w2 & (1L << numId)) != 0;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @param other
+	 * @return true only if this set contains all grammemes of the other one
+	 */
+	public boolean contains(GramSet other) {
+		return (other.w0 & ~w0) == 0 && (other.w1 & ~w1) == 0 && (other.w2 & ~w2) == 0;
+	}
+
+	public boolean intersects(GramSet other) {
+		return (w0 & other.w0) != 0 || (w1 & other.w1) != 0 || (w2 & other.w2) != 0;
+	}
+
+	public GramSet and(GramSet mask) {
+		return new GramSet(w0 & mask.w0, w1 & mask.w1, w2 & mask.w2);
+	}
+
+	public GramSet or(GramSet other) {
+		return new GramSet(w0 | other.w0, w1 | other.w1, w2 | other.w2);
+	}
+
+	public GramSet andNot(GramSet other) {
+		return new GramSet(w0 & ~other.w0, w1 & ~other.w1, w2 & ~other.w2);
+	}
+
+	public GramSet with(int numId) {
+		return or(of(numId));
+	}
+
+	public GramSet without(int numId) {
+		return andNot(of(numId));
+	}
+
+	public boolean isEmpty() {
+		return (w0 | w1 | w2) == 0;
+	}
+
+	public int cardinality() {
+		return Long.bitCount(w0) + Long.bitCount(w1) + Long.bitCount(w2);
+	}
+
+	/**
+	 * @param fromIndex
+	 * @return the index of the first grammeme that is set on or after the
+	 *         given index, -1 if there is no such grammeme
+	 */
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		for (int w = fromIndex >>> 6; w < 3; w++) {
+			long word = getWord(w);
+			if (w == fromIndex >>> 6) {
+				word &= -1L << fromIndex;
+			}
+			if (word != 0) {
+				return w * 64 + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param i
+	 *            word index, from 0 to 2
+	 * @return the i-th long word of this set, least significant bits first
+	 */
+	public long getWord(int i) {
+		switch (i) {
+		case 0:
+			return w0;
+		case 1:
+			return w1;
+		case 2:
+			return w2;
+		default:
+			throw new IndexOutOfBoundsException("word index: " + i);
+		}
+	}
+
+	/**
+	 * @return words of this set without trailing zero words, as in
+	 *         {@link BitSet#toLongArray()}
+	 */
+	public long[] toLongArray() {
+		int len = w2 != 0 ? 3 : w1 != 0 ? 2 : w0 != 0 ? 1 : 0;
+		long[] result = new long[len];
+		for (int i = 0; i < len; i++) {
+			result[i] = getWord(i);
+		}
+		return result;
+	}
+
+	public BitSet toBitSet() {
+		return BitSet.valueOf(toLongArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof GramSet)) {
+			return false;
+		}
+		GramSet that = (GramSet) obj;
+		return hash == that.hash && w0 == that.w0 && w1 == that.w1 && w2 == that.w2;
+	}
+
+	@Override
+	public String toString() {
+		return toBitSet().toString();
+	}
+
+	private static void checkIndex(int numId) {
+		if (numId < 0 || numId >= CAPACITY) {
+			throw new IllegalArgumentException(String.format(
+					"Grammeme num id %s is out of GramSet bounds", numId));
+		}
+	}
+}
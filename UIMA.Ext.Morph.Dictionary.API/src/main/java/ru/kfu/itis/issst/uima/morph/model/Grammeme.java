@@ -22,9 +22,17 @@ public class Grammeme implements Serializable {
 	private int numId;
 
 	public Grammeme(String id, String parentId, String alias, String description) {
+		this(id, parentId, alias, description, idCounter++);
+	}
+
+	/**
+	 * @param numId
+	 *            numerical id that is assigned by a grammatical model
+	 */
+	public Grammeme(String id, String parentId, String alias, String description, int numId) {
 		this.id = id;
 		this.parentId = parentId;
-		this.numId = idCounter++;
+		this.numId = numId;
 
 		this.alias = alias;
 		this.description = description;
@@ -98,6 +98,15 @@ public class Wordform implements Serializable {
 		return (BitSet) grammems.clone();
 	}
 
+	/**
+	 * @return grammems of this wordform without copying them. Dictionaries
+	 *         store read-only grammeme sets, but a caller must not modify the
+	 *         result in any case.
+	 */
+	public BitSet getGrammemsView() {
+		return grammems;
+	}
+
 	@Override
 	public int hashCode() {
 		return new HashCodeBuilder().append(lemmaId).append(grammems)
@@ -47,7 +47,7 @@ public class ConfigurableSerializedDictionaryResource implements MorphDictionary
 				@SuppressWarnings("unchecked")
 				Class<? extends WordformPredictor> wfPredictorClass = (Class<? extends WordformPredictor>)
 						Class.forName(wfPredictorClassName);
-				WordformPredictor wfPredictor = makePredictor(wfPredictorClass);
+				WordformPredictor wfPredictor = makePredictor(wfPredictorClass, dict);
 				((MorphDictionaryImpl) dict).setWfPredictor(wfPredictor);
 				log.info("{} was set in deserialized MorphDictionary",
 						wfPredictor.getClass().getSimpleName());
@@ -69,8 +69,8 @@ public class ConfigurableSerializedDictionaryResource implements MorphDictionary
 		return dict.getGramModel();
 	}
 
-	private WordformPredictor makePredictor(Class<? extends WordformPredictor> predictorClass)
-			throws Exception {
+	static WordformPredictor makePredictor(Class<? extends WordformPredictor> predictorClass,
+			MorphDictionary dict) throws Exception {
 		Constructor<? extends WordformPredictor> constr = null;
 		// check constructor with the single parameter typed by MorphDictionary
 		try {
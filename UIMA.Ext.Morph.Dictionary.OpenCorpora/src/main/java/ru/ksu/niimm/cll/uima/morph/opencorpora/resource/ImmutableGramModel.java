@@ -5,12 +5,16 @@ package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
 
 import static com.google.common.collect.ImmutableMap.copyOf;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +28,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Grammeme;
 
 /**
@@ -39,8 +44,14 @@ public class ImmutableGramModel implements GramModel, Serializable {
 	// grammem indexes
 	private Multimap<String, Grammeme> gramByParent;
 	private BitSet posBits;
+	private transient GramSet posGramSet;
+	// tag interning table, it is the only mutable state of a model
+	private transient ConcurrentMap<GramSet, Integer> tagIds;
+	private transient volatile GramSet[] tags;
+	private transient int tagCount;
 
 	private ImmutableGramModel() {
+		initTagTable();
 	}
 
 	@Override
@@ -85,6 +96,12 @@ public class ImmutableGramModel implements GramModel, Serializable {
 		return result;
 	}
 
+	@Override
+	public GramSet getGrammemWithChildren(String gramId, boolean includeTarget) {
+		BitSet bits = getGrammemWithChildrenBits(gramId, includeTarget);
+		return bits == null ? null : GramSet.of(bits);
+	}
+
 	@Override
 	public Set<String> getTopGrammems() {
 		ImmutableSet.Builder<String> resultBuilder = ImmutableSet.builder();
@@ -108,11 +125,88 @@ public class ImmutableGramModel implements GramModel, Serializable {
 		return rb.build();
 	}
 
+	@Override
+	public List<String> toGramSet(GramSet grammems) {
+		ImmutableList.Builder<String> rb = ImmutableList.builder();
+		for (int i = grammems.nextSetBit(0); i >= 0; i = grammems.nextSetBit(i + 1)) {
+			rb.add(getGrammem(i).getId());
+		}
+		return rb.build();
+	}
+
 	@Override
 	public BitSet getPosBits() {
 		return (BitSet) posBits.clone();
 	}
 
+	@Override
+	public GramSet getPosGramSet() {
+		return posGramSet;
+	}
+
+	@Override
+	public String getPos(GramSet grammems) {
+		GramSet posGrams = grammems.and(posGramSet);
+		if (posGrams.isEmpty()) {
+			return null;
+		}
+		if (posGrams.cardinality() > 1) {
+			throw new IllegalArgumentException(String.format(
+					"More than 1 POS grammeme:\n%s", toGramSet(posGrams)));
+		}
+		Grammeme result = getGrammem(posGrams.nextSetBit(0));
+		notNull(result);
+		return result.getId();
+	}
+
+	@Override
+	public int getTagId(GramSet tag) {
+		Integer id = tagIds.get(tag);
+		if (id != null) {
+			return id;
+		}
+		return registerTag(tag);
+	}
+
+	@Override
+	public GramSet getTag(int tagId) {
+		GramSet[] tags = this.tags;
+		if (tagId < 0 || tagId >= tags.length || tags[tagId] == null) {
+			throw new IllegalArgumentException(String.format(
+					"No tag with id = %s", tagId));
+		}
+		return tags[tagId];
+	}
+
+	private synchronized int registerTag(GramSet tag) {
+		Integer id = tagIds.get(tag);
+		if (id != null) {
+			return id;
+		}
+		id = tagCount++;
+		GramSet[] arr = tags;
+		if (id >= arr.length) {
+			arr = Arrays.copyOf(arr, arr.length * 2);
+		}
+		arr[id] = tag;
+		tags = arr;
+		// publish the id after the tag itself
+		tagIds.put(tag, id);
+		return id;
+	}
+
+	private void initTagTable() {
+		tagIds = Maps.newConcurrentMap();
+		tags = new GramSet[256];
+		tagCount = 0;
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		posGramSet = GramSet.of(posBits);
+		initTagTable();
+	}
+
 	@Override
 	public String getPos(BitSet lGrams) {
 		lGrams.and(getPosBits());
@@ -151,10 +245,17 @@ public class ImmutableGramModel implements GramModel, Serializable {
 			instance.numToGram = Maps.newTreeMap();
 		}
 
+        /**
+         * Adds a grammeme. Numerical ids are assigned in the order of
+         * addition starting from 1, so they are compact regardless of how many
+         * models have been built in the JVM and fit into {@link GramSet}.
+         */
         public Builder addGrammeme(Grammeme gram) {
             /*if (gramSetLocked) {
 				throw new IllegalStateException("Gram set was locked");
 			}*/
+            gram = new Grammeme(gram.getId(), gram.getParentId(), gram.getAlias(),
+                    gram.getDescription(), instance.numToGram.size() + 1);
             if (instance.gramMap.put(gram.getId(), gram) != null) {
                 throw new IllegalStateException(String.format(
                         "Duplicate grammem id - %s", gram.getId()));
@@ -186,6 +287,8 @@ public class ImmutableGramModel implements GramModel, Serializable {
 			//
 			instance.posBits = instance.getGrammemWithChildrenBits("POST", true);
 			isTrue(!instance.posBits.isEmpty());
+			isTrue(instance.getGrammemMaxNumId() < GramSet.CAPACITY);
+			instance.posGramSet = GramSet.of(instance.posBits);
 			log.info("Grammeme indices have been built");
 			return instance;
 		}
@@ -0,0 +1,63 @@
+/**
+ *
+ */
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import ru.kfu.itis.issst.util.cli.ClassConverter;
+import ru.kfu.itis.issst.util.cli.FileValueValidator;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Converts either a Java-serialized dictionary (the output of
+ * {@link XmlDictionaryParserLauncher}) or an OpenCorpora XML dictionary into
+ * the packed format of {@link MappedMorphDictionary}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class MappedDictionaryConverterLauncher {
+
+	@Parameter(names = { "--input-ser" }, required = false, validateValueWith = FileValueValidator.class)
+	private File serDictFile;
+	@Parameter(names = { "-i", "--input-xml" }, required = false, validateValueWith = FileValueValidator.class)
+	private File dictXmlFile;
+	@Parameter(names = { "--dict-extension-class" }, required = false, converter = ClassConverter.class)
+	private Class<? extends DictionaryExtension> dictExtensionClass = DefaultDictionaryExtension.class;
+	@Parameter(names = { "-o", "--output-file" }, required = true)
+	private File outputFile;
+
+	private MappedDictionaryConverterLauncher() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		MappedDictionaryConverterLauncher cfg = new MappedDictionaryConverterLauncher();
+		new JCommander(cfg, args);
+		if ((cfg.serDictFile == null) == (cfg.dictXmlFile == null)) {
+			throw new ParameterException("Specify exactly one of --input-ser and --input-xml");
+		}
+
+		MorphDictionaryImpl dict;
+		if (cfg.serDictFile != null) {
+			dict = DictionaryDeserializer.from(cfg.serDictFile);
+		} else {
+			dict = new MorphDictionaryImpl();
+			DictionaryExtension ext = cfg.dictExtensionClass.newInstance();
+			FileInputStream fis = FileUtils.openInputStream(cfg.dictXmlFile);
+			try {
+				new XmlDictionaryParser(dict, ext, fis).run();
+			} finally {
+				IOUtils.closeQuietly(fis);
+			}
+		}
+		MappedDictionaryWriter.write(dict, cfg.outputFile);
+	}
+}
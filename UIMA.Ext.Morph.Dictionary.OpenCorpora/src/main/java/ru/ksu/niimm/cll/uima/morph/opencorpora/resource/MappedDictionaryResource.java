@@ -0,0 +1,75 @@
+/**
+ *
+ */
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.fit.component.initialize.ConfigurationParameterInitializer;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModelHolder;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryHolder;
+
+/**
+ * Provides {@link MappedMorphDictionary} for a data resource that must be a
+ * local file produced by {@link MappedDictionaryConverterLauncher}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class MappedDictionaryResource implements MorphDictionaryHolder,
+		GramModelHolder, SharedResourceObject {
+
+	public static final String PARAM_PREDICTOR_CLASS_NAME = "predictorClassName";
+	private static final Logger log = LoggerFactory.getLogger(MappedDictionaryResource.class);
+
+	// config fields
+	@ConfigurationParameter(name = PARAM_PREDICTOR_CLASS_NAME, mandatory = false)
+	private String wfPredictorClassName;
+	// state fields
+	private MappedMorphDictionary dict;
+
+	@Override
+	public void load(DataResource dr) throws ResourceInitializationException {
+		ConfigurationParameterInitializer.initialize(this, dr);
+		try {
+			File dictFile = FileUtils.toFile(dr.getUrl());
+			if (dictFile == null) {
+				throw new IllegalStateException(String.format(
+						"Can't map %s as it is not a local file", dr.getUrl()));
+			}
+			dict = MappedMorphDictionary.from(dictFile);
+			if (wfPredictorClassName != null) {
+				@SuppressWarnings("unchecked")
+				Class<? extends WordformPredictor> wfPredictorClass = (Class<? extends WordformPredictor>)
+						Class.forName(wfPredictorClassName);
+				WordformPredictor wfPredictor = ConfigurableSerializedDictionaryResource
+						.makePredictor(wfPredictorClass, dict);
+				dict.setWfPredictor(wfPredictor);
+				log.info("{} was set in mapped MorphDictionary",
+						wfPredictor.getClass().getSimpleName());
+			}
+		} catch (Exception e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	@Override
+	public MorphDictionary getDictionary() {
+		return dict;
+	}
+
+	@Override
+	public GramModel getGramModel() {
+		return dict.getGramModel();
+	}
+}
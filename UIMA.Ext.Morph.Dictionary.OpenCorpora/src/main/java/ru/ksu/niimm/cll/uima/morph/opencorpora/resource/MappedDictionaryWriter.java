@@ -0,0 +1,266 @@
+/**
+ *
+ */
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import static java.lang.System.currentTimeMillis;
+import static ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MappedMorphDictionary.FORMAT_VERSION;
+import static ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MappedMorphDictionary.MAGIC;
+import static ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MappedMorphDictionary.SECTION_ALIGNMENT;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ru.kfu.itis.issst.uima.morph.model.Lemma;
+import ru.kfu.itis.issst.uima.morph.model.LemmaLinkType;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+import com.google.common.primitives.Ints;
+
+/**
+ * Writes a {@link MorphDictionaryImpl} into the packed format that is read by
+ * {@link MappedMorphDictionary}. All numbers are big-endian, each array starts
+ * at an offset aligned to {@value MappedMorphDictionary#SECTION_ALIGNMENT}
+ * bytes:
+ *
+ * <pre>
+ * int magic, int format version
+ * string version, string revision
+ * int n, byte[n]                  - Java-serialized GramModel
+ * int words, int n, long[n*words] - table of distinct grammeme sets
+ * int n, int[n]                   - gram set ids of complete tags (lex + wordform)
+ * int n, {int id, string name}[n] - lemma link types
+ * int n, int[n] ids (ascending), int[n] gram set ids,
+ *        int[n+1] string offsets, char[offsets[n]] - lemmas
+ * int n, int[n] from, int[n] to, int[n] type id,
+ *        int[n] link indexes ordered by (to, from) - lemma links
+ * int n, int[n+1] string offsets, char[offsets[n]] reversed strings (ascending),
+ *        int[n+1] entry offsets, int[offsets[n]] lemma ids,
+ *        int[offsets[n]] gram set ids - wordforms
+ * </pre>
+ *
+ * Strings are written as int length (-1 for null) followed by chars.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class MappedDictionaryWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(MappedDictionaryWriter.class);
+
+	public static void write(MorphDictionaryImpl dict, File outFile) throws IOException {
+		log.info("About to write packed MorphDictionary into {}...", outFile);
+		long timeBefore = currentTimeMillis();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				FileUtils.openOutputStream(outFile), 8192 * 8));
+		try {
+			new MappedDictionaryWriter(dict, out).write();
+		} finally {
+			out.close();
+		}
+		log.info("Writing finished in {} ms.\nOutput size: {} bytes",
+				currentTimeMillis() - timeBefore, outFile.length());
+	}
+
+	private final MorphDictionaryImpl dict;
+	private final DataOutputStream out;
+	// state fields
+	private final Map<BitSet, Integer> gramSetIds = Maps.newHashMap();
+	private final List<BitSet> gramSets = Lists.newArrayList();
+
+	private MappedDictionaryWriter(MorphDictionaryImpl dict, DataOutputStream out) {
+		this.dict = dict;
+		this.out = out;
+	}
+
+	private void write() throws IOException {
+		// collect everything that refers to gram sets first
+		List<Lemma> lemmas = Lists.newArrayList(dict.getLemmas());
+		Collections.sort(lemmas, new Comparator<Lemma>() {
+			@Override
+			public int compare(Lemma first, Lemma second) {
+				return Ints.compare(first.getId(), second.getId());
+			}
+		});
+		int[] lemmaGramSets = new int[lemmas.size()];
+		for (int i = 0; i < lemmaGramSets.length; i++) {
+			lemmaGramSets[i] = gramSetId(lemmas.get(i).getGrammems());
+		}
+		List<Integer> tags = Lists.newArrayList();
+		for (BitSet tag : dict.getTagset()) {
+			tags.add(gramSetId(tag));
+		}
+		Collections.sort(tags);
+		WordformTable wfTable = new WordformTable();
+		dict.getWordformIndex().visitEntries(wfTable);
+		//
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		writeString(dict.getVersion());
+		writeString(dict.getRevision());
+		// gram model
+		ByteArrayOutputStream gmBytes = new ByteArrayOutputStream();
+		ObjectOutputStream gmOut = new ObjectOutputStream(gmBytes);
+		gmOut.writeObject(dict.getGramModel());
+		gmOut.close();
+		out.writeInt(gmBytes.size());
+		gmBytes.writeTo(out);
+		// gram sets
+		int gramSetWords = (dict.getGramModel().getGrammemMaxNumId() + 64) / 64;
+		out.writeInt(gramSetWords);
+		out.writeInt(gramSets.size());
+		align();
+		for (BitSet gs : gramSets) {
+			long[] words = gs.toLongArray();
+			for (int w = 0; w < gramSetWords; w++) {
+				out.writeLong(w < words.length ? words[w] : 0);
+			}
+		}
+		// tags
+		out.writeInt(tags.size());
+		writeInts(Ints.toArray(tags));
+		// lemma link types
+		out.writeInt(dict.getLemmaLinkTypes().size());
+		for (LemmaLinkType llt : dict.getLemmaLinkTypes()) {
+			out.writeInt(llt.getId());
+			writeString(llt.getName());
+		}
+		// lemmas
+		int[] lemmaIds = new int[lemmas.size()];
+		int[] lemmaOffsets = new int[lemmas.size() + 1];
+		StringBuilder lemmaChars = new StringBuilder();
+		for (int i = 0; i < lemmaIds.length; i++) {
+			lemmaIds[i] = lemmas.get(i).getId();
+			lemmaChars.append(lemmas.get(i).getString());
+			lemmaOffsets[i + 1] = lemmaChars.length();
+		}
+		out.writeInt(lemmas.size());
+		writeInts(lemmaIds);
+		writeInts(lemmaGramSets);
+		writeInts(lemmaOffsets);
+		writeChars(lemmaChars);
+		// lemma links
+		writeLinks(dict.getLemmaLinkTable());
+		// wordforms
+		out.writeInt(wfTable.keyOffsets.size() - 1);
+		writeInts(Ints.toArray(wfTable.keyOffsets));
+		writeChars(wfTable.keyChars);
+		writeInts(Ints.toArray(wfTable.entryOffsets));
+		writeInts(Ints.toArray(wfTable.entryLemmaIds));
+		writeInts(Ints.toArray(wfTable.entryGramSets));
+		log.info("Packed {} lemmas, {} wordform strings, {} wordforms, {} distinct gram sets",
+				new Object[] { lemmas.size(), wfTable.keyOffsets.size() - 1,
+						wfTable.entryLemmaIds.size(), gramSets.size() });
+	}
+
+	private void writeLinks(Table<Integer, Integer, LemmaLinkType> linkTable) throws IOException {
+		// the table is tree-based so cells are ordered by (from, to)
+		final List<Table.Cell<Integer, Integer, LemmaLinkType>> links =
+				Lists.newArrayList(linkTable.cellSet());
+		int[] from = new int[links.size()];
+		int[] to = new int[links.size()];
+		int[] type = new int[links.size()];
+		for (int i = 0; i < from.length; i++) {
+			from[i] = links.get(i).getRowKey();
+			to[i] = links.get(i).getColumnKey();
+			type[i] = links.get(i).getValue().getId();
+		}
+		out.writeInt(links.size());
+		writeInts(from);
+		writeInts(to);
+		writeInts(type);
+		List<Integer> inlinkOrder = Lists.newArrayListWithCapacity(links.size());
+		for (int i = 0; i < links.size(); i++) {
+			inlinkOrder.add(i);
+		}
+		Collections.sort(inlinkOrder, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer first, Integer second) {
+				Table.Cell<Integer, Integer, LemmaLinkType> fl = links.get(first);
+				Table.Cell<Integer, Integer, LemmaLinkType> sl = links.get(second);
+				int result = fl.getColumnKey().compareTo(sl.getColumnKey());
+				if (result == 0) {
+					result = fl.getRowKey().compareTo(sl.getRowKey());
+				}
+				return result;
+			}
+		});
+		writeInts(Ints.toArray(inlinkOrder));
+	}
+
+	private class WordformTable implements WordformIndex.EntryVisitor {
+		private final List<Integer> keyOffsets = Lists.newArrayList(0);
+		private final StringBuilder keyChars = new StringBuilder();
+		private final List<Integer> entryOffsets = Lists.newArrayList(0);
+		private final List<Integer> entryLemmaIds = Lists.newArrayList();
+		private final List<Integer> entryGramSets = Lists.newArrayList();
+
+		@Override
+		public void visit(String key, Iterable<Wordform> wordforms) {
+			for (int i = key.length() - 1; i >= 0; i--) {
+				keyChars.append(key.charAt(i));
+			}
+			keyOffsets.add(keyChars.length());
+			for (Wordform wf : wordforms) {
+				entryLemmaIds.add(wf.getLemmaId());
+				entryGramSets.add(gramSetId(wf.getGrammems()));
+			}
+			entryOffsets.add(entryLemmaIds.size());
+		}
+	}
+
+	private int gramSetId(BitSet gs) {
+		Integer id = gramSetIds.get(gs);
+		if (id == null) {
+			id = gramSets.size();
+			gramSets.add(gs);
+			gramSetIds.put(gs, id);
+		}
+		return id;
+	}
+
+	private void writeInts(int[] arr) throws IOException {
+		align();
+		for (int i : arr) {
+			out.writeInt(i);
+		}
+	}
+
+	private void writeChars(CharSequence chars) throws IOException {
+		align();
+		for (int i = 0; i < chars.length(); i++) {
+			out.writeChar(chars.charAt(i));
+		}
+	}
+
+	private void writeString(String str) throws IOException {
+		if (str == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(str.length());
+			out.writeChars(str);
+		}
+	}
+
+	private void align() throws IOException {
+		while (out.size() % SECTION_ALIGNMENT != 0) {
+			out.writeByte(0);
+		}
+	}
+}
@@ -0,0 +1,539 @@
+/**
+ *
+ */
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ru.kfu.itis.cll.uima.util.UnmodifiableBitSet;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformVisitor;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
+import ru.kfu.itis.issst.uima.morph.model.Lemma;
+import ru.kfu.itis.issst.uima.morph.model.LemmaLinkType;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * {@link MorphDictionary} that answers lookups directly from a memory-mapped
+ * file written by {@link MappedDictionaryWriter}. Only the grammatical model,
+ * the table of distinct grammeme sets and lemma link types are materialized
+ * on the heap, so opening a dictionary takes milliseconds and several JVMs on
+ * the same host share one copy of the dictionary through the page cache.
+ * <p>
+ * Instances are thread-safe. Lemmas that are added at runtime (e.g., pseudo
+ * lemmas of {@link DummyWordformPredictor}) are kept on the heap.
+ * </p>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class MappedMorphDictionary implements MorphDictionary {
+
+	static final int MAGIC = 0x55584D44; // "UXMD"
+	static final int FORMAT_VERSION = 1;
+	static final int SECTION_ALIGNMENT = 8;
+
+	private static final Logger log = LoggerFactory.getLogger(MappedMorphDictionary.class);
+
+	public static MappedMorphDictionary from(File file) throws IOException {
+		if (!file.isFile()) {
+			throw new IllegalArgumentException(String.format(
+					"%s is not existing file", file));
+		}
+		log.info("About to map MorphDictionary from {}...", file);
+		long timeBefore = currentTimeMillis();
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		MappedByteBuffer buf;
+		try {
+			// a mapping stays valid after the channel is closed
+			buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		} finally {
+			raf.close();
+		}
+		MappedMorphDictionary result = new MappedMorphDictionary(buf, file.toString());
+		log.info("Mapping of MorphDictionary finished in {} ms", currentTimeMillis() - timeBefore);
+		return result;
+	}
+
+	// meta fields
+	private final String version;
+	private final String revision;
+	private final GramModel gramModel;
+	// heap-resident tables
+	private final BitSet[] gramSets;
+	// the same sets by id as values returned from getGramSet
+	private final GramSet[] gramSetValues;
+	private final Set<BitSet> tagset;
+	private final Set<GramSet> tagGramSets;
+	private final Map<Short, LemmaLinkType> lemmaLinkTypeMap;
+	// mapped sections
+	private final IntBuffer lemmaIds;
+	private final IntBuffer lemmaGramSets;
+	private final IntBuffer lemmaStrOffsets;
+	private final CharBuffer lemmaChars;
+	private final IntBuffer linkFrom;
+	private final IntBuffer linkTo;
+	private final IntBuffer linkType;
+	private final IntBuffer inlinkOrder;
+	private final IntBuffer wfStrOffsets;
+	private final CharBuffer wfChars;
+	private final IntBuffer wfEntryOffsets;
+	private final IntBuffer wfEntryLemmaIds;
+	private final IntBuffer wfEntryGramSets;
+	// lemmas added at runtime
+	private final ConcurrentMap<Integer, Lemma> addedLemmas = Maps.newConcurrentMap();
+	private volatile WordformPredictor wfPredictor;
+
+	private MappedMorphDictionary(ByteBuffer buf, String srcLabel) throws IOException {
+		if (buf.getInt() != MAGIC) {
+			throw new IllegalStateException(String.format(
+					"%s is not a packed MorphDictionary file", srcLabel));
+		}
+		int formatVersion = buf.getInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IllegalStateException(String.format(
+					"Unsupported format version %s of %s", formatVersion, srcLabel));
+		}
+		version = readString(buf);
+		revision = readString(buf);
+		// gram model
+		byte[] gmBytes = new byte[buf.getInt()];
+		buf.get(gmBytes);
+		ObjectInputStream gmIn = new ObjectInputStream(new ByteArrayInputStream(gmBytes));
+		try {
+			gramModel = (GramModel) gmIn.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			gmIn.close();
+		}
+		// gram sets
+		int gramSetWords = buf.getInt();
+		gramSets = new BitSet[buf.getInt()];
+		gramSetValues = new GramSet[gramSets.length];
+		align(buf);
+		LongBuffer gramSetBuf = buf.asLongBuffer();
+		long[] words = new long[gramSetWords];
+		for (int i = 0; i < gramSets.length; i++) {
+			gramSetBuf.get(words);
+			gramSets[i] = UnmodifiableBitSet.of(BitSet.valueOf(words));
+			gramSetValues[i] = GramSet.of(gramSets[i]);
+		}
+		buf.position(buf.position() + gramSets.length * gramSetWords * 8);
+		// tags
+		IntBuffer tagIds = ints(buf, buf.getInt());
+		ImmutableSet.Builder<BitSet> tagsetBuilder = ImmutableSet.builder();
+		ImmutableSet.Builder<GramSet> tagGramSetsBuilder = ImmutableSet.builder();
+		for (int i = 0; i < tagIds.limit(); i++) {
+			tagsetBuilder.add(gramSets[tagIds.get(i)]);
+			tagGramSetsBuilder.add(gramSetValues[tagIds.get(i)]);
+		}
+		tagset = tagsetBuilder.build();
+		tagGramSets = tagGramSetsBuilder.build();
+		// link types
+		int linkTypesNum = buf.getInt();
+		ImmutableMap.Builder<Short, LemmaLinkType> lltBuilder = ImmutableMap.builder();
+		for (int i = 0; i < linkTypesNum; i++) {
+			short id = (short) buf.getInt();
+			lltBuilder.put(id, new LemmaLinkType(id, readString(buf)));
+		}
+		lemmaLinkTypeMap = lltBuilder.build();
+		// lemmas
+		int lemmasNum = buf.getInt();
+		lemmaIds = ints(buf, lemmasNum);
+		lemmaGramSets = ints(buf, lemmasNum);
+		lemmaStrOffsets = ints(buf, lemmasNum + 1);
+		lemmaChars = chars(buf, lemmaStrOffsets.get(lemmasNum));
+		// links
+		int linksNum = buf.getInt();
+		linkFrom = ints(buf, linksNum);
+		linkTo = ints(buf, linksNum);
+		linkType = ints(buf, linksNum);
+		inlinkOrder = ints(buf, linksNum);
+		// wordforms
+		int wfStrNum = buf.getInt();
+		wfStrOffsets = ints(buf, wfStrNum + 1);
+		wfChars = chars(buf, wfStrOffsets.get(wfStrNum));
+		wfEntryOffsets = ints(buf, wfStrNum + 1);
+		int wfEntriesNum = wfEntryOffsets.get(wfStrNum);
+		wfEntryLemmaIds = ints(buf, wfEntriesNum);
+		wfEntryGramSets = ints(buf, wfEntriesNum);
+		log.info("Mapped {} lemmas, {} wordform strings, {} wordforms",
+				new Object[] { lemmasNum, wfStrNum, wfEntriesNum });
+	}
+
+	public void setWfPredictor(WordformPredictor wfPredictor) {
+		this.wfPredictor = wfPredictor;
+	}
+
+	@Override
+	public String getVersion() {
+		return version;
+	}
+
+	@Override
+	public String getRevision() {
+		return revision;
+	}
+
+	@Override
+	public GramModel getGramModel() {
+		return gramModel;
+	}
+
+	@Override
+	public List<Wordform> getEntries(String str) {
+		if (str.isEmpty()) {
+			return ImmutableList.of();
+		}
+		int strIdx = findWordformString(str, str.length(), str.length());
+		if (strIdx >= 0) {
+			int from = wfEntryOffsets.get(strIdx);
+			int to = wfEntryOffsets.get(strIdx + 1);
+			List<Wordform> result = Lists.newArrayListWithCapacity(to - from);
+			for (int e = from; e < to; e++) {
+				result.add(getWordform(e));
+			}
+			return result;
+		}
+		WordformPredictor predictor = wfPredictor;
+		if (predictor == null) {
+			return ImmutableList.of();
+		}
+		// the longest common suffix is shared with one of the neighbors
+		// of the insertion point
+		int insPoint = -strIdx - 1;
+		int suffixLength = 0;
+		if (insPoint > 0) {
+			suffixLength = commonSuffixLength(insPoint - 1, str);
+		}
+		if (insPoint < wfStrOffsets.limit() - 1) {
+			suffixLength = Math.max(suffixLength, commonSuffixLength(insPoint, str));
+		}
+		if (suffixLength == 0) {
+			return ImmutableList.copyOf(predictor.predict(str, new SuffixSearchResult(0, 0)));
+		}
+		// strings ending with the matched suffix form a contiguous range
+		int rangeStart = suffixRangeBound(str, suffixLength, true);
+		int rangeEnd = suffixRangeBound(str, suffixLength, false);
+		return ImmutableList.copyOf(predictor.predict(str, new SuffixSearchResult(
+				wfEntryOffsets.get(rangeStart), wfEntryOffsets.get(rangeEnd))));
+	}
+
+	@Override
+	public int lookup(CharSequence str, int start, int end, WordformVisitor visitor) {
+		if (end <= start) {
+			return 0;
+		}
+		int strIdx = findWordformString(str, end, end - start);
+		if (strIdx < 0) {
+			return 0;
+		}
+		int from = wfEntryOffsets.get(strIdx);
+		int to = wfEntryOffsets.get(strIdx + 1);
+		for (int e = from; e < to; e++) {
+			int lemmaId = wfEntryLemmaIds.get(e);
+			int lemmaIdx = findLemma(lemmaId);
+			if (lemmaIdx < 0) {
+				throw new IllegalStateException(String.format(
+						"No lemma with id = %s", lemmaId));
+			}
+			visitor.visit(lemmaId, lemmaGramSets.get(lemmaIdx), wfEntryGramSets.get(e));
+		}
+		return to - from;
+	}
+
+	@Override
+	public GramSet getGramSet(int gramSetId) {
+		if (gramSetId < 0 || gramSetId >= gramSetValues.length) {
+			throw new IllegalArgumentException(String.format(
+					"No grammeme set with id = %s", gramSetId));
+		}
+		return gramSetValues[gramSetId];
+	}
+
+	@Override
+	public LemmaLinkType getLemmaLinkType(short id) {
+		return lemmaLinkTypeMap.get(id);
+	}
+
+	@Override
+	public Lemma getLemma(int lemmaId) {
+		int idx = findLemma(lemmaId);
+		if (idx < 0) {
+			Lemma result = addedLemmas.get(lemmaId);
+			if (result == null) {
+				throw new IllegalStateException(String.format(
+						"No lemma with id = %s", lemmaId));
+			}
+			return result;
+		}
+		Lemma result = new Lemma(getString(lemmaChars, lemmaStrOffsets, idx),
+				gramSets[lemmaGramSets.get(idx)]);
+		result.setId(lemmaId);
+		return result;
+	}
+
+	@Override
+	public void addLemma(Lemma lemma) {
+		if (findLemma(lemma.getId()) >= 0 || addedLemmas.putIfAbsent(lemma.getId(), lemma) != null) {
+			throw new IllegalStateException(String.format(
+					"Duplicate lemma id - %s", lemma.getId()));
+		}
+	}
+
+	@Override
+	public int getLemmaMaxId() {
+		int max = lemmaIds.limit() == 0 ? Integer.MIN_VALUE : lemmaIds.get(lemmaIds.limit() - 1);
+		for (Integer id : addedLemmas.keySet()) {
+			if (id > max) {
+				max = id;
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public Map<Integer, LemmaLinkType> getLemmaOutlinks(int lemmaId) {
+		ImmutableMap.Builder<Integer, LemmaLinkType> result = ImmutableMap.builder();
+		for (int i = lowerBound(linkFrom, null, lemmaId); i < linkFrom.limit()
+				&& linkFrom.get(i) == lemmaId; i++) {
+			result.put(linkTo.get(i), getLemmaLinkType((short) linkType.get(i)));
+		}
+		return result.build();
+	}
+
+	@Override
+	public Map<Integer, LemmaLinkType> getLemmaInlinks(int lemmaId) {
+		ImmutableMap.Builder<Integer, LemmaLinkType> result = ImmutableMap.builder();
+		for (int i = lowerBound(linkTo, inlinkOrder, lemmaId); i < inlinkOrder.limit(); i++) {
+			int link = inlinkOrder.get(i);
+			if (linkTo.get(link) != lemmaId) {
+				break;
+			}
+			result.put(linkFrom.get(link), getLemmaLinkType((short) linkType.get(link)));
+		}
+		return result.build();
+	}
+
+	@Override
+	public boolean containsGramSet(BitSet tag) {
+		return tagset.contains(tag);
+	}
+
+	@Override
+	public boolean containsGramSet(GramSet tag) {
+		return tagGramSets.contains(tag);
+	}
+
+	private Wordform getWordform(int entryIdx) {
+		return new Wordform(wfEntryLemmaIds.get(entryIdx), gramSets[wfEntryGramSets.get(entryIdx)]);
+	}
+
+	/**
+	 * Search result over entries of the range of wordform strings that share
+	 * the longest suffix with a query string.
+	 */
+	private class SuffixSearchResult extends WordformTSTSearchResult {
+		private final int entriesFrom;
+		private final int entriesTo;
+
+		SuffixSearchResult(int entriesFrom, int entriesTo) {
+			super(false);
+			this.entriesFrom = entriesFrom;
+			this.entriesTo = entriesTo;
+		}
+
+		@Override
+		public Iterator<Wordform> iterator() {
+			return new AbstractIterator<Wordform>() {
+				private int cur = entriesFrom;
+
+				@Override
+				protected Wordform computeNext() {
+					if (cur >= entriesTo) {
+						return endOfData();
+					}
+					return getWordform(cur++);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Binary search over the sorted reversed wordform strings.
+	 *
+	 * @return index of the string that is equal to the suffixLength chars of
+	 *         str before strEnd; otherwise, (-(insertion point) - 1).
+	 */
+	private int findWordformString(CharSequence str, int strEnd, int suffixLength) {
+		int low = 0;
+		int high = wfStrOffsets.limit() - 2;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareReversed(mid, str, strEnd, suffixLength, false);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * @return if lower is true - the index of the first string ending with the
+	 *         given suffix of str, otherwise - the index after the last one
+	 */
+	private int suffixRangeBound(String str, int suffixLength, boolean lower) {
+		int low = 0;
+		int high = wfStrOffsets.limit() - 1;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareReversed(mid, str, str.length(), suffixLength, true);
+			if (lower ? cmp < 0 : cmp <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * @param prefixMatch
+	 *            if true, a stored string that begins with the reversed
+	 *            suffix is considered to be equal to it
+	 */
+	private int compareReversed(int strIdx, CharSequence str, int strEnd, int suffixLength,
+			boolean prefixMatch) {
+		int pos = wfStrOffsets.get(strIdx);
+		int len = wfStrOffsets.get(strIdx + 1) - pos;
+		int strLast = strEnd - 1;
+		int n = Math.min(len, suffixLength);
+		for (int i = 0; i < n; i++) {
+			int cmp = wfChars.get(pos + i) - str.charAt(strLast - i);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		if (prefixMatch && len >= suffixLength) {
+			return 0;
+		}
+		return len - suffixLength;
+	}
+
+	private int commonSuffixLength(int strIdx, String str) {
+		int pos = wfStrOffsets.get(strIdx);
+		int len = wfStrOffsets.get(strIdx + 1) - pos;
+		int strLast = str.length() - 1;
+		int n = Math.min(len, str.length());
+		int i = 0;
+		while (i < n && wfChars.get(pos + i) == str.charAt(strLast - i)) {
+			i++;
+		}
+		return i;
+	}
+
+	private int findLemma(int lemmaId) {
+		int idx = lowerBound(lemmaIds, null, lemmaId);
+		if (idx < lemmaIds.limit() && lemmaIds.get(idx) == lemmaId) {
+			return idx;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the first index i such that keys[order[i]] >= key, where order
+	 *         is identity if null
+	 */
+	private static int lowerBound(IntBuffer keys, IntBuffer order, int key) {
+		int low = 0;
+		int high = order == null ? keys.limit() : order.limit();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			int midKey = keys.get(order == null ? mid : order.get(mid));
+			if (midKey < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static String getString(CharBuffer chars, IntBuffer offsets, int idx) {
+		int from = offsets.get(idx);
+		int to = offsets.get(idx + 1);
+		char[] arr = new char[to - from];
+		for (int i = 0; i < arr.length; i++) {
+			arr[i] = chars.get(from + i);
+		}
+		return new String(arr);
+	}
+
+	private static String readString(ByteBuffer buf) {
+		int len = buf.getInt();
+		if (len < 0) {
+			return null;
+		}
+		char[] arr = new char[len];
+		buf.asCharBuffer().get(arr);
+		buf.position(buf.position() + len * 2);
+		return new String(arr);
+	}
+
+	private static IntBuffer ints(ByteBuffer buf, int length) {
+		align(buf);
+		ByteBuffer section = buf.slice();
+		section.limit(length * 4);
+		buf.position(buf.position() + length * 4);
+		return section.asIntBuffer();
+	}
+
+	private static CharBuffer chars(ByteBuffer buf, int length) {
+		align(buf);
+		ByteBuffer section = buf.slice();
+		section.limit(length * 2);
+		buf.position(buf.position() + length * 2);
+		return section.asCharBuffer();
+	}
+
+	private static void align(ByteBuffer buf) {
+		int rem = buf.position() % SECTION_ALIGNMENT;
+		if (rem != 0) {
+			buf.position(buf.position() + SECTION_ALIGNMENT - rem);
+		}
+	}
+}
@@ -9,13 +9,17 @@ import static com.google.common.collect.Tables.unmodifiableTable;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.event.EventListenerSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ru.kfu.itis.cll.uima.util.UnmodifiableBitSet;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformVisitor;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Lemma;
 import ru.kfu.itis.issst.uima.morph.model.LemmaLinkType;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
@@ -50,18 +54,41 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 	private Map<BitSet, BitSet> uniqWordformGrammemsMap = Maps.newHashMap();
 	private Map<BitSet, BitSet> uniqLemmaGrammemsMap = Maps.newHashMap();
 
-	private WordformTST wfByString = new WordformTST();
+	private WordformIndex wfByString;
 	// set of complete tags (lex + wordform) seen in stored wordforms
 	private Set<BitSet> tagset = Sets.newHashSet();
 
 	private transient WordformPredictor wfPredictor;
 
+	// ids of interned lemma and wordform grammeme sets for allocation-free lookups
+	private transient volatile GramSet[] gramSets;
+	private transient int gramSetCount;
+	private transient ConcurrentMap<BitSet, Integer> gramSetIds;
+	// lemma id -> id of the lemma grammeme set
+	private transient volatile int[] lemmaGramSetIds;
+	private transient ExactEntryAdapter exactEntryAdapter;
+	// GramSet view of the tagset
+	private transient Set<GramSet> tagGramSets;
+
 	// state mark
 	private transient boolean complete = false;
 
 	private transient EventListenerSupport<MorphDictionaryListener> listeners = EventListenerSupport
 			.create(MorphDictionaryListener.class);
 
+	public MorphDictionaryImpl() {
+		this(new WordformTST());
+	}
+
+	/**
+	 * @param wfIndex
+	 *            an empty wordform index to fill by this dictionary
+	 */
+	public MorphDictionaryImpl(WordformIndex wfIndex) {
+		this.wfByString = wfIndex;
+		initGramSetTables();
+	}
+
 	@Override
 	public GramModel getGramModel() {
 		return gramModel;
@@ -101,6 +128,30 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int lookup(CharSequence str, int start, int end, WordformVisitor visitor) {
+		if (end <= start) {
+			return 0;
+		}
+		return wfByString.visitExact(str, start, end, exactEntryAdapter, visitor);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GramSet getGramSet(int gramSetId) {
+		GramSet[] gramSets = this.gramSets;
+		if (gramSetId < 0 || gramSetId >= gramSets.length || gramSets[gramSetId] == null) {
+			throw new IllegalArgumentException(String.format(
+					"No grammeme set with id = %s", gramSetId));
+		}
+		return gramSets[gramSetId];
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -124,6 +175,7 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 			throw new IllegalStateException(String.format(
 					"Duplicate lemma id - %s", l.getId()));
 		}
+		registerLemmaGramSet(l);
 	}
 
 	@Override
@@ -188,6 +240,11 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 		return tagset.contains(tag);
 	}
 
+	@Override
+	public boolean containsGramSet(GramSet tag) {
+		return tagGramSets.contains(tag);
+	}
+
 	@Override
 	public Map<Integer, LemmaLinkType> getLemmaOutlinks(int lemmaId) {
 		return lemmaLinkTable.row(lemmaId);
@@ -204,11 +261,33 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 		// add complete tag
 		BitSet tag = wf.getGrammems();
 		tag.or(getLemma(wf.getLemmaId()).getGrammems());
-		tagset.add(tag);
+		if (tagset.add(tag)) {
+			tagGramSets.add(GramSet.of(tag));
+		}
 		// fire event
 		listeners.fire().onWordformAdded(this, text, wf);
 	}
 
+	Collection<Lemma> getLemmas() {
+		return Collections.unmodifiableCollection(lemmaMap.values());
+	}
+
+	Collection<LemmaLinkType> getLemmaLinkTypes() {
+		return Collections.unmodifiableCollection(lemmaLinkTypeMap.values());
+	}
+
+	Table<Integer, Integer, LemmaLinkType> getLemmaLinkTable() {
+		return unmodifiableTable(lemmaLinkTable);
+	}
+
+	Set<BitSet> getTagset() {
+		return Collections.unmodifiableSet(tagset);
+	}
+
+	public WordformIndex getWordformIndex() {
+		return wfByString;
+	}
+
 	@Override
 	protected void finalize() throws Throwable {
 		// TODO remove
@@ -225,6 +304,7 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 		log.info("Unique lemma grammem bitsets count: {}", uniqLemmaGrammemsMap.size());
 		log.info("Unique tag bitset count: {}", tagset.size());
 		makeUnmodifiable();
+		wfByString.complete();
 		//		uniqGrammemsMap = null;
 		complete = true;
 	}
@@ -258,14 +338,98 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 	private void readObject(java.io.ObjectInputStream in)
 			throws IOException, ClassNotFoundException {
 		in.defaultReadObject();
+		initGramSetTables();
 		complete = true;
 	}
 
+	private void initGramSetTables() {
+		gramSets = new GramSet[Math.max(16,
+				uniqLemmaGrammemsMap.size() + uniqWordformGrammemsMap.size())];
+		gramSetCount = 0;
+		gramSetIds = Maps.newConcurrentMap();
+		lemmaGramSetIds = new int[16];
+		Arrays.fill(lemmaGramSetIds, -1);
+		exactEntryAdapter = new ExactEntryAdapter();
+		tagGramSets = Sets.newHashSetWithExpectedSize(tagset.size());
+		for (BitSet tag : tagset) {
+			tagGramSets.add(GramSet.of(tag));
+		}
+		for (BitSet gs : uniqLemmaGrammemsMap.keySet()) {
+			registerGramSet(gs);
+		}
+		for (BitSet gs : uniqWordformGrammemsMap.keySet()) {
+			registerGramSet(gs);
+		}
+		for (Lemma l : lemmaMap.values()) {
+			registerLemmaGramSet(l);
+		}
+	}
+
+	private synchronized int registerGramSet(BitSet grammems) {
+		Integer id = gramSetIds.get(grammems);
+		if (id != null) {
+			return id;
+		}
+		id = gramSetCount++;
+		GramSet[] arr = gramSets;
+		if (id >= arr.length) {
+			arr = Arrays.copyOf(arr, arr.length * 2);
+		}
+		arr[id] = GramSet.of(grammems);
+		gramSets = arr;
+		// publish the id after the set itself
+		gramSetIds.put(UnmodifiableBitSet.of(grammems), id);
+		return id;
+	}
+
+	private synchronized void registerLemmaGramSet(Lemma l) {
+		int lemmaId = l.getId();
+		if (lemmaId < 0) {
+			return;
+		}
+		int gramSetId = registerGramSet(l.getGrammems());
+		int[] arr = lemmaGramSetIds;
+		if (lemmaId >= arr.length) {
+			int oldLength = arr.length;
+			arr = Arrays.copyOf(arr, Math.max(lemmaId + 1, oldLength * 2));
+			Arrays.fill(arr, oldLength, arr.length, -1);
+		}
+		arr[lemmaId] = gramSetId;
+		lemmaGramSetIds = arr;
+	}
+
+	private int getLemmaGramSetId(int lemmaId) {
+		int[] arr = lemmaGramSetIds;
+		if (lemmaId < 0 || lemmaId >= arr.length || arr[lemmaId] < 0) {
+			throw new IllegalStateException(String.format(
+					"No lemma with id = %s", lemmaId));
+		}
+		return arr[lemmaId];
+	}
+
+	private int getGramSetId(BitSet grammems) {
+		Integer id = gramSetIds.get(grammems);
+		if (id == null) {
+			return registerGramSet(grammems);
+		}
+		return id;
+	}
+
+	private class ExactEntryAdapter implements WordformIndex.ExactEntryHandler<WordformVisitor> {
+		@Override
+		public void handle(int lemmaId, BitSet grammems, WordformVisitor visitor) {
+			visitor.visit(lemmaId, getLemmaGramSetId(lemmaId), getGramSetId(grammems));
+		}
+	}
+
 	private BitSet internWordformGrammems(BitSet grammems) {
 		if (uniqWordformGrammemsMap.containsKey(grammems)) {
 			return uniqWordformGrammemsMap.get(grammems);
 		} else {
+			// read-only sets are shared by lookup clients
+			grammems = UnmodifiableBitSet.of(grammems);
 			uniqWordformGrammemsMap.put(grammems, grammems);
+			registerGramSet(grammems);
 			return grammems;
 		}
 	}
@@ -274,7 +438,9 @@ public class MorphDictionaryImpl implements Serializable, MorphDictionary {
 		if (uniqLemmaGrammemsMap.containsKey(grammems)) {
 			return uniqLemmaGrammemsMap.get(grammems);
 		} else {
+			grammems = UnmodifiableBitSet.of(grammems);
 			uniqLemmaGrammemsMap.put(grammems, grammems);
+			registerGramSet(grammems);
 			return grammems;
 		}
 	}
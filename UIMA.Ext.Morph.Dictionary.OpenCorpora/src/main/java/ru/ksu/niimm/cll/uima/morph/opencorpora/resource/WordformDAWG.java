@@ -0,0 +1,464 @@
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ru.kfu.itis.cll.uima.util.UnmodifiableBitSet;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * {@link WordformIndex} backed by a minimized acyclic automaton over reversed
+ * keys. The automaton is numbered: every state knows how many keys are
+ * accepted from it, so each key has its rank in the ascending order of
+ * reversed keys and the keys sharing a suffix form a contiguous range of
+ * ranks. Ranks are mapped to interned wordform groups.
+ * <p>
+ * Entries are accumulated until {@link #complete()} is invoked. After that
+ * the index is read-only and consists of a handful of primitive arrays.
+ * </p>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class WordformDAWG implements WordformIndex {
+
+	private static final long serialVersionUID = -2147312408361012772L;
+	private static final Logger log = LoggerFactory.getLogger(WordformDAWG.class);
+
+	/**
+	 * @param source
+	 * @return completed automaton with the same entries as the given index
+	 */
+	public static WordformDAWG copyOf(WordformIndex source) {
+		final WordformDAWG result = new WordformDAWG();
+		source.visitEntries(new EntryVisitor() {
+			@Override
+			public void visit(String key, Iterable<Wordform> wordforms) {
+				for (Wordform wf : wordforms) {
+					result.put(key, wf);
+				}
+			}
+		});
+		result.complete();
+		return result;
+	}
+
+	// building state: reversed key -> wordforms
+	private SortedMap<String, List<Wordform>> pending = Maps.newTreeMap();
+	// automaton
+	private int rootState;
+	// state i has transitions [stateTransStart[i], stateTransStart[i+1])
+	private int[] stateTransStart;
+	// number of keys accepted from a state
+	private int[] stateKeyCount;
+	private BitSet finalStates;
+	// transitions are sorted by label within a state
+	private char[] transLabels;
+	private int[] transTargets;
+	// number of keys that precede the target subtree among keys of the source state
+	private int[] transRankOffsets;
+	// key rank -> wordform group
+	private int[] keyGroups;
+	// group i has entries [groupEntryStart[i], groupEntryStart[i+1])
+	private int[] groupEntryStart;
+	private int[] entryLemmaIds;
+	private int[] entryGramSets;
+	private BitSet[] gramSets;
+
+	@Override
+	public void put(String key, Wordform wf) {
+		if (pending == null) {
+			throw new IllegalStateException("The index has been completed");
+		}
+		if (key == null)
+			throw new NullPointerException("attempt to put an entry with null key");
+		if (key.length() == 0)
+			throw new IllegalArgumentException("attempt to put an entry with key of zero length");
+		String reversedKey = new StringBuilder(key).reverse().toString();
+		List<Wordform> wfs = pending.get(reversedKey);
+		if (wfs == null) {
+			wfs = Lists.newArrayListWithCapacity(2);
+			pending.put(reversedKey, wfs);
+		}
+		wfs.add(wf);
+	}
+
+	@Override
+	public void complete() {
+		if (pending == null) {
+			throw new IllegalStateException("The index has been completed already");
+		}
+		new Builder().build();
+		pending = null;
+	}
+
+	@Override
+	public WordformTSTSearchResult getLongestPrefixMatch(String key) {
+		checkCompleted();
+		if (key == null || key.length() == 0)
+			return null;
+		int state = rootState;
+		int rank = 0;
+		int charIndex = key.length() - 1;
+		while (charIndex >= 0) {
+			int trans = findTransition(state, key.charAt(charIndex));
+			if (trans < 0) {
+				break;
+			}
+			rank += transRankOffsets[trans];
+			state = transTargets[trans];
+			charIndex--;
+		}
+		int matchLength = key.length() - charIndex - 1;
+		if (matchLength == 0) {
+			return new RankRangeSearchResult(false, 0, 0);
+		}
+		if (matchLength == key.length() && finalStates.get(state)) {
+			return new RankRangeSearchResult(true, rank, rank + 1);
+		}
+		return new RankRangeSearchResult(false, rank, rank + stateKeyCount[state]);
+	}
+
+	@Override
+	public <C> int visitExact(CharSequence str, int start, int end,
+			ExactEntryHandler<C> handler, C context) {
+		checkCompleted();
+		int state = rootState;
+		int rank = 0;
+		for (int charIndex = end - 1; charIndex >= start; charIndex--) {
+			int trans = findTransition(state, str.charAt(charIndex));
+			if (trans < 0) {
+				return 0;
+			}
+			rank += transRankOffsets[trans];
+			state = transTargets[trans];
+		}
+		if (end <= start || !finalStates.get(state)) {
+			return 0;
+		}
+		int group = keyGroups[rank];
+		int entryStart = groupEntryStart[group];
+		int entryEnd = groupEntryStart[group + 1];
+		for (int e = entryStart; e < entryEnd; e++) {
+			handler.handle(entryLemmaIds[e], gramSets[entryGramSets[e]], context);
+		}
+		return entryEnd - entryStart;
+	}
+
+	@Override
+	public void visitEntries(EntryVisitor visitor) {
+		checkCompleted();
+		visitEntries(rootState, 0, new StringBuilder(), visitor);
+	}
+
+	private void visitEntries(int state, int rank, StringBuilder reversedKey, EntryVisitor visitor) {
+		if (finalStates.get(state)) {
+			visitor.visit(new StringBuilder(reversedKey).reverse().toString(),
+					new RankRangeSearchResult(true, rank, rank + 1));
+		}
+		for (int t = stateTransStart[state]; t < stateTransStart[state + 1]; t++) {
+			reversedKey.append(transLabels[t]);
+			visitEntries(transTargets[t], rank + transRankOffsets[t], reversedKey, visitor);
+			reversedKey.setLength(reversedKey.length() - 1);
+		}
+	}
+
+	/**
+	 * @return number of states in the automaton
+	 */
+	public int getStateCount() {
+		checkCompleted();
+		return stateKeyCount.length;
+	}
+
+	/**
+	 * @return number of transitions in the automaton
+	 */
+	public int getTransitionCount() {
+		checkCompleted();
+		return transLabels.length;
+	}
+
+	private int findTransition(int state, char label) {
+		int low = stateTransStart[state];
+		int high = stateTransStart[state + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char midLabel = transLabels[mid];
+			if (midLabel < label) {
+				low = mid + 1;
+			} else if (midLabel > label) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	private void checkCompleted() {
+		if (pending != null) {
+			throw new IllegalStateException("The index has not been completed yet");
+		}
+	}
+
+	private class RankRangeSearchResult extends WordformTSTSearchResult {
+		private final int rankFrom;
+		private final int rankTo;
+
+		RankRangeSearchResult(boolean matchExact, int rankFrom, int rankTo) {
+			super(matchExact);
+			this.rankFrom = rankFrom;
+			this.rankTo = rankTo;
+		}
+
+		@Override
+		public Iterator<Wordform> iterator() {
+			return new AbstractIterator<Wordform>() {
+				private int rank = rankFrom;
+				private int entry;
+				private int entryEnd;
+
+				@Override
+				protected Wordform computeNext() {
+					while (entry >= entryEnd) {
+						if (rank >= rankTo) {
+							return endOfData();
+						}
+						int group = keyGroups[rank++];
+						entry = groupEntryStart[group];
+						entryEnd = groupEntryStart[group + 1];
+					}
+					return new Wordform(entryLemmaIds[entry], gramSets[entryGramSets[entry++]]);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Incremental construction of a minimal automaton from sorted keys (Daciuk
+	 * et al., 2000). A state is emitted into the final arrays when it is
+	 * registered, i.e., after all its children have been registered.
+	 */
+	private class Builder {
+		private final Map<StateSignature, Integer> register = Maps.newHashMap();
+		// the path of unregistered states of the last added key
+		private final List<BuildState> path = Lists.newArrayList();
+		// growing output arrays
+		private int stateCount;
+		private int transCount;
+
+		void build() {
+			int keyCount = pending.size();
+			stateTransStart = new int[16];
+			stateKeyCount = new int[16];
+			finalStates = new BitSet();
+			transLabels = new char[16];
+			transTargets = new int[16];
+			transRankOffsets = new int[16];
+			path.add(new BuildState());
+			String prevKey = "";
+			for (String key : pending.keySet()) {
+				int prefixLength = commonPrefixLength(prevKey, key);
+				replaceOrRegister(prefixLength);
+				for (int i = prefixLength; i < key.length(); i++) {
+					BuildState child = new BuildState();
+					path.get(i).addPendingChild(key.charAt(i));
+					path.add(child);
+				}
+				path.get(key.length()).isFinal = true;
+				prevKey = key;
+			}
+			replaceOrRegister(0);
+			rootState = register(path.remove(0));
+			stateTransStart[stateCount] = transCount;
+			// trim
+			stateTransStart = Arrays.copyOf(stateTransStart, stateCount + 1);
+			stateKeyCount = Arrays.copyOf(stateKeyCount, stateCount);
+			transLabels = Arrays.copyOf(transLabels, transCount);
+			transTargets = Arrays.copyOf(transTargets, transCount);
+			transRankOffsets = Arrays.copyOf(transRankOffsets, transCount);
+			if (stateKeyCount[rootState] != keyCount) {
+				throw new IllegalStateException("Assertion failed");
+			}
+			buildGroups();
+			log.info("Built wordform automaton: {} keys, {} states, {} transitions",
+					new Object[] { keyCount, stateCount, transCount });
+		}
+
+		private void buildGroups() {
+			Map<List<Wordform>, Integer> groupIds = Maps.newHashMap();
+			Map<BitSet, Integer> gramSetIds = Maps.newHashMap();
+			List<BitSet> gramSetList = Lists.newArrayList();
+			keyGroups = new int[pending.size()];
+			int[] groupStarts = new int[16];
+			int[] lemmaIds = new int[16];
+			int[] gramSetRefs = new int[16];
+			int groupCount = 0;
+			int entryCount = 0;
+			int rank = 0;
+			for (List<Wordform> wfs : pending.values()) {
+				List<Wordform> group = ImmutableList.copyOf(wfs);
+				Integer groupId = groupIds.get(group);
+				if (groupId == null) {
+					groupId = groupCount++;
+					groupIds.put(group, groupId);
+					groupStarts = ensureCapacity(groupStarts, groupCount + 1);
+					groupStarts[groupId] = entryCount;
+					for (Wordform wf : group) {
+						BitSet gs = wf.getGrammemsView();
+						Integer gsId = gramSetIds.get(gs);
+						if (gsId == null) {
+							gs = UnmodifiableBitSet.of(gs);
+							gsId = gramSetList.size();
+							gramSetList.add(gs);
+							gramSetIds.put(gs, gsId);
+						}
+						lemmaIds = ensureCapacity(lemmaIds, entryCount + 1);
+						gramSetRefs = ensureCapacity(gramSetRefs, entryCount + 1);
+						lemmaIds[entryCount] = wf.getLemmaId();
+						gramSetRefs[entryCount] = gsId;
+						entryCount++;
+					}
+				}
+				keyGroups[rank++] = groupId;
+			}
+			groupStarts[groupCount] = entryCount;
+			groupEntryStart = Arrays.copyOf(groupStarts, groupCount + 1);
+			entryLemmaIds = Arrays.copyOf(lemmaIds, entryCount);
+			entryGramSets = Arrays.copyOf(gramSetRefs, entryCount);
+			gramSets = gramSetList.toArray(new BitSet[gramSetList.size()]);
+			log.info("Wordform groups: {}, entries: {}, distinct gram sets: {}",
+					new Object[] { groupCount, entryCount, gramSets.length });
+		}
+
+		/**
+		 * Registers (or replaces by registered equivalents) path states that
+		 * are deeper than the given depth.
+		 */
+		private void replaceOrRegister(int depth) {
+			for (int i = path.size() - 1; i > depth; i--) {
+				BuildState child = path.remove(i);
+				path.get(i - 1).setLastChild(register(child));
+			}
+		}
+
+		private int register(BuildState state) {
+			StateSignature sign = state.signature();
+			Integer id = register.get(sign);
+			if (id != null) {
+				return id;
+			}
+			id = stateCount++;
+			stateTransStart = ensureCapacity(stateTransStart, stateCount + 1);
+			stateKeyCount = ensureCapacity(stateKeyCount, stateCount);
+			stateTransStart[id] = transCount;
+			int keyCount = state.isFinal ? 1 : 0;
+			if (state.isFinal) {
+				finalStates.set(id);
+			}
+			for (int i = 0; i < state.childCount; i++) {
+				int t = transCount++;
+				if (t >= transLabels.length) {
+					int newLength = transLabels.length * 2;
+					transLabels = Arrays.copyOf(transLabels, newLength);
+					transTargets = Arrays.copyOf(transTargets, newLength);
+					transRankOffsets = Arrays.copyOf(transRankOffsets, newLength);
+				}
+				transLabels[t] = state.labels[i];
+				transTargets[t] = state.children[i];
+				transRankOffsets[t] = keyCount;
+				keyCount += stateKeyCount[state.children[i]];
+			}
+			stateKeyCount[id] = keyCount;
+			register.put(sign, id);
+			return id;
+		}
+	}
+
+	private static class BuildState {
+		private boolean isFinal;
+		private char[] labels = new char[2];
+		// registered state ids; the last one is pending while the child is on the path
+		private int[] children = new int[2];
+		private int childCount;
+
+		void addPendingChild(char label) {
+			if (childCount == labels.length) {
+				labels = Arrays.copyOf(labels, childCount * 2);
+				children = Arrays.copyOf(children, childCount * 2);
+			}
+			labels[childCount] = label;
+			children[childCount] = -1;
+			childCount++;
+		}
+
+		void setLastChild(int stateId) {
+			children[childCount - 1] = stateId;
+		}
+
+		StateSignature signature() {
+			return new StateSignature(isFinal,
+					Arrays.copyOf(labels, childCount), Arrays.copyOf(children, childCount));
+		}
+	}
+
+	private static class StateSignature {
+		private final boolean isFinal;
+		private final char[] labels;
+		private final int[] children;
+		private final int hash;
+
+		StateSignature(boolean isFinal, char[] labels, int[] children) {
+			this.isFinal = isFinal;
+			this.labels = labels;
+			this.children = children;
+			this.hash = 31 * (31 * Arrays.hashCode(labels) + Arrays.hashCode(children))
+					+ (isFinal ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof StateSignature)) {
+				return false;
+			}
+			StateSignature that = (StateSignature) obj;
+			return this.hash == that.hash && this.isFinal == that.isFinal
+					&& Arrays.equals(this.labels, that.labels)
+					&& Arrays.equals(this.children, that.children);
+		}
+	}
+
+	private static int commonPrefixLength(String first, String second) {
+		int n = Math.min(first.length(), second.length());
+		int i = 0;
+		while (i < n && first.charAt(i) == second.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int[] ensureCapacity(int[] arr, int minLength) {
+		if (arr.length >= minLength) {
+			return arr;
+		}
+		return Arrays.copyOf(arr, Math.max(minLength, arr.length * 2));
+	}
+}
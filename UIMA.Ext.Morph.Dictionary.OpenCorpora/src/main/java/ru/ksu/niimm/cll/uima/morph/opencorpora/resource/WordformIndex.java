@@ -0,0 +1,72 @@
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+
+/**
+ * Maps wordform strings to dictionary entries. Keys are matched from their
+ * end, so a non-exact search result provides entries of the stored strings
+ * that share the longest suffix with a query.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public interface WordformIndex extends Serializable {
+
+	void put(String key, Wordform wf);
+
+	/**
+	 * Invoked by a dictionary when all entries have been put. An
+	 * implementation may switch into a compact read-only representation.
+	 */
+	void complete();
+
+	/**
+	 * @param key
+	 * @return exact match result if there are entries for the given key;
+	 *         otherwise - result over entries of the keys sharing the longest
+	 *         suffix with the given one. Null if the key is null or empty.
+	 */
+	WordformTSTSearchResult getLongestPrefixMatch(String key);
+
+	/**
+	 * Passes the wordforms of the key {@code str[start, end)} to the given
+	 * handler. Unlike {@link #getLongestPrefixMatch(String)} it neither
+	 * allocates a search result nor looks for partial matches.
+	 *
+	 * @param str
+	 * @param start
+	 * @param end
+	 * @param handler
+	 * @param context
+	 *            an object that is passed to the handler along with each
+	 *            wordform
+	 * @return the number of handled wordforms, zero if the key is not found
+	 */
+	<C> int visitExact(CharSequence str, int start, int end, ExactEntryHandler<C> handler,
+			C context);
+
+	/**
+	 * Visits every stored key with its wordforms. Keys are visited in the
+	 * ascending order of their reversed strings.
+	 *
+	 * @param visitor
+	 */
+	void visitEntries(EntryVisitor visitor);
+
+	interface EntryVisitor {
+		void visit(String key, Iterable<Wordform> wordforms);
+	}
+
+	interface ExactEntryHandler<C> {
+		/**
+		 * @param lemmaId
+		 * @param grammems
+		 *            wordform grammems that must not be modified
+		 * @param context
+		 */
+		void handle(int lemmaId, BitSet grammems, C context);
+	}
+}
@@ -11,7 +11,7 @@ import java.util.Deque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
-public class WordformTST implements Serializable {
+public class WordformTST implements WordformIndex {
 	private static final long serialVersionUID = 6643426248422366315L;
 	
 	private Node rootNode;
@@ -20,6 +20,7 @@ public class WordformTST implements Serializable {
         return first - second;
     }
 
+    @Override
     public void put(String key, Wordform wf) {
         getOrCreateNode(key).addData(wf);
     }
@@ -86,6 +87,7 @@ public class WordformTST implements Serializable {
         }
     }
 
+    @Override
     public WordformTSTSearchResult getLongestPrefixMatch(String key) {
         getNodeLongestPrefixMatchResult nodeLongestPrefixMatchResult = getNodeLongestPrefixMatch(key);
         if (nodeLongestPrefixMatchResult == null)
@@ -101,6 +103,60 @@ public class WordformTST implements Serializable {
         }
     }
 
+    @Override
+    public <C> int visitExact(CharSequence key, int start, int end,
+            ExactEntryHandler<C> handler, C context) {
+        if (end <= start)
+            return 0;
+        Node currentNode = rootNode;
+        int charIndex = end - 1;
+        while (currentNode != null) {
+            int charComp = compareChars(key.charAt(charIndex), currentNode.splitchar);
+
+            if (charComp == 0) {
+                charIndex--;
+                if (charIndex < start) {
+                    Wordform[] data = currentNode.data;
+                    if (data == null)
+                        return 0;
+                    for (Wordform wf : data)
+                        handler.handle(wf.getLemmaId(), wf.getGrammemsView(), context);
+                    return data.length;
+                }
+                currentNode = currentNode.getEqKid();
+            } else if (charComp < 0) {
+                currentNode = currentNode.getLoKid();
+            } else {
+                currentNode = currentNode.getHiKid();
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void complete() {
+        // the tree is always ready for lookups
+    }
+
+    @Override
+    public void visitEntries(EntryVisitor visitor) {
+        if (rootNode != null)
+            visitEntries(rootNode, new StringBuilder(), visitor);
+    }
+
+    private void visitEntries(Node node, StringBuilder reversedKey, EntryVisitor visitor) {
+        if (node.getLoKid() != null)
+            visitEntries(node.getLoKid(), reversedKey, visitor);
+        reversedKey.append(node.splitchar);
+        if (node.data != null)
+            visitor.visit(new StringBuilder(reversedKey).reverse().toString(), node);
+        if (node.getEqKid() != null)
+            visitEntries(node.getEqKid(), reversedKey, visitor);
+        reversedKey.setLength(reversedKey.length() - 1);
+        if (node.getHiKid() != null)
+            visitEntries(node.getHiKid(), reversedKey, visitor);
+    }
+
     public static class Node implements Serializable, Iterable<Wordform> {
 		private static final long serialVersionUID = 4788009136446395268L;
 
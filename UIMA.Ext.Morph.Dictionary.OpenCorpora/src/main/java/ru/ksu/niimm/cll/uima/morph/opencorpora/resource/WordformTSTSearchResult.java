@@ -16,6 +16,14 @@ public class WordformTSTSearchResult implements Iterable<Wordform>{
         this.resultNode = resultNode;
     }
 
+    /**
+     * For subclasses that provide their own {@link #iterator()} over a result
+     * obtained from a different wordform index.
+     */
+    protected WordformTSTSearchResult(boolean matchExact) {
+        isMatchExact = matchExact;
+    }
+
     public boolean isMatchExact() {
         return isMatchExact;
     }
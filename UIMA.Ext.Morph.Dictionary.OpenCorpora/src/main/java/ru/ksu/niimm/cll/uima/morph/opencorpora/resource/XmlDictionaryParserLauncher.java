@@ -34,6 +34,8 @@ public class XmlDictionaryParserLauncher {
 	private File dictXmlFile;
 	@Parameter(names = { "--dict-extension-class" }, required = false, converter = ClassConverter.class)
 	private Class<? extends DictionaryExtension> dictExtensionClass = DefaultDictionaryExtension.class;
+	@Parameter(names = { "--wordform-index-class" }, required = false, converter = ClassConverter.class)
+	private Class<? extends WordformIndex> wfIndexClass = WordformTST.class;
 	@Parameter(names = { "-o", "--output-file" }, required = true)
 	private File outputFile;
 
@@ -44,7 +46,7 @@ public class XmlDictionaryParserLauncher {
 		XmlDictionaryParserLauncher cfg = new XmlDictionaryParserLauncher();
 		new JCommander(cfg, args);
 
-		MorphDictionaryImpl dict = new MorphDictionaryImpl();
+		MorphDictionaryImpl dict = new MorphDictionaryImpl(cfg.wfIndexClass.newInstance());
 		DictionaryExtension ext = cfg.dictExtensionClass.newInstance();
 		FileInputStream fis = FileUtils.openInputStream(cfg.dictXmlFile);
 		try {
@@ -0,0 +1,105 @@
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.model.Lemma;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class MappedMorphDictionaryTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	MorphDictionaryImpl heapDict;
+	MappedMorphDictionary dict;
+
+	@Before
+	public void setUp() throws Exception {
+		FileInputStream fis = FileUtils.openInputStream(
+				new File("test-data/dict.opcorpora.test.xml"));
+		try {
+			heapDict = XmlDictionaryParser.parse(fis);
+		} finally {
+			IOUtils.closeQuietly(fis);
+		}
+		File packedFile = tmpFolder.newFile("dict.opcorpora.packed");
+		MappedDictionaryWriter.write(heapDict, packedFile);
+		dict = MappedMorphDictionary.from(packedFile);
+	}
+
+	@Test
+	public void testSameEntries() {
+		assertEquals(heapDict.getVersion(), dict.getVersion());
+		assertEquals(heapDict.getRevision(), dict.getRevision());
+		final List<String> keys = Lists.newArrayList();
+		heapDict.getWordformIndex().visitEntries(new WordformIndex.EntryVisitor() {
+			@Override
+			public void visit(String key, Iterable<Wordform> wordforms) {
+				keys.add(key);
+			}
+		});
+		assertFalse(keys.isEmpty());
+		for (String key : keys) {
+			List<Wordform> expected = heapDict.getEntries(key);
+			assertEquals(key, ImmutableSet.copyOf(expected), ImmutableSet.copyOf(dict.getEntries(key)));
+			for (Wordform wf : expected) {
+				Lemma expectedLemma = heapDict.getLemma(wf.getLemmaId());
+				Lemma lemma = dict.getLemma(wf.getLemmaId());
+				assertEquals(expectedLemma, lemma);
+				assertEquals(expectedLemma.getId(), lemma.getId());
+				assertEquals(heapDict.getLemmaOutlinks(lemma.getId()).keySet(),
+						dict.getLemmaOutlinks(lemma.getId()).keySet());
+				assertEquals(heapDict.getLemmaInlinks(lemma.getId()).keySet(),
+						dict.getLemmaInlinks(lemma.getId()).keySet());
+				assertTrue(dict.containsGramSet(Wordform.getAllGramBits(wf, dict)));
+			}
+		}
+		assertEquals(3, dict.getEntries("село").size());
+		assertEquals(heapDict.getLemmaMaxId(), dict.getLemmaMaxId());
+	}
+
+	@Test
+	public void testLookup() {
+		MorphDictionaryImplTest.assertLookupConsistent(dict, "село", "прислоняющей", "а");
+	}
+
+	@Test
+	public void testPrediction() {
+		assertTrue(dict.getEntries("мыркающийся").isEmpty());
+		heapDict.setWfPredictor(new DummyWordformPredictor(heapDict));
+		dict.setWfPredictor(new DummyWordformPredictor(dict));
+		for (String str : new String[] { "мыркающийся", "бегающий", "сёла", "ыыыы", "ло" }) {
+			assertEquals(str, allGramBits(heapDict.getEntries(str), heapDict),
+					allGramBits(dict.getEntries(str), dict));
+		}
+		assertFalse(dict.getEntries("бегающий").isEmpty());
+	}
+
+	private static Set<BitSet> allGramBits(List<Wordform> wfs, MorphDictionary dict) {
+		Set<BitSet> result = Sets.newHashSet();
+		for (Wordform wf : wfs) {
+			result.add(Wordform.getAllGramBits(wf, dict));
+		}
+		return result;
+	}
+}
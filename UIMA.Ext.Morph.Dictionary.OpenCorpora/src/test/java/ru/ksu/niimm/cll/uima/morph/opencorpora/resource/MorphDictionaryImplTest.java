@@ -6,6 +6,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.BitSet;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -13,8 +15,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformBuffer;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
+import com.google.common.collect.Sets;
+
 public class MorphDictionaryImplTest {
 
 	MorphDictionaryImpl dict;
@@ -59,4 +66,61 @@ public class MorphDictionaryImplTest {
 				.get(plurGramIdx));
 	}
 
+	@Test
+	public void testLookup() {
+		assertLookupConsistent(dict, "село", "прислоняющей", "а", "гаджимуратович");
+		WordformBuffer buf = new WordformBuffer();
+		// unknown words are not predicted
+		assertEquals(0, dict.lookup("мыркающийся", 0, "мыркающийся".length(), buf));
+		assertEquals(0, dict.lookup("", 0, 0, buf));
+		assertTrue(buf.isEmpty());
+	}
+
+	@Test
+	public void testTagIds() {
+		WordformBuffer buf = new WordformBuffer();
+		dict.lookup("село", 0, "село".length(), buf);
+		GramSet tag = dict.getGramSet(buf.getLemmaGramSetId(0)).or(
+				dict.getGramSet(buf.getWordformGramSetId(0)));
+		assertTrue(dict.containsGramSet(tag));
+		int tagId = gm.getTagId(tag);
+		assertEquals(tagId, gm.getTagId(GramSet.of(tag.toBitSet())));
+		assertEquals(tag, gm.getTag(tagId));
+		assertEquals(gm.toGramSet(tag.toBitSet()), gm.toGramSet(tag));
+		assertEquals(gm.getPos(tag.toBitSet()), gm.getPos(tag));
+	}
+
+	/**
+	 * Checks that lookups of the given words embedded into a longer char
+	 * sequence yield the same entries as {@link MorphDictionary#getEntries(String)}.
+	 */
+	static void assertLookupConsistent(MorphDictionary dict, String... words) {
+		WordformBuffer buf = new WordformBuffer();
+		for (String w : words) {
+			StringBuilder text = new StringBuilder("в ").append(w).append(" ");
+			buf.clear();
+			int visited = dict.lookup(text, 2, 2 + w.length(), buf);
+			assertEquals(w, dict.getEntries(w).size(), visited);
+			assertTrue(w, visited > 0);
+			assertEquals(visited, buf.size());
+			Set<BitSet> expected = Sets.newHashSet();
+			Set<Integer> expectedLemmaIds = Sets.newHashSet();
+			for (Wordform wf : dict.getEntries(w)) {
+				expected.add(Wordform.getAllGramBits(wf, dict));
+				expectedLemmaIds.add(wf.getLemmaId());
+			}
+			Set<BitSet> actual = Sets.newHashSet();
+			Set<Integer> actualLemmaIds = Sets.newHashSet();
+			for (int i = 0; i < buf.size(); i++) {
+				GramSet tag = dict.getGramSet(buf.getLemmaGramSetId(i)).or(
+						dict.getGramSet(buf.getWordformGramSetId(i)));
+				actual.add(tag.toBitSet());
+				actualLemmaIds.add(buf.getLemmaId(i));
+				assertEquals(dict.getLemma(buf.getLemmaId(i)).getGrammems(),
+						dict.getGramSet(buf.getLemmaGramSetId(i)).toBitSet());
+			}
+			assertEquals(w, expected, actual);
+			assertEquals(w, expectedLemmaIds, actualLemmaIds);
+		}
+	}
 }
@@ -0,0 +1,114 @@
+package ru.ksu.niimm.cll.uima.morph.opencorpora.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import ru.kfu.itis.issst.uima.morph.model.Lemma;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+
+public class WordformDAWGTest {
+
+	MorphDictionaryImpl tstDict;
+	MorphDictionaryImpl dawgDict;
+
+	@Before
+	public void setUp() throws Exception {
+		FileInputStream fis = FileUtils.openInputStream(
+				new File("test-data/dict.opcorpora.test.xml"));
+		try {
+			tstDict = XmlDictionaryParser.parse(fis);
+		} finally {
+			IOUtils.closeQuietly(fis);
+		}
+		// grammeme numerical ids differ between parser runs,
+		// so the second dictionary is filled from the first one
+		dawgDict = new MorphDictionaryImpl(new WordformDAWG());
+		dawgDict.setGramModel(tstDict.getGramModel());
+		for (Lemma l : tstDict.getLemmas()) {
+			dawgDict.addLemma(l);
+		}
+		tstDict.getWordformIndex().visitEntries(new WordformIndex.EntryVisitor() {
+			@Override
+			public void visit(String key, Iterable<Wordform> wordforms) {
+				for (Wordform wf : wordforms) {
+					dawgDict.addWordform(key, wf);
+				}
+			}
+		});
+		dawgDict.complete();
+	}
+
+	@Test
+	public void testSameEntries() {
+		final List<String> tstKeys = Lists.newArrayList();
+		final List<String> dawgKeys = Lists.newArrayList();
+		tstDict.getWordformIndex().visitEntries(new KeyCollector(tstKeys));
+		dawgDict.getWordformIndex().visitEntries(new KeyCollector(dawgKeys));
+		assertFalse(tstKeys.isEmpty());
+		assertEquals(tstKeys, dawgKeys);
+		for (String key : tstKeys) {
+			assertEntries(key, tstDict.getWordformIndex(), dawgDict.getWordformIndex());
+		}
+		assertEquals(3, dawgDict.getEntries("село").size());
+		MorphDictionaryImplTest.assertLookupConsistent(dawgDict, "село", "прислоняющей", "а");
+		WordformDAWG dawg = (WordformDAWG) dawgDict.getWordformIndex();
+		int keyChars = 0;
+		for (String key : tstKeys) {
+			keyChars += key.length();
+		}
+		// a trie would need a state per key char
+		assertTrue(dawg.getStateCount() < keyChars);
+	}
+
+	@Test
+	public void testLongestSuffixMatch() {
+		for (String str : new String[] { "мыркающийся", "бегающий", "сёла", "ыыыы", "ло", "о" }) {
+			assertEntries(str, tstDict.getWordformIndex(), dawgDict.getWordformIndex());
+		}
+		assertNull(dawgDict.getWordformIndex().getLongestPrefixMatch(""));
+	}
+
+	@Test
+	public void testSerialization() {
+		WordformIndex dawg = dawgDict.getWordformIndex();
+		WordformIndex copy = SerializationUtils.clone(dawg);
+		for (String str : new String[] { "село", "мыркающий", "бегающий" }) {
+			assertEntries(str, dawg, copy);
+		}
+	}
+
+	private static void assertEntries(String key, WordformIndex expectedIndex, WordformIndex index) {
+		WordformTSTSearchResult expected = expectedIndex.getLongestPrefixMatch(key);
+		WordformTSTSearchResult actual = index.getLongestPrefixMatch(key);
+		assertEquals(key, expected.isMatchExact(), actual.isMatchExact());
+		assertEquals(key, HashMultiset.create(expected), HashMultiset.create(actual));
+	}
+
+	private static class KeyCollector implements WordformIndex.EntryVisitor {
+		private final List<String> keys;
+
+		KeyCollector(List<String> keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public void visit(String key, Iterable<Wordform> wordforms) {
+			keys.add(key);
+		}
+	}
+}
@@ -26,8 +26,9 @@ import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 
+import ru.kfu.itis.cll.uima.io.ExternalProcess;
 import ru.kfu.itis.cll.uima.io.ProcessIOUtils;
-import ru.kfu.itis.cll.uima.io.StreamGobblerBase;
+import ru.kfu.itis.cll.uima.io.ProcessStreams;
 import ru.kfu.itis.cll.uima.util.CorpusUtils.PartitionType;
 import ru.ksu.niimm.cll.uima.morph.lab.AnalysisTaskBase;
 import ru.ksu.niimm.cll.uima.morph.lab.CorpusPreprocessingTask;
@@ -36,6 +37,7 @@ import ru.ksu.niimm.cll.uima.morph.lab.FeatureExtractionTaskBase;
 import ru.ksu.niimm.cll.uima.morph.lab.LabLauncherBase;
 
 import com.beust.jcommander.JCommander;
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 
 import de.tudarmstadt.ukp.dkpro.lab.Lab;
@@ -119,22 +121,13 @@ public class HunposLab extends LabLauncherBase {
 				// start trainer process
 				ProcessBuilder pb = new ProcessBuilder(cmd);
 				pb.redirectErrorStream(true);
-				Process trainProc = pb.start();
-				// attach stdout & stderr streams gobbler
-				StreamGobblerBase trainProcGobbler = StreamGobblerBase.toSystemOut(
-						trainProc.getInputStream());
-				new Thread(trainProcGobbler).start();
+				// attach stdout & stderr streams reader
+				ExternalProcess trainProc = ExternalProcess.start(pb, Charsets.UTF_8,
+						ProcessStreams.toSystemOut(), null);
 				// feed training data to stdin
-				ProcessIOUtils.feedProcessInput(trainProc, trainDataFile, true);
-				// wait for the end of training
-				int trainProcExitCode;
-				try {
-					trainProcExitCode = trainProc.waitFor();
-					// wait a little & stop gobbler
-					Thread.sleep(1000);
-				} finally {
-					trainProcGobbler.done();
-				}
+				ProcessIOUtils.feedProcessInput(trainProc.getProcess(), trainDataFile, true);
+				// wait for the end of training and its output
+				int trainProcExitCode = trainProc.waitFor();
 				if (trainProcExitCode != 0) {
 					throw new IllegalStateException(String.format(
 							"Hunpos trainer returned exit code: %s", trainProcExitCode));
@@ -4,6 +4,7 @@
 package ru.kfu.itis.issst.uima.morph.treetagger;
 
 import com.beust.jcommander.JCommander;
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import de.tudarmstadt.ukp.dkpro.lab.Lab;
 import de.tudarmstadt.ukp.dkpro.lab.engine.TaskContext;
@@ -21,8 +22,9 @@ import org.annolab.tt4j.PlatformDetector;
 import org.apache.commons.io.FileUtils;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.resource.ResourceInitializationException;
+import ru.kfu.itis.cll.uima.io.ExternalProcess;
 import ru.kfu.itis.cll.uima.io.IoUtils;
-import ru.kfu.itis.cll.uima.io.StreamGobblerBase;
+import ru.kfu.itis.cll.uima.io.ProcessStreams;
 import ru.kfu.itis.cll.uima.util.CorpusUtils.PartitionType;
 import ru.kfu.itis.issst.uima.morph.commons.TagUtils;
 import ru.kfu.itis.issst.uima.morph.treetagger.LexiconWriter.LexiconEntry;
@@ -171,15 +173,9 @@ public class TTLab extends LabLauncherBase {
 
 				ProcessBuilder pb = new ProcessBuilder(cmd);
 				pb.redirectErrorStream(true);
-				Process trainProc = pb.start();
-				// TODO destroy properly when trainProc is done (possible with error)
-				StreamGobblerBase trainProcGobbler = StreamGobblerBase.toSystemOut(
-						trainProc.getInputStream());
-				new Thread(trainProcGobbler).start();
+				ExternalProcess trainProc = ExternalProcess.start(pb, Charsets.UTF_8,
+						ProcessStreams.toSystemOut(), null);
 				int trainProcExitCode = trainProc.waitFor();
-				// wait a little & stop gobbler
-				Thread.sleep(1000);
-				trainProcGobbler.done();
 				if (trainProcExitCode != 0) {
 					throw new IllegalStateException(String.format(
 							"Tree-tagger trainer returned exit code: %s", trainProcExitCode));
@@ -8,11 +8,13 @@ import java.util.Collection;
 import java.util.List;
 
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.opencorpora.cas.Word;
 
 import ru.kfu.itis.cll.uima.cas.FSUtils;
 import ru.kfu.itis.issst.uima.morph.dictionary.AnnotationAdapterBase;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformBuffer;
 import ru.kfu.itis.issst.uima.morph.model.Lemma;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
@@ -65,6 +67,37 @@ public class DefaultAnnotationAdapter extends AnnotationAdapterBase {
 		word.addToIndexes();
 	}
 
+	@Override
+	public void apply(JCas jcas, Annotation token, WordformBuffer entries) {
+		Word word = new Word(jcas);
+		word.setBegin(token.getBegin());
+		word.setEnd(token.getEnd());
+		word.setToken(token);
+		FSArray casWfArr = new FSArray(jcas, entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			org.opencorpora.cas.Wordform casWf = new org.opencorpora.cas.Wordform(jcas);
+
+			int lemmaId = entries.getLemmaId(i);
+			// set lemma id
+			casWf.setLemmaId(lemmaId);
+			// set lemma norm
+			casWf.setLemma(dict.getLemma(lemmaId).getString());
+			// set pos
+			casWf.setPos(getPos(entries.getLemmaGramSetId(i)));
+			// set grammems
+			casWf.setGrammems(FSUtils.toStringArray(jcas, getGramStrings(
+					entries.getLemmaGramSetId(i), entries.getWordformGramSetId(i))));
+			// set hosting word
+			casWf.setWord(word);
+
+			casWfArr.set(i, casWf);
+		}
+		// set wordforms
+		word.setWordforms(casWfArr);
+
+		word.addToIndexes();
+	}
+
 	@Override
 	public void apply(JCas jcas, Annotation token,
 			Integer lexemeId, final String _lemma, BitSet posBits) {
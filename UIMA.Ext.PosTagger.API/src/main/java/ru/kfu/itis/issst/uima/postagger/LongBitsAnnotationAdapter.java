@@ -8,6 +8,8 @@ import java.util.Collection;
 import java.util.List;
 
 import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.LongArray;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.opencorpora.cas.Word;
 
@@ -15,6 +17,8 @@ import com.google.common.collect.Lists;
 
 import ru.kfu.itis.cll.uima.cas.FSUtils;
 import ru.kfu.itis.issst.uima.morph.dictionary.AnnotationAdapterBase;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformBuffer;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Lemma;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
@@ -50,9 +54,7 @@ public class LongBitsAnnotationAdapter extends AnnotationAdapterBase {
 			casWf.setPos(dict.getGramModel().getPos(lemma.getGrammems()));
 			// set grammems
 			grammems.or(lemma.getGrammems());
-			// XXX
-			// XXX fill posBits long array
-			// XXX
+			casWf.setPosBits(toLongArray(jcas, GramSet.of(grammems)));
 			// set hosting word
 			casWf.setWord(word);
 
@@ -64,10 +66,48 @@ public class LongBitsAnnotationAdapter extends AnnotationAdapterBase {
 		word.addToIndexes();
 	}
 
+	@Override
+	public void apply(JCas jcas, Annotation token, WordformBuffer entries) {
+		Word word = new Word(jcas);
+		word.setBegin(token.getBegin());
+		word.setEnd(token.getEnd());
+		word.setToken(token);
+		FSArray casWfArr = new FSArray(jcas, entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			org.opencorpora.cas.Wordform casWf = new org.opencorpora.cas.Wordform(jcas);
+
+			int lemmaId = entries.getLemmaId(i);
+			// set lemma id
+			casWf.setLemmaId(lemmaId);
+			// set lemma norm
+			casWf.setLemma(dict.getLemma(lemmaId).getString());
+			// set pos
+			casWf.setPos(getPos(entries.getLemmaGramSetId(i)));
+			// set grammems
+			casWf.setPosBits(toLongArray(jcas,
+					getTag(entries.getLemmaGramSetId(i), entries.getWordformGramSetId(i))));
+			// set hosting word
+			casWf.setWord(word);
+
+			casWfArr.set(i, casWf);
+		}
+		// set wordforms
+		word.setWordforms(casWfArr);
+
+		word.addToIndexes();
+	}
+
 	@Override
 	public void apply(JCas jcas, Annotation token, Integer lexemeId, String lemma, BitSet posBits) {
 		// TODO
 		throw new UnsupportedOperationException();
 	}
 
+	private static LongArray toLongArray(JCas jcas, GramSet tag) {
+		long[] words = tag.toLongArray();
+		LongArray result = new LongArray(jcas, words.length);
+		result.copyFromArray(words, 0, 0, words.length);
+		return result;
+	}
+
 }
\ No newline at end of file
@@ -6,10 +6,8 @@ package ru.kfu.itis.issst.uima.morph.hunpos;
 import static ru.kfu.itis.issst.uima.morph.commons.TagUtils.postProcessExternalTag;
 
 import java.io.File;
-import java.util.Collection;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
-import org.annolab.tt4j.TokenHandler;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.jcas.JCas;
@@ -19,6 +17,7 @@ import org.opencorpora.cas.Word;
 import org.opencorpora.cas.Wordform;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.JCasUtil;
 
 import ru.kfu.cll.uima.segmentation.fstype.Sentence;
@@ -26,7 +25,15 @@ import ru.kfu.cll.uima.tokenizer.fstype.NUM;
 import ru.kfu.cll.uima.tokenizer.fstype.Token;
 import ru.kfu.cll.uima.tokenizer.fstype.W;
 
+import com.google.common.collect.Lists;
+
 /**
+ * Tags all sentences of a document in a single request to a hunpos-tag
+ * process. The process is taken either from {@link HunposSessionPool} bound
+ * to {@value #RESOURCE_SESSION_POOL} key, so that several replicas of this
+ * annotator share a fixed number of processes, or from a private session
+ * started with the given model.
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
@@ -34,96 +41,90 @@ public class HunposAnnotator extends JCasAnnotator_ImplBase {
 
 	public static final String PARAM_HUNPOS_MODEL_NAME = "hunposModelName";
 	public static final String PARAM_LEXICON_FILE = "lexiconFile";
+	public static final String RESOURCE_SESSION_POOL = "hunposSessionPool";
 	// config
-	@ConfigurationParameter(name = PARAM_HUNPOS_MODEL_NAME, mandatory = true)
+	@ConfigurationParameter(name = PARAM_HUNPOS_MODEL_NAME, mandatory = false)
 	private String hpModelName;
 	@ConfigurationParameter(name = PARAM_LEXICON_FILE, mandatory = false)
 	private File lexiconFile;
-	// monitors
-	private final Object casMon = new Object();
+	@ExternalResource(key = RESOURCE_SESSION_POOL, mandatory = false)
+	private HunposSessionPool sharedPool;
 	// state fields
-	private HunposWrapper<Token> hunposTagger;
+	private HunposSessionPool privatePool;
 
 	@Override
 	public void initialize(UimaContext ctx) throws ResourceInitializationException {
 		super.initialize(ctx);
-
-		hunposTagger = new HunposWrapper<Token>();
-		hunposTagger.setModelName(hpModelName);
-		if (lexiconFile != null) {
-			hunposTagger.setLexiconFile(lexiconFile);
+		if (sharedPool == null) {
+			if (hpModelName == null) {
+				throw new ResourceInitializationException(new IllegalStateException(
+						String.format("Neither %s nor %s is set",
+								PARAM_HUNPOS_MODEL_NAME, RESOURCE_SESSION_POOL)));
+			}
+			try {
+				privatePool = new HunposSessionPool(new File(hpModelName), lexiconFile, null, 1);
+			} catch (IllegalStateException e) {
+				throw new ResourceInitializationException(e);
+			}
 		}
-		hunposTagger.setTokenAdapter(new TokenAdapter());
 	}
 
 	@Override
 	public void process(final JCas jCas) throws AnalysisEngineProcessException {
+		List<List<Token>> sentTokens = Lists.newArrayList();
+		List<List<String>> sentStrings = Lists.newArrayList();
 		for (Sentence sent : JCasUtil.select(jCas, Sentence.class)) {
-			process(jCas, sent);
-		}
-	}
-
-	private void process(final JCas jCas, Sentence sent) throws AnalysisEngineProcessException {
-		Collection<Token> tokens = JCasUtil.selectCovered(Token.class, sent);
-		final Word[] words = new Word[tokens.size()];
-
-		final AtomicInteger count = new AtomicInteger(0);
-		hunposTagger.setTokenHandler(new TokenHandler<Token>() {
-			@Override
-			public void token(Token token, String pos, String lemma) {
-				// should be synchronized on the same object with TokenAdapter#getText (see below)
-				synchronized (casMon) {
-					// do not create Wordform on punctuation and special tokens
-					if (pos != null && (token instanceof W || token instanceof NUM)) {
-						pos = pos.intern();
-						Word w = new Word(jCas, token.getBegin(), token.getEnd());
-						w.setToken(token);
-
-						Wordform wf = new Wordform(jCas);
-						wf.setWord(w);
-						if (lemma != null) {
-							wf.setLemma(lemma);
-						}
-						// null tags comes as a 'null' string instances
-						wf.setPos(postProcessExternalTag(pos));
-
-						FSArray wfArr = new FSArray(jCas, 1);
-						wfArr.set(0, wf);
-						w.setWordforms(wfArr);
-
-						if (words[count.get()] != null) {
-							throw new IllegalStateException();
-						}
-						words[count.get()] = w;
-					}
-					//
-					count.getAndIncrement();
-				}
+			List<Token> tokens = JCasUtil.selectCovered(jCas, Token.class, sent);
+			List<String> tokenStrings = Lists.newArrayListWithCapacity(tokens.size());
+			for (Token token : tokens) {
+				tokenStrings.add(token.getCoveredText());
 			}
-		});
-		// 
+			sentTokens.add(tokens);
+			sentStrings.add(tokenStrings);
+		}
+		List<List<String>> sentTags;
 		try {
-			hunposTagger.process(tokens);
-
-			// save annotations
-			for (Word w : words) {
-				if (w != null) {
-					w.addToIndexes();
-				}
-			}
+			sentTags = getPool().tag(sentStrings);
 		} catch (Exception e) {
 			throw new AnalysisEngineProcessException(e);
-		} finally {
-			// just to clear reference to current CAS
-			hunposTagger.setTokenHandler(null);
+		}
+		for (int s = 0; s < sentTokens.size(); s++) {
+			List<Token> tokens = sentTokens.get(s);
+			List<String> tags = sentTags.get(s);
+			for (int t = 0; t < tokens.size(); t++) {
+				addWord(jCas, tokens.get(t), tags.get(t));
+			}
+		}
+	}
+
+	private void addWord(JCas jCas, Token token, String pos) {
+		// do not create Wordform on punctuation and special tokens
+		if (pos != null && (token instanceof W || token instanceof NUM)) {
+			pos = pos.intern();
+			Word w = new Word(jCas, token.getBegin(), token.getEnd());
+			w.setToken(token);
+
+			Wordform wf = new Wordform(jCas);
+			wf.setWord(w);
+			// null tags comes as a 'null' string instances
+			wf.setPos(postProcessExternalTag(pos));
+
+			FSArray wfArr = new FSArray(jCas, 1);
+			wfArr.set(0, wf);
+			w.setWordforms(wfArr);
+			w.addToIndexes();
 		}
 	}
 
+	private HunposSessionPool getPool() {
+		return sharedPool != null ? sharedPool : privatePool;
+	}
+
 	@Override
 	public void destroy() {
-		if (hunposTagger != null) {
-			hunposTagger.destroy();
-			hunposTagger = null;
+		if (privatePool != null) {
+			privatePool.destroy();
+			privatePool = null;
 		}
 		super.destroy();
 	}
@@ -135,13 +136,4 @@ public class HunposAnnotator extends JCasAnnotator_ImplBase {
 		destroy();
 		super.finalize();
 	}
-
-	private class TokenAdapter implements org.annolab.tt4j.TokenAdapter<Token> {
-		@Override
-		public String getText(Token t) {
-			synchronized (casMon) {
-				return t.getCoveredText();
-			}
-		}
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,257 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.hunpos;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ru.kfu.itis.cll.uima.io.ExternalProcess;
+import ru.kfu.itis.cll.uima.io.LineHandler;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * A long-lived hunpos-tag process. Sentences are written to the process with
+ * buffered I/O, the pipe is flushed once per {@link #tag(List)} invocation.
+ * The output is read by an {@link ExternalProcess} reader that lives as long
+ * as the process and splits it into sentence responses by empty lines. The
+ * error stream of the process is passed to the log.
+ * <p>
+ * An instance tags one batch at a time. If a session fails (e.g., the process
+ * dies) it is closed and can't be used anymore.
+ * </p>
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class HunposSession implements Closeable {
+
+	static final String TAGGER_IS_READY_MESSAGE = "tagger compiled";
+	private static final long TAGGER_READY_MAX_TIMEOUT = 60000;
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	private final String processCmd;
+	private final ExternalProcess process;
+	private final Writer processInput;
+	// receives a List<String> of tags per sentence or a Throwable
+	private final BlockingQueue<Object> responses = new LinkedBlockingQueue<Object>();
+	private final CountDownLatch readyLatch = new CountDownLatch(1);
+	private volatile boolean closed;
+
+	/**
+	 * Starts the process and waits until it has loaded the model.
+	 *
+	 * @param cmd
+	 *            the command line of hunpos-tag
+	 * @param processIOEncoding
+	 *            encoding of the process input and output
+	 */
+	public HunposSession(List<String> cmd, String processIOEncoding)
+			throws IOException, HunposException {
+		processCmd = Joiner.on(' ').join(cmd);
+		log.info("Invoking hunpos-tagger:\n{}", processCmd);
+		Charset cs = Charset.forName(processIOEncoding);
+		process = ExternalProcess.start(new ProcessBuilder(cmd), cs,
+				new ResponseHandler(), new ErrorHandler());
+		processInput = new BufferedWriter(new OutputStreamWriter(
+				process.getProcess().getOutputStream(), cs));
+		Futures.addCallback(process.getStdoutCompletion(), new FutureCallback<Void>() {
+			@Override
+			public void onSuccess(Void result) {
+				if (!closed) {
+					responses.add(new IllegalStateException(String.format(
+							"Unexpected death of hunpos-tagger process. The end of stderr:\n%s",
+							Joiner.on('\n').join(process.getStderrTail()))));
+				}
+				// release a waiting constructor
+				readyLatch.countDown();
+			}
+
+			@Override
+			public void onFailure(Throwable e) {
+				if (!closed) {
+					log.error("hunpos-tagger output reading failure", e);
+				}
+				responses.add(e);
+				readyLatch.countDown();
+			}
+		});
+		boolean ready;
+		try {
+			ready = readyLatch.await(TAGGER_READY_MAX_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new HunposException("Interrupted while waiting for hunpos-tagger", e);
+		}
+		if (!ready) {
+			close();
+			throw new HunposException(
+					"Can't initialize tagger - max timeout is passed: " + processCmd);
+		}
+		// the output reader reports a process death before the ready message
+		Object failure = responses.poll();
+		if (failure != null) {
+			close();
+			throw new HunposException("hunpos-tagger was not initialized properly. "
+					+ "Check log messages", (Throwable) failure);
+		}
+	}
+
+	/**
+	 * @param sentences
+	 *            token strings of each sentence. Tokens must not contain tabs
+	 *            and line breaks.
+	 * @return tags of each token of each sentence
+	 */
+	public synchronized List<List<String>> tag(List<? extends List<String>> sentences)
+			throws IOException, HunposException {
+		if (closed) {
+			throw new IllegalStateException("The session is closed");
+		}
+		for (List<String> sent : sentences) {
+			for (String token : sent) {
+				if (token.isEmpty() || indexOfIllegalChar(token) >= 0) {
+					throw new IllegalArgumentException(String.format(
+							"Token '%s' is empty or contains illegal characters", token));
+				}
+			}
+		}
+		boolean succeeded = false;
+		try {
+			// the output is drained by the reader thread, so the whole batch
+			// can be written before reading the responses
+			for (List<String> sent : sentences) {
+				if (sent.isEmpty()) {
+					continue;
+				}
+				for (String token : sent) {
+					processInput.write(token);
+					// \r\n (CRLF) does not work for Windows build of Hunpos
+					processInput.write('\n');
+				}
+				// print empty line to make sentence end
+				processInput.write('\n');
+			}
+			processInput.flush();
+			List<List<String>> result = Lists.newArrayListWithCapacity(sentences.size());
+			for (List<String> sent : sentences) {
+				if (sent.isEmpty()) {
+					result.add(ImmutableList.<String> of());
+					continue;
+				}
+				List<String> sentTags = takeResponse();
+				if (sentTags.size() != sent.size()) {
+					throw new HunposException(String.format(
+							"Expected %s tags but got %s for sentence:\n%s",
+							sent.size(), sentTags.size(), sent));
+				}
+				result.add(sentTags);
+			}
+			succeeded = true;
+			return result;
+		} finally {
+			// the process output can't be re-synchronized after a failure
+			if (!succeeded) {
+				close();
+			}
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Stops the process. The stream readers end when the process streams are
+	 * closed.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			processInput.close();
+		} catch (IOException e) {
+			// the process could be dead already
+		}
+		process.destroy();
+		log.debug("Stopped tagger process.");
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<String> takeResponse() throws HunposException {
+		Object resp;
+		try {
+			resp = responses.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HunposException("Interrupted while waiting for hunpos-tagger output", e);
+		}
+		if (resp instanceof Throwable) {
+			throw new HunposException((Throwable) resp);
+		}
+		return (List<String>) resp;
+	}
+
+	private static int indexOfIllegalChar(String token) {
+		for (int i = 0; i < token.length(); i++) {
+			char ch = token.charAt(i);
+			if (ch == '\t' || ch == '\n' || ch == '\r') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private class ResponseHandler implements LineHandler {
+		private List<String> sentTags = Lists.newArrayList();
+
+		@Override
+		public void line(String line) {
+			if (line.isEmpty()) {
+				// means we are done with current sentence
+				responses.add(sentTags);
+				sentTags = Lists.newArrayList();
+				return;
+			}
+			int tagStart = line.indexOf('\t');
+			int tagEnd = tagStart < 0 ? -1 : line.indexOf('\t', tagStart + 1);
+			if (tagEnd < 0) {
+				throw new IllegalStateException(String.format(
+						"Illegal output format in line:\n%s", line));
+			}
+			sentTags.add(line.substring(tagStart + 1, tagEnd));
+		}
+	}
+
+	private class ErrorHandler implements LineHandler {
+		@Override
+		public void line(String line) {
+			log.info("hunpos-tagger: {}", line);
+			if (line.equalsIgnoreCase(TAGGER_IS_READY_MESSAGE)) {
+				readyLatch.countDown();
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.hunpos;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.annolab.tt4j.ExecutableResolver;
+import org.annolab.tt4j.PlatformDetector;
+import org.apache.uima.fit.component.initialize.ConfigurationParameterInitializer;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Pool of {@link HunposSession}s with the same model. It can be bound as a
+ * shared resource to several replicas of {@link HunposAnnotator}, then each
+ * replica borrows a tagger process for a document, and at most
+ * {@value #PARAM_POOL_SIZE} processes are started. The resource URL points to
+ * the model file. Sessions are started on demand, a failed session is
+ * discarded and replaced by a new one on the next request.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class HunposSessionPool implements SharedResourceObject {
+
+	public static final String PARAM_POOL_SIZE = "poolSize";
+	public static final String PARAM_LEXICON_FILE = "lexiconFile";
+	public static final String PARAM_EXECUTABLE = "executable";
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	// config fields
+	@ConfigurationParameter(name = PARAM_POOL_SIZE, defaultValue = "1")
+	private int poolSize;
+	@ConfigurationParameter(name = PARAM_LEXICON_FILE, mandatory = false)
+	private File lexiconFile;
+	/**
+	 * path to hunpos-tag. If it is not set, the executable is searched in
+	 * 'hunpos.home' or HUNPOS_HOME.
+	 */
+	@ConfigurationParameter(name = PARAM_EXECUTABLE, mandatory = false)
+	private String executable;
+	private String processIOEncoding = "utf-8";
+	private File modelFile;
+	// state fields, guarded by this
+	private Deque<HunposSession> idleSessions;
+	private int startedCount;
+	private List<HunposSession> allSessions;
+	private boolean destroyed;
+
+	/**
+	 * Constructor for UIMA resource manager.
+	 */
+	public HunposSessionPool() {
+	}
+
+	public HunposSessionPool(File modelFile, File lexiconFile, String executable, int poolSize) {
+		this.modelFile = modelFile;
+		this.lexiconFile = lexiconFile;
+		this.executable = executable;
+		this.poolSize = poolSize;
+		init();
+	}
+
+	@Override
+	public void load(DataResource dr) throws ResourceInitializationException {
+		ConfigurationParameterInitializer.initialize(this, dr);
+		if (dr.getUrl() == null || !"file".equals(dr.getUrl().getProtocol())) {
+			throw new ResourceInitializationException(new IllegalStateException(String.format(
+					"Model URL must be a file URL: %s", dr.getUrl())));
+		}
+		modelFile = new File(dr.getUri());
+		try {
+			init();
+		} catch (IllegalStateException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	private void init() {
+		if (poolSize < 1) {
+			throw new IllegalStateException(String.format("Illegal pool size: %s", poolSize));
+		}
+		if (!modelFile.isFile()) {
+			throw new IllegalStateException(String.format(
+					"%s is not existing file", modelFile));
+		}
+		idleSessions = new ArrayDeque<HunposSession>(poolSize);
+		allSessions = Lists.newArrayListWithCapacity(poolSize);
+	}
+
+	/**
+	 * Tags sentences using an idle session. It waits if all sessions are busy
+	 * and no more can be started.
+	 *
+	 * @see HunposSession#tag(List)
+	 */
+	public List<List<String>> tag(List<? extends List<String>> sentences)
+			throws IOException, HunposException {
+		HunposSession session = borrow();
+		try {
+			return session.tag(sentences);
+		} finally {
+			release(session);
+		}
+	}
+
+	/**
+	 * Stops all processes. Sessions that are in use are stopped too.
+	 */
+	public synchronized void destroy() {
+		destroyed = true;
+		for (HunposSession s : allSessions) {
+			s.close();
+		}
+		allSessions.clear();
+		idleSessions.clear();
+		notifyAll();
+	}
+
+	private HunposSession borrow() throws IOException, HunposException {
+		synchronized (this) {
+			while (true) {
+				if (destroyed) {
+					throw new IllegalStateException("The pool is destroyed");
+				}
+				if (!idleSessions.isEmpty()) {
+					return idleSessions.removeFirst();
+				}
+				if (startedCount < poolSize) {
+					// reserve a slot and start the process outside of the lock
+					startedCount++;
+					break;
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new HunposException("Interrupted while waiting for an idle session", e);
+				}
+			}
+		}
+		HunposSession session = null;
+		try {
+			session = new HunposSession(makeCommand(), processIOEncoding);
+			log.info("Started a hunpos-tagger session, pool size is {}", poolSize);
+			return session;
+		} finally {
+			synchronized (this) {
+				if (session == null) {
+					startedCount--;
+					notifyAll();
+				} else {
+					allSessions.add(session);
+				}
+			}
+		}
+	}
+
+	private synchronized void release(HunposSession session) {
+		if (destroyed) {
+			session.close();
+		} else if (session.isClosed()) {
+			// let the next request start a new one
+			allSessions.remove(session);
+			startedCount--;
+		} else {
+			idleSessions.addLast(session);
+		}
+		notifyAll();
+	}
+
+	private List<String> makeCommand() throws IOException {
+		List<String> cmd = Lists.newArrayList();
+		if (executable != null) {
+			cmd.add(executable);
+		} else {
+			ExecutableResolver exeResolver = DefaultHunposExecutableResolver.taggerResolver();
+			exeResolver.setPlatformDetector(new PlatformDetector());
+			try {
+				cmd.add(exeResolver.getExecutable());
+			} finally {
+				exeResolver.destroy();
+			}
+		}
+		if (lexiconFile != null) {
+			cmd.add("-m");
+			cmd.add(lexiconFile.getPath());
+		}
+		cmd.add(modelFile.getAbsolutePath());
+		return cmd;
+	}
+}
@@ -3,19 +3,10 @@
  */
 package ru.kfu.itis.issst.uima.morph.hunpos;
 
-import static com.google.common.collect.Lists.newArrayList;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.Reader;
-import java.io.UnsupportedEncodingException;
-import java.lang.Thread.State;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -26,14 +17,13 @@ import org.annolab.tt4j.TokenHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ru.kfu.itis.cll.uima.io.StreamGobblerBase;
-
-import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
-import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
 
 /**
+ * Tags sentences of arbitrary token objects by a {@link HunposSession}. The
+ * tagger process is started on the first request and lives until
+ * {@link #destroy()}.
  * 
  * @param <TT>
  *            token type
@@ -54,8 +44,7 @@ public class HunposWrapper<TT> {
 	private File lexiconFile;
 	// state fields
 	private File modelFile;
-	private String processCmd;
-	private Process process;
+	private HunposSession session;
 
 	{
 		// default configuration
@@ -69,7 +58,7 @@ public class HunposWrapper<TT> {
 	}
 
 	public void setModelName(String modelName) {
-		if (process != null) {
+		if (session != null) {
 			throw new IllegalStateException();
 		}
 		if (!Objects.equal(this.modelName, modelName)) {
@@ -83,7 +72,7 @@ public class HunposWrapper<TT> {
 	}
 
 	public void setLexiconFile(File lexiconFile) {
-		if (process != null) {
+		if (session != null) {
 			throw new IllegalStateException();
 		}
 		this.lexiconFile = lexiconFile;
@@ -98,44 +87,41 @@ public class HunposWrapper<TT> {
 	}
 
 	public void process(Collection<TT> tokens) throws IOException, HunposException {
+		processSentences(Collections.singletonList(tokens));
+	}
+
+	/**
+	 * Tags the given sentences in a single batch.
+	 */
+	public void processSentences(List<? extends Collection<TT>> sentences)
+			throws IOException, HunposException {
 		if (tokenAdapter == null) {
 			throw new IllegalStateException("tokenAdapter is not set");
 		}
 		if (tokenHandler == null) {
 			throw new IllegalStateException("tokenHandler is not set");
 		}
-		Process process = getTaggerProcess();
-		//
-		ResponseReader reader = new ResponseReader(tokens.iterator());
-		Thread readerThread = new Thread(reader);
-		readerThread.setName("Hunpos-tagger Output Reader");
-		readerThread.start();
-		// 
-		StreamGobblerBase errorStreamGobbler = StreamGobblerBase.toSystemOut(
-				process.getErrorStream());
-		Thread esgThread = new Thread(errorStreamGobbler);
-		esgThread.setName("Hunpos-tagger Error Stream Gobbler");
-		esgThread.start();
-		//
-		TokenWriter writer = new TokenWriter(tokens.iterator());
-		Thread writerThread = new Thread(writer);
-		writerThread.setName("Hunpos-tagger Input Writer");
-		writerThread.start();
-		//
-		try {
-			synchronized (reader) {
-				while (State.TERMINATED != readerThread.getState()) {
-					checkThreads(writer, reader, errorStreamGobbler);
-
-					try {
-						reader.wait(30);
-					} catch (InterruptedException e) {
-						//
-					}
-				}
+		List<List<String>> sentStrings = Lists.newArrayListWithCapacity(sentences.size());
+		for (Collection<TT> sent : sentences) {
+			List<String> tokenStrings = Lists.newArrayListWithCapacity(sent.size());
+			for (TT token : sent) {
+				tokenStrings.add(tokenAdapter.getText(token));
 			}
+			sentStrings.add(tokenStrings);
+		}
+		List<List<String>> sentTags;
+		try {
+			sentTags = getSession().tag(sentStrings);
 		} finally {
-			errorStreamGobbler.done();
+			if (session != null && session.isClosed()) {
+				session = null;
+			}
+		}
+		for (int i = 0; i < sentences.size(); i++) {
+			Iterator<String> tagIter = sentTags.get(i).iterator();
+			for (TT token : sentences.get(i)) {
+				tokenHandler.token(token, tagIter.next(), null);
+			}
 		}
 	}
 
@@ -154,123 +140,8 @@ public class HunposWrapper<TT> {
 		super.finalize();
 	}
 
-	private void checkThreads(
-			TokenWriter writer, ResponseReader reader, StreamGobblerBase errGobbler)
-			throws HunposException {
-		if (writer.getException() != null) {
-			destroy();
-			throw new HunposException(writer.getException());
-		}
-		if (reader.getException() != null) {
-			destroy();
-			throw new HunposException(reader.getException());
-		}
-		if (errGobbler.getException() != null) {
-			destroy();
-			throw new HunposException(errGobbler.getException());
-		}
-	}
-
-	private class ResponseReader implements Runnable {
-		private Iterator<TT> tokenIter;
-		// state
-		private BufferedReader inReader;
-		private Throwable exception;
-
-		private ResponseReader(Iterator<TT> tokenIter) throws UnsupportedEncodingException {
-			this.tokenIter = tokenIter;
-			inReader = new BufferedReader(new InputStreamReader(
-					process.getInputStream(), processIOEncoding));
-		}
-
-		public Throwable getException() {
-			return exception;
-		}
-
-		@Override
-		public void run() {
-			try {
-				while (true) {
-					String line = inReader.readLine();
-					if (line == null) {
-						throw new IllegalStateException("Unexpected death of hunpos-tagger process");
-					}
-					if (line.isEmpty()) {
-						// means we are done with current sentence
-						break;
-					}
-					List<String> outFields = newArrayList(taggerOutputFieldsSplitter.split(line));
-					if (outFields.size() != 3) {
-						throw new IllegalStateException(String.format(
-								"Illegal output format in line:\n%s", line));
-					}
-					// String respTokenStr = outFields.get(0);
-					String tag = outFields.get(1);
-					if (tokenIter.hasNext()) {
-						TT token = tokenIter.next();
-						tokenHandler.token(token, tag, null);
-					} else {
-						throw new IllegalStateException();
-					}
-				}
-				if (tokenIter.hasNext()) {
-					throw new IllegalStateException();
-				}
-				synchronized (this) {
-					notifyAll();
-				}
-			} catch (IOException e) {
-				exception = e;
-			}
-		}
-	}
-
-	private static Splitter taggerOutputFieldsSplitter = Splitter.on('\t');
-
-	private class TokenWriter implements Runnable {
-		private Iterator<TT> tokenIter;
-		// state
-		private PrintWriter outWriter;
-		private Throwable exception;
-
-		private TokenWriter(Iterator<TT> tokenIter) throws UnsupportedEncodingException {
-			this.tokenIter = tokenIter;
-			OutputStreamWriter osw = new OutputStreamWriter(
-					process.getOutputStream(), processIOEncoding);
-			outWriter = new PrintWriter(new BufferedWriter(osw), true);
-		}
-
-		@Override
-		public void run() {
-			try {
-				while (tokenIter.hasNext()) {
-					TT token = tokenIter.next();
-					String tokenStr = tokenAdapter.getText(token);
-					if (tokenStr.indexOf('\t') >= 0) {
-						throw new IllegalStateException(String.format(
-								"Token '%s' contains illegal characters"));
-					}
-					outWriter.print(tokenStr);
-					// \r\n (CRLF) does not work for Windows build of Hunpos
-					outWriter.print('\n');
-					outWriter.flush();
-				}
-				// print empty line to make sentence end
-				// \r\n (CRLF) does not work for Windows build of Hunpos
-				outWriter.print('\n');
-				outWriter.flush();
-			} catch (Throwable e) {
-				exception = e;
-			}
-		}
-
-		public Throwable getException() {
-			return exception;
-		}
-	}
-
-	private Process getTaggerProcess() throws IOException {
-		if (process == null) {
+	private HunposSession getSession() throws IOException, HunposException {
+		if (session == null) {
 			List<String> cmd = Lists.newArrayList();
 			cmd.add(exeResolver.getExecutable());
 
@@ -282,65 +153,9 @@ public class HunposWrapper<TT> {
 			}
 
 			cmd.add(getModelFile().getAbsolutePath());
-			processCmd = Joiner.on(' ').join(cmd);
-
-			log.trace("Invoking hunpos-tagger:\n{}", processCmd);
-			ProcessBuilder pb = new ProcessBuilder();
-			pb.command(cmd);
-			process = pb.start();
-			InitMessageReader imr = new InitMessageReader();
-			Thread imrThread = new Thread(imr);
-			imrThread.start();
-			try {
-				imrThread.join(TAGGER_READY_MAX_TIMEOUT);
-			} catch (InterruptedException e) {
-				log.error("Got interrupt.", e);
-				stopTaggerProcess();
-			}
-			if (imrThread.isAlive()) {
-				log.error("Can't initialize tagger - max timeout is passed. Going to kill process...");
-				stopTaggerProcess();
-				throw new IllegalStateException();
-			}
-			if (!imr.isReady()) {
-				throw new IllegalStateException("hunpos-tagger was not initialized properly. " +
-						"Check log messages");
-			}
-		}
-		return process;
-	}
-
-	private static final String TAGGER_IS_READY_MESSAGE = "tagger compiled";
-	private static final long TAGGER_READY_MAX_TIMEOUT = 60000;
-
-	private class InitMessageReader implements Runnable {
-		private BufferedReader procOutputReader;
-		private boolean ready;
-
-		private InitMessageReader() throws IOException {
-			Reader r = new InputStreamReader(process.getErrorStream(), processIOEncoding);
-			procOutputReader = new BufferedReader(r);
-		}
-
-		@Override
-		public void run() {
-			String line;
-			try {
-				while ((line = procOutputReader.readLine()) != null) {
-					log.info("hunpos-tagger: {}", line);
-					if (line.equalsIgnoreCase(TAGGER_IS_READY_MESSAGE)) {
-						ready = true;
-						break;
-					}
-				}
-			} catch (IOException e) {
-				throw new IllegalStateException(e);
-			}
-		}
-
-		public boolean isReady() {
-			return ready;
+			session = new HunposSession(cmd, processIOEncoding);
 		}
+		return session;
 	}
 
 	private File getModelFile() {
@@ -359,11 +174,9 @@ public class HunposWrapper<TT> {
 	}
 
 	private void stopTaggerProcess() {
-		if (process != null) {
-			process.destroy();
-			process = null;
-			processCmd = null;
-			log.debug("Stopped tagger process.");
+		if (session != null) {
+			session.close();
+			session = null;
 		}
 	}
 }
@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.hunpos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Runs sessions against a stub script that imitates hunpos-tag.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class HunposSessionTest {
+
+	private static final File STUB_TAGGER = new File("test-data/stub-hunpos-tag.sh");
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private File modelFile;
+
+	@Before
+	public void setUp() throws Exception {
+		STUB_TAGGER.setExecutable(true);
+		modelFile = tempFolder.newFile("stub.model");
+	}
+
+	@Test
+	public void testBatches() throws Exception {
+		HunposSession session = new HunposSession(
+				Arrays.asList(STUB_TAGGER.getAbsolutePath(), modelFile.getPath()), "utf-8");
+		try {
+			List<List<String>> sentences = makeSentences(0, 500);
+			sentences.add(3, ImmutableList.<String> of());
+			assertEquals(expectedTags(sentences), session.tag(sentences));
+			// the same process serves the next batch
+			List<List<String>> next = makeSentences(7, 3);
+			assertEquals(expectedTags(next), session.tag(next));
+		} finally {
+			session.close();
+		}
+	}
+
+	@Test
+	public void testProcessDeath() throws Exception {
+		HunposSession session = new HunposSession(
+				Arrays.asList(STUB_TAGGER.getAbsolutePath(), modelFile.getPath()), "utf-8");
+		try {
+			session.tag(Collections.singletonList(Arrays.asList("a", "DIE", "b")));
+			fail();
+		} catch (HunposException e) {
+			assertTrue(session.isClosed());
+		}
+	}
+
+	@Test
+	public void testSharedPool() throws Exception {
+		final HunposSessionPool pool = new HunposSessionPool(
+				modelFile, null, STUB_TAGGER.getAbsolutePath(), 2);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = Lists.newArrayList();
+			for (int i = 0; i < 40; i++) {
+				final List<List<String>> sentences = makeSentences(i, 20);
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						return expectedTags(sentences).equals(pool.tag(sentences));
+					}
+				}));
+			}
+			for (Future<Boolean> r : results) {
+				assertTrue(r.get());
+			}
+			// a failed session is replaced
+			try {
+				pool.tag(Collections.singletonList(Arrays.asList("DIE")));
+				fail();
+			} catch (HunposException e) {
+				// expected
+			}
+			List<List<String>> sentences = makeSentences(1, 2);
+			assertEquals(expectedTags(sentences), pool.tag(sentences));
+		} finally {
+			executor.shutdown();
+			pool.destroy();
+		}
+	}
+
+	private static List<List<String>> makeSentences(int seed, int count) {
+		List<List<String>> result = Lists.newArrayList();
+		for (int s = 0; s < count; s++) {
+			List<String> sent = Lists.newArrayList();
+			for (int t = 0; t <= (s + seed) % 12; t++) {
+				StringBuilder token = new StringBuilder();
+				for (int c = 0; c <= (s * t + seed) % 7; c++) {
+					token.append((char) ('a' + (s + t + c) % 26));
+				}
+				sent.add(token.toString());
+			}
+			result.add(sent);
+		}
+		return result;
+	}
+
+	private static List<List<String>> expectedTags(List<List<String>> sentences) {
+		List<List<String>> result = Lists.newArrayList();
+		for (List<String> sent : sentences) {
+			List<String> tags = Lists.newArrayList();
+			for (String token : sent) {
+				tags.add("T" + token.length());
+			}
+			result.add(tags);
+		}
+		return result;
+	}
+}
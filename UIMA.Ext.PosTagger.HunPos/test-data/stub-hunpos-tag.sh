@@ -0,0 +1,13 @@
+#!/bin/sh
+# Imitates hunpos-tag: the tag of a token is 'T' followed by the token length.
+# The token 'DIE' makes it exit.
+echo "tagger compiled" >&2
+while IFS= read -r line; do
+	if [ -z "$line" ]; then
+		echo
+	elif [ "$line" = "DIE" ]; then
+		exit 1
+	else
+		printf '%s\tT%s\t\n' "$line" "${#line}"
+	fi
+done
@@ -74,17 +74,25 @@ public class DictionaryBasedContextGenerator {
 	}
 
 	public List<String> extract(Token focusToken, String prevTag) {
+		return extract(analyze(focusToken), prevTag);
+	}
+
+	/**
+	 * @return dictionary features of the given token that do not depend on a
+	 *         previous tag
+	 */
+	TokenDictContext analyze(Token focusToken) {
 		if (!(focusToken instanceof W)) {
-			return ImmutableList.of();
+			return TokenDictContext.EMPTY;
 		}
 		String form = focusToken.getCoveredText();
 		if (!WordUtils.isRussianWord(form)) {
-			return ImmutableList.of("DL=NotRussian");
+			return new TokenDictContext(form, ImmutableList.of("DL=NotRussian"), null);
 		}
-		form = WordUtils.normalizeToDictionaryForm(form);
-		List<Wordform> dictWfs = morphDict.getEntries(form);
+		String dictForm = WordUtils.normalizeToDictionaryForm(form);
+		List<Wordform> dictWfs = morphDict.getEntries(dictForm);
 		if (dictWfs == null || dictWfs.isEmpty()) {
-			return ImmutableList.of("DL=Unknown");
+			return new TokenDictContext(form, ImmutableList.of("DL=Unknown"), null);
 		}
 		List<BitSet> dictWfBitSets = Lists.transform(dictWfs,
 				Wordform.allGramBitsFunction(morphDict));
@@ -105,22 +113,54 @@ public class DictionaryBasedContextGenerator {
 			}
 			resultList.add("DL=" + featValue);
 		}
-		if (prevTag != null && !PunctuationUtils.isPunctuationTag(prevTag)) {
-			// add the name of a predicate if it yields true for any pair <prevTag, dictTag>, dictTag in tokenPossibleTags
-			BitSet prevTagBits = toGramBits(gramModel,
-					tagMapper.parseTag(prevTag, focusToken.getCoveredText()));
-			for (Map.Entry<String, TwoTagPredicate> predEntry : namedPredicates.entrySet()) {
-				for (BitSet dictTag : tokenPossibleTags) {
-					if (predEntry.getValue().apply(prevTagBits, dictTag)) {
-						resultList.add(predEntry.getKey());
-						break;
-					}
+		return new TokenDictContext(form, ImmutableList.copyOf(resultList),
+				tokenPossibleTags);
+	}
+
+	/**
+	 * @return features of {@code tokenCtx} followed by the names of agreement
+	 *         predicates that hold between the previous tag and the token
+	 */
+	List<String> extract(TokenDictContext tokenCtx, String prevTag) {
+		if (tokenCtx.possibleTags == null || prevTag == null
+				|| PunctuationUtils.isPunctuationTag(prevTag)) {
+			return tokenCtx.features;
+		}
+		List<String> resultList = Lists.newArrayList(tokenCtx.features);
+		// add the name of a predicate if it yields true for any pair <prevTag, dictTag>, dictTag in tokenPossibleTags
+		BitSet prevTagBits = toGramBits(gramModel,
+				tagMapper.parseTag(prevTag, tokenCtx.form));
+		for (Map.Entry<String, TwoTagPredicate> predEntry : namedPredicates.entrySet()) {
+			for (BitSet dictTag : tokenCtx.possibleTags) {
+				if (predEntry.getValue().apply(prevTagBits, dictTag)) {
+					resultList.add(predEntry.getKey());
+					break;
 				}
 			}
 		}
 		return resultList;
 	}
 
+	/**
+	 * Dictionary features of a token that do not depend on a previous tag.
+	 * Instances are immutable and can be reused while a token is being tagged.
+	 */
+	static class TokenDictContext {
+		private static final TokenDictContext EMPTY = new TokenDictContext(null,
+				ImmutableList.<String> of(), null);
+
+		private final String form;
+		private final List<String> features;
+		// null if the token is not in the dictionary
+		private final Set<BitSet> possibleTags;
+
+		private TokenDictContext(String form, List<String> features, Set<BitSet> possibleTags) {
+			this.form = form;
+			this.features = features;
+			this.possibleTags = possibleTags;
+		}
+	}
+
 	private static final Joiner gramJoiner = Joiner.on('_');
 
 }
@@ -4,10 +4,11 @@
 package ru.kfu.itis.issst.uima.postagger.opennlp;
 
 import static ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryUtils.toGramBits;
-import static ru.kfu.itis.issst.uima.morph.model.Wordform.allGramBitsFunction;
 
+import java.lang.ref.WeakReference;
 import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
 
 import opennlp.tools.util.SequenceValidator;
 
@@ -16,9 +17,9 @@ import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.fit.component.initialize.ExternalResourceInitializer;
 import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.factory.initializable.Initializable;
+import org.apache.uima.fit.factory.initializable.InitializableFactory;
 
 import ru.kfu.cll.uima.tokenizer.fstype.Token;
-import ru.kfu.itis.cll.uima.util.BitUtils;
 import ru.kfu.itis.issst.uima.morph.commons.AgreementPredicates;
 import ru.kfu.itis.issst.uima.morph.commons.GramModelBasedTagMapper;
 import ru.kfu.itis.issst.uima.morph.commons.PunctuationUtils;
@@ -29,13 +30,22 @@ import ru.kfu.itis.issst.uima.morph.dictionary.WordUtils;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryHolder;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.MorphConstants;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
+ * Validates an outcome by the dictionary entries of a token. The entries of
+ * each token of a sentence are looked up once and kept as {@link GramSet}s
+ * until the next input sequence, outcome tags are parsed once and memoized, so
+ * a validation during beam search is a containment check of grammeme sets.
+ * <p>
+ * An instance is not thread-safe, it is used by a single {@code BeamSearch}.
+ * </p>
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
@@ -50,36 +60,41 @@ public class DictionaryGrammemeLevelTokenSequenceValidator
 	private MorphDictionary morphDictionary;
 	private GramModel gramModel;
 	// 
-	private List<BitSet> skipMasks;
+	private List<GramSet> skipMasks;
 	private TwoTagPredicate agreementPredicate;
 	private int adjfId;
 	private int nounId;
+	// state
+	// outcome string => parsed tag, the set of outcomes is bounded by a model
+	private final Map<String, CandidateTag> candidateTags = Maps.newHashMap();
+	private SentenceEntries sentenceEntries = new SentenceEntries(null);
+
+	/**
+	 * Constructor for {@link InitializableFactory}.
+	 */
+	public DictionaryGrammemeLevelTokenSequenceValidator() {
+	}
+
+	public DictionaryGrammemeLevelTokenSequenceValidator(MorphDictionary morphDictionary) {
+		init(morphDictionary);
+	}
 
 	@Override
 	public void initialize(UimaContext ctx) throws ResourceInitializationException {
 		ExternalResourceInitializer.initialize(this, ctx);
-		morphDictionary = morphDictionaryHolder.getDictionary();
+		init(morphDictionaryHolder.getDictionary());
+	}
+
+	private void init(MorphDictionary morphDictionary) {
+		this.morphDictionary = morphDictionary;
 		gramModel = morphDictionary.getGramModel();
 		// TODO this is application-specific tunings. Refactor them out
-		skipMasks = Lists.newLinkedList();
-		{
-			BitSet mask = new BitSet();
-			mask.set(gramModel.getGrammemNumId(MorphConstants.Abbr));
-			skipMasks.add(mask);
-		}
-		{
-			BitSet mask = new BitSet();
-			// mask.set(gramModel.getGrammemNumId(RNCMorphConstants.RNC_INIT));
-			// FIXME eliminate this hard-coding, derive skipMask, etc. from the configuration
-			mask.set(gramModel.getGrammemNumId("RNC_INIT"));
-			skipMasks.add(mask);
-		}
-		{
-			BitSet mask = new BitSet();
-			mask.set(gramModel.getGrammemNumId(MorphConstants.Prnt));
-			skipMasks.add(mask);
-		}
-		skipMasks = ImmutableList.copyOf(skipMasks);
+		skipMasks = ImmutableList.of(
+				GramSet.of(gramModel.getGrammemNumId(MorphConstants.Abbr)),
+				// GramSet.of(gramModel.getGrammemNumId(RNCMorphConstants.RNC_INIT)),
+				// FIXME eliminate this hard-coding, derive skipMask, etc. from the configuration
+				GramSet.of(gramModel.getGrammemNumId("RNC_INIT")),
+				GramSet.of(gramModel.getGrammemNumId(MorphConstants.Prnt)));
 		//
 		agreementPredicate = TwoTagPredicateConjunction.and(
 				AgreementPredicates.numberAgreement(gramModel),
@@ -102,39 +117,132 @@ public class DictionaryGrammemeLevelTokenSequenceValidator
 		if (PunctuationUtils.isPunctuationTag(outcome)) {
 			return true;
 		}
-		outcome = TagUtils.postProcessExternalTag(outcome);
-		// dictionary look-up 
-		String tokenStr = curToken.getCoveredText();
-		tokenStr = WordUtils.normalizeToDictionaryForm(tokenStr);
-		List<Wordform> dictEntries = morphDictionary.getEntries(tokenStr);
-		if (dictEntries == null || dictEntries.isEmpty()) {
-			return !TagUtils.isClosedClassTag(outcome);
+		CandidateTag candidate = getCandidateTag(outcome);
+		// dictionary look-up
+		TokenEntries dictEntries = getTokenEntries(i, inputSequence);
+		if (dictEntries.gramSets.length == 0) {
+			return !candidate.isClosedClass();
 		}
 		// dictEntries is not empty so null-tag is not valid in most cases
-		if (outcome == null) {
+		if (candidate.tag == null) {
 			return false;
 		}
-		// parse tag
-		// TODO do not rely on the specific implementation of TagMapper
-		Iterable<String> candidateGrams = GramModelBasedTagMapper.parseTag(outcome);
-		BitSet candidateBS = toGramBits(gramModel, candidateGrams);
-		for (BitSet sm : skipMasks) {
-			if (BitUtils.contains(candidateBS, sm)) {
-				return true;
-			}
+		GramSet candidateGS = candidate.getGramSet();
+		if (candidate.skipped) {
+			return true;
 		}
 		// check containment
-		List<BitSet> dictBSes = Lists.transform(dictEntries, allGramBitsFunction(morphDictionary));
-		for (BitSet de : dictBSes) {
-			if (BitUtils.contains(de, candidateBS)) {
+		for (int e = 0; e < dictEntries.gramSets.length; e++) {
+			GramSet de = dictEntries.gramSets[e];
+			if (de.contains(candidateGS)) {
 				return true;
 			}
 			// check nominalization
-			if (candidateBS.get(nounId) && de.get(adjfId)
-					&& agreementPredicate.apply(candidateBS, de)) {
+			if (candidate.noun && de.get(adjfId)
+					&& agreementPredicate.apply(candidate.bits, dictEntries.bitSets[e])) {
 				return true;
 			}
 		}
 		return false;
 	}
+
+	private CandidateTag getCandidateTag(String outcome) {
+		CandidateTag result = candidateTags.get(outcome);
+		if (result == null) {
+			result = new CandidateTag(TagUtils.postProcessExternalTag(outcome));
+			candidateTags.put(outcome, result);
+		}
+		return result;
+	}
+
+	private TokenEntries getTokenEntries(int i, Token[] inputSequence) {
+		if (sentenceEntries.sequenceRef.get() != inputSequence) {
+			sentenceEntries = new SentenceEntries(inputSequence);
+		}
+		TokenEntries result = sentenceEntries.tokenEntries[i];
+		if (result == null) {
+			String tokenStr = inputSequence[i].getCoveredText();
+			tokenStr = WordUtils.normalizeToDictionaryForm(tokenStr);
+			result = new TokenEntries(morphDictionary.getEntries(tokenStr));
+			sentenceEntries.tokenEntries[i] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * An outcome of the model. Its grammemes are parsed once on demand.
+	 */
+	private class CandidateTag {
+		private final String tag;
+		private Boolean closedClass;
+		private GramSet gramSet;
+		private BitSet bits;
+		private boolean skipped;
+		private boolean noun;
+
+		private CandidateTag(String tag) {
+			this.tag = tag;
+		}
+
+		private boolean isClosedClass() {
+			if (closedClass == null) {
+				closedClass = TagUtils.isClosedClassTag(tag);
+			}
+			return closedClass;
+		}
+
+		private GramSet getGramSet() {
+			if (gramSet == null) {
+				// TODO do not rely on the specific implementation of TagMapper
+				Iterable<String> candidateGrams = GramModelBasedTagMapper.parseTag(tag);
+				bits = toGramBits(gramModel, candidateGrams);
+				GramSet parsed = GramSet.of(bits);
+				noun = parsed.get(nounId);
+				for (GramSet sm : skipMasks) {
+					if (parsed.contains(sm)) {
+						skipped = true;
+						break;
+					}
+				}
+				gramSet = parsed;
+			}
+			return gramSet;
+		}
+	}
+
+	/**
+	 * Grammemes of the dictionary entries of a token.
+	 */
+	private class TokenEntries {
+		private final GramSet[] gramSets;
+		// the same for predicates over BitSets
+		private final BitSet[] bitSets;
+
+		private TokenEntries(List<Wordform> dictEntries) {
+			if (dictEntries == null) {
+				dictEntries = ImmutableList.of();
+			}
+			gramSets = new GramSet[dictEntries.size()];
+			bitSets = new BitSet[dictEntries.size()];
+			for (int e = 0; e < bitSets.length; e++) {
+				bitSets[e] = Wordform.getAllGramBits(dictEntries.get(e), morphDictionary);
+				gramSets[e] = GramSet.of(bitSets[e]);
+			}
+		}
+	}
+
+	/**
+	 * Entries of the tokens of the sentence that is being tagged. They are
+	 * filled when a position is validated first time.
+	 */
+	private static class SentenceEntries {
+		// a weak reference to avoid holding a CAS after the sentence is processed
+		private final WeakReference<Token[]> sequenceRef;
+		private final TokenEntries[] tokenEntries;
+
+		private SentenceEntries(Token[] sequence) {
+			this.sequenceRef = new WeakReference<Token[]>(sequence);
+			this.tokenEntries = new TokenEntries[sequence == null ? 0 : sequence.length];
+		}
+	}
 }
@@ -3,8 +3,11 @@
  */
 package ru.kfu.itis.issst.uima.postagger.opennlp;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import opennlp.tools.util.BeamSearchContextGenerator;
 
@@ -25,6 +28,11 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
+ * Beam search invokes {@link #getContext} for each hypothesis at a token
+ * position. Features that do not depend on previous tags are extracted and
+ * encoded once per token of a sentence and cached until the next sentence,
+ * only previous-tag features are computed per invocation.
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
@@ -37,6 +45,16 @@ public class FeatureExtractorsBasedContextGenerator implements BeamSearchContext
 	private MorphDictionary morphDict;
 	//
 	private DictionaryBasedContextGenerator dictContextGen;
+	// an instance can be shared by several tagger threads
+	private final ThreadLocal<SentenceCache> sentenceCache = new ThreadLocal<SentenceCache>() {
+		@Override
+		protected SentenceCache initialValue() {
+			return new SentenceCache(null, null);
+		}
+	};
+	private volatile boolean cacheEnabled = true;
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
 
 	public FeatureExtractorsBasedContextGenerator(int prevTagsInHistory,
 			List<FeatureExtractor1> featureExtractors,
@@ -63,6 +81,31 @@ public class FeatureExtractorsBasedContextGenerator implements BeamSearchContext
 		return morphDict;
 	}
 
+	/**
+	 * @return the number of {@link #getContext} invocations that have reused
+	 *         the tag-independent features of a token
+	 */
+	public long getCacheHitCount() {
+		return cacheHits.get();
+	}
+
+	/**
+	 * @return the number of {@link #getContext} invocations that have
+	 *         extracted the tag-independent features of a token
+	 */
+	public long getCacheMissCount() {
+		return cacheMisses.get();
+	}
+
+	/**
+	 * @param cacheEnabled
+	 *            if false, the features of a token are extracted on each
+	 *            {@link #getContext} invocation. It is true by default.
+	 */
+	void setCacheEnabled(boolean cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+	}
+
 	@Override
 	public String[] getContext(int index, Token[] sequence, String[] priorDecisions,
 			Object[] additionalContext) {
@@ -73,8 +116,39 @@ public class FeatureExtractorsBasedContextGenerator implements BeamSearchContext
 			throw sentenceExpected();
 		}
 		Annotation sent = (Annotation) additionalContext[0];
-		// TODO cache features that does not dependent on prev tags 
-		Token curToken = sequence[index];
+		TokenContext tokenCtx = getTokenContext(index, sequence, sent);
+		Set<String> contexts = Sets.newLinkedHashSetWithExpectedSize(
+				tokenCtx.features.length + prevTagsInHistory);
+		Collections.addAll(contexts, tokenCtx.features);
+		ContextGeneratorUtils.addPreviousTags(index, priorDecisions, prevTagsInHistory, contexts);
+		if (tokenCtx.dictContext != null) {
+			String prevTag = ContextGeneratorUtils.getPreviousTag(index, priorDecisions);
+			contexts.addAll(dictContextGen.extract(tokenCtx.dictContext, prevTag));
+		}
+		return contexts.toArray(new String[contexts.size()]);
+	}
+
+	private TokenContext getTokenContext(int index, Token[] sequence, Annotation sent) {
+		if (!cacheEnabled) {
+			return extractTokenContext(sequence[index], sent);
+		}
+		SentenceCache cache = sentenceCache.get();
+		if (cache.sequenceRef.get() != sequence || cache.sentenceRef.get() != sent) {
+			cache = new SentenceCache(sequence, sent);
+			sentenceCache.set(cache);
+		}
+		TokenContext result = cache.tokenContexts[index];
+		if (result != null) {
+			cacheHits.incrementAndGet();
+			return result;
+		}
+		cacheMisses.incrementAndGet();
+		result = extractTokenContext(sequence[index], sent);
+		cache.tokenContexts[index] = result;
+		return result;
+	}
+
+	private TokenContext extractTokenContext(Token curToken, Annotation sent) {
 		List<Feature> features = Lists.newLinkedList();
 		try {
 			JCas jCas = curToken.getCAS().getJCas();
@@ -89,26 +163,48 @@ public class FeatureExtractorsBasedContextGenerator implements BeamSearchContext
 			throw new RuntimeException(e);
 		}
 		// encode
-		Set<String> contexts = Sets.newLinkedHashSetWithExpectedSize(
-				features.size() + prevTagsInHistory);
+		Set<String> encoded = Sets.newLinkedHashSetWithExpectedSize(features.size());
 		// TODO move to utils
 		for (Feature f : features) {
 			try {
-				contexts.addAll(featureEncoders.encode(f));
+				encoded.addAll(featureEncoders.encode(f));
 			} catch (CleartkEncoderException e) {
 				throw new RuntimeException(e);
 			}
 		}
-		ContextGeneratorUtils.addPreviousTags(index, priorDecisions, prevTagsInHistory, contexts);
+		DictionaryBasedContextGenerator.TokenDictContext dictContext = null;
 		if (dictContextGen != null) {
-			String prevTag = ContextGeneratorUtils.getPreviousTag(index, priorDecisions);
-			contexts.addAll(dictContextGen.extract(curToken, prevTag));
+			dictContext = dictContextGen.analyze(curToken);
 		}
-		return contexts.toArray(new String[contexts.size()]);
+		return new TokenContext(encoded.toArray(new String[encoded.size()]), dictContext);
 	}
 
 	private RuntimeException sentenceExpected() {
 		return new IllegalArgumentException(
 				"Sentence annotation is expected to be provided in 'additionalContext' arg");
 	}
+
+	private static class TokenContext {
+		private final String[] features;
+		private final DictionaryBasedContextGenerator.TokenDictContext dictContext;
+
+		private TokenContext(String[] features,
+				DictionaryBasedContextGenerator.TokenDictContext dictContext) {
+			this.features = features;
+			this.dictContext = dictContext;
+		}
+	}
+
+	private static class SentenceCache {
+		// weak references to avoid holding a CAS after the sentence is processed
+		private final WeakReference<Token[]> sequenceRef;
+		private final WeakReference<Annotation> sentenceRef;
+		private final TokenContext[] tokenContexts;
+
+		private SentenceCache(Token[] sequence, Annotation sentence) {
+			this.sequenceRef = new WeakReference<Token[]>(sequence);
+			this.sentenceRef = new WeakReference<Annotation>(sentence);
+			this.tokenContexts = new TokenContext[sequence == null ? 0 : sequence.length];
+		}
+	}
 }
@@ -85,6 +85,7 @@ public class OpenNLPPosTagger extends JCasAnnotator_ImplBase {
 	// state
 	private POSModel modelAggregate;
 	private SequenceValidator<Token> sequenceValidator;
+	private BeamSearchContextGenerator<Token> contextGen;
 	private BeamSearch<Token> beam;
 
 	@SuppressWarnings("unchecked")
@@ -101,7 +102,7 @@ public class OpenNLPPosTagger extends JCasAnnotator_ImplBase {
 		//		
 		POSTaggerFactory factory = modelAggregate.getFactory();
 		AbstractModel posModel = modelAggregate.getPosModel();
-		BeamSearchContextGenerator<Token> contextGen = factory.getContextGenerator();
+		contextGen = factory.getContextGenerator();
 		beam = new BeamSearch<Token>(beamSize, contextGen, posModel, sequenceValidator, 0);
 	}
 
@@ -112,6 +113,21 @@ public class OpenNLPPosTagger extends JCasAnnotator_ImplBase {
 		}
 	}
 
+	@Override
+	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		super.collectionProcessComplete();
+		if (contextGen instanceof FeatureExtractorsBasedContextGenerator) {
+			// the generator is shared by the annotator instances of the same model
+			FeatureExtractorsBasedContextGenerator feGen =
+					(FeatureExtractorsBasedContextGenerator) contextGen;
+			long hits = feGen.getCacheHitCount();
+			long total = hits + feGen.getCacheMissCount();
+			getLogger().info(String.format(
+					"Context feature cache: %s hits of %s requests (%.1f%%), beam size %s",
+					hits, total, total == 0 ? 0.0 : 100.0 * hits / total, beamSize));
+		}
+	}
+
 	private void process(JCas jCas, Sentence sent) throws AnalysisEngineProcessException {
 		Collection<Token> tokens = JCasUtil.selectCovered(jCas, Token.class, sent);
 		Token[] tokenArr = tokens.toArray(new Token[tokens.size()]);
@@ -0,0 +1,233 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.postagger.opennlp;
+
+import static org.junit.Assert.assertEquals;
+import static ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryUtils.toGramBits;
+import static ru.kfu.itis.issst.uima.morph.model.Wordform.allGramBitsFunction;
+
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ru.kfu.cll.uima.tokenizer.fstype.PM;
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.cll.uima.tokenizer.fstype.W;
+import ru.kfu.itis.cll.uima.util.BitUtils;
+import ru.kfu.itis.issst.uima.morph.commons.AgreementPredicates;
+import ru.kfu.itis.issst.uima.morph.commons.GramModelBasedTagMapper;
+import ru.kfu.itis.issst.uima.morph.commons.PunctuationUtils;
+import ru.kfu.itis.issst.uima.morph.commons.TagUtils;
+import ru.kfu.itis.issst.uima.morph.commons.TwoTagPredicate;
+import ru.kfu.itis.issst.uima.morph.commons.TwoTagPredicateConjunction;
+import ru.kfu.itis.issst.uima.morph.dictionary.WordUtils;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
+import ru.kfu.itis.issst.uima.morph.model.MorphConstants;
+import ru.kfu.itis.issst.uima.morph.model.Wordform;
+import ru.kfu.itis.issst.uima.tokenizer.TokenizerAPI;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.DummyWordformPredictor;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.XmlDictionaryParser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Checks that the validator accepts and rejects the same outcomes as the
+ * implementation that looked up the dictionary and parsed the outcome on each
+ * call. The latter is kept here as {@link #validSequenceBefore}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class DictionaryGrammemeLevelTokenSequenceValidatorTest {
+
+	private static final String TEXT = "Мама мыла красную раму, а мяу.";
+	private static final String COMMA_TAG = PunctuationUtils.getPunctuationTag(",");
+	private static final String PERIOD_TAG = PunctuationUtils.getPunctuationTag(".");
+
+	// token index, outcome, is valid
+	private static final Object[][] TABLE = {
+			// мама
+			{ 0, "NOUN&anim&femn&sing&nomn", true },
+			{ 0, "NOUN&sing", true },
+			{ 0, "NOUN&femn&sing&accs", false },
+			{ 0, "VERB", false },
+			{ 0, "null", false },
+			{ 0, COMMA_TAG, false },
+			// skip masks
+			{ 0, "NOUN&Abbr", true },
+			{ 0, "NOUN&RNC_INIT", true },
+			{ 0, "Prnt", true },
+			// мыла is a noun or a verb
+			{ 1, "VERB&femn&sing&past&indc", true },
+			{ 1, "NOUN&neut&plur&accs", true },
+			{ 1, "NOUN&neut&sing&gent", true },
+			{ 1, "NOUN&femn&sing&gent", false },
+			{ 1, "ADJF", false },
+			// красную, nominalization
+			{ 2, "ADJF&femn&sing&accs", true },
+			{ 2, "NOUN&femn&sing&accs", true },
+			{ 2, "NOUN&masc&sing&accs", false },
+			{ 2, "NOUN&femn&plur&nomn", false },
+			{ 2, "ADJF&femn&sing&nomn", false },
+			// раму
+			{ 3, "NOUN&inan&femn&sing&accs", true },
+			{ 3, "NOUN&femn&sing&nomn", false },
+			// comma
+			{ 4, COMMA_TAG, true },
+			{ 4, "NOUN", false },
+			// а
+			{ 5, "CONJ", true },
+			{ 5, "NOUN", false },
+			// мяу is not in the dictionary
+			{ 6, "NOUN&sing", true },
+			{ 6, "null", true },
+			{ 6, "CONJ", false },
+			{ 6, "PREP", false },
+			// period
+			{ 7, PERIOD_TAG, true },
+			{ 7, "null", false },
+	};
+
+	private static MorphDictionaryImpl dict;
+
+	@BeforeClass
+	public static void loadDictionary() throws Exception {
+		InputStream in = DictionaryGrammemeLevelTokenSequenceValidatorTest.class
+				.getClassLoader().getResourceAsStream("validator-test-dict.xml");
+		try {
+			dict = XmlDictionaryParser.parse(in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+		dict.setWfPredictor(new DummyWordformPredictor(dict));
+	}
+
+	private JCas jCas;
+
+	@Before
+	public void setUp() throws Exception {
+		TypeSystemDescription tsd = TypeSystemDescriptionFactory.createTypeSystemDescription(
+				TokenizerAPI.TYPESYSTEM_TOKENIZER);
+		CAS cas = CasCreationUtils.createCas(tsd, null, null);
+		cas.setDocumentText(TEXT);
+		jCas = cas.getJCas();
+	}
+
+	private Token[] makeTokens() {
+		return new Token[] {
+				new W(jCas, 0, 4), new W(jCas, 5, 9), new W(jCas, 10, 17), new W(jCas, 18, 22),
+				new PM(jCas, 22, 23), new W(jCas, 24, 25), new W(jCas, 26, 29),
+				new PM(jCas, 29, 30) };
+	}
+
+	@Test
+	public void testTable() {
+		DictionaryGrammemeLevelTokenSequenceValidator validator =
+				new DictionaryGrammemeLevelTokenSequenceValidator(dict);
+		Token[] tokens = makeTokens();
+		for (Object[] row : TABLE) {
+			int i = (Integer) row[0];
+			String outcome = (String) row[1];
+			boolean expected = (Boolean) row[2];
+			String msg = String.format("%s as %s", tokens[i].getCoveredText(), outcome);
+			assertEquals(msg, expected, validSequenceBefore(i, tokens, outcome));
+			assertEquals(msg, expected,
+					validator.validSequence(i, tokens, new String[i], outcome));
+		}
+	}
+
+	@Test
+	public void testAllOutcomesOfSeveralSequences() {
+		DictionaryGrammemeLevelTokenSequenceValidator validator =
+				new DictionaryGrammemeLevelTokenSequenceValidator(dict);
+		Set<String> outcomes = Sets.newLinkedHashSet();
+		for (Object[] row : TABLE) {
+			outcomes.add((String) row[1]);
+		}
+		// a new sequence must not get the entries of the previous one
+		List<Token[]> sequences = ImmutableList.of(makeTokens(), makeTokens(), reverse(makeTokens()));
+		for (Token[] tokens : sequences) {
+			for (int i = 0; i < tokens.length; i++) {
+				for (String outcome : outcomes) {
+					assertEquals(String.format("%s as %s", tokens[i].getCoveredText(), outcome),
+							validSequenceBefore(i, tokens, outcome),
+							validator.validSequence(i, tokens, new String[i], outcome));
+				}
+			}
+		}
+	}
+
+	private static Token[] reverse(Token[] tokens) {
+		List<Token> list = Lists.reverse(Lists.newArrayList(tokens));
+		return list.toArray(new Token[list.size()]);
+	}
+
+	/**
+	 * The validation before the dictionary entries and outcomes were cached.
+	 */
+	private static boolean validSequenceBefore(int i, Token[] inputSequence, String outcome) {
+		GramModel gramModel = dict.getGramModel();
+		List<BitSet> skipMasks = Lists.newArrayList();
+		for (String gram : new String[] { MorphConstants.Abbr, "RNC_INIT", MorphConstants.Prnt }) {
+			BitSet mask = new BitSet();
+			mask.set(gramModel.getGrammemNumId(gram));
+			skipMasks.add(mask);
+		}
+		TwoTagPredicate agreementPredicate = TwoTagPredicateConjunction.and(
+				AgreementPredicates.numberAgreement(gramModel),
+				AgreementPredicates.genderAgreement(gramModel),
+				AgreementPredicates.caseAgreement(gramModel));
+		int adjfId = gramModel.getGrammemNumId(MorphConstants.ADJF);
+		int nounId = gramModel.getGrammemNumId(MorphConstants.NOUN);
+		//
+		Token curToken = inputSequence[i];
+		if (!PunctuationTokenSequenceValidator.checkForPunctuationTag(curToken, outcome)) {
+			return false;
+		}
+		if (PunctuationUtils.isPunctuationTag(outcome)) {
+			return true;
+		}
+		outcome = TagUtils.postProcessExternalTag(outcome);
+		String tokenStr = WordUtils.normalizeToDictionaryForm(curToken.getCoveredText());
+		List<Wordform> dictEntries = dict.getEntries(tokenStr);
+		if (dictEntries == null || dictEntries.isEmpty()) {
+			return !TagUtils.isClosedClassTag(outcome);
+		}
+		if (outcome == null) {
+			return false;
+		}
+		Iterable<String> candidateGrams = GramModelBasedTagMapper.parseTag(outcome);
+		BitSet candidateBS = toGramBits(gramModel, candidateGrams);
+		for (BitSet sm : skipMasks) {
+			if (BitUtils.contains(candidateBS, sm)) {
+				return true;
+			}
+		}
+		List<BitSet> dictBSes = Lists.transform(dictEntries, allGramBitsFunction(dict));
+		for (BitSet de : dictBSes) {
+			if (BitUtils.contains(de, candidateBS)) {
+				return true;
+			}
+			if (candidateBS.get(nounId) && de.get(adjfId)
+					&& agreementPredicate.apply(candidateBS, de)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.postagger.opennlp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import ru.kfu.cll.uima.segmentation.fstype.Sentence;
+import ru.kfu.cll.uima.tokenizer.fstype.PM;
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.cll.uima.tokenizer.fstype.W;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.segmentation.SentenceSplitterAPI;
+import ru.kfu.itis.issst.uima.tokenizer.TokenizerAPI;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.XmlDictionaryParser;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class FeatureExtractorsBasedContextGeneratorTest {
+
+	private final String testTxt = "Мама мыла раму.";
+
+	private Token[] tokens;
+	private Sentence sent;
+
+	@Before
+	public void setUp() throws Exception {
+		TypeSystemDescription tsd = TypeSystemDescriptionFactory.createTypeSystemDescription(
+				TokenizerAPI.TYPESYSTEM_TOKENIZER,
+				SentenceSplitterAPI.TYPESYSTEM_SENTENCES);
+		CAS cas = CasCreationUtils.createCas(tsd, null, null);
+		cas.setDocumentText(testTxt);
+		JCas jCas = cas.getJCas();
+		tokens = new Token[] {
+				new W(jCas, 0, 4), new W(jCas, 5, 9), new W(jCas, 10, 14), new PM(jCas, 14, 15) };
+		for (Token t : tokens) {
+			t.addToIndexes();
+		}
+		sent = new Sentence(jCas, 0, testTxt.length());
+		sent.addToIndexes();
+	}
+
+	@Test
+	public void testCachedContextIsEqualToExtracted() {
+		FeatureExtractorsBasedContextGenerator gen = makeGenerator();
+		String[] nounCtx = gen.getContext(2, tokens, new String[] { "NOUN", "VERB" },
+				new Object[] { sent });
+		String[] adjCtx = gen.getContext(2, tokens, new String[] { "NOUN", "ADJF" },
+				new Object[] { sent });
+		assertEquals(1, gen.getCacheMissCount());
+		assertEquals(1, gen.getCacheHitCount());
+		// only the previous tag features differ
+		List<String> nounList = Arrays.asList(nounCtx);
+		List<String> adjList = Arrays.asList(adjCtx);
+		assertTrue(nounList.containsAll(ImmutableList.of("pt1=VERB", "pt2=NOUN")));
+		assertTrue(adjList.containsAll(ImmutableList.of("pt1=ADJF", "pt2=NOUN")));
+		assertEquals(nounList.subList(0, nounList.size() - 2),
+				adjList.subList(0, adjList.size() - 2));
+		// a generator with the disabled cache gives the same result
+		FeatureExtractorsBasedContextGenerator uncachedGen = makeGenerator();
+		uncachedGen.setCacheEnabled(false);
+		assertArrayEquals(adjCtx, uncachedGen.getContext(2, tokens,
+				new String[] { "NOUN", "ADJF" }, new Object[] { sent }));
+		assertEquals(0, uncachedGen.getCacheMissCount());
+		assertEquals(0, uncachedGen.getCacheHitCount());
+	}
+
+	@Test
+	public void testCachedContextIsEqualToUncached() throws Exception {
+		MorphDictionary dict = loadTestDictionary();
+		FeatureExtractorsBasedContextGenerator gen = makeGenerator(dict);
+		FeatureExtractorsBasedContextGenerator uncachedGen = makeGenerator(dict);
+		uncachedGen.setCacheEnabled(false);
+		// hypotheses of beam search, each position is asked for each of them
+		List<String[]> hypotheses = ImmutableList.of(
+				new String[] { "NOUN&anim&femn&sing&nomn", "VERB&femn&sing&past&indc",
+						"NOUN&inan&femn&sing&accs" },
+				new String[] { "NOUN&anim&femn&sing&accs", "NOUN&neut&plur&nomn",
+						"ADJF&femn&sing&accs" },
+				new String[] { "null", "null", "null" });
+		for (int i = 0; i < tokens.length; i++) {
+			for (String[] hypothesis : hypotheses) {
+				String[] priorDecisions = Arrays.copyOf(hypothesis, i);
+				assertArrayEquals(
+						String.format("Token %s after %s", i, Arrays.toString(priorDecisions)),
+						uncachedGen.getContext(i, tokens, priorDecisions, new Object[] { sent }),
+						gen.getContext(i, tokens, priorDecisions, new Object[] { sent }));
+			}
+		}
+		assertEquals(tokens.length, gen.getCacheMissCount());
+		assertEquals(tokens.length * (hypotheses.size() - 1), gen.getCacheHitCount());
+	}
+
+	@Test
+	public void testCacheIsResetForNextSequence() {
+		FeatureExtractorsBasedContextGenerator gen = makeGenerator();
+		String[] ctx = gen.getContext(0, tokens, null, new Object[] { sent });
+		gen.getContext(1, tokens, new String[] { "NOUN" }, new Object[] { sent });
+		gen.getContext(0, tokens, null, new Object[] { sent });
+		assertEquals(2, gen.getCacheMissCount());
+		assertEquals(1, gen.getCacheHitCount());
+		Token[] nextSequence = tokens.clone();
+		assertArrayEquals(ctx, gen.getContext(0, nextSequence, null, new Object[] { sent }));
+		assertEquals(3, gen.getCacheMissCount());
+	}
+
+	private static FeatureExtractorsBasedContextGenerator makeGenerator() {
+		return new DefaultFeatureExtractors(2, 2, 2, ImmutableList.<String> of(), null);
+	}
+
+	private static FeatureExtractorsBasedContextGenerator makeGenerator(MorphDictionary dict) {
+		return new DefaultFeatureExtractors(2, 2, 2,
+				ImmutableList.of("POST", "NMbr", "GNdr", "CAse"), dict);
+	}
+
+	private static MorphDictionary loadTestDictionary() throws Exception {
+		InputStream in = FeatureExtractorsBasedContextGeneratorTest.class
+				.getClassLoader().getResourceAsStream("validator-test-dict.xml");
+		try {
+			return XmlDictionaryParser.parse(in);
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+}
@@ -4,12 +4,12 @@
 package ru.kfu.itis.issst.uima.ml;
 
 import static com.google.common.collect.Lists.newArrayListWithExpectedSize;
-import static com.google.common.collect.Sets.newHashSetWithExpectedSize;
-import static ru.kfu.itis.cll.uima.util.BitUtils.contains;
-import static ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryUtils.toGramBits;
-import static ru.kfu.itis.issst.uima.morph.model.Wordform.allGramBitsFunction;
+import static ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionaryUtils.toGramSet;
+import static ru.kfu.itis.issst.uima.morph.model.Wordform.getAllGramBits;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
@@ -22,6 +22,8 @@ import ru.kfu.itis.cll.uima.cas.FSUtils;
 import ru.kfu.itis.issst.uima.morph.dictionary.WordUtils;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.GramModel;
 import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
+import ru.kfu.itis.issst.uima.morph.dictionary.resource.WordformBuffer;
+import ru.kfu.itis.issst.uima.morph.model.GramSet;
 import ru.kfu.itis.issst.uima.morph.model.Grammeme;
 import ru.kfu.itis.issst.uima.morph.model.Wordform;
 
@@ -32,6 +34,9 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
+ * An instance can be shared by several threads, e.g., through a shared
+ * tiered feature extractor of a CPE.
+ *
  * @author Rinat Gareev
  *
  */
@@ -48,10 +53,19 @@ public class DictionaryPossibleTagFeatureExtractor implements NamedFeatureExtrac
 	private GramModel gramModel;
 	// derived
 	private final Map<Grammeme, BitSet> targetTagCategoriesMap;
-	// TODO make targetCategoriesMask immutable!
-	private final BitSet targetCategoriesMask;
-	private final BitSet availableCategoriesMask;
+	private final GramSet targetCategoriesMask;
+	private final GramSet availableCategoriesMask;
 	private final String baseFeatureName;
+	// lookup state of a calling thread
+	private final ThreadLocal<LookupBuffers> lookupBuffers = new ThreadLocal<LookupBuffers>() {
+		@Override
+		protected LookupBuffers initialValue() {
+			return new LookupBuffers();
+		}
+	};
+	// masked tag -> feature value
+	private final ConcurrentMap<GramSet, String> featValueCache =
+			new ConcurrentHashMap<GramSet, String>();
 
 	public DictionaryPossibleTagFeatureExtractor(Iterable<String> targetTagCategories,
 			Iterable<String> availableTagCategories,
@@ -69,28 +83,30 @@ public class DictionaryPossibleTagFeatureExtractor implements NamedFeatureExtrac
 			tagCatGrams.add(tcGram);
 		}
 		this.targetTagCategoriesMap = Maps.newHashMapWithExpectedSize(tagCatGrams.size());
-		this.targetCategoriesMask = new BitSet();
+		GramSet targetMask = GramSet.EMPTY;
 		StringBuilder baseFeatureNameBuilder = new StringBuilder(FEATURE_NAME);
 		for (Grammeme tcg : tagCatGrams) {
 			BitSet tcBits = gramModel.getGrammemWithChildrenBits(tcg.getId(), true);
 			targetTagCategoriesMap.put(tcg, tcBits);
-			targetCategoriesMask.or(tcBits);
+			targetMask = targetMask.or(GramSet.of(tcBits));
 			baseFeatureNameBuilder.append('_').append(tcg.getId());
 		}
+		this.targetCategoriesMask = targetMask;
 		this.baseFeatureName = baseFeatureNameBuilder.toString();
 		//
 		if (availableTagCategories == null) {
 			availableTagCategories = ImmutableList.of();
 		}
-		this.availableCategoriesMask = new BitSet();
+		GramSet availableMask = GramSet.EMPTY;
 		for (String posCat : availableTagCategories) {
-			BitSet posCatBits = gramModel.getGrammemWithChildrenBits(posCat, true);
-			if (posCatBits == null) {
+			GramSet posCatGrams = gramModel.getGrammemWithChildren(posCat, true);
+			if (posCatGrams == null) {
 				throw new IllegalStateException(String.format(
 						"Grammeme %s does not exist!", posCat));
 			}
-			availableCategoriesMask.or(posCatBits);
+			availableMask = availableMask.or(posCatGrams);
 		}
+		this.availableCategoriesMask = availableMask;
 	}
 
 	@Override
@@ -104,79 +120,86 @@ public class DictionaryPossibleTagFeatureExtractor implements NamedFeatureExtrac
 		if (!WordUtils.isRussianWord(form)) {
 			return ImmutableList.of(new Feature(FEATURE_NAME, "NotRussian"));
 		}
-		form = WordUtils.normalizeToDictionaryForm(form);
-		List<Wordform> dictWfs = morphDict.getEntries(form);
-		if (dictWfs == null || dictWfs.isEmpty()) {
-			return ImmutableList.of(new Feature(FEATURE_NAME, "Unknown"));
-		}
-		List<BitSet> dictWfBitSets = Lists.transform(dictWfs,
-				allGramBitsFunction(morphDict));
 		//
 		org.opencorpora.cas.Wordform focusWf = focusWord.getWordforms(0);
-		BitSet focusWfBits = toGramBits(gramModel, FSUtils.toList(focusWf.getGrammems()));
-		focusWfBits.and(availableCategoriesMask);
-		//
-		Set<BitSet> tokenPossibleTags = newHashSetWithExpectedSize(dictWfBitSets.size());
-		for (BitSet dictWfBits : dictWfBitSets) {
-			if (!contains(dictWfBits, focusWfBits)) {
-				continue;
-			}
-			BitSet tokenPossibleBits = (BitSet) dictWfBits.clone();
-			tokenPossibleBits.and(targetCategoriesMask);
-			tokenPossibleTags.add(tokenPossibleBits);
+		GramSet focusWfGrams = toGramSet(gramModel, FSUtils.toList(focusWf.getGrammems()));
+		return extract(form, focusWfGrams.and(availableCategoriesMask));
+	}
+
+	public List<Feature> extract(String form, Collection<String> availableTokenGrams)
+			throws CleartkExtractorException {
+		if (!WordUtils.isRussianWord(form)) {
+			return ImmutableList.of(new Feature(FEATURE_NAME, "NotRussian"));
 		}
-		List<Feature> resultList = newArrayListWithExpectedSize(tokenPossibleTags.size());
-		for (BitSet tokenPossibleBits : tokenPossibleTags) {
-			String featValue;
-			if (tokenPossibleBits.isEmpty()) {
-				featValue = "NULL";
-			} else {
-				featValue = gramJoiner.join(gramModel.toGramSet(tokenPossibleBits));
+		return extract(form, toGramSet(gramModel, availableTokenGrams));
+	}
+
+	private List<Feature> extract(String form, GramSet focusWfGrams) {
+		LookupBuffers buffers = lookupBuffers.get();
+		StringBuilder formBuffer = buffers.formBuffer;
+		WordformBuffer wfBuffer = buffers.wfBuffer;
+		formBuffer.setLength(0);
+		WordUtils.normalizeToDictionaryForm(form, 0, form.length(), formBuffer);
+		wfBuffer.clear();
+		List<String> featValues = Lists.newArrayListWithExpectedSize(4);
+		if (morphDict.lookup(formBuffer, 0, formBuffer.length(), wfBuffer) > 0) {
+			for (int i = 0; i < wfBuffer.size(); i++) {
+				GramSet tag = morphDict.getGramSet(wfBuffer.getLemmaGramSetId(i)).or(
+						morphDict.getGramSet(wfBuffer.getWordformGramSetId(i)));
+				addPossibleTag(tag, focusWfGrams, featValues);
 			}
+		} else {
+			// the dictionary may predict entries of an unknown word
+			List<Wordform> dictWfs = morphDict.getEntries(formBuffer.toString());
+			if (dictWfs == null || dictWfs.isEmpty()) {
+				return ImmutableList.of(new Feature(FEATURE_NAME, "Unknown"));
+			}
+			for (Wordform wf : dictWfs) {
+				addPossibleTag(GramSet.of(getAllGramBits(wf, morphDict)), focusWfGrams, featValues);
+			}
+		}
+		List<Feature> resultList = newArrayListWithExpectedSize(featValues.size());
+		for (String featValue : featValues) {
 			resultList.add(new Feature(baseFeatureName, featValue));
 		}
 		return resultList;
 	}
 
-    public List<Feature> extract(String form, Collection<String> availableTokenGrams)
-            throws CleartkExtractorException {
-        if (!WordUtils.isRussianWord(form)) {
-            return ImmutableList.of(new Feature(FEATURE_NAME, "NotRussian"));
-        }
-        form = WordUtils.normalizeToDictionaryForm(form);
-        List<Wordform> dictWfs = morphDict.getEntries(form);
-        if (dictWfs == null || dictWfs.isEmpty()) {
-            return ImmutableList.of(new Feature(FEATURE_NAME, "Unknown"));
-        }
-        List<BitSet> dictWfBitSets = Lists.transform(dictWfs, allGramBitsFunction(morphDict));
-        //
-        BitSet focusWfBits = toGramBits(gramModel, availableTokenGrams);
-        //
-        Set<BitSet> tokenPossibleTags = newHashSetWithExpectedSize(dictWfBitSets.size());
-        for (BitSet dictWfBits : dictWfBitSets) {
-            if (!contains(dictWfBits, focusWfBits)) {
-                // this dictionary entry is not compatible with token current grams
-                continue;
-            }
-            BitSet tokenPossibleBits = (BitSet) dictWfBits.clone();
-            tokenPossibleBits.and(targetCategoriesMask);
-            tokenPossibleTags.add(tokenPossibleBits);
-        }
-        List<Feature> resultList = newArrayListWithExpectedSize(tokenPossibleTags.size());
-        for (BitSet tokenPossibleBits : tokenPossibleTags) {
-            String featValue;
-            if (tokenPossibleBits.isEmpty()) {
-                featValue = "NULL";
-            } else {
-                featValue = gramJoiner.join(gramModel.toGramSet(tokenPossibleBits));
-            }
-            resultList.add(new Feature(baseFeatureName, featValue));
-        }
-        return resultList;
-    }
+	/**
+	 * @param dictWfGrams
+	 *            all grammems of a dictionary entry
+	 * @param focusWfGrams
+	 * @param featValues
+	 *            distinct feature values to add to
+	 */
+	private void addPossibleTag(GramSet dictWfGrams, GramSet focusWfGrams, List<String> featValues) {
+		if (!dictWfGrams.contains(focusWfGrams)) {
+			// this dictionary entry is not compatible with token current grams
+			return;
+		}
+		GramSet maskedTag = dictWfGrams.and(targetCategoriesMask);
+		String featValue = featValueCache.get(maskedTag);
+		if (featValue == null) {
+			if (maskedTag.isEmpty()) {
+				featValue = "NULL";
+			} else {
+				featValue = gramJoiner.join(gramModel.toGramSet(maskedTag));
+			}
+			// the value is the same if another thread has put it meanwhile
+			featValueCache.put(maskedTag, featValue);
+		}
+		if (!featValues.contains(featValue)) {
+			featValues.add(featValue);
+		}
+	}
 
 	private static final Joiner gramJoiner = Joiner.on('_');
 
+	private static class LookupBuffers {
+		private final StringBuilder formBuffer = new StringBuilder();
+		private final WordformBuffer wfBuffer = new WordformBuffer();
+	}
+
 	@Override
 	public String getFeatureName() {
 		return FEATURE_NAME;
@@ -1,6 +1,5 @@
 package ru.ksu.niimm.cll.uima.morph.ml;
 
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
@@ -23,9 +22,10 @@ import ru.kfu.itis.issst.uima.morph.dictionary.resource.MorphDictionary;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.google.common.collect.Lists.newArrayListWithExpectedSize;
-import static com.google.common.collect.Lists.transform;
 import static ru.kfu.itis.cll.uima.util.ConfigPropertiesUtils.getIntProperty;
 import static ru.kfu.itis.issst.uima.ml.DefaultFeatureExtractors.contextTokenExtractors;
 import static ru.kfu.itis.issst.uima.ml.DefaultFeatureExtractors.currentTokenExtractors;
@@ -52,23 +52,39 @@ public class SimpleTieredFeatureExtractor implements TieredFeatureExtractor<Toke
     private FeatureExtractor1 tokenCFE;
     private CleartkExtractor contextCFE;
     private List<DictionaryPossibleTagFeatureExtractor> dictFeatureExtractors;
+    // index is a relative position of a context token plus rightContextSize
+    private String[] gramFeatureNames;
+    // the same index, grammeme -> Gram_at_ feature
+    private List<ConcurrentMap<String, Feature>> gramFeatureCache;
+    // tier label -> grammemes, an instance is shared by threads of a CPE
+    private final ConcurrentMap<String, Set<String>> parsedLabelCache =
+            new ConcurrentHashMap<String, Set<String>>();
 
     public SimpleTieredFeatureExtractor() {
     }
 
     @Override
     public void initialize(Properties props) throws ResourceInitializationException {
-        leftContextSize = getIntProperty(props, CFG_LEFT_CONTEXT_SIZE);
-        rightContextSize = getIntProperty(props, CFG_RIGHT_CONTEXT_SIZE);
-        gramTierDefs = TieredFeatureExtractors.getTiers(props);
         // TODO use a dependency injection
+        CachedResourceTuple<MorphDictionary> t;
         try {
-            CachedResourceTuple<MorphDictionary> t = getMorphDictionaryAPI().getCachedInstance();
-            morphDictionary = t.getResource();
-            morphDictionaryKey = t.getCacheKey();
+            t = getMorphDictionaryAPI().getCachedInstance();
         } catch (Exception e) {
             throw new ResourceInitializationException(e);
         }
+        morphDictionaryKey = t.getCacheKey();
+        initialize(props, t.getResource());
+    }
+
+    /**
+     * Initialize itself from the given configuration properties and with the given dictionary
+     * instead of the cached instance of the MorphDictionaryAPI.
+     */
+    public void initialize(Properties props, MorphDictionary morphDictionary) {
+        leftContextSize = getIntProperty(props, CFG_LEFT_CONTEXT_SIZE);
+        rightContextSize = getIntProperty(props, CFG_RIGHT_CONTEXT_SIZE);
+        gramTierDefs = TieredFeatureExtractors.getTiers(props);
+        this.morphDictionary = morphDictionary;
         initialize();
     }
 
@@ -94,6 +110,12 @@ public class SimpleTieredFeatureExtractor implements TieredFeatureExtractor<Toke
         contextCFE = new CleartkExtractor(Token.class,
                 new CombinedExtractor1(contextTokenExtractors()),
                 contextsArr);
+        gramFeatureNames = new String[leftContextSize + rightContextSize + 1];
+        gramFeatureCache = Lists.newArrayListWithCapacity(gramFeatureNames.length);
+        for (int relPos = -rightContextSize; relPos <= leftContextSize; relPos++) {
+            gramFeatureNames[relPos + rightContextSize] = "Gram_at_" + relPos;
+            gramFeatureCache.add(new ConcurrentHashMap<String, Feature>());
+        }
         //
         dictFeatureExtractors = Lists.newArrayList();
         for (int tier = 0; tier < gramTiers.getCount(); tier++) {
@@ -119,13 +141,10 @@ public class SimpleTieredFeatureExtractor implements TieredFeatureExtractor<Toke
         DictionaryPossibleTagFeatureExtractor dfe = dictFeatureExtractors.get(tier);
         for (int i = 0; i < featSets.size(); i++) {
             Token tok = tokens.get(i);
-            List<String> tokLabel = labels.get(i);
-            FeatureSet tokFeatSet = featSets.get(i);
+            TieredTokenFeatureSet tokFeatSet = toTiered(featSets.get(i));
             // TODO:LOW depends on logic somewhere before (in a containing annotator)
             if (WordAnnotator.canCarryWord(tok)) {
-                List<Set<String>> tokGramsTiered = parseLabelIntoGrams(tokLabel);
-                Set<String> tokGrams = merge(tokGramsTiered);
-                tokFeatSet.add(dfe.extract(tok.getCoveredText(), tokGrams), dfe);
+                tokFeatSet.add(dfe.extract(tok.getCoveredText(), tokFeatSet.getGramsBefore(tier)), dfe);
             }
         }
     }
@@ -135,31 +154,36 @@ public class SimpleTieredFeatureExtractor implements TieredFeatureExtractor<Toke
     private static final Splitter GRAM_SPLITTER = Splitter.on('&');
 
     /**
-     * @param labels list of labels for each token where each label is composite (tiered)
-     * @return list of grammemes decomposition for each token
+     * @param tierLabel a label of a single tier
+     * @return grammemes of the label
      */
-    private List<List<Set<String>>> parseLabelsIntoGrams(List<List<String>> labels) {
-        List<List<Set<String>>> result = newArrayListWithExpectedSize(labels.size());
-        for (List<String> tokLabel : labels) {
-            result.add(parseLabelIntoGrams(tokLabel));
+    private Set<String> parseTierLabel(String tierLabel) {
+        if (Strings.isNullOrEmpty(tierLabel)) {
+            return ImmutableSet.of();
+        }
+        Set<String> result = parsedLabelCache.get(tierLabel);
+        if (result == null) {
+            result = ImmutableSet.copyOf(GRAM_SPLITTER.split(tierLabel));
+            parsedLabelCache.put(tierLabel, result);
         }
         return result;
     }
 
-    private List<Set<String>> parseLabelIntoGrams(List<String> label) {
-        List<Set<String>> result = newArrayListWithExpectedSize(label.size());
-        for (String tierLabel : label)
-            if (Strings.isNullOrEmpty(tierLabel)) result.add(ImmutableSet.<String>of());
-            else result.add(ImmutableSet.copyOf(GRAM_SPLITTER.split(tierLabel)));
-        return result;
-    }
-
-    private static <T> Set<T> merge(Iterable<? extends Set<T>> sets) {
-        ImmutableSet.Builder<T> builder = ImmutableSet.builder();
-        for (Set<T> set : sets) {
-            builder.addAll(set);
+    /**
+     * @return a Gram_at_ feature instance that is shared by all tokens
+     */
+    private Feature getGramFeature(int contextTokRelPos, String gram) {
+        int idx = contextTokRelPos + rightContextSize;
+        ConcurrentMap<String, Feature> relPosFeatures = gramFeatureCache.get(idx);
+        Feature result = relPosFeatures.get(gram);
+        if (result == null) {
+            result = new Feature(gramFeatureNames[idx], gram);
+            Feature prev = relPosFeatures.putIfAbsent(gram, result);
+            if (prev != null) {
+                result = prev;
+            }
         }
-        return builder.build();
+        return result;
     }
 
     @Override
@@ -167,14 +191,10 @@ public class SimpleTieredFeatureExtractor implements TieredFeatureExtractor<Toke
                             JCas jCas, Annotation spanAnno, List<? extends Token> tokens) {
         Preconditions.checkArgument(featSets.size() == labels.size());
         Preconditions.checkArgument(featSets.size() == tokens.size());
-        // parse tier output labels into feature values
-        List<List<Set<String>>> parsedLabels = parseLabelsIntoGrams(labels);
-        List<Set<String>> curTierParsedLabels = transform(parsedLabels, new Function<List<Set<String>>, Set<String>>() {
-            @Override
-            public Set<String> apply(List<Set<String>> input) {
-                return input.get(tier);
-            }
-        });
+        // parse the tier output labels into feature values
+        for (int tokPos = 0; tokPos < featSets.size(); tokPos++) {
+            toTiered(featSets.get(tokPos)).setTierGrams(tier, parseTierLabel(labels.get(tokPos).get(tier)));
+        }
         //
         FeatureExtractor1 dfe = dictFeatureExtractors.get(tier);
         for (int tokPos = 0; tokPos < featSets.size(); tokPos++) {
@@ -190,20 +210,28 @@ public class SimpleTieredFeatureExtractor implements TieredFeatureExtractor<Toke
             for (int contextTokPos = left; contextTokPos <= right; contextTokPos++) {
                 // a context token relative position
                 final int contextTokRelPos = tokPos - contextTokPos;
-                for (String gram : curTierParsedLabels.get(contextTokPos)) {
-                    gramFeatures.add(new Feature("Gram_at_" + contextTokRelPos, gram));
+                for (String gram : toTiered(featSets.get(contextTokPos)).getTierGrams(tier)) {
+                    gramFeatures.add(getGramFeature(contextTokRelPos, gram));
                 }
             }
             tokFeatSet.add(gramFeatures, mockGramExtractor);
         }
     }
 
+    private static TieredTokenFeatureSet toTiered(FeatureSet featSet) {
+        if (!(featSet instanceof TieredTokenFeatureSet)) {
+            throw new IllegalArgumentException(
+                    "Feature sets must be created by extractCommonFeatures of this extractor");
+        }
+        return (TieredTokenFeatureSet) featSet;
+    }
+
     @Override
     public List<FeatureSet> extractCommonFeatures(JCas jCas, Annotation spanAnno, List<? extends Token> tokens)
             throws CleartkExtractorException {
         List<FeatureSet> resultList = newArrayListWithExpectedSize(tokens.size());
         for (Token tok : tokens) {
-            FeatureSet fs = FeatureSets.empty();
+            FeatureSet fs = new TieredTokenFeatureSet();
             fs.add(tokenCFE.extract(jCas, tok), tokenCFE);
             fs.add(contextCFE.extractWithin(jCas, tok, spanAnno), contextCFE);
             resultList.add(fs);
@@ -0,0 +1,92 @@
+package ru.ksu.niimm.cll.uima.morph.ml;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.cleartk.ml.Feature;
+import org.cleartk.ml.feature.extractor.FeatureExtractor1;
+import ru.kfu.itis.issst.uima.ml.FeatureSet;
+import ru.kfu.itis.issst.uima.ml.FeatureSets;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A feature set of a token that also keeps grammemes of the token labels
+ * predicted by tiers so far. So {@link SimpleTieredFeatureExtractor} parses a
+ * label of each tier only once.
+ *
+ * @author Rinat Gareev
+ */
+class TieredTokenFeatureSet implements FeatureSet {
+
+    private final FeatureSet delegate = FeatureSets.empty();
+    // tier -> grammemes of the tier label
+    private final List<Set<String>> tierGrams = Lists.newArrayList();
+    // tier -> grammemes of labels of the tier and all the previous tiers
+    private final List<Set<String>> mergedGrams = Lists.newArrayList();
+
+    /**
+     * @return grammemes of the given tier label
+     */
+    Set<String> getTierGrams(int tier) {
+        return tierGrams.get(tier);
+    }
+
+    /**
+     * @return grammemes of labels of tiers before the given one
+     */
+    Set<String> getGramsBefore(int tier) {
+        if (tier == 0) {
+            return ImmutableSet.of();
+        }
+        if (tier > mergedGrams.size()) {
+            throw new IllegalStateException(String.format(
+                    "Grammemes of tier %s have not been set", tier - 1));
+        }
+        return mergedGrams.get(tier - 1);
+    }
+
+    void setTierGrams(int tier, Set<String> grams) {
+        if (tier > tierGrams.size()) {
+            throw new IllegalStateException(String.format(
+                    "Grammemes of tier %s have not been set", tier - 1));
+        }
+        // a tier may be re-labeled
+        while (tierGrams.size() > tier) {
+            tierGrams.remove(tierGrams.size() - 1);
+            mergedGrams.remove(mergedGrams.size() - 1);
+        }
+        tierGrams.add(grams);
+        if (tier == 0) {
+            mergedGrams.add(grams);
+        } else {
+            mergedGrams.add(Sets.union(mergedGrams.get(tier - 1), grams).immutableCopy());
+        }
+    }
+
+    @Override
+    public void add(List<Feature> newVals, FeatureExtractor1 src) {
+        delegate.add(newVals, src);
+    }
+
+    @Override
+    public List<Feature> toList() {
+        return delegate.toList();
+    }
+
+    @Override
+    public void removeFeaturesBySource(Set<FeatureExtractor1> aSources) {
+        delegate.removeFeaturesBySource(aSources);
+    }
+
+    @Override
+    public void removeFeaturesBySource(FeatureExtractor1 aSource) {
+        delegate.removeFeaturesBySource(aSource);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package ru.kfu.itis.issst.uima.ml;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.cleartk.ml.Feature;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.DummyWordformPredictor;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.MorphDictionaryImpl;
+import ru.ksu.niimm.cll.uima.morph.opencorpora.resource.XmlDictionaryParser;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Rinat Gareev
+ */
+public class DictionaryPossibleTagFeatureExtractorTest {
+
+    private static final List<String> TARGET_CATEGORIES = ImmutableList.of("NMbr", "CAse");
+    private static final List<String> AVAILABLE_CATEGORIES = ImmutableList.of("POST");
+    // word form, grammemes of previous tiers
+    private static final Object[][] INPUTS = {
+            {"мама", ImmutableSet.of("NOUN")},
+            {"мыла", ImmutableSet.of("NOUN")},
+            {"мыла", ImmutableSet.of("VERB")},
+            {"мыла", ImmutableSet.of()},
+            {"красную", ImmutableSet.of("ADJF")},
+            {"раму", ImmutableSet.of("NOUN")},
+            {"раму", ImmutableSet.of("VERB")},
+            {"а", ImmutableSet.of("CONJ")},
+    };
+
+    private static MorphDictionaryImpl dict;
+
+    @BeforeClass
+    public static void loadDictionary() throws Exception {
+        InputStream in = DictionaryPossibleTagFeatureExtractorTest.class
+                .getClassLoader().getResourceAsStream("test-dict.xml");
+        try {
+            dict = XmlDictionaryParser.parse(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        dict.setWfPredictor(new DummyWordformPredictor(dict));
+    }
+
+    @Test
+    public void testFeatureValues() throws Exception {
+        DictionaryPossibleTagFeatureExtractor fe = newExtractor();
+        assertEquals(ImmutableSet.of("sing_gent", "plur_nomn", "plur_accs"),
+                values(fe.extract("мыла", ImmutableSet.of("NOUN"))));
+        assertEquals(ImmutableSet.of("sing"),
+                values(fe.extract("мыла", ImmutableSet.of("VERB"))));
+        assertEquals(ImmutableSet.of("NULL"),
+                values(fe.extract("а", ImmutableSet.of("CONJ"))));
+        assertEquals(ImmutableSet.of(), values(fe.extract("раму", ImmutableSet.of("VERB"))));
+    }
+
+    @Test
+    public void testSharedByThreads() throws Exception {
+        final List<List<Feature>> expected = Lists.newArrayList();
+        DictionaryPossibleTagFeatureExtractor singleThreadFE = newExtractor();
+        for (Object[] input : INPUTS) {
+            expected.add(extract(singleThreadFE, input));
+        }
+        final DictionaryPossibleTagFeatureExtractor sharedFE = newExtractor();
+        final int threadsNum = 8;
+        ExecutorService exec = Executors.newFixedThreadPool(threadsNum);
+        try {
+            List<Future<Void>> futures = Lists.newArrayList();
+            for (int t = 0; t < threadsNum; t++) {
+                // each thread starts from a different input
+                final int offset = t;
+                futures.add(exec.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 2000; i++) {
+                            int inputIdx = (offset + i) % INPUTS.length;
+                            assertEquals(String.valueOf(INPUTS[inputIdx][0]),
+                                    expected.get(inputIdx), extract(sharedFE, INPUTS[inputIdx]));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    private static DictionaryPossibleTagFeatureExtractor newExtractor() {
+        return new DictionaryPossibleTagFeatureExtractor(TARGET_CATEGORIES, AVAILABLE_CATEGORIES, dict);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Feature> extract(DictionaryPossibleTagFeatureExtractor fe, Object[] input)
+            throws Exception {
+        return fe.extract((String) input[0], (Set<String>) input[1]);
+    }
+
+    private static Set<Object> values(List<Feature> features) {
+        ImmutableSet.Builder<Object> result = ImmutableSet.builder();
+        for (Feature f : features) {
+            result.add(f.getValue());
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.ksu.niimm.cll.uima.morph.ml;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Rinat Gareev
+ */
+public class TieredTokenFeatureSetTest {
+
+    private static final Set<String> POS = ImmutableSet.of("NOUN");
+    private static final Set<String> NUMBER = ImmutableSet.of("sing");
+    private static final Set<String> CASE = ImmutableSet.of("nomn");
+
+    @Test
+    public void testGramsBefore() {
+        TieredTokenFeatureSet fs = new TieredTokenFeatureSet();
+        assertEquals(ImmutableSet.of(), fs.getGramsBefore(0));
+        fs.setTierGrams(0, POS);
+        fs.setTierGrams(1, NUMBER);
+        fs.setTierGrams(2, CASE);
+        assertEquals(POS, fs.getTierGrams(0));
+        assertEquals(NUMBER, fs.getTierGrams(1));
+        assertEquals(CASE, fs.getTierGrams(2));
+        assertEquals(ImmutableSet.of(), fs.getGramsBefore(0));
+        assertEquals(POS, fs.getGramsBefore(1));
+        assertEquals(ImmutableSet.of("NOUN", "sing"), fs.getGramsBefore(2));
+        assertEquals(ImmutableSet.of("NOUN", "sing", "nomn"), fs.getGramsBefore(3));
+    }
+
+    @Test
+    public void testRelabelEarlierTier() {
+        TieredTokenFeatureSet fs = new TieredTokenFeatureSet();
+        fs.setTierGrams(0, POS);
+        fs.setTierGrams(1, NUMBER);
+        fs.setTierGrams(2, CASE);
+        // the labels of the next tiers are dropped
+        fs.setTierGrams(1, ImmutableSet.of("plur"));
+        assertEquals(POS, fs.getTierGrams(0));
+        assertEquals(ImmutableSet.of("plur"), fs.getTierGrams(1));
+        assertEquals(ImmutableSet.of("NOUN", "plur"), fs.getGramsBefore(2));
+        try {
+            fs.getGramsBefore(3);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // the first tier
+        fs.setTierGrams(2, CASE);
+        fs.setTierGrams(0, ImmutableSet.of("VERB"));
+        assertEquals(ImmutableSet.of("VERB"), fs.getGramsBefore(1));
+        try {
+            fs.getGramsBefore(2);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testGramsBeforeOfUnsetTier() {
+        TieredTokenFeatureSet fs = new TieredTokenFeatureSet();
+        try {
+            fs.getGramsBefore(1);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        fs.setTierGrams(0, POS);
+        try {
+            fs.getGramsBefore(2);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSetTierAfterUnsetTier() {
+        TieredTokenFeatureSet fs = new TieredTokenFeatureSet();
+        try {
+            fs.setTierGrams(1, NUMBER);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        fs.setTierGrams(0, POS);
+        try {
+            fs.setTierGrams(2, CASE);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // the failed calls do not change the state
+        assertEquals(POS, fs.getGramsBefore(1));
+    }
+}
@@ -5,12 +5,8 @@ package ru.kfu.itis.issst.uima.morph.treetagger;
 
 import static ru.kfu.itis.issst.uima.morph.commons.TagUtils.postProcessExternalTag;
 
-import java.io.IOException;
-import java.util.Collection;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
-import org.annolab.tt4j.TokenHandler;
-import org.annolab.tt4j.TreeTaggerWrapper;
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.jcas.JCas;
@@ -20,103 +16,125 @@ import org.opencorpora.cas.Word;
 import org.opencorpora.cas.Wordform;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.util.JCasUtil;
 
 import ru.kfu.cll.uima.tokenizer.fstype.NUM;
 import ru.kfu.cll.uima.tokenizer.fstype.Token;
 import ru.kfu.cll.uima.tokenizer.fstype.W;
+import ru.kfu.itis.issst.uima.morph.treetagger.TreeTaggerWrapperPool.TaggedToken;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 
 /**
+ * Tags all tokens of a document in a single TreeTagger call. The process is
+ * taken either from {@link TreeTaggerWrapperPool} bound to
+ * {@value #RESOURCE_WRAPPER_POOL} key, so that several replicas of this
+ * annotator tag documents at the same time using a fixed number of processes,
+ * or from a private wrapper of the given model.
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
 public class MorphTagger extends JCasAnnotator_ImplBase {
 
 	public static final String PARAM_TREETAGGER_MODEL_NAME = "treeTaggerModelName";
+	public static final String RESOURCE_WRAPPER_POOL = "treeTaggerWrapperPool";
 	// config
-	@ConfigurationParameter(name = PARAM_TREETAGGER_MODEL_NAME, mandatory = true)
+	@ConfigurationParameter(name = PARAM_TREETAGGER_MODEL_NAME, mandatory = false)
 	private String ttModelName;
-	// monitors
-	private final Object casMon = new Object();
+	@ExternalResource(key = RESOURCE_WRAPPER_POOL, mandatory = false)
+	private TreeTaggerWrapperPool sharedPool;
 	// state fields
-	private TreeTaggerWrapper<Token> treeTagger;
+	private TreeTaggerWrapperPool privatePool;
 
 	@Override
 	public void initialize(UimaContext ctx) throws ResourceInitializationException {
 		super.initialize(ctx);
-
-		treeTagger = new TreeTaggerWrapper<Token>();
-		treeTagger.setAdapter(new TokenAdapter());
+		if (sharedPool == null) {
+			if (ttModelName == null) {
+				throw new ResourceInitializationException(new IllegalStateException(
+						String.format("Neither %s nor %s is set",
+								PARAM_TREETAGGER_MODEL_NAME, RESOURCE_WRAPPER_POOL)));
+			}
+			try {
+				privatePool = new TreeTaggerWrapperPool(ttModelName, 1);
+			} catch (IllegalStateException e) {
+				throw new ResourceInitializationException(e);
+			}
+		}
+		// start a process now to report a wrong model or TreeTagger home here
 		try {
-			treeTagger.setModel(ttModelName);
-		} catch (IOException e) {
+			getPool().start();
+		} catch (Exception e) {
 			throw new ResourceInitializationException(e);
 		}
 	}
 
 	@Override
 	public void process(final JCas jCas) throws AnalysisEngineProcessException {
-		Collection<Token> tokens = JCasUtil.select(jCas, Token.class);
-		final Word[] words = new Word[tokens.size()];
-
-		final AtomicInteger count = new AtomicInteger(0);
-		treeTagger.setHandler(new TokenHandler<Token>() {
-			@Override
-			public void token(Token token, String pos, String lemma) {
-				// should be synchronized on the same object with TokenAdapter#getText (see below)
-				synchronized (casMon) {
-					// do not create Wordform on punctuation and special tokens
-					// TODO MTE Rus TreeTagger also outputs tag 'SENT' for sentence end?
-					if (pos != null && (token instanceof W || token instanceof NUM)) {
-						pos = pos.intern();
-						Word w = new Word(jCas, token.getBegin(), token.getEnd());
-						w.setToken(token);
-
-						Wordform wf = new Wordform(jCas);
-						if (lemma != null) {
-							wf.setLemma(lemma);
-						}
-						wf.setPos(postProcessExternalTag(pos));
-
-						wf.setWord(w);
-						FSArray wfArr = new FSArray(jCas, 1);
-						wfArr.set(0, wf);
-						w.setWordforms(wfArr);
-
-						if (words[count.get()] != null) {
-							throw new IllegalStateException();
-						}
-						words[count.get()] = w;
-					}
-					//
-					count.getAndIncrement();
-				}
-			}
-		});
-		// 
+		List<Token> tokens = Lists.newArrayList(JCasUtil.select(jCas, Token.class));
+		List<String> tokenStrings = Lists.newArrayListWithCapacity(tokens.size());
+		for (Token token : tokens) {
+			tokenStrings.add(token.getCoveredText());
+		}
+		TaggedToken[] tags;
 		try {
-			treeTagger.process(tokens);
-
-			// save annotations
-			for (Word w : words) {
-				if (w != null) {
-					w.addToIndexes();
-				}
-			}
-			// just to clear reference to current CAS
-			treeTagger.setHandler(null);
+			tags = getPool().tag(ImmutableList.of(tokenStrings)).get(0);
 		} catch (Exception e) {
 			throw new AnalysisEngineProcessException(e);
 		}
+		if (tags == null || tags.length != tokens.size()) {
+			throw new AnalysisEngineProcessException(new IllegalStateException(String.format(
+					"TreeTagger output size %s does not match the token count %s",
+					tags == null ? null : tags.length, tokens.size())));
+		}
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tags[i] == null) {
+				throw new AnalysisEngineProcessException(new IllegalStateException(String.format(
+						"TreeTagger has not returned a tag for token '%s' at %s",
+						tokens.get(i).getCoveredText(), tokens.get(i).getBegin())));
+			}
+			addWord(jCas, tokens.get(i), tags[i]);
+		}
+	}
+
+	private void addWord(JCas jCas, Token token, TaggedToken tag) {
+		String pos = tag.getPos();
+		// do not create Wordform on punctuation and special tokens
+		// TODO MTE Rus TreeTagger also outputs tag 'SENT' for sentence end?
+		if (pos != null && (token instanceof W || token instanceof NUM)) {
+			pos = pos.intern();
+			Word w = new Word(jCas, token.getBegin(), token.getEnd());
+			w.setToken(token);
+
+			Wordform wf = new Wordform(jCas);
+			if (tag.getLemma() != null) {
+				wf.setLemma(tag.getLemma());
+			}
+			wf.setPos(postProcessExternalTag(pos));
+
+			wf.setWord(w);
+			FSArray wfArr = new FSArray(jCas, 1);
+			wfArr.set(0, wf);
+			w.setWordforms(wfArr);
+			w.addToIndexes();
+		}
+	}
+
+	private TreeTaggerWrapperPool getPool() {
+		return sharedPool != null ? sharedPool : privatePool;
 	}
 
 	@Override
 	public void destroy() {
-		super.destroy();
-		if (treeTagger != null) {
+		if (privatePool != null) {
 			getLogger().info("Cleaning up TreeTagger process");
-			treeTagger.destroy();
+			privatePool.destroy();
+			privatePool = null;
 		}
+		super.destroy();
 	}
 
 	@Override
@@ -126,13 +144,4 @@ public class MorphTagger extends JCasAnnotator_ImplBase {
 		destroy();
 		super.finalize();
 	}
-
-	private class TokenAdapter implements org.annolab.tt4j.TokenAdapter<Token> {
-		@Override
-		public String getText(Token t) {
-			synchronized (casMon) {
-				return t.getCoveredText();
-			}
-		}
-	}
 }
\ No newline at end of file
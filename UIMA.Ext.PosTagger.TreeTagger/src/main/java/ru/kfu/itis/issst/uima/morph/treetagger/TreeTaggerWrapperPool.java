@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.treetagger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import org.annolab.tt4j.TokenHandler;
+import org.annolab.tt4j.TreeTaggerException;
+import org.annolab.tt4j.TreeTaggerWrapper;
+import org.apache.uima.fit.component.initialize.ConfigurationParameterInitializer;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.resource.DataResource;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.SharedResourceObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Pool of {@link TreeTaggerWrapper}s with the same model. It can be bound as a
+ * shared resource to several replicas of {@link MorphTagger}, then each
+ * replica borrows a TreeTagger process for a document, and at most
+ * {@value #PARAM_POOL_SIZE} processes are started. The resource URL points to
+ * the model file. Wrappers are created on demand, a failed wrapper is
+ * destroyed and replaced by a new one on the next request. Call
+ * {@link #start()} to check the model and the TreeTagger installation before
+ * the first document.
+ * <p>
+ * Token texts are passed to TreeTagger as strings, so a CAS is not accessed by
+ * tt4j threads.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class TreeTaggerWrapperPool implements SharedResourceObject {
+
+	public static final String PARAM_POOL_SIZE = "poolSize";
+	public static final String PARAM_MODEL_ENCODING = "modelEncoding";
+	// a token that is tagged by start()
+	private static final String PROBE_TOKEN = ".";
+
+	/**
+	 * Creates a wrapper with the given model. It is replaced in tests.
+	 */
+	interface WrapperFactory {
+		TreeTaggerWrapper<String> newWrapper(String modelName) throws IOException;
+	}
+
+	static final WrapperFactory DEFAULT_WRAPPER_FACTORY = new WrapperFactory() {
+		@Override
+		public TreeTaggerWrapper<String> newWrapper(String modelName) throws IOException {
+			TreeTaggerWrapper<String> wrapper = new TreeTaggerWrapper<String>();
+			boolean success = false;
+			try {
+				wrapper.setModel(modelName);
+				success = true;
+				return wrapper;
+			} finally {
+				if (!success) {
+					wrapper.destroy();
+				}
+			}
+		}
+	};
+
+	/**
+	 * Output of TreeTagger for a token.
+	 */
+	public static final class TaggedToken {
+		private final String pos;
+		private final String lemma;
+
+		TaggedToken(String pos, String lemma) {
+			this.pos = pos;
+			this.lemma = lemma;
+		}
+
+		public String getPos() {
+			return pos;
+		}
+
+		public String getLemma() {
+			return lemma;
+		}
+	}
+
+	private final Logger log = LoggerFactory.getLogger(getClass());
+
+	// config fields
+	@ConfigurationParameter(name = PARAM_POOL_SIZE, defaultValue = "1")
+	private int poolSize;
+	@ConfigurationParameter(name = PARAM_MODEL_ENCODING, mandatory = false)
+	private String modelEncoding;
+	// a model path with an optional encoding suffix as accepted by TreeTaggerWrapper#setModel
+	private String modelName;
+	private WrapperFactory wrapperFactory = DEFAULT_WRAPPER_FACTORY;
+	// state fields, guarded by this
+	private Deque<TreeTaggerWrapper<String>> idleWrappers;
+	private int startedCount;
+	private List<TreeTaggerWrapper<String>> allWrappers;
+	private boolean destroyed;
+
+	/**
+	 * Constructor for UIMA resource manager.
+	 */
+	public TreeTaggerWrapperPool() {
+	}
+
+	/**
+	 * @param modelName
+	 *            a model path with an optional encoding suffix, e.g.,
+	 *            <code>rus.par:utf8</code>
+	 */
+	public TreeTaggerWrapperPool(String modelName, int poolSize) {
+		this(modelName, poolSize, DEFAULT_WRAPPER_FACTORY);
+	}
+
+	TreeTaggerWrapperPool(String modelName, int poolSize, WrapperFactory wrapperFactory) {
+		this.modelName = modelName;
+		this.poolSize = poolSize;
+		this.wrapperFactory = wrapperFactory;
+		init();
+	}
+
+	@Override
+	public void load(DataResource dr) throws ResourceInitializationException {
+		ConfigurationParameterInitializer.initialize(this, dr);
+		if (dr.getUrl() == null || !"file".equals(dr.getUrl().getProtocol())) {
+			throw new ResourceInitializationException(new IllegalStateException(String.format(
+					"Model URL must be a file URL: %s", dr.getUrl())));
+		}
+		File modelFile = new File(dr.getUri());
+		if (!modelFile.isFile()) {
+			throw new ResourceInitializationException(new IllegalStateException(String.format(
+					"%s is not existing file", modelFile)));
+		}
+		modelName = modelFile.getAbsolutePath();
+		if (modelEncoding != null) {
+			modelName += ":" + modelEncoding;
+		}
+		try {
+			init();
+		} catch (IllegalStateException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	private void init() {
+		if (poolSize < 1) {
+			throw new IllegalStateException(String.format("Illegal pool size: %s", poolSize));
+		}
+		idleWrappers = new ArrayDeque<TreeTaggerWrapper<String>>(poolSize);
+		allWrappers = Lists.newArrayListWithCapacity(poolSize);
+	}
+
+	/**
+	 * Starts a wrapper if there is no one and tags a probe token by it, so a
+	 * wrong model or a missing TreeTagger executable is reported by this
+	 * method instead of the tagging of the first document.
+	 */
+	public void start() throws IOException, TreeTaggerException {
+		tag(ImmutableList.of(ImmutableList.of(PROBE_TOKEN)));
+	}
+
+	/**
+	 * Tags token sequences, e.g., documents, in a single TreeTagger call using
+	 * an idle wrapper. It waits if all wrappers are busy and no more can be
+	 * started.
+	 *
+	 * @param tokenSeqs
+	 *            token texts of each sequence
+	 * @return tagger output for each token of each sequence
+	 * @throws TreeTaggerException
+	 *             if TreeTagger has not returned output for each token
+	 */
+	public List<TaggedToken[]> tag(List<? extends List<String>> tokenSeqs)
+			throws IOException, TreeTaggerException {
+		List<String> allTokens = Lists.newArrayList();
+		for (List<String> seq : tokenSeqs) {
+			allTokens.addAll(seq);
+		}
+		final TaggedToken[] allOutput = new TaggedToken[allTokens.size()];
+		// the number of tokens returned by TreeTagger
+		final int[] outputCount = new int[1];
+		TreeTaggerWrapper<String> wrapper = borrow();
+		boolean failed = true;
+		try {
+			wrapper.setHandler(new TokenHandler<String>() {
+				@Override
+				public void token(String token, String pos, String lemma) {
+					synchronized (allOutput) {
+						int i = outputCount[0]++;
+						if (i < allOutput.length) {
+							allOutput[i] = new TaggedToken(pos, lemma);
+						}
+					}
+				}
+			});
+			wrapper.process(allTokens);
+			wrapper.setHandler(null);
+			synchronized (allOutput) {
+				if (outputCount[0] != allOutput.length) {
+					throw new TreeTaggerException(String.format(
+							"TreeTagger has returned %s tokens for %s input tokens",
+							outputCount[0], allOutput.length));
+				}
+			}
+			failed = false;
+		} finally {
+			release(wrapper, failed);
+		}
+		List<TaggedToken[]> result = Lists.newArrayListWithCapacity(tokenSeqs.size());
+		synchronized (allOutput) {
+			int offset = 0;
+			for (List<String> seq : tokenSeqs) {
+				TaggedToken[] seqOutput = new TaggedToken[seq.size()];
+				System.arraycopy(allOutput, offset, seqOutput, 0, seqOutput.length);
+				offset += seqOutput.length;
+				result.add(seqOutput);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stops all processes. Wrappers that are in use are stopped too.
+	 */
+	public synchronized void destroy() {
+		destroyed = true;
+		for (TreeTaggerWrapper<String> w : allWrappers) {
+			w.destroy();
+		}
+		allWrappers.clear();
+		idleWrappers.clear();
+		notifyAll();
+	}
+
+	private TreeTaggerWrapper<String> borrow() throws IOException, TreeTaggerException {
+		synchronized (this) {
+			while (true) {
+				if (destroyed) {
+					throw new IllegalStateException("The pool is destroyed");
+				}
+				if (!idleWrappers.isEmpty()) {
+					return idleWrappers.removeFirst();
+				}
+				if (startedCount < poolSize) {
+					// reserve a slot and load the model outside of the lock
+					startedCount++;
+					break;
+				}
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new TreeTaggerException("Interrupted while waiting for an idle wrapper", e);
+				}
+			}
+		}
+		TreeTaggerWrapper<String> wrapper = null;
+		try {
+			wrapper = wrapperFactory.newWrapper(modelName);
+			log.info("Started a TreeTagger wrapper, pool size is {}", poolSize);
+			return wrapper;
+		} finally {
+			synchronized (this) {
+				if (wrapper == null) {
+					startedCount--;
+					notifyAll();
+				} else {
+					allWrappers.add(wrapper);
+				}
+			}
+		}
+	}
+
+	private synchronized void release(TreeTaggerWrapper<String> wrapper, boolean failed) {
+		if (destroyed) {
+			wrapper.destroy();
+		} else if (failed) {
+			// its process may be out of sync, let the next request start a new one
+			wrapper.destroy();
+			allWrappers.remove(wrapper);
+			startedCount--;
+		} else {
+			idleWrappers.addLast(wrapper);
+		}
+		notifyAll();
+	}
+}
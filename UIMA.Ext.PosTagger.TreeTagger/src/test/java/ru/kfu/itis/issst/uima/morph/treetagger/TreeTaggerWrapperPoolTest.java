@@ -0,0 +1,208 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.morph.treetagger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.annolab.tt4j.TokenHandler;
+import org.annolab.tt4j.TreeTaggerException;
+import org.annolab.tt4j.TreeTaggerWrapper;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import ru.kfu.itis.issst.uima.morph.treetagger.TreeTaggerWrapperPool.TaggedToken;
+import ru.kfu.itis.issst.uima.morph.treetagger.TreeTaggerWrapperPool.WrapperFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class TreeTaggerWrapperPoolTest {
+
+	private static final String MODEL = "rus.par:utf8";
+
+	@Test
+	public void testBorrowRelease() throws Exception {
+		MockWrapperFactory factory = new MockWrapperFactory();
+		TreeTaggerWrapperPool pool = new TreeTaggerWrapperPool(MODEL, 1, factory);
+		List<TaggedToken[]> result = pool.tag(ImmutableList.of(
+				ImmutableList.of("Мама", "мыла"), ImmutableList.of("раму")));
+		assertEquals(2, result.size());
+		assertEquals(2, result.get(0).length);
+		assertEquals("POS_Мама", result.get(0)[0].getPos());
+		assertEquals("lemma_мыла", result.get(0)[1].getLemma());
+		assertEquals(1, result.get(1).length);
+		assertEquals("POS_раму", result.get(1)[0].getPos());
+		// the released wrapper is reused
+		pool.tag(ImmutableList.of(ImmutableList.of("рама")));
+		assertEquals(1, factory.created.size());
+		TreeTaggerWrapper<String> wrapper = factory.created.get(0);
+		verify(wrapper, times(2)).process(anyCollectionOf(String.class));
+		verify(wrapper, never()).destroy();
+		pool.destroy();
+		verify(wrapper).destroy();
+	}
+
+	@Test
+	public void testStart() throws Exception {
+		MockWrapperFactory factory = new MockWrapperFactory();
+		TreeTaggerWrapperPool pool = new TreeTaggerWrapperPool(MODEL, 2, factory);
+		pool.start();
+		assertEquals(1, factory.created.size());
+		// the probe wrapper is idle
+		pool.tag(ImmutableList.of(ImmutableList.of("рама")));
+		assertEquals(1, factory.created.size());
+		pool.destroy();
+	}
+
+	@Test
+	public void testStartWithWrongModel() throws Exception {
+		MockWrapperFactory factory = new MockWrapperFactory();
+		factory.failuresOnCreate = 1;
+		TreeTaggerWrapperPool pool = new TreeTaggerWrapperPool(MODEL, 1, factory);
+		try {
+			pool.start();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		// the reserved slot is released
+		pool.start();
+		assertEquals(1, factory.created.size());
+		pool.destroy();
+	}
+
+	@Test
+	public void testReleaseAfterFailure() throws Exception {
+		MockWrapperFactory factory = new MockWrapperFactory();
+		factory.failuresOnProcess = 1;
+		TreeTaggerWrapperPool pool = new TreeTaggerWrapperPool(MODEL, 1, factory);
+		try {
+			pool.tag(ImmutableList.of(ImmutableList.of("рама")));
+			fail();
+		} catch (TreeTaggerException e) {
+			// expected
+		}
+		TreeTaggerWrapper<String> failed = factory.created.get(0);
+		verify(failed).destroy();
+		// a new wrapper replaces the failed one
+		TaggedToken[] tags = pool.tag(ImmutableList.of(ImmutableList.of("рама"))).get(0);
+		assertEquals("POS_рама", tags[0].getPos());
+		assertEquals(2, factory.created.size());
+		pool.destroy();
+		verify(failed).destroy();
+		verify(factory.created.get(1)).destroy();
+	}
+
+	@Test
+	public void testOutputSizeMismatch() throws Exception {
+		MockWrapperFactory factory = new MockWrapperFactory();
+		factory.skipLastToken = true;
+		TreeTaggerWrapperPool pool = new TreeTaggerWrapperPool(MODEL, 1, factory);
+		try {
+			pool.tag(ImmutableList.of(ImmutableList.of("Мама", "мыла", "раму")));
+			fail();
+		} catch (TreeTaggerException e) {
+			assertEquals("TreeTagger has returned 2 tokens for 3 input tokens", e.getMessage());
+		}
+		verify(factory.created.get(0)).destroy();
+		pool.destroy();
+	}
+
+	@Test
+	public void testDestroy() throws Exception {
+		MockWrapperFactory factory = new MockWrapperFactory();
+		TreeTaggerWrapperPool pool = new TreeTaggerWrapperPool(MODEL, 1, factory);
+		pool.start();
+		pool.destroy();
+		verify(factory.created.get(0)).destroy();
+		try {
+			pool.tag(ImmutableList.of(ImmutableList.of("рама")));
+			fail();
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("destroyed"));
+		}
+		assertEquals(1, factory.created.size());
+	}
+
+	/**
+	 * Creates mock wrappers that tag a token <code>t</code> by
+	 * <code>POS_t</code> and <code>lemma_t</code>.
+	 */
+	private static class MockWrapperFactory implements WrapperFactory {
+		final List<TreeTaggerWrapper<String>> created = Lists.newArrayList();
+		int failuresOnCreate;
+		int failuresOnProcess;
+		boolean skipLastToken;
+
+		@Override
+		public synchronized TreeTaggerWrapper<String> newWrapper(String modelName)
+				throws IOException {
+			assertEquals(MODEL, modelName);
+			if (failuresOnCreate > 0) {
+				failuresOnCreate--;
+				throw new IOException("Can't load the model");
+			}
+			TreeTaggerWrapper<String> wrapper = newMockWrapper();
+			created.add(wrapper);
+			return wrapper;
+		}
+
+		@SuppressWarnings("unchecked")
+		private TreeTaggerWrapper<String> newMockWrapper() throws IOException {
+			TreeTaggerWrapper<String> wrapper = mock(TreeTaggerWrapper.class);
+			final TokenHandler<String>[] handlerHolder = new TokenHandler[1];
+			doAnswer(new Answer<Void>() {
+				@Override
+				public Void answer(InvocationOnMock invocation) {
+					handlerHolder[0] = (TokenHandler<String>) invocation.getArguments()[0];
+					return null;
+				}
+			}).when(wrapper).setHandler(any(TokenHandler.class));
+			try {
+				doAnswer(new Answer<Void>() {
+					@Override
+					public Void answer(InvocationOnMock invocation) throws Exception {
+						synchronized (MockWrapperFactory.this) {
+							if (failuresOnProcess > 0) {
+								failuresOnProcess--;
+								throw new TreeTaggerException("TreeTagger process has died");
+							}
+						}
+						List<String> tokens = Lists.newArrayList(
+								(Collection<String>) invocation.getArguments()[0]);
+						if (skipLastToken) {
+							tokens.remove(tokens.size() - 1);
+						}
+						for (String t : tokens) {
+							handlerHolder[0].token(t, "POS_" + t, "lemma_" + t);
+						}
+						return null;
+					}
+				}).when(wrapper).process(anyCollectionOf(String.class));
+			} catch (TreeTaggerException e) {
+				// can't happen while stubbing
+				throw new IllegalStateException(e);
+			}
+			return wrapper;
+		}
+	}
+}
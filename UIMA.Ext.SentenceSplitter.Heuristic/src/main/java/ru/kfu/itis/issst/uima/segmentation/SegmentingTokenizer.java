@@ -0,0 +1,153 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.segmentation;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+import ru.kfu.cll.uima.segmentation.fstype.Paragraph;
+import ru.kfu.cll.uima.segmentation.fstype.Sentence;
+import ru.kfu.cll.uima.tokenizer.fstype.BREAK;
+import ru.kfu.cll.uima.tokenizer.fstype.CW;
+import ru.kfu.cll.uima.tokenizer.fstype.EXCLAMATION;
+import ru.kfu.cll.uima.tokenizer.fstype.PERIOD;
+import ru.kfu.cll.uima.tokenizer.fstype.QUESTION;
+import ru.kfu.cll.uima.tokenizer.fstype.SW;
+import ru.kfu.cll.uima.tokenizer.fstype.Token;
+import ru.kfu.itis.issst.uima.tokenizer.SimpleTokenizer;
+import ru.kfu.itis.issst.uima.tokenizer.SpanTokenizer;
+
+/**
+ * Makes the annotations of {@link SimpleTokenizer}, {@link SentenceSplitter}
+ * and {@link ParagraphSplitter} in one pass over a document text. Sentence
+ * boundaries are decided while tokens are created, so the token index is never
+ * iterated. Unlike the separate annotators it always tokenizes the whole
+ * document text.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class SegmentingTokenizer extends JCasAnnotator_ImplBase {
+
+	public static final String PARAM_ABBREVIATIONS_LOCATION = SimpleTokenizer.PARAM_ABBREVIATIONS_LOCATION;
+
+	public static AnalysisEngineDescription createDescription()
+			throws ResourceInitializationException {
+		TypeSystemDescription tsDesc = SentenceSplitterAPI.getTypeSystemDescription();
+		return createEngineDescription(SegmentingTokenizer.class, tsDesc);
+	}
+
+	@ConfigurationParameter(name = PARAM_ABBREVIATIONS_LOCATION, mandatory = false)
+	private String abbreviationsLocation = SimpleTokenizer.DEFAULT_ABBREVIATIONS_LOCATION;
+	// derived
+	private SpanTokenizer spanTokenizer;
+	// per-document state
+	private Token sentenceStart;
+	private Token prevToken;
+	private Token curToken;
+	// whitespace between curToken and the next token
+	private boolean spaceAfterCur;
+	private boolean newlineAfterCur;
+
+	@Override
+	public void initialize(UimaContext ctx) throws ResourceInitializationException {
+		super.initialize(ctx);
+		try {
+			spanTokenizer = SpanTokenizer.create(abbreviationsLocation);
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	@Override
+	public void process(JCas cas) throws AnalysisEngineProcessException {
+		String text = cas.getDocumentText();
+		List<Annotation> tokens = spanTokenizer.tokenize(cas, text, 0, text.length());
+		sentenceStart = null;
+		prevToken = null;
+		curToken = null;
+		int lastParaEnd = 0;
+		for (Annotation anno : tokens) {
+			if (anno instanceof Token) {
+				onToken(cas, (Token) anno);
+			} else {
+				// whitespace
+				spaceAfterCur = true;
+				if (!newlineAfterCur && containsNewline(text, anno)) {
+					newlineAfterCur = true;
+				}
+				if (anno instanceof BREAK) {
+					makeParagraph(cas, lastParaEnd, anno.getBegin());
+					lastParaEnd = anno.getEnd();
+				}
+			}
+		}
+		if (sentenceStart != null) {
+			makeSentence(cas, sentenceStart, curToken);
+		}
+		if (lastParaEnd < text.length()) {
+			makeParagraph(cas, lastParaEnd, text.length());
+		}
+		sentenceStart = null;
+		prevToken = null;
+		curToken = null;
+	}
+
+	private void onToken(JCas cas, Token next) {
+		if (curToken == null) {
+			// the first token of a document is never checked as a sentence end
+			sentenceStart = next;
+		} else if (prevToken != null && isSentenceEnd(curToken)
+				&& (newlineAfterCur ||
+				(spaceAfterCur && !isAbbreviation(prevToken) && !(next instanceof SW)))) {
+			makeSentence(cas, sentenceStart, curToken);
+			sentenceStart = next;
+		}
+		prevToken = curToken;
+		curToken = next;
+		spaceAfterCur = false;
+		newlineAfterCur = false;
+	}
+
+	private static boolean isSentenceEnd(Token token) {
+		return token instanceof PERIOD || token instanceof EXCLAMATION
+				|| token instanceof QUESTION;
+	}
+
+	private static boolean isAbbreviation(Token token) {
+		return token.getTypeIndexID() == CW.type && token.getEnd() - token.getBegin() == 1;
+	}
+
+	private static boolean containsNewline(String text, Annotation anno) {
+		for (int i = anno.getBegin(); i < anno.getEnd(); i++) {
+			if (text.charAt(i) == '\n') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void makeSentence(JCas cas, Token firstToken, Token lastToken) {
+		Sentence sentence = new Sentence(cas, firstToken.getBegin(), lastToken.getEnd());
+		sentence.setFirstToken(firstToken);
+		sentence.setLastToken(lastToken);
+		sentence.addToIndexes();
+	}
+
+	private static void makeParagraph(JCas cas, int begin, int end) {
+		new Paragraph(cas, begin, end).addToIndexes();
+	}
+}
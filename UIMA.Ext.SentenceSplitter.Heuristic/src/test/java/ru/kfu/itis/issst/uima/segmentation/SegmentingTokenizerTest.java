@@ -0,0 +1,128 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.segmentation;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Before;
+import org.junit.Test;
+
+import ru.kfu.cll.uima.segmentation.fstype.Sentence;
+import ru.kfu.itis.issst.uima.tokenizer.InitialTokenizer;
+import ru.kfu.itis.issst.uima.tokenizer.PostTokenizer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Checks that {@link SegmentingTokenizer} yields the same annotations as
+ * {@link InitialTokenizer}, {@link PostTokenizer}, {@link SentenceSplitter}
+ * and {@link ParagraphSplitter} in a row.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class SegmentingTokenizerTest {
+
+	private AnalysisEngine segmentingTokenizer;
+	private AnalysisEngine pipeline;
+	private JCas jcas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		segmentingTokenizer = createEngine(SegmentingTokenizer.createDescription());
+		pipeline = createEngine(createEngineDescription(
+				InitialTokenizer.createDescription(),
+				PostTokenizer.createDescription(),
+				SentenceSplitter.createDescription(),
+				createEngineDescription(ParagraphSplitter.class)));
+		jcas = segmentingTokenizer.newJCas();
+	}
+
+	@Test
+	public void testSentences() throws UIMAException {
+		List<String> expected = Lists.newArrayList(
+				"Sentence[0,22]{0,22}",
+				"Sentence[23,48]{23,48}",
+				"Sentence[49,68]{49,68}",
+				"Sentence[69,78]{69,78}");
+		assertEquals(expected, sentences(segmentingTokenizer,
+				"Он пришёл в г. Казань. А. С. Пушкин написал это! Новая строка\nи ещё.\nвот и всё"));
+		assertEquals(ImmutableList.of(), segment(segmentingTokenizer, ""));
+	}
+
+	@Test
+	public void testRandomText() throws UIMAException {
+		String alphabet = "абвгдЁЖЗийКЛМнопрстуфхцчшщъыьэюяABCxyz0123456789"
+				+ "...,,:;??!!-—()«»\"'     \t\n\n\r$%";
+		Random rnd = new Random(42);
+		for (int iter = 0; iter < 300; iter++) {
+			StringBuilder sb = new StringBuilder();
+			int len = rnd.nextInt(300);
+			for (int i = 0; i < len; i++) {
+				sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+				switch (rnd.nextInt(12)) {
+				case 0:
+					sb.append("г.");
+					break;
+				case 1:
+					sb.append(". А");
+					break;
+				case 2:
+					sb.append("! ");
+					break;
+				default:
+					break;
+				}
+			}
+			String text = sb.toString();
+			assertEquals(text, segment(pipeline, text), segment(segmentingTokenizer, text));
+		}
+	}
+
+	private List<String> sentences(AnalysisEngine ae, String text) throws UIMAException {
+		process(ae, text);
+		List<String> result = Lists.newArrayList();
+		for (Sentence sent : JCasUtil.select(jcas, Sentence.class)) {
+			result.add(toString(sent));
+		}
+		return result;
+	}
+
+	private List<String> segment(AnalysisEngine ae, String text) throws UIMAException {
+		process(ae, text);
+		List<String> result = Lists.newArrayList();
+		for (Annotation anno : JCasUtil.select(jcas, Annotation.class)) {
+			if (anno instanceof Sentence) {
+				result.add(toString((Sentence) anno));
+			} else if (!CAS.TYPE_NAME_DOCUMENT_ANNOTATION.equals(anno.getType().getName())) {
+				result.add(String.format("%s[%s,%s]", anno.getType().getShortName(),
+						anno.getBegin(), anno.getEnd()));
+			}
+		}
+		return result;
+	}
+
+	private void process(AnalysisEngine ae, String text) throws UIMAException {
+		jcas.reset();
+		jcas.setDocumentText(text);
+		ae.process(jcas);
+	}
+
+	private static String toString(Sentence sent) {
+		return String.format("Sentence[%s,%s]{%s,%s}", sent.getBegin(), sent.getEnd(),
+				sent.getFirstToken().getBegin(), sent.getLastToken().getEnd());
+	}
+}
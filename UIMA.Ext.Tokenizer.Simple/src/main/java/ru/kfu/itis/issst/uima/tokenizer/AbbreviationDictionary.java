@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+
+/**
+ * Set of abbreviations compiled into a sorted array, so a text range can be
+ * looked up by char comparisons without creating a string.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class AbbreviationDictionary {
+
+	static final String DEFAULT_LOCATION = "ru/kfu/itis/issst/uima/tokenizer/abbreviations.txt";
+
+	/**
+	 * @param location
+	 *            classpath resource name or file path of a UTF-8 text with one
+	 *            abbreviation per line. Empty lines and lines starting with
+	 *            '#' are ignored.
+	 */
+	static AbbreviationDictionary load(String location) throws IOException {
+		List<String> lines;
+		URL url = AbbreviationDictionary.class.getClassLoader().getResource(location);
+		if (url != null) {
+			lines = Resources.readLines(url, Charsets.UTF_8);
+		} else {
+			File file = new File(location);
+			if (!file.isFile()) {
+				throw new IllegalArgumentException(String.format(
+						"Can't find abbreviations at %s", location));
+			}
+			lines = Files.readLines(file, Charsets.UTF_8);
+		}
+		List<String> entries = Lists.newArrayListWithExpectedSize(lines.size());
+		for (String line : lines) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				entries.add(line);
+			}
+		}
+		return new AbbreviationDictionary(entries);
+	}
+
+	private final String[] entries;
+
+	AbbreviationDictionary(Iterable<String> entries) {
+		this.entries = Lists.newArrayList(entries).toArray(new String[0]);
+		Arrays.sort(this.entries);
+	}
+
+	/**
+	 * @return true if the given range of the text is an abbreviation
+	 */
+	boolean contains(CharSequence text, int begin, int end) {
+		int low = 0;
+		int high = entries.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(entries[mid], text, begin, end);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int size() {
+		return entries.length;
+	}
+
+	// the same order as String#compareTo
+	private static int compare(String entry, CharSequence text, int begin, int end) {
+		int len = end - begin;
+		int minLen = Math.min(entry.length(), len);
+		for (int i = 0; i < minLen; i++) {
+			char c1 = entry.charAt(i);
+			char c2 = text.charAt(begin + i);
+			if (c1 != c2) {
+				return c1 - c2;
+			}
+		}
+		return entry.length() - len;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+/**
+ * Precomputed classification of all UTF-16 code units into the token classes
+ * of {@link InitialTokenizer}. A class lookup is a single array access instead
+ * of {@link Character#getType(char)} and whitespace checks for each
+ * character.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+final class CharClassTable {
+
+	static final byte WORD = 0;
+	static final byte NUM = 1;
+	static final byte BREAK = 2;
+	static final byte SPACE = 3;
+	static final byte PUNCTUATION = 4;
+	static final byte SPECIAL = 5;
+
+	private static final byte[] table = new byte[Character.MAX_VALUE + 1];
+
+	static {
+		for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+			table[ch] = classify((char) ch);
+		}
+	}
+
+	/**
+	 * @param ch
+	 * @return one of the class constants
+	 */
+	static byte classOf(char ch) {
+		return table[ch];
+	}
+
+	/**
+	 * @param tokenClass
+	 *            class of a current token
+	 * @param ch
+	 * @return true if the given char continues a token of the given class
+	 */
+	static boolean continues(byte tokenClass, char ch) {
+		byte chClass = table[ch];
+		switch (tokenClass) {
+		case WORD:
+		case NUM:
+		case BREAK:
+			return chClass == tokenClass;
+		case SPACE:
+			// line breaks are whitespace too, so they stick to a preceding space
+			return chClass == SPACE || chClass == BREAK;
+		default:
+			// punctuation and special chars make one-char tokens
+			return false;
+		}
+	}
+
+	// NOTE! Ordering of checks is CRUCIAL!
+	private static byte classify(char ch) {
+		switch (Character.getType(ch)) {
+		case Character.UPPERCASE_LETTER:
+		case Character.LOWERCASE_LETTER:
+		case Character.TITLECASE_LETTER:
+		case Character.MODIFIER_LETTER:
+		case Character.OTHER_LETTER:
+		case Character.NON_SPACING_MARK:
+		case Character.ENCLOSING_MARK:
+		case Character.COMBINING_SPACING_MARK:
+		case Character.PRIVATE_USE:
+		case Character.SURROGATE:
+		case Character.MODIFIER_SYMBOL:
+			return WORD;
+		case Character.DECIMAL_DIGIT_NUMBER:
+		case Character.LETTER_NUMBER:
+		case Character.OTHER_NUMBER:
+			return NUM;
+		}
+		if (ch == '\n' || ch == '\r') {
+			return BREAK;
+		}
+		if (Character.isWhitespace(ch)
+				// catches NBSP
+				|| Character.isSpaceChar(ch)) {
+			return SPACE;
+		}
+		switch (Character.getType(ch)) {
+		case Character.DASH_PUNCTUATION:
+		case Character.START_PUNCTUATION:
+		case Character.END_PUNCTUATION:
+		case Character.OTHER_PUNCTUATION:
+		case Character.INITIAL_QUOTE_PUNCTUATION:
+		case Character.FINAL_QUOTE_PUNCTUATION:
+		case Character.CONNECTOR_PUNCTUATION:
+			return PUNCTUATION;
+		default:
+			return SPECIAL;
+		}
+	}
+
+	private CharClassTable() {
+	}
+}
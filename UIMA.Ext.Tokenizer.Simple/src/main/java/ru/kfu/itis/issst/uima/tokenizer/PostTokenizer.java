@@ -3,12 +3,13 @@
  */
 package ru.kfu.itis.issst.uima.tokenizer;
 
+import java.io.IOException;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.cas.CAS;
@@ -19,6 +20,7 @@ import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
 import org.apache.uima.fit.factory.AnalysisEngineFactory;
 
 import ru.kfu.cll.uima.tokenizer.fstype.NUM;
@@ -36,6 +38,9 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
+ * Merges tokens made by {@link InitialTokenizer}. {@link SimpleTokenizer}
+ * applies the same heuristics without creating the merged parts.
+ * 
  * @author Rinat Gareev (Kazan Federal University)
  * 
  */
@@ -46,11 +51,26 @@ public class PostTokenizer extends JCasAnnotator_ImplBase {
 		return AnalysisEngineFactory.createEngineDescription(PostTokenizer.class);
 	}
 
+	@ConfigurationParameter(name = SimpleTokenizer.PARAM_ABBREVIATIONS_LOCATION, mandatory = false)
+	private String abbreviationsLocation = SimpleTokenizer.DEFAULT_ABBREVIATIONS_LOCATION;
+
+	// derived
+	private AbbreviationDictionary abbreviations;
 	// per-CAS state
 	private Map<AnnotationFS, Collection<? extends AnnotationFS>> mergedMap;
 	private Type wordType;
 	private Type numType;
 
+	@Override
+	public void initialize(UimaContext ctx) throws ResourceInitializationException {
+		super.initialize(ctx);
+		try {
+			abbreviations = AbbreviationDictionary.load(abbreviationsLocation);
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -63,10 +83,10 @@ public class PostTokenizer extends JCasAnnotator_ImplBase {
 		try {
 			AnnotationIndex<Annotation> tokenBases = jCas.getAnnotationIndex(TokenBase.typeIndexID);
 			// sequence of tokens that does not contain whitespace
-			List<Token> curTokenSeq = Lists.newLinkedList();
+			List<Token> curTokenSeq = Lists.newArrayList();
 			for (Annotation tokenBase : tokenBases) {
 				if (tokenBase instanceof WhiteSpace) {
-					handle(cas, ImmutableList.copyOf(curTokenSeq));
+					handle(cas, curTokenSeq);
 					curTokenSeq.clear();
 				} else {
 					// it's Token
@@ -74,7 +94,7 @@ public class PostTokenizer extends JCasAnnotator_ImplBase {
 				}
 			}
 			// handle last seq
-			handle(cas, ImmutableList.copyOf(curTokenSeq));
+			handle(cas, curTokenSeq);
 			curTokenSeq.clear();
 			// index/unindex
 			Set<String> mergedTokenStrings = Sets.newHashSet();
@@ -121,26 +141,24 @@ public class PostTokenizer extends JCasAnnotator_ImplBase {
 			}
 		} else {
 			// tokens size >= 4
-			LinkedList<Token> cleaned = Lists.newLinkedList(tokens);
-			while (!cleaned.isEmpty() && isPMOrSpecial(cleaned.getFirst())) {
-				cleaned.removeFirst();
+			int from = 0;
+			int to = tokens.size();
+			while (from < to && isPMOrSpecial(tokens.get(from))) {
+				from++;
 			}
-			while (!cleaned.isEmpty() && isPMOrSpecial(cleaned.getLast())) {
-				cleaned.removeLast();
+			while (from < to && isPMOrSpecial(tokens.get(to - 1))) {
+				to--;
 			}
 			// to avoid infinite recursion
-			if (tokens.size() != cleaned.size()) {
-				return handle(cas, cleaned);
+			if (tokens.size() != to - from) {
+				return handle(cas, tokens.subList(from, to));
 			}
 		}
 		return false;
 	}
 
-	private static final Set<String> abbreviations = ImmutableSet.of("г.");
-
-	// TODO use external dictionary
 	private boolean isAbbreviation(String str) {
-		return abbreviations.contains(str);
+		return abbreviations.contains(str, 0, str.length());
 	}
 
 	private static final Set<String> POSSIBLE_INNER_PM = ImmutableSet.of("'", "-", "`");
@@ -205,6 +223,7 @@ public class PostTokenizer extends JCasAnnotator_ImplBase {
 	private void makeAnnotation(CAS cas, Type targetType, List<? extends AnnotationFS> rangeAnnos) {
 		int begin = rangeAnnos.get(0).getBegin();
 		int end = rangeAnnos.get(rangeAnnos.size() - 1).getEnd();
-		mergedMap.put(cas.createAnnotation(targetType, begin, end), rangeAnnos);
+		// the given list is a view of a reused one
+		mergedMap.put(cas.createAnnotation(targetType, begin, end), ImmutableList.copyOf(rangeAnnos));
 	}
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static ru.kfu.itis.cll.uima.util.AnnotatorUtils.annotationTypeExist;
+import static ru.kfu.itis.issst.uima.tokenizer.TokenizerAPI.DEFAULT_SPAN_TYPE;
+import static ru.kfu.itis.issst.uima.tokenizer.TokenizerAPI.PARAM_SPAN_TYPE;
+import static ru.kfu.itis.issst.uima.tokenizer.TokenizerAPI.TYPESYSTEM_TOKENIZER;
+
+import java.io.IOException;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.fit.component.CasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+
+/**
+ * {@link InitialTokenizer} and {@link PostTokenizer} in a single pass. Tokens
+ * of a span are merged before their annotations are created, so the CAS
+ * receives only final tokens. Note that unlike the PostTokenizer it does not
+ * merge tokens of adjacent spans.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class SimpleTokenizer extends CasAnnotator_ImplBase {
+
+	public static final String PARAM_ABBREVIATIONS_LOCATION = "abbreviationsLocation";
+	public static final String DEFAULT_ABBREVIATIONS_LOCATION = AbbreviationDictionary.DEFAULT_LOCATION;
+
+	public static AnalysisEngineDescription createDescription()
+			throws ResourceInitializationException {
+		TypeSystemDescription tsDesc = createTypeSystemDescription(TYPESYSTEM_TOKENIZER);
+		return createEngineDescription(SimpleTokenizer.class, tsDesc);
+	}
+
+	@ConfigurationParameter(name = PARAM_SPAN_TYPE, mandatory = false)
+	private String spanTypeName = DEFAULT_SPAN_TYPE;
+	@ConfigurationParameter(name = PARAM_ABBREVIATIONS_LOCATION, mandatory = false)
+	private String abbreviationsLocation = DEFAULT_ABBREVIATIONS_LOCATION;
+
+	// derived
+	private Type spanType;
+	private SpanTokenizer spanTokenizer;
+
+	@Override
+	public void initialize(UimaContext ctx) throws ResourceInitializationException {
+		super.initialize(ctx);
+		try {
+			spanTokenizer = SpanTokenizer.create(abbreviationsLocation);
+		} catch (IOException e) {
+			throw new ResourceInitializationException(e);
+		}
+	}
+
+	@Override
+	public void typeSystemInit(TypeSystem typeSystem) throws AnalysisEngineProcessException {
+		super.typeSystemInit(typeSystem);
+		spanType = typeSystem.getType(spanTypeName);
+		annotationTypeExist(spanTypeName, spanType);
+	}
+
+	@Override
+	public void process(CAS _cas) throws AnalysisEngineProcessException {
+		JCas cas;
+		try {
+			cas = _cas.getJCas();
+		} catch (CASException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+		String text = cas.getDocumentText();
+		FSIterator<Annotation> spanIterator = cas.getAnnotationIndex(spanType).iterator();
+		while (spanIterator.hasNext()) {
+			Annotation span = spanIterator.next();
+			spanTokenizer.tokenize(cas, text, span.getBegin(), span.getEnd());
+		}
+	}
+}
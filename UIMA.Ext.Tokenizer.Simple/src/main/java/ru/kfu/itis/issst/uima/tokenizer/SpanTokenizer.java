@@ -0,0 +1,57 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+/**
+ * Tokenizes text spans by the rules of {@link SimpleTokenizer} and keeps the
+ * token annotations of the last span in text order. It lets other single-pass
+ * annotators build on tokens without iterating CAS indexes. An instance is
+ * reused between spans and is not thread-safe.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class SpanTokenizer {
+
+	/**
+	 * @param abbreviationsLocation
+	 *            classpath resource name or file path of an abbreviation list,
+	 *            see {@link SimpleTokenizer#PARAM_ABBREVIATIONS_LOCATION}
+	 */
+	public static SpanTokenizer create(String abbreviationsLocation) throws IOException {
+		return new SpanTokenizer(AbbreviationDictionary.load(abbreviationsLocation));
+	}
+
+	private final TokenMerger merger;
+	private final TokenBuffer tokens = new TokenBuffer();
+	private final TokenBuffer mergedTokens = new TokenBuffer();
+	private final List<Annotation> annotations = new ArrayList<Annotation>();
+	private final List<Annotation> annotationsView = Collections.unmodifiableList(annotations);
+
+	SpanTokenizer(AbbreviationDictionary abbreviations) {
+		merger = new TokenMerger(abbreviations);
+	}
+
+	/**
+	 * Adds token annotations of the given text span to the CAS indexes.
+	 *
+	 * @return token annotations (including whitespace ones) of the span in
+	 *         text order. The list is valid until the next invocation.
+	 */
+	public List<Annotation> tokenize(JCas cas, String text, int begin, int end) {
+		annotations.clear();
+		tokens.scan(text, begin, end);
+		merger.merge(text, tokens, mergedTokens);
+		TokenAnnotations.addToIndexes(cas, text, mergedTokens, annotations);
+		return annotationsView;
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import java.util.List;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import ru.kfu.cll.uima.tokenizer.fstype.BREAK;
+import ru.kfu.cll.uima.tokenizer.fstype.CAP;
+import ru.kfu.cll.uima.tokenizer.fstype.COLON;
+import ru.kfu.cll.uima.tokenizer.fstype.COMMA;
+import ru.kfu.cll.uima.tokenizer.fstype.CW;
+import ru.kfu.cll.uima.tokenizer.fstype.EXCLAMATION;
+import ru.kfu.cll.uima.tokenizer.fstype.NUM;
+import ru.kfu.cll.uima.tokenizer.fstype.PERIOD;
+import ru.kfu.cll.uima.tokenizer.fstype.PM;
+import ru.kfu.cll.uima.tokenizer.fstype.QUESTION;
+import ru.kfu.cll.uima.tokenizer.fstype.SEMICOLON;
+import ru.kfu.cll.uima.tokenizer.fstype.SPACE;
+import ru.kfu.cll.uima.tokenizer.fstype.SPECIAL;
+import ru.kfu.cll.uima.tokenizer.fstype.SW;
+import ru.kfu.cll.uima.tokenizer.fstype.W;
+
+/**
+ * Creates token annotations from the content of a {@link TokenBuffer}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class TokenAnnotations {
+
+	/**
+	 * Creates annotations of all tokens in the given buffer and adds them to
+	 * the CAS indexes.
+	 */
+	static void addToIndexes(JCas cas, String text, TokenBuffer tokens) {
+		addToIndexes(cas, text, tokens, null);
+	}
+
+	/**
+	 * The same as {@link #addToIndexes(JCas, String, TokenBuffer)} but also
+	 * appends the created annotations to the given list if it is not null.
+	 */
+	static void addToIndexes(JCas cas, String text, TokenBuffer tokens, List<Annotation> result) {
+		for (int i = 0; i < tokens.size(); i++) {
+			Annotation anno = create(cas, text, tokens.getClass(i),
+					tokens.getBegin(i), tokens.getTypeEnd(i));
+			anno.setBegin(tokens.getBegin(i));
+			anno.setEnd(tokens.getEnd(i));
+			anno.addToIndexes();
+			if (result != null) {
+				result.add(anno);
+			}
+		}
+	}
+
+	/**
+	 * @param typeEnd
+	 *            end of the prefix of a token that defines its type. It is
+	 *            less than the token end for tokens merged from several ones.
+	 */
+	private static Annotation create(JCas cas, String text, byte tokenClass, int begin,
+			int typeEnd) {
+		switch (tokenClass) {
+		case CharClassTable.WORD:
+			return createWordAnnotation(cas, text, begin, typeEnd);
+		case TokenBuffer.WORD_GENERIC:
+			return new W(cas);
+		case CharClassTable.NUM:
+			return new NUM(cas);
+		case CharClassTable.BREAK:
+			return new BREAK(cas);
+		case CharClassTable.SPACE:
+			return new SPACE(cas);
+		case CharClassTable.PUNCTUATION:
+			return createPunctuationAnnotation(cas, text.charAt(begin));
+		case CharClassTable.SPECIAL:
+			return new SPECIAL(cas);
+		default:
+			throw new IllegalStateException("Unknown token class: " + tokenClass);
+		}
+	}
+
+	private static Annotation createWordAnnotation(JCas cas, String text, int begin, int end) {
+		checkOffsets(begin, end);
+		int capLetters = 0;
+		for (int i = begin; i < end; i++) {
+			if (Character.isUpperCase(text.charAt(i))) {
+				capLetters++;
+			} else {
+				break;
+			}
+		}
+		if (capLetters == 0) {
+			return new SW(cas);
+		} else if (capLetters == end - begin && capLetters > 1) {
+			return new CAP(cas);
+		} else {
+			return new CW(cas);
+		}
+	}
+
+	private static Annotation createPunctuationAnnotation(JCas cas, char ch) {
+		switch (ch) {
+		case ',':
+			return new COMMA(cas);
+		case '.':
+			return new PERIOD(cas);
+		case ':':
+			return new COLON(cas);
+		case ';':
+			return new SEMICOLON(cas);
+		case '?':
+			return new QUESTION(cas);
+		case '!':
+			return new EXCLAMATION(cas);
+		default:
+			return new PM(cas);
+		}
+	}
+
+	private static void checkOffsets(int begin, int end) {
+		if (end <= begin) {
+			throw new IllegalStateException(String.format(
+					"Illegal annotation offsets: %s to %s",
+					begin, end));
+		}
+	}
+
+	private TokenAnnotations() {
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import java.util.Arrays;
+
+/**
+ * Token boundaries and classes of a text span. Tokens are collected before
+ * annotations are created, so scanning and merging do not touch the CAS. An
+ * instance is reused between spans and is not thread-safe.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class TokenBuffer {
+
+	/**
+	 * class of a merged word whose annotation type is the generic W
+	 */
+	static final byte WORD_GENERIC = CharClassTable.SPECIAL + 1;
+
+	private int size;
+	private byte[] classes = new byte[256];
+	private int[] begins = new int[256];
+	private int[] ends = new int[256];
+	// end of the prefix of a token that defines its word type, see TokenAnnotations
+	private int[] typeEnds = new int[256];
+
+	/**
+	 * Replaces the content of this buffer by tokens of the given text span.
+	 */
+	void scan(CharSequence text, int begin, int end) {
+		clear();
+		byte tokenClass = -1;
+		int tokenBegin = begin;
+		for (int i = begin; i < end; i++) {
+			char ch = text.charAt(i);
+			if (tokenClass < 0 || !CharClassTable.continues(tokenClass, ch)) {
+				if (tokenClass >= 0) {
+					add(tokenClass, tokenBegin, i);
+				}
+				tokenClass = CharClassTable.classOf(ch);
+				tokenBegin = i;
+			}
+		}
+		// need this check because input span may be empty
+		if (tokenClass >= 0) {
+			add(tokenClass, tokenBegin, end);
+		}
+	}
+
+	void add(byte tokenClass, int begin, int end) {
+		add(tokenClass, begin, end, end);
+	}
+
+	void add(byte tokenClass, int begin, int end, int typeEnd) {
+		if (size == classes.length) {
+			int newCapacity = size * 2;
+			classes = Arrays.copyOf(classes, newCapacity);
+			begins = Arrays.copyOf(begins, newCapacity);
+			ends = Arrays.copyOf(ends, newCapacity);
+			typeEnds = Arrays.copyOf(typeEnds, newCapacity);
+		}
+		classes[size] = tokenClass;
+		begins[size] = begin;
+		ends[size] = end;
+		typeEnds[size] = typeEnd;
+		size++;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	byte getClass(int i) {
+		return classes[i];
+	}
+
+	int getBegin(int i) {
+		return begins[i];
+	}
+
+	int getEnd(int i) {
+		return ends[i];
+	}
+
+	int getTypeEnd(int i) {
+		return typeEnds[i];
+	}
+
+	boolean isWhitespace(int i) {
+		return classes[i] == CharClassTable.SPACE || classes[i] == CharClassTable.BREAK;
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+/**
+ * Applies the merging heuristics of {@link PostTokenizer} to the content of a
+ * {@link TokenBuffer}. Each run of tokens between whitespace is handled once,
+ * and a merged token is emitted instead of its parts, so the parts are never
+ * created.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+class TokenMerger {
+
+	private final AbbreviationDictionary abbreviations;
+	// result of the last findMerge call
+	private int mergeFrom;
+	private int mergeTo;
+	private byte mergeClass;
+	private int mergeTypeEnd;
+
+	TokenMerger(AbbreviationDictionary abbreviations) {
+		this.abbreviations = abbreviations;
+	}
+
+	/**
+	 * Replaces the content of the target buffer by the source tokens where
+	 * some of them are merged.
+	 */
+	void merge(CharSequence text, TokenBuffer src, TokenBuffer dst) {
+		dst.clear();
+		int runBegin = 0;
+		for (int i = 0; i <= src.size(); i++) {
+			if (i == src.size() || src.isWhitespace(i)) {
+				mergeRun(text, src, runBegin, i, dst);
+				if (i < src.size()) {
+					copy(src, i, i + 1, dst);
+				}
+				runBegin = i + 1;
+			}
+		}
+	}
+
+	private void mergeRun(CharSequence text, TokenBuffer src, int from, int to, TokenBuffer dst) {
+		if (!findMerge(text, src, from, to)) {
+			copy(src, from, to, dst);
+			return;
+		}
+		copy(src, from, mergeFrom, dst);
+		dst.add(mergeClass, src.getBegin(mergeFrom), src.getEnd(mergeTo - 1), mergeTypeEnd);
+		copy(src, mergeTo, to, dst);
+	}
+
+	private boolean findMerge(CharSequence text, TokenBuffer src, int from, int to) {
+		while (true) {
+			int size = to - from;
+			if (size <= 1) {
+				return false;
+			} else if (size == 2) {
+				int t0 = from;
+				int t1 = from + 1;
+				// check abbreviation dictionary
+				if (isWord(src, t0) && isChar(text, src, t1, '.')
+						&& abbreviations.contains(text, src.getBegin(t0), src.getEnd(t1))) {
+					return setMerge(src, from, to, t0);
+				}
+				if (!isPMOrSpecial(src, t0) && !isPMOrSpecial(src, t1)) {
+					return setMerge(src, from, to, t0);
+				}
+				return false;
+			} else if (size == 3) {
+				int t0 = from;
+				int t1 = from + 1;
+				int t2 = from + 2;
+				if (isPossibleInnerPM(text, src, t1) && (isWord(src, t0) || isWord(src, t2))) {
+					return setMerge(src, from, to, t0);
+				}
+				// TODO may be RANGE is better as target type, e.g. "12-14"
+				if (isNumInternalPM(text, src, t1) && isNum(src, t0) && isNum(src, t2)) {
+					mergeFrom = from;
+					mergeTo = to;
+					mergeClass = CharClassTable.NUM;
+					mergeTypeEnd = src.getEnd(to - 1);
+					return true;
+				}
+				return false;
+			} else {
+				// tokens size >= 4
+				int cleanedFrom = from;
+				int cleanedTo = to;
+				while (cleanedFrom < cleanedTo && isPMOrSpecial(src, cleanedFrom)) {
+					cleanedFrom++;
+				}
+				while (cleanedFrom < cleanedTo && isPMOrSpecial(src, cleanedTo - 1)) {
+					cleanedTo--;
+				}
+				if (cleanedTo - cleanedFrom == size) {
+					return false;
+				}
+				from = cleanedFrom;
+				to = cleanedTo;
+			}
+		}
+	}
+
+	/**
+	 * Sets a merge of a word with the type of the first token if it is a word,
+	 * otherwise - with the generic word type.
+	 */
+	private boolean setMerge(TokenBuffer src, int from, int to, int first) {
+		mergeFrom = from;
+		mergeTo = to;
+		if (isWord(src, first)) {
+			mergeClass = CharClassTable.WORD;
+			mergeTypeEnd = src.getTypeEnd(first);
+		} else {
+			mergeClass = TokenBuffer.WORD_GENERIC;
+			mergeTypeEnd = src.getEnd(to - 1);
+		}
+		return true;
+	}
+
+	private static void copy(TokenBuffer src, int from, int to, TokenBuffer dst) {
+		for (int i = from; i < to; i++) {
+			dst.add(src.getClass(i), src.getBegin(i), src.getEnd(i), src.getTypeEnd(i));
+		}
+	}
+
+	private static boolean isWord(TokenBuffer src, int i) {
+		byte c = src.getClass(i);
+		return c == CharClassTable.WORD || c == TokenBuffer.WORD_GENERIC;
+	}
+
+	private static boolean isNum(TokenBuffer src, int i) {
+		return src.getClass(i) == CharClassTable.NUM;
+	}
+
+	private static boolean isPMOrSpecial(TokenBuffer src, int i) {
+		byte c = src.getClass(i);
+		return c == CharClassTable.PUNCTUATION || c == CharClassTable.SPECIAL;
+	}
+
+	private static boolean isChar(CharSequence text, TokenBuffer src, int i, char ch) {
+		return src.getEnd(i) - src.getBegin(i) == 1 && text.charAt(src.getBegin(i)) == ch;
+	}
+
+	private static boolean isPossibleInnerPM(CharSequence text, TokenBuffer src, int i) {
+		return isChar(text, src, i, '\'') || isChar(text, src, i, '-') || isChar(text, src, i, '`');
+	}
+
+	private static boolean isNumInternalPM(CharSequence text, TokenBuffer src, int i) {
+		return isChar(text, src, i, ',') || isChar(text, src, i, '.') || isChar(text, src, i, '-');
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Checks {@link InitialTokenizer} against a straightforward implementation of
+ * its tokenization rules that classifies each character by
+ * {@link Character} methods.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class InitialTokenizerTest {
+
+	private AnalysisEngine tokenizer;
+	private JCas jcas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		tokenizer = createEngine(InitialTokenizer.createDescription());
+		jcas = tokenizer.newJCas();
+	}
+
+	@Test
+	public void testSimpleText() throws UIMAException {
+		assertEquals(Lists.newArrayList(
+				"CW[0,6]", "SPACE[6,7]", "SW[7,11]", "SPACE[11,12]", "NUM[12,16]",
+				"PM[16,17]", "SW[17,18]", "COMMA[18,19]", "SPACE[19,21]", "CAP[21,24]",
+				"PERIOD[24,25]", "PERIOD[25,26]", "SPACE[26,29]", "CW[29,30]", "EXCLAMATION[30,31]",
+				"BREAK[31,33]", "SPECIAL[33,34]"),
+				tokenize("Привет мира 2014-г,  ООН..\t\n\nЯ!\r\n$"));
+		assertEquals(Lists.newArrayList(), tokenize(""));
+	}
+
+	@Test
+	public void testCharClasses() {
+		for (int i = 0; i <= Character.MAX_VALUE; i++) {
+			char ch = (char) i;
+			assertEquals("Char " + i, referenceClassOf(ch), CharClassTable.classOf(ch));
+		}
+	}
+
+	@Test
+	public void testRandomText() throws UIMAException {
+		String alphabet = "абвгдЁЖЗийКЛМнопрстуфхцчшщъыьэюяABCxyz0123456789²Ⅳ"
+				+ ".,:;?!-—()«»\"'_ \t  \n\r$%+=́😀₽";
+		Random rnd = new Random(42);
+		for (int iter = 0; iter < 50; iter++) {
+			StringBuilder sb = new StringBuilder();
+			int len = rnd.nextInt(500);
+			for (int i = 0; i < len; i++) {
+				sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+			}
+			String text = sb.toString();
+			assertEquals(text, referenceTokenize(text), tokenize(text));
+		}
+	}
+
+	private List<String> tokenize(String text) throws UIMAException {
+		jcas.reset();
+		jcas.setDocumentText(text);
+		tokenizer.process(jcas);
+		List<String> result = Lists.newArrayList();
+		for (Annotation anno : JCasUtil.select(jcas, Annotation.class)) {
+			if (!CAS.TYPE_NAME_DOCUMENT_ANNOTATION.equals(anno.getType().getName())) {
+				result.add(toString(anno));
+			}
+		}
+		return result;
+	}
+
+	private static String toString(Annotation anno) {
+		return String.format("%s[%s,%s]", anno.getType().getShortName(),
+				anno.getBegin(), anno.getEnd());
+	}
+
+	private static List<String> referenceTokenize(String text) {
+		List<String> result = Lists.newArrayList();
+		int tokenBegin = 0;
+		for (int i = 1; i <= text.length(); i++) {
+			if (i == text.length() || !referenceContinues(text.charAt(tokenBegin), text.charAt(i))) {
+				result.add(String.format("%s[%s,%s]",
+						referenceTypeOf(text, tokenBegin, i), tokenBegin, i));
+				tokenBegin = i;
+			}
+		}
+		return result;
+	}
+
+	private static boolean referenceContinues(char first, char ch) {
+		switch (referenceClassOf(first)) {
+		case CharClassTable.WORD:
+			return isWordChar(ch);
+		case CharClassTable.NUM:
+			return isNumChar(ch);
+		case CharClassTable.BREAK:
+			return ch == '\n' || ch == '\r';
+		case CharClassTable.SPACE:
+			return Character.isWhitespace(ch) || Character.isSpaceChar(ch);
+		default:
+			return false;
+		}
+	}
+
+	private static String referenceTypeOf(String text, int begin, int end) {
+		char first = text.charAt(begin);
+		switch (referenceClassOf(first)) {
+		case CharClassTable.WORD:
+			int caps = 0;
+			while (begin + caps < end && Character.isUpperCase(text.charAt(begin + caps))) {
+				caps++;
+			}
+			return caps == 0 ? "SW" : caps == end - begin && caps > 1 ? "CAP" : "CW";
+		case CharClassTable.NUM:
+			return "NUM";
+		case CharClassTable.BREAK:
+			return "BREAK";
+		case CharClassTable.SPACE:
+			return "SPACE";
+		case CharClassTable.PUNCTUATION:
+			switch (first) {
+			case ',':
+				return "COMMA";
+			case '.':
+				return "PERIOD";
+			case ':':
+				return "COLON";
+			case ';':
+				return "SEMICOLON";
+			case '?':
+				return "QUESTION";
+			case '!':
+				return "EXCLAMATION";
+			default:
+				return "PM";
+			}
+		default:
+			return "SPECIAL";
+		}
+	}
+
+	private static byte referenceClassOf(char ch) {
+		if (isWordChar(ch)) {
+			return CharClassTable.WORD;
+		}
+		if (isNumChar(ch)) {
+			return CharClassTable.NUM;
+		}
+		if (ch == '\n' || ch == '\r') {
+			return CharClassTable.BREAK;
+		}
+		if (Character.isWhitespace(ch) || Character.isSpaceChar(ch)) {
+			return CharClassTable.SPACE;
+		}
+		int type = Character.getType(ch);
+		if (type == Character.DASH_PUNCTUATION || type == Character.START_PUNCTUATION
+				|| type == Character.END_PUNCTUATION || type == Character.OTHER_PUNCTUATION
+				|| type == Character.INITIAL_QUOTE_PUNCTUATION
+				|| type == Character.FINAL_QUOTE_PUNCTUATION
+				|| type == Character.CONNECTOR_PUNCTUATION) {
+			return CharClassTable.PUNCTUATION;
+		}
+		return CharClassTable.SPECIAL;
+	}
+
+	private static boolean isWordChar(char ch) {
+		int type = Character.getType(ch);
+		return Character.isLetter(ch) || type == Character.NON_SPACING_MARK
+				|| type == Character.ENCLOSING_MARK || type == Character.COMBINING_SPACING_MARK
+				|| type == Character.PRIVATE_USE || type == Character.SURROGATE
+				|| type == Character.MODIFIER_SYMBOL;
+	}
+
+	private static boolean isNumChar(char ch) {
+		int type = Character.getType(ch);
+		return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER
+				|| type == Character.OTHER_NUMBER;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package ru.kfu.itis.issst.uima.tokenizer;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Checks that {@link SimpleTokenizer} yields the same tokens as
+ * {@link InitialTokenizer} followed by {@link PostTokenizer}.
+ *
+ * @author Rinat Gareev (Kazan Federal University)
+ *
+ */
+public class SimpleTokenizerTest {
+
+	private AnalysisEngine simpleTokenizer;
+	private AnalysisEngine twoPassTokenizer;
+	private JCas jcas;
+
+	@Before
+	public void setUp() throws UIMAException {
+		simpleTokenizer = createEngine(SimpleTokenizer.createDescription());
+		twoPassTokenizer = createEngine(createEngineDescription(
+				InitialTokenizer.createDescription(),
+				PostTokenizer.createDescription()));
+		jcas = simpleTokenizer.newJCas();
+	}
+
+	@Test
+	public void testMerging() throws UIMAException {
+		assertEquals(Lists.newArrayList(
+				"NUM[0,4]", "SPACE[4,5]", "CW[5,7]", "SPACE[7,8]",
+				"CAP[8,18]", "SPACE[18,19]", "W[19,22]", "SPACE[22,23]",
+				"NUM[23,28]", "SPACE[28,29]", "SW[29,31]", "SPACE[31,32]",
+				"PM[32,33]", "SW[33,34]", "PM[34,35]", "PERIOD[35,36]"),
+				tokenize(simpleTokenizer, "1998 Г2 ООН-овский 5кг 12-14 г. (т)."));
+		assertEquals(ImmutableList.of(), tokenize(simpleTokenizer, ""));
+	}
+
+	@Test
+	public void testRandomText() throws UIMAException {
+		String alphabet = "абвгдЁЖЗийКЛМнопрстуфхцчшщъыьэюяABCxyz0123456789²"
+				+ ".,:;?!-—()«»\"'`_     \t\n\r$%+=₽";
+		Random rnd = new Random(42);
+		for (int iter = 0; iter < 200; iter++) {
+			StringBuilder sb = new StringBuilder();
+			int len = rnd.nextInt(300);
+			for (int i = 0; i < len; i++) {
+				sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+				if (rnd.nextInt(8) == 0) {
+					sb.append("г.");
+				}
+			}
+			String text = sb.toString();
+			assertEquals(text, tokenize(twoPassTokenizer, text), tokenize(simpleTokenizer, text));
+		}
+	}
+
+	@Test
+	public void testAbbreviationDictionary() {
+		AbbreviationDictionary dict = new AbbreviationDictionary(
+				ImmutableList.of("т.е.", "г.", "им.", "т."));
+		String text = "в г. им. т.е. т";
+		assertTrue(dict.contains(text, 2, 4));
+		assertTrue(dict.contains(text, 5, 8));
+		assertTrue(dict.contains(text, 9, 13));
+		assertTrue(dict.contains(text, 9, 11));
+		assertFalse(dict.contains(text, 9, 12));
+		assertFalse(dict.contains(text, 14, 15));
+		assertFalse(dict.contains(text, 0, 0));
+	}
+
+	private List<String> tokenize(AnalysisEngine ae, String text) throws UIMAException {
+		jcas.reset();
+		jcas.setDocumentText(text);
+		ae.process(jcas);
+		List<String> result = Lists.newArrayList();
+		for (Annotation anno : JCasUtil.select(jcas, Annotation.class)) {
+			if (!CAS.TYPE_NAME_DOCUMENT_ANNOTATION.equals(anno.getType().getName())) {
+				result.add(String.format("%s[%s,%s]", anno.getType().getShortName(),
+						anno.getBegin(), anno.getEnd()));
+			}
+		}
+		return result;
+	}
+}